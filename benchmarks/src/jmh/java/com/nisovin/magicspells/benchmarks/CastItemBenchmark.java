@@ -0,0 +1,60 @@
+package com.nisovin.magicspells.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.enchantments.Enchantment;
+
+import com.nisovin.magicspells.util.CastItem;
+import com.nisovin.magicspells.util.magicitems.MagicItems;
+import com.nisovin.magicspells.util.magicitems.MagicItemData;
+
+@State(Scope.Benchmark)
+public class CastItemBenchmark {
+
+	private ItemStack plain;
+	private ItemStack decorated;
+
+	@Setup
+	public void setup(PluginState state) {
+		plain = new ItemStack(Material.BLAZE_ROD);
+
+		decorated = new ItemStack(Material.DIAMOND_SWORD);
+		ItemMeta meta = decorated.getItemMeta();
+		meta.displayName(Component.text("Wand of Benchmarking"));
+		meta.lore(List.of(Component.text("Measures things."), Component.text("Very fast.")));
+		meta.addEnchant(Enchantment.SHARPNESS, 3, true);
+		meta.setCustomModelData(7);
+		decorated.setItemMeta(meta);
+	}
+
+	@Benchmark
+	public CastItem castItemPlain() {
+		return new CastItem(plain);
+	}
+
+	@Benchmark
+	public CastItem castItemDecorated() {
+		return new CastItem(decorated);
+	}
+
+	@Benchmark
+	public MagicItemData magicItemDataPlain() {
+		return MagicItems.getMagicItemDataFromItemStack(plain);
+	}
+
+	@Benchmark
+	public MagicItemData magicItemDataDecorated() {
+		return MagicItems.getMagicItemDataFromItemStack(decorated);
+	}
+
+}
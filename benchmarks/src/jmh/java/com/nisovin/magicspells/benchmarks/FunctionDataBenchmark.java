@@ -0,0 +1,59 @@
+package com.nisovin.magicspells.benchmarks;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.config.ConfigData;
+import com.nisovin.magicspells.util.config.FunctionData;
+
+@State(Scope.Benchmark)
+public class FunctionDataBenchmark {
+
+	private static final String EXPRESSION = "power * 2 + %arg:1:0% / 4 - max(power, 1.5) ^ 2";
+
+	private final SpellData data = new SpellData(null, 1.5f, new String[]{"12"});
+
+	private FunctionData<Double> compiled;
+	private FunctionData<Double> exp4j;
+	private FunctionData<Double> constant;
+	private FunctionData<Double> random;
+
+	@Setup
+	public void setup() {
+		compiled = FunctionData.build(EXPRESSION, Function.identity());
+		constant = FunctionData.build("2 * (3 + 4) - sqrt(16)", Function.identity());
+		random = FunctionData.build("rand(0, 10) * power", Function.identity());
+
+		// The public constructors skip compilation, which is how every expression was evaluated before.
+		Map<String, ConfigData<Double>> variables = new HashMap<>();
+		exp4j = new FunctionData<>(FunctionData.buildExpression(EXPRESSION, variables, false), variables, Function.identity());
+	}
+
+	@Benchmark
+	public Double compiled() {
+		return compiled.get(data);
+	}
+
+	@Benchmark
+	public Double exp4j() {
+		return exp4j.get(data);
+	}
+
+	@Benchmark
+	public Double constant() {
+		return constant.get(data);
+	}
+
+	@Benchmark
+	public Double random() {
+		return random.get(data);
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.nisovin.magicspells.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.ModifierResult;
+import com.nisovin.magicspells.castmodifiers.ModifierSet;
+
+@State(Scope.Benchmark)
+public class ModifierSetBenchmark {
+
+	private PluginState state;
+	private ModifierSet modifiers;
+	private SpellData data;
+
+	@Setup
+	public void setup(PluginState state) {
+		this.state = state;
+
+		modifiers = new ModifierSet(List.of(
+			"gamemode survival required",
+			"health >5 power 1.5",
+			"food >10 power 1.2",
+			"always cooldown 2"
+		));
+		data = new SpellData(state.caster, state.target, 1f, null);
+	}
+
+	@Benchmark
+	public ModifierResult apply() {
+		return modifiers.apply(state.caster, data);
+	}
+
+	@Benchmark
+	public ModifierResult applyTarget() {
+		return modifiers.apply(state.caster, state.target, data);
+	}
+
+	@Benchmark
+	public boolean check() {
+		return modifiers.check(state.caster);
+	}
+
+}
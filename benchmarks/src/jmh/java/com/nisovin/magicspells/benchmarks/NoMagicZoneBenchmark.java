@@ -0,0 +1,42 @@
+package com.nisovin.magicspells.benchmarks;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.bukkit.Location;
+
+import com.nisovin.magicspells.Spell;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.zones.NoMagicZoneManager;
+
+@State(Scope.Benchmark)
+public class NoMagicZoneBenchmark {
+
+	private NoMagicZoneManager manager;
+	private Spell spell;
+
+	private Location inside;
+	private Location outside;
+
+	@Setup
+	public void setup(PluginState state) {
+		manager = MagicSpells.getNoMagicZoneManager();
+		spell = MagicSpells.getSpellByInternalName("anvil");
+
+		inside = new Location(state.world, 0, 64, 0);
+		outside = new Location(state.world, -5000, 64, 5000);
+	}
+
+	@Benchmark
+	public boolean inside() {
+		return manager.willFizzle(inside, spell);
+	}
+
+	@Benchmark
+	public boolean outside() {
+		return manager.willFizzle(outside, spell);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.nisovin.magicspells.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.bukkit.GameMode;
+
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * A mocked server with MagicSpells enabled, using the default configuration plus the files in
+ * <code>benchmark/</code>, and a world with two players in it.
+ */
+@State(Scope.Benchmark)
+public class PluginState {
+
+	private static final String[] CONFIG_FILES = {"zones.yml"};
+
+	public ServerMock server;
+	public MagicSpells plugin;
+	public WorldMock world;
+
+	public PlayerMock caster;
+	public PlayerMock target;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		server = MockBukkit.mock();
+		world = server.addSimpleWorld("world");
+
+		plugin = MockBukkit.load(MagicSpells.class);
+
+		// The default configuration is written while enabling, so the benchmark files are added afterwards.
+		for (String name : CONFIG_FILES) {
+			try (InputStream in = PluginState.class.getResourceAsStream("/benchmark/" + name)) {
+				if (in == null) throw new IOException("Missing benchmark resource " + name);
+				Files.copy(in, new File(plugin.getDataFolder(), name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		plugin.unload();
+		plugin.load();
+
+		caster = server.addPlayer("Caster");
+		caster.setOp(true);
+		caster.setGameMode(GameMode.SURVIVAL);
+		caster.teleport(world.getSpawnLocation());
+
+		target = server.addPlayer("Target");
+		target.setGameMode(GameMode.SURVIVAL);
+		target.teleport(world.getSpawnLocation().add(3, 0, 0));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		MockBukkit.unmock();
+	}
+
+}
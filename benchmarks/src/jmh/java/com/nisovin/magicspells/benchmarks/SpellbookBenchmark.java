@@ -0,0 +1,52 @@
+package com.nisovin.magicspells.benchmarks;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.magicspells.Spell;
+import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.CastItem;
+
+@State(Scope.Benchmark)
+public class SpellbookBenchmark {
+
+	private Spellbook spellbook;
+
+	private ItemStack bound;
+	private ItemStack unbound;
+	private CastItem castItem;
+
+	@Setup
+	public void setup(PluginState state) {
+		// The caster is an operator, so they know every default spell.
+		spellbook = MagicSpells.getSpellbook(state.caster);
+
+		bound = new ItemStack(Material.BLAZE_ROD);
+		unbound = new ItemStack(Material.DIRT);
+		castItem = new CastItem(bound);
+
+		spellbook.nextSpell(bound);
+	}
+
+	@Benchmark
+	public Spell itemStack() {
+		return spellbook.getActiveSpell(bound);
+	}
+
+	@Benchmark
+	public Spell itemStackUnbound() {
+		return spellbook.getActiveSpell(unbound);
+	}
+
+	@Benchmark
+	public Spell castItem() {
+		return spellbook.getActiveSpell(castItem);
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.nisovin.magicspells.benchmarks;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.config.StringData;
+
+@State(Scope.Benchmark)
+public class StringDataBenchmark {
+
+	private StringData names;
+	private StringData singleName;
+	private StringData mixed;
+	private SpellData data;
+
+	@Setup
+	public void setup(PluginState state) {
+		names = new StringData("%a hits %t with a fireball!");
+		singleName = new StringData("You were hit by %a.");
+		mixed = new StringData("%a casts %arg:1:nothing% at %t for %arg:2:0% damage (%papi:player_name%)");
+
+		data = new SpellData(state.caster, state.target, 1f, new String[]{"fireball", "7"});
+	}
+
+	@Benchmark
+	public String names() {
+		return names.get(data);
+	}
+
+	@Benchmark
+	public String singleName() {
+		return singleName.get(data);
+	}
+
+	@Benchmark
+	public String mixed() {
+		return mixed.get(data);
+	}
+
+}
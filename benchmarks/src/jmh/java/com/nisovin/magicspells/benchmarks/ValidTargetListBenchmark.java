@@ -0,0 +1,44 @@
+package com.nisovin.magicspells.benchmarks;
+
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import org.bukkit.entity.Zombie;
+
+import com.nisovin.magicspells.util.ValidTargetList;
+
+@State(Scope.Benchmark)
+public class ValidTargetListBenchmark {
+
+	private PluginState state;
+	private ValidTargetList players;
+	private ValidTargetList mixed;
+	private Zombie zombie;
+
+	@Setup
+	public void setup(PluginState state) {
+		this.state = state;
+
+		players = new ValidTargetList(true, false);
+		mixed = new ValidTargetList(null, "players,monsters,animals,invisibles");
+		zombie = state.world.spawn(state.world.getSpawnLocation(), Zombie.class);
+	}
+
+	@Benchmark
+	public boolean player() {
+		return players.canTarget(state.caster, state.target);
+	}
+
+	@Benchmark
+	public boolean mixedPlayer() {
+		return mixed.canTarget(state.caster, state.target);
+	}
+
+	@Benchmark
+	public boolean mixedMonster() {
+		return mixed.canTarget(state.caster, zombie);
+	}
+
+}
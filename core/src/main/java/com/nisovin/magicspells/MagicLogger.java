@@ -1,11 +1,24 @@
 package com.nisovin.magicspells;
 
 import java.io.File;
-import java.util.Date;
-import java.io.FileWriter;
+import java.io.Writer;
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+
+import java.nio.charset.StandardCharsets;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import org.bukkit.Location;
 import org.bukkit.block.Block;
@@ -15,7 +28,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.entity.LivingEntity;
 
-import com.nisovin.magicspells.handlers.DebugHandler;
+import com.nisovin.magicspells.util.MagicConfig;
 import com.nisovin.magicspells.events.SpellCastEvent;
 import com.nisovin.magicspells.events.SpellLearnEvent;
 import com.nisovin.magicspells.events.SpellCastedEvent;
@@ -23,107 +36,143 @@ import com.nisovin.magicspells.events.SpellForgetEvent;
 import com.nisovin.magicspells.events.SpellTargetEvent;
 import com.nisovin.magicspells.events.SpellTargetLocationEvent;
 
+/**
+ * Logs spell learning, forgetting, casting and targeting to files in the data folder.
+ * <p>
+ * Listeners only capture the fields of an event into a bounded queue. A background thread drains the queue in
+ * batches, formats the entries as text or JSON lines into a buffered writer, flushes it periodically and rotates
+ * the log file by size or age. When the queue is full, entries are either dropped and counted, or the caller
+ * waits briefly for room before dropping.
+ */
 public class MagicLogger implements Listener {
 
-	private static final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+	private static final int BATCH_SIZE = 256;
+	private static final long BLOCK_TIMEOUT = 50;
+	private static final long SHUTDOWN_TIMEOUT = 10_000;
 
-	private FileWriter writer;
-	
-	MagicLogger(MagicSpells plugin) {
-		File file = new File(plugin.getDataFolder(), "log-" + System.currentTimeMillis() + ".txt");
-		try {
-			writer = new FileWriter(file, true);
-			MagicSpells.registerEvents(this);
-		} catch (IOException e) {
-			MagicSpells.handleException(e);
-		}
+	private final File folder;
+	private final boolean json;
+	private final boolean block;
+	private final long flushInterval;
+	private final long maxFileSize;
+	private final long rotateInterval;
+
+	private final BlockingQueue<Entry> queue;
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running = true;
+	private final Thread thread;
+
+	// Only accessed on the writer thread.
+	private Writer writer;
+	private long fileSize;
+	private long fileOpened;
+
+	MagicLogger(MagicSpells plugin, MagicConfig config) {
+		String path = "general.";
+
+		folder = plugin.getDataFolder();
+		json = config.getString(path + "logging-format", "text").equalsIgnoreCase("json");
+		block = config.getString(path + "logging-queue-full-policy", "drop").equalsIgnoreCase("block");
+		flushInterval = Math.max(config.getInt(path + "logging-flush-interval", 1000), 1);
+		maxFileSize = Math.max(config.getLong(path + "logging-max-file-size", 10), 0) * 1024 * 1024;
+		rotateInterval = TimeUnit.MINUTES.toMillis(Math.max(config.getLong(path + "logging-rotate-interval", 0), 0));
+		queue = new ArrayBlockingQueue<>(Math.max(config.getInt(path + "logging-queue-size", 4096), 1));
+
+		thread = new Thread(this::run, "MagicSpells Logger");
+		thread.setDaemon(true);
+		thread.start();
+
+		MagicSpells.registerEvents(this);
 	}
-	
+
+	/**
+	 * Stops accepting entries and waits for the writer thread to write the remaining ones.
+	 */
 	void disable() {
-		if (writer != null) {
-			try {
-				writer.flush();
-				writer.close();
-			} catch (IOException e) {
-				MagicSpells.handleException(e);
-			}
+		running = false;
+		try {
+			thread.join(flushInterval + SHUTDOWN_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
-		writer = null;
+		if (thread.isAlive()) MagicSpells.error("Timed out waiting for the spell log to be written.");
 	}
-	
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellLearn(SpellLearnEvent event) {
-		log("LEARN" + 
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; player=" + event.getLearner().getName() + 
-				"; loc=" + formatLoc(event.getLearner().getLocation()) +
-				"; source=" + event.getSource().name() +
-				"; teacher=" + getTeacherName(event.getTeacher()) +
-				"; cancelled=" + event.isCancelled());
-	}
-	
+		log("LEARN",
+			"spell", event.getSpell().getInternalName(),
+			"player", event.getLearner().getName(),
+			"loc", formatLoc(event.getLearner().getLocation()),
+			"source", event.getSource().name(),
+			"teacher", getTeacherName(event.getTeacher()),
+			"cancelled", event.isCancelled());
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellForget(SpellForgetEvent event) {
-		log("FORGET" + 
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; player=" + event.getForgetter().getName() + 
-				"; loc=" + formatLoc(event.getForgetter().getLocation()) +
-				"; cancelled=" + event.isCancelled());
+		log("FORGET",
+			"spell", event.getSpell().getInternalName(),
+			"player", event.getForgetter().getName(),
+			"loc", formatLoc(event.getForgetter().getLocation()),
+			"cancelled", event.isCancelled());
 	}
-	
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellCast(SpellCastEvent event) {
-		log("BEGIN CAST" + 
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; caster=" + event.getCaster().getName() + 
-				"; loc=" + formatLoc(event.getCaster().getLocation()) +
-				"; state=" + event.getSpellCastState().name() +
-				"; power=" + event.getPower() +
-				"; cancelled=" + event.isCancelled());
-	}
-	
+		log("BEGIN CAST",
+			"spell", event.getSpell().getInternalName(),
+			"caster", event.getCaster().getName(),
+			"loc", formatLoc(event.getCaster().getLocation()),
+			"state", event.getSpellCastState().name(),
+			"power", event.getPower(),
+			"cancelled", event.isCancelled());
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellTarget(SpellTargetEvent event) {
 		LivingEntity caster = event.getCaster();
-		log("TARGET ENTITY" +
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; caster=" + (caster != null ? caster.getName() : "null") + 
-				"; casterLoc=" + (caster != null ? formatLoc(caster.getLocation()) : "null") +
-				": target=" + getTargetName(event.getTarget()) + 
-				"; targetLoc=" + formatLoc(event.getTarget().getLocation()) +
-				"; cancelled=" + event.isCancelled());
-	}
-	
+		log("TARGET ENTITY",
+			"spell", event.getSpell().getInternalName(),
+			"caster", caster != null ? caster.getName() : "null",
+			"casterLoc", caster != null ? formatLoc(caster.getLocation()) : "null",
+			"target", getTargetName(event.getTarget()),
+			"targetLoc", formatLoc(event.getTarget().getLocation()),
+			"cancelled", event.isCancelled());
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellTargetLocation(SpellTargetLocationEvent event) {
-		log("TARGET LOCATION" +
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; caster=" + event.getCaster().getName() + 
-				"; casterLoc=" + formatLoc(event.getCaster().getLocation()) +
-				"; targetLoc=" + formatLoc(event.getTargetLocation()) +
-				"; cancelled=" + event.isCancelled());
-	}
-	
+		log("TARGET LOCATION",
+			"spell", event.getSpell().getInternalName(),
+			"caster", event.getCaster().getName(),
+			"casterLoc", formatLoc(event.getCaster().getLocation()),
+			"targetLoc", formatLoc(event.getTargetLocation()),
+			"cancelled", event.isCancelled());
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onSpellCasted(SpellCastedEvent event) {
-		log("END CAST" +
-				"; spell=" + event.getSpell().getInternalName() + 
-				"; caster=" + event.getCaster().getName() + 
-				"; loc=" + formatLoc(event.getCaster().getLocation()) +
-				"; state=" + event.getSpellCastState().name() +
-				"; power=" + event.getPower() +
-				"; result=" + event.getPostCastAction().name());
-	}
-	
+		log("END CAST",
+			"spell", event.getSpell().getInternalName(),
+			"caster", event.getCaster().getName(),
+			"loc", formatLoc(event.getCaster().getLocation()),
+			"state", event.getSpellCastState().name(),
+			"power", event.getPower(),
+			"result", event.getPostCastAction().name());
+	}
+
 	private String formatLoc(Location location) {
 		return location.getWorld().getName() + ',' + location.getBlockX() + ',' + location.getBlockY() + ',' + location.getBlockZ();
 	}
-	
+
 	private String getTargetName(LivingEntity target) {
 		if (target instanceof Player) return target.getName();
 		return target.getType().name();
 	}
-	
+
 	private String getTeacherName(Object o) {
 		if (o == null) return "none";
 		if (o instanceof Player player) return "player-" + player.getName();
@@ -131,14 +180,151 @@ public class MagicLogger implements Listener {
 		if (o instanceof Block block) return "block-" + formatLoc(block.getLocation());
 		return o.toString();
 	}
-	
-	private void log(String string) {
+
+	/**
+	 * @param event the event name
+	 * @param fields alternating field names and values
+	 */
+	private void log(String event, Object... fields) {
+		if (!running) return;
+
+		Entry entry = new Entry(System.currentTimeMillis(), event, fields);
+		if (queue.offer(entry)) return;
+
+		if (block) {
+			try {
+				if (queue.offer(entry, BLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		dropped.incrementAndGet();
+	}
+
+	private void run() {
+		List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+		StringBuilder builder = new StringBuilder();
+		long lastFlush = System.currentTimeMillis();
+
+		while (running || !queue.isEmpty()) {
+			try {
+				Entry entry = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (entry != null) {
+					batch.add(entry);
+					queue.drainTo(batch, BATCH_SIZE - 1);
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			long droppedCount = dropped.getAndSet(0);
+			if (droppedCount > 0) batch.add(new Entry(System.currentTimeMillis(), "DROPPED", new Object[] {"count", droppedCount}));
+
+			try {
+				for (Entry entry : batch) {
+					builder.setLength(0);
+					if (json) formatJson(entry, builder);
+					else formatText(entry, builder);
+					builder.append('\n');
+
+					rotateIfNeeded(entry.time);
+					writer.append(builder);
+					fileSize += builder.length();
+				}
+
+				long now = System.currentTimeMillis();
+				if (writer != null && now - lastFlush >= flushInterval) {
+					writer.flush();
+					lastFlush = now;
+				}
+			} catch (IOException e) {
+				MagicSpells.error("Failed to write the spell log.");
+				MagicSpells.handleException(e);
+				closeWriter();
+			}
+
+			batch.clear();
+		}
+
+		closeWriter();
+	}
+
+	private void rotateIfNeeded(long time) throws IOException {
+		if (writer != null) {
+			boolean full = maxFileSize > 0 && fileSize >= maxFileSize;
+			boolean old = rotateInterval > 0 && time - fileOpened >= rotateInterval;
+			if (!full && !old) return;
+
+			closeWriter();
+		}
+
+		fileOpened = System.currentTimeMillis();
+		fileSize = 0;
+
+		File file = new File(folder, "log-" + fileOpened + (json ? ".jsonl" : ".txt"));
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+	}
+
+	private void closeWriter() {
 		if (writer == null) return;
 		try {
-			writer.write('[' + dateFormat.format(new Date()) + "] " + string + '\n');
+			writer.close();
 		} catch (IOException e) {
-			DebugHandler.debugIOException(e);
+			MagicSpells.handleException(e);
 		}
+		writer = null;
 	}
-	
+
+	private static void formatText(Entry entry, StringBuilder builder) {
+		builder.append('[');
+		DATE_FORMAT.formatTo(Instant.ofEpochMilli(entry.time), builder);
+		builder.append("] ").append(entry.event);
+
+		Object[] fields = entry.fields;
+		for (int i = 0; i + 1 < fields.length; i += 2)
+			builder.append("; ").append(fields[i]).append('=').append(fields[i + 1]);
+	}
+
+	private static void formatJson(Entry entry, StringBuilder builder) {
+		builder.append("{\"time\":").append(entry.time).append(",\"event\":");
+		appendJsonString(builder, entry.event);
+
+		Object[] fields = entry.fields;
+		for (int i = 0; i + 1 < fields.length; i += 2) {
+			builder.append(',');
+			appendJsonString(builder, fields[i].toString());
+			builder.append(':');
+
+			Object value = fields[i + 1];
+			if (value instanceof Number || value instanceof Boolean) builder.append(value);
+			else appendJsonString(builder, String.valueOf(value));
+		}
+
+		builder.append('}');
+	}
+
+	private static void appendJsonString(StringBuilder builder, String string) {
+		builder.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+				case '"' -> builder.append("\\\"");
+				case '\\' -> builder.append("\\\\");
+				case '\n' -> builder.append("\\n");
+				case '\r' -> builder.append("\\r");
+				case '\t' -> builder.append("\\t");
+				default -> {
+					if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+					else builder.append(c);
+				}
+			}
+		}
+		builder.append('"');
+	}
+
+	private record Entry(long time, String event, Object[] fields) {
+
+	}
+
 }
@@ -7,6 +7,7 @@ import java.util.logging.Level;
 import java.util.stream.Stream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Constructor;
@@ -61,7 +62,13 @@ import com.nisovin.magicspells.variables.Variable;
 import com.nisovin.magicspells.spells.PassiveSpell;
 import com.nisovin.magicspells.commands.MagicCommand;
 import com.nisovin.magicspells.util.compat.EventUtil;
+import com.nisovin.magicspells.storage.Database;
 import com.nisovin.magicspells.storage.StorageHandler;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.trackers.ProjectileEngine;
+import com.nisovin.magicspells.util.config.PlaceholderCache;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
 import com.nisovin.magicspells.util.prompt.PromptType;
 import com.nisovin.magicspells.util.compat.CompatBasics;
 import com.nisovin.magicspells.zones.NoMagicZoneManager;
@@ -72,12 +79,18 @@ import com.nisovin.magicspells.commands.CommandHelpFilter;
 import com.nisovin.magicspells.util.magicitems.MagicItems;
 import com.nisovin.magicspells.util.recipes.CustomRecipes;
 import com.nisovin.magicspells.spelleffects.EffectPosition;
+import com.nisovin.magicspells.storage.types.AsyncStorage;
 import com.nisovin.magicspells.storage.types.TXTFileStorage;
+import com.nisovin.magicspells.storage.types.DatabaseStorage;
+import com.nisovin.magicspells.storage.databases.MySQLDatabase;
+import com.nisovin.magicspells.storage.databases.SQLiteDatabase;
 import com.nisovin.magicspells.volatilecode.ManagerVolatile;
 import com.nisovin.magicspells.volatilecode.VolatileCodeHandle;
 import com.nisovin.magicspells.events.SpellLearnEvent.LearnSource;
 import com.nisovin.magicspells.spelleffects.trackers.EffectTracker;
+import com.nisovin.magicspells.spells.passive.util.PassiveTicker;
 import com.nisovin.magicspells.spells.passive.util.PassiveListener;
+import com.nisovin.magicspells.spells.passive.util.PassiveDispatcher;
 import com.nisovin.magicspells.variables.variabletypes.GlobalVariable;
 import com.nisovin.magicspells.spelleffects.trackers.AsyncEffectTracker;
 import com.nisovin.magicspells.spelleffects.effecttypes.EffectLibEffect;
@@ -103,8 +116,12 @@ public class MagicSpells extends JavaPlugin {
 	private Map<EntityType, String> entityNames;
 
 	// Profiling
-	private Map<String, Long> profilingTotalTime;
-	private Map<String, Integer> profilingRuns;
+	private Profiler profiler;
+
+	private ProjectileEngine projectileEngine;
+
+	private TimingWheel timingWheel;
+	private EntityGrid entityGrid;
 
 	private Map<String, Spell> spells; // Map internal names to spells
 	private Map<String, Spell> spellNames; // Map configured names to spells
@@ -125,6 +142,9 @@ public class MagicSpells extends JavaPlugin {
 	private BossBarManager bossBarManager;
 	private VariableManager variableManager;
 	private PassiveManager passiveManager;
+	private PassiveDispatcher passiveDispatcher;
+	private CooldownManager cooldownManager;
+	private PassiveTicker passiveTicker;
 	private SpellEffectManager spellEffectManager;
 	private ConditionManager conditionManager;
 	private NoMagicZoneManager zoneManager;
@@ -193,6 +213,7 @@ public class MagicSpells extends JavaPlugin {
 	private int globalCooldown;
 	private int broadcastRange;
 	private int effectlibInstanceLimit;
+	private int passiveGrantCheckInterval;
 
 	private long lastReloadTime = 0;
 
@@ -315,6 +336,18 @@ public class MagicSpells extends JavaPlugin {
 		enableErrorLogging = config.getBoolean(path + "enable-error-logging", true);
 		errorLogLimit = config.getInt(path + "error-log-limit", -1);
 		enableProfiling = config.getBoolean(path + "enable-profiling", false);
+		profiler = new Profiler(enableProfiling, config.getInt(path + "profiling-sample-rate", 1),
+			(long) (config.getDouble(path + "profiling-tick-budget", 5) * 1_000_000));
+
+		// Folia has no main thread to run the wheel on, delayed tasks go through its schedulers instead.
+		if (!TaskDispatcher.isFolia()) {
+			timingWheel = new TimingWheel(profiler);
+			timingWheel.initialize();
+		}
+
+		entityGrid = new EntityGrid();
+		entityGrid.initialize();
+
 		textColor = ChatColor.getByChar(config.getString(path + "text-color", ChatColor.DARK_AQUA.getChar() + ""));
 		broadcastRange = config.getInt(path + "broadcast-range", 20);
 		effectlibInstanceLimit = config.getInt(path + "effectlib-instance-limit", 20000);
@@ -325,6 +358,7 @@ public class MagicSpells extends JavaPlugin {
 		ignoreGrantPermsFakeValue = config.getBoolean(path + "ignore-grant-perms-fake-value", true);
 		ignoreCastPerms = config.getBoolean(path + "ignore-cast-perms", false);
 		enableTempGrantPerms = config.getBoolean(path + "enable-tempgrant-perms", true);
+		passiveGrantCheckInterval = config.getInt(path + "passive-grant-check-interval", 20);
 
 		separatePlayerSpellsPerWorld = config.getBoolean(path + "separate-player-spells-per-world", false);
 		allowCycleToNoSpell = config.getBoolean(path + "allow-cycle-to-no-spell", false);
@@ -405,7 +439,7 @@ public class MagicSpells extends JavaPlugin {
 
 		// Create handling objects
 		zoneManager = new NoMagicZoneManager();
-		buffManager = new BuffManager(config.getInt(path + "buff-check-interval", 100));
+		buffManager = new BuffManager();
 		expBarManager = new ExperienceBarManager();
 		bossBarManager = new BossBarManager();
 		if (CompatBasics.pluginEnabled("Vault")) moneyHandler = new MoneyHandler();
@@ -477,6 +511,9 @@ public class MagicSpells extends JavaPlugin {
 
 		// Load spells
 		log("Loading spells...");
+		passiveDispatcher = new PassiveDispatcher();
+		cooldownManager = new CooldownManager();
+		cooldownManager.initialize();
 		loadSpells(permGrantChildren, permLearnChildren, permCastChildren, permTeachChildren);
 		log("...spells loaded: " + spells.size());
 		if (spells.isEmpty()) {
@@ -527,6 +564,7 @@ public class MagicSpells extends JavaPlugin {
 		addPermission("command.util.update", PermissionDefault.OP);
 		addPermission("command.util.saveskin", PermissionDefault.OP);
 		addPermission("command.profilereport", PermissionDefault.OP);
+		addPermission("command.profile", PermissionDefault.OP);
 		addPermission("command.debug", PermissionDefault.OP);
 		addPermission("command.taskinfo", PermissionDefault.OP);
 		addPermission("command.magicxp", PermissionDefault.OP);
@@ -547,8 +585,13 @@ public class MagicSpells extends JavaPlugin {
 
 		// Load player data using a storage handler
 		log("Initializing storage handler...");
-		storageHandler = new TXTFileStorage(plugin);
-		//storageHandler = new DatabaseStorage(plugin, new SQLiteDatabase(plugin, "spellbooks.db"));
+		storageHandler = createStorageHandler(path);
+		// Database round-trips are too slow for the main thread, so those are always asynchronous.
+		if (storageHandler instanceof DatabaseStorage || config.getBoolean(path + "async-storage", false)) {
+			long flushInterval = config.getInt(path + "async-storage-flush-interval", 100) * TimeUtil.MILLISECONDS_PER_TICK;
+			storageHandler = new AsyncStorage(plugin, storageHandler, flushInterval);
+			log("...using async storage");
+		}
 		storageHandler.initialize();
 		log("...done");
 
@@ -559,32 +602,7 @@ public class MagicSpells extends JavaPlugin {
 
 		// Load saved cooldowns
 		if (cooldownsPersistThroughReload) {
-			File file = new File(getDataFolder(), "cooldowns.txt");
-			Scanner scanner = null;
-			if (file.exists()) {
-				try {
-					scanner = new Scanner(file);
-					String line;
-					String[] data;
-					long cooldown;
-					Spell spell;
-					while (scanner.hasNext()) {
-						line = scanner.nextLine();
-						if (line.isEmpty()) continue;
-						data = line.split(":");
-						cooldown = Long.parseLong(data[2]);
-						if (cooldown > System.currentTimeMillis()) {
-							spell = getSpellByInternalName(data[0]);
-							if (spell != null) spell.setCooldownManually(UUID.fromString(data[1]), cooldown);
-						}
-					}
-				} catch (Exception e) {
-					e.printStackTrace();
-				} finally {
-					if (scanner != null) scanner.close();
-					file.delete();
-				}
-			}
+			cooldownManager.load(new File(getDataFolder(), "cooldowns.txt"));
 			log("Restored cooldowns");
 		}
 
@@ -623,7 +641,7 @@ public class MagicSpells extends JavaPlugin {
 
 		// Initialize logger
 		if (config.getBoolean(path + "enable-logging", false)) {
-			magicLogger = new MagicLogger(this);
+			magicLogger = new MagicLogger(this, config);
 		}
 
 		// Register commands
@@ -633,15 +651,41 @@ public class MagicSpells extends JavaPlugin {
 		CommandHelpFilter.mapPerms();
 
 		// Setup profiling
-		if (enableProfiling) {
-			profilingTotalTime = new HashMap<>();
-			profilingRuns = new HashMap<>();
+		profiler.initialize();
+
+		if (!TaskDispatcher.isFolia()) {
+			projectileEngine = new ProjectileEngine(profiler);
+			projectileEngine.initialize();
 		}
 
 		CompatBasics.setupExemptionAssistant();
 
 		// Load external data
-		Bukkit.getScheduler().runTaskLater(this, this::loadExternalData, 1);
+		TaskDispatcher.runGlobal(this::loadExternalData, 1);
+	}
+
+	private StorageHandler createStorageHandler(String path) {
+		String type = config.getString(path + "storage-type", "txt").toLowerCase();
+		String dbPath = path + "database.";
+
+		Database database = switch (type) {
+			case "sqlite" -> new SQLiteDatabase(plugin, config.getString(dbPath + "file", "spellbooks.db"));
+			case "mysql" -> new MySQLDatabase(plugin,
+				config.getString(dbPath + "host", "localhost") + ':' + config.getInt(dbPath + "port", 3306) + '/' + config.getString(dbPath + "name", "magicspells"),
+				config.getString(dbPath + "username", "root"),
+				config.getString(dbPath + "password", "")
+			);
+			case "txt" -> null;
+			default -> {
+				MagicSpells.error("Invalid storage type '" + type + "', defaulting to 'txt'.");
+				yield null;
+			}
+		};
+		if (database == null) return new TXTFileStorage(plugin);
+
+		database.setPoolSize(config.getInt(dbPath + "pool-size", 4));
+		log("...using " + type + " storage");
+		return new DatabaseStorage(plugin, database);
 	}
 
 	private void initializeSpells() {
@@ -710,7 +754,10 @@ public class MagicSpells extends JavaPlugin {
 
 		spells.values().forEach(Spell::initializeVariables);
 
-		if (!variableManager.getVariables().isEmpty()) registerEvents(new VariableListener());
+		if (!variableManager.getVariables().isEmpty()) {
+			registerEvents(new VariableListener());
+			Bukkit.getPluginManager().registerEvents(new VariableListener.PreLoginListener(), plugin);
+		}
 
 		log("...variable meta types loaded: " + variableManager.getMetaVariables().size());
 		log("...variable types loaded: " + variableManager.getVariableTypes().size());
@@ -762,10 +809,12 @@ public class MagicSpells extends JavaPlugin {
 		// Call passive event
 		Bukkit.getPluginManager().callEvent(new PassiveListenersLoadingEvent(plugin, passiveManager));
 
+		passiveTicker = new PassiveTicker(profiler);
 		for (Spell spell : spells.values()) {
 			if (!(spell instanceof PassiveSpell)) continue;
 			((PassiveSpell) spell).initializeListeners();
 		}
+		passiveTicker.initialize();
 
 		log("...passive listeners loaded: " + passiveManager.getListeners().size());
 	}
@@ -1202,7 +1251,7 @@ public class MagicSpells extends JavaPlugin {
 	}
 
 	public static boolean hasProfilingEnabled() {
-		return plugin.enableProfiling;
+		return plugin.profiler != null && plugin.profiler.isEnabled();
 	}
 
 	public static boolean hasAnticheatIntegrations() {
@@ -1230,7 +1279,7 @@ public class MagicSpells extends JavaPlugin {
 	}
 
 	public static boolean profilingEnabled() {
-		return plugin.enableProfiling;
+		return hasProfilingEnabled();
 	}
 
 	public static boolean errorLoggingEnabled() {
@@ -1257,6 +1306,10 @@ public class MagicSpells extends JavaPlugin {
 		return plugin.ignoreGrantPermsFakeValue;
 	}
 
+	public static int getPassiveGrantCheckInterval() {
+		return plugin.passiveGrantCheckInterval;
+	}
+
 	public static boolean ignoreDefaultBindings() {
 		return plugin.ignoreDefaultBindings;
 	}
@@ -1365,6 +1418,18 @@ public class MagicSpells extends JavaPlugin {
 		return plugin.passiveManager;
 	}
 
+	public static PassiveDispatcher getPassiveDispatcher() {
+		return plugin.passiveDispatcher;
+	}
+
+	public static CooldownManager getCooldownManager() {
+		return plugin.cooldownManager;
+	}
+
+	public static PassiveTicker getPassiveTicker() {
+		return plugin.passiveTicker;
+	}
+
 	public static SpellEffectManager getSpellEffectManager() {
 		return plugin.spellEffectManager;
 	}
@@ -1409,12 +1474,40 @@ public class MagicSpells extends JavaPlugin {
 		return plugin.incantations;
 	}
 
+	public static Profiler getProfiler() {
+		return plugin.profiler;
+	}
+
+	public static ProjectileEngine getProjectileEngine() {
+		return plugin.projectileEngine;
+	}
+
+	/**
+	 * @deprecated Use {@link MagicSpells#getProfiler()}
+	 * @return a copy of the total time of every profiled section, in nanoseconds
+	 */
+	@Deprecated
 	public static Map<String, Long> getProfilingTotalTime() {
-		return plugin.profilingTotalTime;
+		Map<String, Long> totals = new HashMap<>();
+		if (plugin.profiler == null) return totals;
+
+		for (ProfileSection.Snapshot snapshot : plugin.profiler.getSnapshots())
+			totals.put(snapshot.key(), snapshot.totalNanos());
+		return totals;
 	}
 
+	/**
+	 * @deprecated Use {@link MagicSpells#getProfiler()}
+	 * @return a copy of the run count of every profiled section
+	 */
+	@Deprecated
 	public static Map<String, Integer> getProfilingRuns() {
-		return plugin.profilingRuns;
+		Map<String, Integer> runs = new HashMap<>();
+		if (plugin.profiler == null) return runs;
+
+		for (ProfileSection.Snapshot snapshot : plugin.profiler.getSnapshots())
+			runs.put(snapshot.key(), (int) snapshot.count());
+		return runs;
 	}
 
 	public static EffectManager getEffectManager() {
@@ -1837,31 +1930,12 @@ public class MagicSpells extends JavaPlugin {
 			}
 
 			final Class<? extends Event> eventClass = checkClass.asSubclass(Event.class);
-			method.setAccessible(true);
-			EventExecutor executor = new EventExecutor() {
-				final String eventKey = plugin.enableProfiling ? "Event:" + listener.getClass().getName().replace("com.nisovin.magicspells.", "") + '.' + method.getName() + '(' + eventClass.getSimpleName() + ')' : null;
 
-				@Override
-				public void execute(@NotNull Listener listener, @NotNull Event event) {
-					try {
-						if (!eventClass.isAssignableFrom(event.getClass())) return;
-						long start = System.nanoTime();
-						method.invoke(listener, event);
-						if (plugin.enableProfiling) {
-							Long total = plugin.profilingTotalTime.get(eventKey);
-							if (total == null) total = (long) 0;
-							total += System.nanoTime() - start;
-							plugin.profilingTotalTime.put(eventKey, total);
-							Integer runs = plugin.profilingRuns.get(eventKey);
-							if (runs == null) runs = 0;
-							runs += 1;
-							plugin.profilingRuns.put(eventKey, runs);
-						}
-					} catch (Exception ex) {
-						handleException(ex);
-					}
-				}
-			};
+			// Listeners registered while profiling is disabled are not timed at all.
+			Profiler profiler = plugin.profiler.isEnabled() ? plugin.profiler : null;
+			ProfileSection section = profiler == null ? null : profiler.getSection(ProfileCategory.LISTENER, listener.getClass().getName().replace("com.nisovin.magicspells.", "") + '.' + method.getName() + '(' + eventClass.getSimpleName() + ')');
+
+			EventExecutor executor = EventExecutorFactory.create(method, eventClass, profiler, section);
 			Bukkit.getPluginManager().registerEvent(eventClass, listener, priority, executor, plugin, eh.ignoreCancelled());
 		}
 	}
@@ -1870,7 +1944,15 @@ public class MagicSpells extends JavaPlugin {
 		return m.getAnnotation(clazz) != null;
 	}
 
+	/**
+	 * Runs the task on the main thread after the delay, through the {@link TimingWheel} rather than as a separate
+	 * scheduler task. On Folia, the task runs on the global region thread instead, see {@link TaskDispatcher}.
+	 * @return the id to cancel the task with, through {@link MagicSpells#cancelTask(int)}
+	 */
 	public static int scheduleDelayedTask(final Runnable task, long delay) {
+		if (TaskDispatcher.isFolia()) return TaskDispatcher.runGlobal(task, delay);
+		if (plugin.timingWheel != null) return plugin.timingWheel.schedule(task, delay);
+
 		return Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, !plugin.enableErrorLogging ? task : () -> {
 			try {
 				task.run();
@@ -1881,6 +1963,8 @@ public class MagicSpells extends JavaPlugin {
 	}
 
 	public static int scheduleRepeatingTask(final Runnable task, long delay, long interval) {
+		if (TaskDispatcher.isFolia()) return TaskDispatcher.runGlobalRepeating(task, delay, interval);
+
 		return Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, !plugin.enableErrorLogging ? task : () -> {
 			try {
 				task.run();
@@ -1891,7 +1975,56 @@ public class MagicSpells extends JavaPlugin {
 	}
 
 	public static void cancelTask(int taskId) {
-		Bukkit.getScheduler().cancelTask(taskId);
+		if (taskId < 0) return;
+
+		if (taskId >= TimingWheel.FIRST_ID) {
+			if (plugin != null && plugin.timingWheel != null) plugin.timingWheel.cancel(taskId);
+			return;
+		}
+
+		if (taskId >= TaskDispatcher.FIRST_ID) {
+			TaskDispatcher.cancel(taskId);
+			return;
+		}
+
+		// Folia has no Bukkit scheduler, all of its tasks go through the dispatcher.
+		if (!TaskDispatcher.isFolia()) Bukkit.getScheduler().cancelTask(taskId);
+	}
+
+	public static TimingWheel getTimingWheel() {
+		return plugin.timingWheel;
+	}
+
+	public static EntityGrid getEntityGrid() {
+		return plugin.entityGrid;
+	}
+
+	/**
+	 * Schedules a projectile tracker to be stepped by the {@link ProjectileEngine}, instead of by its own task.
+	 * @return the id to cancel the tracker with
+	 */
+	public static int scheduleProjectileTask(Runnable tracker, int delay, int interval) {
+		if (TaskDispatcher.isFolia()) return TaskDispatcher.runGlobalRepeating(tracker, delay, interval);
+		return plugin.projectileEngine.schedule(tracker, delay, interval);
+	}
+
+	/**
+	 * Like {@link MagicSpells#scheduleProjectileTask(Runnable, int, int)}, but on Folia each step runs on the
+	 * region owning the current location of the projectile.
+	 * @param location the current location of the projectile
+	 */
+	public static int scheduleProjectileTask(Runnable tracker, Supplier<Location> location, int delay, int interval) {
+		if (TaskDispatcher.isFolia()) return TaskDispatcher.runFollowing(location, tracker, delay, interval);
+		return plugin.projectileEngine.schedule(tracker, delay, interval);
+	}
+
+	public static void cancelProjectileTask(int id) {
+		if (id >= TaskDispatcher.FIRST_ID) {
+			TaskDispatcher.cancel(id);
+			return;
+		}
+
+		if (plugin != null && plugin.projectileEngine != null) plugin.projectileEngine.cancel(id);
 	}
 
 	public static void handleException(@NotNull Exception ex) {
@@ -1939,31 +2072,24 @@ public class MagicSpells extends JavaPlugin {
 		}
 	}
 
-	public static void profilingReport() {
-		if (plugin.profilingTotalTime == null) return;
-		if (plugin.profilingRuns == null) return;
+	/**
+	 * Exports the profiling statistics to a JSON file in the data folder, and resets them.
+	 * @return the exported file, or null if the export failed
+	 */
+	public static File profilingReport() {
+		if (plugin.profiler == null) return null;
 
-		PrintWriter writer = null;
+		File file;
 		try {
-			writer = new PrintWriter(new File(plugin.getDataFolder(), "profiling_report_" + System.currentTimeMillis() + ".txt"));
-			long totalTime = 0;
-			writer.println("Key\tRuns\tAvg\tTotal");
-			for (String key : plugin.profilingTotalTime.keySet()) {
-				long time = plugin.profilingTotalTime.get(key);
-				int runs = plugin.profilingRuns.get(key);
-				totalTime += time;
-				writer.println(key + '\t' + runs + '\t' + (time / runs / 1000000F) + "ms\t" + (time / 1000000F) + "ms");
-			}
-			writer.println();
-			writer.println("TOTAL TIME: " + (totalTime / 1000000F) + "ms");
-		} catch (Exception ex) {
+			file = plugin.profiler.export(plugin.getDataFolder());
+		} catch (IOException ex) {
 			error("Failed to save profiling report");
 			handleException(ex);
-		} finally {
-			if (writer != null) writer.close();
+			return null;
 		}
-		plugin.profilingTotalTime.clear();
-		plugin.profilingRuns.clear();
+
+		plugin.profiler.reset();
+		return file;
 	}
 
 	/**
@@ -2001,17 +2127,13 @@ public class MagicSpells extends JavaPlugin {
 		plugin.getLogger().log(level, message);
 	}
 
+	/**
+	 * @deprecated Use {@link Profiler#getSection(ProfileCategory, String)}
+	 */
+	@Deprecated
 	public static void addProfile(String key, long time) {
-		if (!plugin.enableProfiling) return;
-
-		Long total = plugin.profilingTotalTime.get(key);
-		if (total == null) total = (long) 0;
-		total += time;
-		plugin.profilingTotalTime.put(key, total);
-		Integer runs = plugin.profilingRuns.get(key);
-		if (runs == null) runs = 0;
-		runs += 1;
-		plugin.profilingRuns.put(key, runs);
+		if (!hasProfilingEnabled()) return;
+		plugin.profiler.getSection(ProfileCategory.OTHER, key).record(time);
 	}
 
 	/**
@@ -2047,7 +2169,8 @@ public class MagicSpells extends JavaPlugin {
 		// save player data and disable storage
 		if (storageHandler != null) {
 			for (Spellbook spellBook : spellbooks.values()) {
-				storageHandler.save(spellBook);
+				// Spellbooks still being read would overwrite the stored spells with a partial copy.
+				if (!spellBook.isLoading()) storageHandler.save(spellBook);
 			}
 			storageHandler.disable();
 			storageHandler = null;
@@ -2087,32 +2210,7 @@ public class MagicSpells extends JavaPlugin {
 		SpellAnimation.getAnimations().clear();
 
 		// Save cooldowns
-		if (cooldownsPersistThroughReload) {
-			File file = new File(getDataFolder(), "cooldowns.txt");
-			if (file.exists()) file.delete();
-			try {
-				Writer writer = new FileWriter(file);
-				Map<UUID, Long> cooldowns;
-				long cooldown;
-				for (Spell spell : spells.values()) {
-					cooldowns = spell.getCooldowns();
-					for (UUID id : cooldowns.keySet()) {
-						cooldown = cooldowns.get(id);
-						if (cooldown <= System.currentTimeMillis()) continue;
-						writer.append(spell.getInternalName())
-								.append(String.valueOf(':'))
-								.append(id.toString())
-								.append(String.valueOf(':'))
-								.append(String.valueOf(cooldown))
-								.append(String.valueOf('\n'));
-					}
-				}
-				writer.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-				file.delete();
-			}
-		}
+		if (cooldownsPersistThroughReload && cooldownManager != null) cooldownManager.save(new File(getDataFolder(), "cooldowns.txt"));
 
 		// Turn off buff manager
 		if (buffManager != null) {
@@ -2137,15 +2235,43 @@ public class MagicSpells extends JavaPlugin {
 		losTransparentBlocks = null;
 		ignoreCastItemDurability.clear();
 		ignoreCastItemDurability = null;
+		PlaceholderCache.clear();
+
+		TaskDispatcher.cancelAll();
+
+		if (passiveDispatcher != null) {
+			passiveDispatcher.disable();
+			passiveDispatcher = null;
+		}
+
+		if (cooldownManager != null) {
+			cooldownManager.disable();
+			cooldownManager = null;
+		}
+
+		if (passiveTicker != null) {
+			passiveTicker.disable();
+			passiveTicker = null;
+		}
+
+		if (projectileEngine != null) {
+			projectileEngine.disable();
+			projectileEngine = null;
+		}
+
+		if (timingWheel != null) {
+			timingWheel.disable();
+			timingWheel = null;
+		}
 
-		if (profilingRuns != null) {
-			profilingRuns.clear();
-			profilingRuns = null;
+		if (entityGrid != null) {
+			entityGrid.disable();
+			entityGrid = null;
 		}
 
-		if (profilingTotalTime != null) {
-			profilingTotalTime.clear();
-			profilingTotalTime = null;
+		if (profiler != null) {
+			profiler.disable();
+			profiler = null;
 		}
 
 		if (magicXpHandler != null) {
@@ -2210,7 +2336,10 @@ public class MagicSpells extends JavaPlugin {
 		HandlerList.unregisterAll(this);
 
 		// Cancel all tasks
-		Bukkit.getScheduler().cancelTasks(this);
+		if (TaskDispatcher.isFolia()) {
+			Bukkit.getGlobalRegionScheduler().cancelTasks(this);
+			Bukkit.getAsyncScheduler().cancelTasks(this);
+		} else Bukkit.getScheduler().cancelTasks(this);
 
 		ModifierSet.unload();
 		CustomRecipes.clearRecipes();
@@ -41,6 +41,7 @@ public enum Perm {
 	COMMAND_UTIL_SAVE_SKIN("magicspells.command.util.saveskin"),
 	COMMAND_UTIL_LIST_GOALS("magicspells.command.util.listgoals"),
 	COMMAND_PROFILE_REPORT("magicspells.command.profilereport"),
+	COMMAND_PROFILE("magicspells.command.profile"),
 	COMMAND_DEBUG("magicspells.command.debug"),
 	COMMAND_TASKINFO("magicspells.command.taskinfo"),
 	COMMAND_MAGICXP("magicspells.command.magicxp"),
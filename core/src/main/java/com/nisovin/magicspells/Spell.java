@@ -47,11 +47,15 @@ import com.nisovin.magicspells.util.config.*;
 import com.nisovin.magicspells.spelleffects.*;
 import com.nisovin.magicspells.mana.ManaHandler;
 import com.nisovin.magicspells.spells.BuffSpell;
+import com.nisovin.magicspells.util.profiling.Profiler;
 import com.nisovin.magicspells.spells.PassiveSpell;
 import com.nisovin.magicspells.util.magicitems.MagicItem;
 import com.nisovin.magicspells.castmodifiers.ModifierSet;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
 import com.nisovin.magicspells.spelleffects.effecttypes.*;
 import com.nisovin.magicspells.util.magicitems.MagicItems;
+import com.nisovin.magicspells.util.managers.CooldownManager;
 import com.nisovin.magicspells.util.magicitems.MagicItemData;
 import com.nisovin.magicspells.util.magicitems.MagicItemDataParser;
 import com.nisovin.magicspells.spelleffects.trackers.EffectTracker;
@@ -66,9 +70,11 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 
 	protected static final Random random = ThreadLocalRandom.current();
 
+	// Length of the parts of the look ray that entities are collected for at once, see getTargetedEntity.
+	private static final double TARGET_SEGMENT_LENGTH = 8;
+
 	protected MagicConfig config;
 
-	protected Map<UUID, Long> nextCast;
 	protected Map<String, Integer> xpGranted;
 	protected Map<String, Integer> xpRequired;
 	protected Map<Spell, Float> sharedCooldowns;
@@ -78,8 +84,6 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	protected Multimap<String, VariableMod> variableModsCasted;
 	protected Multimap<String, VariableMod> variableModsTarget;
 
-	protected IntMap<UUID> chargesConsumed;
-
 	protected EnumMap<EffectPosition, List<SpellEffect>> effects;
 
 	protected Set<String> tags;
@@ -133,9 +137,9 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	protected String name;
 	protected String permName;
 	protected String description;
+	protected ProfileSection profilingSection;
 	protected String strNoTarget;
 	protected String internalName;
-	protected String profilingKey;
 	protected String strCastTarget;
 	protected String rechargeSound;
 	protected String soundOnCooldown;
@@ -181,7 +185,12 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	protected ConfigData<Boolean> losIgnorePassableBlocks;
 	protected ConfigData<FluidCollisionMode> losFluidCollisionMode;
 
-	protected long nextCastServer;
+	protected volatile long nextCastServer;
+
+	private int cooldownIndex;
+	// This spell followed by the spells it shares its cooldown with.
+	private Spell[] cooldownGroup;
+	private float[] cooldownGroupValues;
 
 	protected double targetDamageAmount;
 
@@ -227,7 +236,7 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 
 		callbacks = new HashMap<>();
 
-		profilingKey = "Spell:" + getClass().getName().replace("com.nisovin.magicspells.spells.", "") + '-' + internalName;
+		profilingSection = MagicSpells.getProfiler().getSection(ProfileCategory.SPELL, getClass().getName().replace("com.nisovin.magicspells.spells.", "") + '-' + internalName);
 
 		name = config.getString(internalKey + "name", internalName);
 		debug = config.getBoolean(internalKey + "debug", false);
@@ -369,8 +378,7 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 		ignoreGlobalCooldown = config.getBoolean(internalKey + "ignore-global-cooldown", false);
 		charges = config.getInt(internalKey + "charges", 0);
 		rechargeSound = config.getString(internalKey + "recharge-sound", "");
-		nextCast = new HashMap<>();
-		chargesConsumed = new IntMap<>();
+		cooldownIndex = MagicSpells.getCooldownManager().register(this);
 		nextCastServer = 0;
 
 		// Modifiers
@@ -669,6 +677,17 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 			}
 			rawSharedCooldowns.clear();
 			rawSharedCooldowns = null;
+
+			cooldownGroup = new Spell[sharedCooldowns.size() + 1];
+			cooldownGroupValues = new float[cooldownGroup.length];
+			cooldownGroup[0] = this;
+
+			int i = 1;
+			for (Map.Entry<Spell, Float> entry : sharedCooldowns.entrySet()) {
+				cooldownGroup[i] = entry.getKey();
+				cooldownGroupValues[i] = entry.getValue();
+				i++;
+			}
 		}
 
 		// Register events
@@ -1018,20 +1037,18 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	@NotNull
 	public CastResult onCast(@NotNull SpellCastEvent castEvent) {
 		SpellData data = castEvent.getSpellData();
-		long start = System.nanoTime();
 
 		debug(3, "    Power: " + data.power());
 		debug(3, "    Cooldown: " + castEvent.getCooldown());
 		if (MagicSpells.isDebug() && data.hasArgs()) debug(3, "    Args: {" + Util.arrayJoin(data.args(), ',') + '}');
 
-		CastResult result = cast(castEvent.getSpellCastState(), data);
-		if (MagicSpells.hasProfilingEnabled()) {
-			long total = MagicSpells.getProfilingTotalTime().getOrDefault(profilingKey, 0L);
-			total += System.nanoTime() - start;
-			MagicSpells.getProfilingTotalTime().put(profilingKey, total);
-
-			int runs = MagicSpells.getProfilingRuns().getOrDefault(profilingKey, 0) + 1;
-			MagicSpells.getProfilingRuns().put(profilingKey, runs);
+		Profiler profiler = MagicSpells.getProfiler();
+		long start = profiler.start();
+		CastResult result;
+		try {
+			result = cast(castEvent.getSpellCastState(), data);
+		} finally {
+			profiler.stop(profilingSection, start);
 		}
 
 		postCast(castEvent, result);
@@ -1184,11 +1201,11 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	 * @return whether the spell is on cooldown
 	 */
 	public boolean onCooldown(LivingEntity livingEntity) {
-		if (Perm.NO_COOLDOWN.has(livingEntity)) return false;
-		if (serverCooldown > 0 && nextCastServer > System.currentTimeMillis()) return true;
+		long now = System.currentTimeMillis();
+		boolean onCooldown = (serverCooldown > 0 && nextCastServer > now) || MagicSpells.getCooldownManager().getCooldown(this, livingEntity.getUniqueId()) > now;
 
-		Long next = nextCast.get(livingEntity.getUniqueId());
-		return next != null && next > System.currentTimeMillis();
+		// The permission is only looked up for spells that are on cooldown.
+		return onCooldown && !Perm.NO_COOLDOWN.has(livingEntity);
 	}
 
 	public float getCooldown() {
@@ -1204,8 +1221,8 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	public float getCooldown(LivingEntity livingEntity) {
 		float cd = 0;
 
-		Long next = nextCast.get(livingEntity.getUniqueId());
-		if (next != null) {
+		long next = MagicSpells.getCooldownManager().getCooldown(this, livingEntity.getUniqueId());
+		if (next != 0) {
 			float c = (next - System.currentTimeMillis()) / ((float) TimeUtil.MILLISECONDS_PER_SECOND);
 			cd = c > 0 ? c : 0;
 		}
@@ -1233,42 +1250,60 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	 * @param livingEntity The living entity to set the cooldown for
 	 */
 	public void setCooldown(final LivingEntity livingEntity, float cooldown, boolean activateSharedCooldowns) {
-		final UUID uuid = livingEntity.getUniqueId();
-
-		if (cooldown > 0 || minCooldown > 0) {
-			float cd = cooldown;
-			// calculate random cooldown
-			if (minCooldown != -1F) {
-				if (usePreciseCooldowns) cd = minCooldown + (maxCooldown - minCooldown) * random.nextFloat();
-				else cd = minCooldown + random.nextInt((int) maxCooldown - (int) minCooldown + 1);
-			}
+		CooldownManager manager = MagicSpells.getCooldownManager();
+		UUID uuid = livingEntity.getUniqueId();
+		long now = System.currentTimeMillis();
+
+		if (!activateSharedCooldowns || cooldownGroup == null) {
+			long duration = getCooldownDuration(cooldown);
+			manager.startCooldown(this, uuid, duration, now);
+			onCooldownStarted(livingEntity, duration, now);
+			return;
+		}
 
-			if (charges > 0) {
-				chargesConsumed.increment(uuid);
-				MagicSpells.scheduleDelayedTask(() -> {
-					chargesConsumed.decrement(uuid);
-					playSpellEffects(EffectPosition.CHARGE_USE, livingEntity, new SpellData(livingEntity));
-					if (rechargeSound == null) return;
-					if (rechargeSound.isEmpty()) return;
-					if (livingEntity instanceof Player player)
-						player.playSound(livingEntity.getLocation(), rechargeSound, 1.0F, 1.0F);
-				}, Math.round(TimeUtil.TICKS_PER_SECOND * cd));
-			}
-			if (charges <= 0 || chargesConsumed.get(uuid) >= charges) {
-				nextCast.put(uuid, System.currentTimeMillis() + (long) (cd * TimeUtil.MILLISECONDS_PER_SECOND));
-			}
+		// Shared cooldowns are started along with the cooldown of this spell.
+		long[] durations = new long[cooldownGroup.length];
+		durations[0] = getCooldownDuration(cooldown);
+		for (int i = 1; i < cooldownGroup.length; i++) durations[i] = cooldownGroup[i].getCooldownDuration(cooldownGroupValues[i]);
 
-		} else {
-			nextCast.remove(uuid);
-			chargesConsumed.remove(uuid);
-		}
-		if (serverCooldown > 0)
-			nextCastServer = System.currentTimeMillis() + (long) (serverCooldown * TimeUtil.MILLISECONDS_PER_SECOND);
-		if (activateSharedCooldowns && sharedCooldowns != null) {
-			for (Map.Entry<Spell, Float> scd : sharedCooldowns.entrySet()) {
-				scd.getKey().setCooldown(livingEntity, scd.getValue(), false);
-			}
+		manager.startCooldowns(cooldownGroup, durations, uuid, now);
+		for (int i = 0; i < cooldownGroup.length; i++) cooldownGroup[i].onCooldownStarted(livingEntity, durations[i], now);
+	}
+
+	/**
+	 * @return the cooldown in milliseconds, or 0 if the cooldown should be reset
+	 */
+	private long getCooldownDuration(float cooldown) {
+		if (cooldown <= 0 && minCooldown <= 0) return 0;
+
+		float cd = cooldown;
+		// calculate random cooldown
+		if (minCooldown != -1F) {
+			if (usePreciseCooldowns) cd = minCooldown + (maxCooldown - minCooldown) * random.nextFloat();
+			else cd = minCooldown + random.nextInt((int) maxCooldown - (int) minCooldown + 1);
 		}
+
+		return Math.max((long) (cd * TimeUtil.MILLISECONDS_PER_SECOND), 1);
+	}
+
+	private void onCooldownStarted(LivingEntity livingEntity, long duration, long now) {
+		if (duration > 0 && charges > 0) scheduleRecharge(livingEntity, duration);
+		if (serverCooldown > 0) nextCastServer = now + (long) (serverCooldown * TimeUtil.MILLISECONDS_PER_SECOND);
+	}
+
+	/**
+	 * Plays the recharge effects and sound once the charge is back. Charges themselves refill without a task.
+	 */
+	private void scheduleRecharge(LivingEntity livingEntity, long duration) {
+		boolean hasSound = rechargeSound != null && !rechargeSound.isEmpty();
+		List<SpellEffect> chargeEffects = effects == null ? null : effects.get(EffectPosition.CHARGE_USE);
+		if (!hasSound && (chargeEffects == null || chargeEffects.isEmpty())) return;
+
+		TaskDispatcher.runDelayed(livingEntity, () -> {
+			playSpellEffects(EffectPosition.CHARGE_USE, livingEntity, new SpellData(livingEntity));
+			if (hasSound && livingEntity instanceof Player player)
+				player.playSound(livingEntity.getLocation(), rechargeSound, 1.0F, 1.0F);
+		}, Math.round(duration / (double) TimeUtil.MILLISECONDS_PER_TICK));
 	}
 
 	/**
@@ -1345,7 +1380,11 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	 * @return The number of charges consumed
 	 */
 	public int getCharges(LivingEntity livingEntity) {
-		return chargesConsumed.get(livingEntity.getUniqueId());
+		return MagicSpells.getCooldownManager().getChargesConsumed(this, livingEntity.getUniqueId(), System.currentTimeMillis());
+	}
+
+	public int getCooldownIndex() {
+		return cooldownIndex;
 	}
 
 	/**
@@ -1421,74 +1460,109 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 			if (blockHit != null) range = blockHit.getHitPosition().distance(start);
 		}
 
-		Collection<Entity> nearbyEntities = world.getNearbyEntities(BoundingBox.of(start, start).expand(direction, range).expand(raySize));
-		List<LivingEntity> potentialTargets = new ArrayList<>();
-
-		for (Entity entity : nearbyEntities) {
-			if (!(entity instanceof LivingEntity target)) continue;
-			if (!validTargetList.canTarget(caster, target, targetPlayers)) continue;
-			if (checker != null && !checker.isValidTarget(target)) continue;
-
-			potentialTargets.add(target);
-		}
-
-		potentialTargets.sort(Comparator.comparingDouble(e -> e.getLocation().distanceSquared(startLocation)));
-
 		int minRangeSq = this.minRange.get(data);
 		minRangeSq *= minRangeSq;
 
-		for (LivingEntity target : potentialTargets) {
-			Location targetLocation = target.getLocation();
-			if (targetLocation.distanceSquared(startLocation) < minRangeSq) continue;
+		// March along the ray in segments, so only entities near the ray are collected, nearest hit first.
+		Set<Entity> checked = new HashSet<>();
+		List<TargetCandidate> candidates = new ArrayList<>();
+		for (double from = 0; from < range; from += TARGET_SEGMENT_LENGTH) {
+			double to = Math.min(from + TARGET_SEGMENT_LENGTH, range);
+			BoundingBox segment = new BoundingBox(
+				start.getX() + direction.getX() * from, start.getY() + direction.getY() * from, start.getZ() + direction.getZ() * from,
+				start.getX() + direction.getX() * to, start.getY() + direction.getY() * to, start.getZ() + direction.getZ() * to
+			).expand(raySize);
+
+			for (Entity entity : world.getNearbyEntities(segment)) {
+				if (!(entity instanceof LivingEntity target) || checked.contains(target)) continue;
+
+				RayTraceResult hit = target.getBoundingBox().expand(raySize).rayTrace(start, direction, range);
+				if (hit == null) {
+					checked.add(target);
+					continue;
+				}
 
-			BoundingBox boundingBox = target.getBoundingBox().expand(raySize);
-			if (boundingBox.rayTrace(start, direction, range) == null) continue;
+				// Entities the ray reaches in a later segment are checked with that segment.
+				double distance = hit.getHitPosition().distance(start);
+				if (distance >= to && to < range) continue;
+				checked.add(target);
 
-			if (target instanceof ComplexLivingEntity complexEntity) {
-				boolean collides = false;
+				if (!validTargetList.canTarget(caster, target, targetPlayers)) continue;
+				if (checker != null && !checker.isValidTarget(target)) continue;
 
-				for (Entity part : complexEntity.getParts()) {
-					if (part.getBoundingBox().expand(raySize).rayTrace(start, direction, range) != null) {
-						collides = true;
-						break;
-					}
-				}
+				candidates.add(new TargetCandidate(target, distance));
+			}
 
-				if (!collides) continue;
+			if (candidates.isEmpty()) continue;
+			if (candidates.size() > 1) candidates.sort(Comparator.comparingDouble(TargetCandidate::distance));
+
+			for (TargetCandidate candidate : candidates) {
+				TargetInfo<LivingEntity> info = checkTarget(data, candidate.target(), startLocation, direction, range, raySize, minRangeSq);
+				if (info != null) return info;
 			}
 
-			if (MagicSpells.getNoMagicZoneManager() != null && MagicSpells.getNoMagicZoneManager().willFizzle(targetLocation, this))
-				continue;
+			candidates.clear();
+		}
 
-			if (MagicSpells.checkScoreboardTeams()) {
-				Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+		return new TargetInfo<>(null, data, false);
+	}
+
+	/**
+	 * @return the result of targeting the entity, or null to try the next entity along the ray
+	 */
+	private TargetInfo<LivingEntity> checkTarget(SpellData data, LivingEntity target, Location startLocation, Vector direction, double range, double raySize, int minRangeSq) {
+		LivingEntity caster = data.caster();
+		Vector start = startLocation.toVector();
 
-				Team casterTeam = scoreboard.getEntityTeam(caster);
-				Team targetTeam = scoreboard.getEntityTeam(target);
+		Location targetLocation = target.getLocation();
+		if (targetLocation.distanceSquared(startLocation) < minRangeSq) return null;
 
-				if (casterTeam != null && targetTeam != null) {
-					if (casterTeam.equals(targetTeam) ? !casterTeam.allowFriendlyFire() && !isBeneficial() : isBeneficial())
-						continue;
+		if (target instanceof ComplexLivingEntity complexEntity) {
+			boolean collides = false;
+
+			for (Entity part : complexEntity.getParts()) {
+				if (part.getBoundingBox().expand(raySize).rayTrace(start, direction, range) != null) {
+					collides = true;
+					break;
 				}
 			}
 
-			SpellTargetEvent targetEvent = new SpellTargetEvent(this, data, target);
-			targetEvent.callEvent();
+			if (!collides) return null;
+		}
+
+		if (MagicSpells.getNoMagicZoneManager() != null && MagicSpells.getNoMagicZoneManager().willFizzle(targetLocation, this))
+			return null;
 
-			if (targetEvent.isCastCancelled()) return new TargetInfo<>(null, targetEvent.getSpellData(), true);
-			else if (targetEvent.isCancelled()) continue;
+		if (MagicSpells.checkScoreboardTeams()) {
+			Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
 
-			target = targetEvent.getTarget();
+			Team casterTeam = scoreboard.getEntityTeam(caster);
+			Team targetTeam = scoreboard.getEntityTeam(target);
 
-			if (targetDamageCause != null) {
-				EntityDamageByEntityEvent entityDamageEvent = new MagicSpellsEntityDamageByEntityEvent(caster, target, targetDamageCause, targetDamageAmount, this);
-				if (!entityDamageEvent.callEvent()) continue;
+			if (casterTeam != null && targetTeam != null) {
+				if (casterTeam.equals(targetTeam) ? !casterTeam.allowFriendlyFire() && !isBeneficial() : isBeneficial())
+					return null;
 			}
+		}
+
+		SpellTargetEvent targetEvent = new SpellTargetEvent(this, data, target);
+		targetEvent.callEvent();
 
-			return new TargetInfo<>(target, targetEvent.getSpellData(), false);
+		if (targetEvent.isCastCancelled()) return new TargetInfo<>(null, targetEvent.getSpellData(), true);
+		else if (targetEvent.isCancelled()) return null;
+
+		target = targetEvent.getTarget();
+
+		if (targetDamageCause != null) {
+			EntityDamageByEntityEvent entityDamageEvent = new MagicSpellsEntityDamageByEntityEvent(caster, target, targetDamageCause, targetDamageAmount, this);
+			if (!entityDamageEvent.callEvent()) return null;
 		}
 
-		return new TargetInfo<>(null, data, false);
+		return new TargetInfo<>(target, targetEvent.getSpellData(), false);
+	}
+
+	private record TargetCandidate(LivingEntity target, double distance) {
+
 	}
 
 	protected Block getTargetedBlock(LivingEntity entity, float power) {
@@ -2376,8 +2450,18 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 		return strOnTeach;
 	}
 
+	/**
+	 * @return a copy of the cooldown end times that have not passed yet, by entity
+	 */
 	public Map<UUID, Long> getCooldowns() {
-		return nextCast;
+		return MagicSpells.getCooldownManager().getCooldowns(this);
+	}
+
+	/**
+	 * Resets the cooldown and the charges of this spell for every entity.
+	 */
+	public void clearCooldowns() {
+		MagicSpells.getCooldownManager().clear(this);
 	}
 
 	public Multimap<String, VariableMod> getVariableModsCast() {
@@ -2401,7 +2485,7 @@ public abstract class Spell implements Comparable<Spell>, Listener {
 	}
 
 	void setCooldownManually(UUID uuid, long nextCast) {
-		this.nextCast.put(uuid, nextCast);
+		MagicSpells.getCooldownManager().setCooldown(this, uuid, nextCast);
 	}
 
 	protected void debug(int level, String message) {
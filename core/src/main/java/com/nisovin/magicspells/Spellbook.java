@@ -9,7 +9,9 @@ import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.magicspells.util.Util;
 import com.nisovin.magicspells.util.CastItem;
+import com.nisovin.magicspells.util.TimeUtil;
 import com.nisovin.magicspells.spells.BuffSpell;
+import com.nisovin.magicspells.spells.PassiveSpell;
 import com.nisovin.magicspells.util.compat.EventUtil;
 import com.nisovin.magicspells.handlers.MagicXpHandler;
 import com.nisovin.magicspells.events.SpellSelectionChangeEvent;
@@ -21,12 +23,27 @@ public class Spellbook {
 	private String playerName;
 	private String uniqueId;
 
+	// Indexes of known passive spells, of passive spells granted through permissions when last checked, and of both.
+	private final BitSet passives = new BitSet();
+	private final BitSet grantedPassives = new BitSet();
+	private final BitSet possiblePassives = new BitSet();
+	private boolean possiblePassivesValid;
+	private long nextGrantedPassivesCheck;
+
+	// Whether stored spells are still being read, during which saves would overwrite them with a partial spellbook.
+	private boolean loading;
+	private boolean saveRequested;
+
 	private final Set<Spell> spells = new HashSet<>() {
 
 		@Override
 		public boolean remove(Object o) {
 			boolean ret = super.remove(o);
 			if (o instanceof Spell spell) spell.unloadPlayerEffectTracker(player);
+			if (o instanceof PassiveSpell passive) {
+				passives.clear(passive.getPassiveIndex());
+				possiblePassivesValid = false;
+			}
 			return ret;
 		}
 
@@ -35,6 +52,10 @@ public class Spellbook {
 			if (s == null) throw new NullPointerException("Spell cant be null here");
 			boolean ret = super.add(s);
 			s.initializePlayerEffectTracker(player);
+			if (s instanceof PassiveSpell passive) {
+				passives.set(passive.getPassiveIndex());
+				possiblePassivesValid = false;
+			}
 			return ret;
 		}
 
@@ -44,6 +65,8 @@ public class Spellbook {
 				s.unloadPlayerEffectTracker(player);
 			}
 			super.clear();
+			passives.clear();
+			possiblePassivesValid = false;
 		}
 
 	};
@@ -78,7 +101,13 @@ public class Spellbook {
 
 	public void load() {
 		MagicSpells.debug("  Loading data for player '" + player.getName() + "'...");
-		MagicSpells.getStorageHandler().load(this);
+		invalidateGrantedPassives();
+		loading = true;
+		MagicSpells.getStorageHandler().load(this, this::onLoaded);
+	}
+
+	private void onLoaded() {
+		finishLoading();
 
 		// Give all spells to ops, or if ignoring grant perms
 		if ((MagicSpells.ignoreGrantPerms() && MagicSpells.ignoreGrantPermsFakeValue()) || (player.isOp() && MagicSpells.grantOpsAllSpells())) {
@@ -103,14 +132,38 @@ public class Spellbook {
 	}
 
 	public void save() {
+		if (loading) {
+			saveRequested = true;
+			return;
+		}
+
 		MagicSpells.getStorageHandler().save(this);
 	}
 
 	public void reload() {
 		MagicSpells.debug(1, "Reloading data for player '" + playerName + "'...");
 		removeAllSpells();
-		MagicSpells.getStorageHandler().load(this);
-		MagicSpells.debug(1, "...done");
+		invalidateGrantedPassives();
+		loading = true;
+		MagicSpells.getStorageHandler().load(this, () -> {
+			finishLoading();
+			MagicSpells.debug(1, "...done reloading data for player '" + playerName + "'");
+		});
+	}
+
+	private void finishLoading() {
+		loading = false;
+		if (!saveRequested) return;
+
+		saveRequested = false;
+		save();
+	}
+
+	/**
+	 * @return whether the stored spells of this spellbook are still being read
+	 */
+	public boolean isLoading() {
+		return loading;
 	}
 
 	public void addGrantedSpells() {
@@ -269,6 +322,59 @@ public class Spellbook {
 		return MagicSpells.areTempGrantPermsEnabled() && Perm.TEMPGRANT.has(player, spell);
 	}
 
+	/**
+	 * Checks whether the player knows the passive spell, or may be granted it through permissions, without checking
+	 * the permissions of every passive spell on every event.
+	 * @return false if the player cannot have the passive spell
+	 * @see #getPossiblePassives()
+	 */
+	public boolean mayHavePassive(PassiveSpell spell) {
+		BitSet possible = getPossiblePassives();
+		return possible == null || possible.get(spell.getPassiveIndex());
+	}
+
+	/**
+	 * Gets the indexes of the passive spells the player knows, or may be granted through permissions. Granted passive
+	 * spells are checked again at most every <code>passive-grant-check-interval</code> ticks, or on the next call after
+	 * {@link #invalidateGrantedPassives()}.
+	 * @return the indexes, which must not be modified, or null if the player may have every passive spell
+	 */
+	public BitSet getPossiblePassives() {
+		if (MagicSpells.ignoreGrantPerms() && MagicSpells.ignoreGrantPermsFakeValue()) return null;
+
+		boolean grantPerms = !MagicSpells.ignoreGrantPerms();
+		boolean tempGrantPerms = MagicSpells.areTempGrantPermsEnabled();
+		if (!grantPerms && !tempGrantPerms) return passives;
+
+		long now = System.currentTimeMillis();
+		if (now >= nextGrantedPassivesCheck) {
+			nextGrantedPassivesCheck = now + MagicSpells.getPassiveGrantCheckInterval() * TimeUtil.MILLISECONDS_PER_TICK;
+
+			grantedPassives.clear();
+			for (PassiveSpell passive : MagicSpells.getPassiveDispatcher().getPassives()) {
+				if ((grantPerms && Perm.GRANT.has(player, passive)) || (tempGrantPerms && Perm.TEMPGRANT.has(player, passive)))
+					grantedPassives.set(passive.getPassiveIndex());
+			}
+			possiblePassivesValid = false;
+		}
+
+		if (!possiblePassivesValid) {
+			possiblePassives.clear();
+			possiblePassives.or(passives);
+			possiblePassives.or(grantedPassives);
+			possiblePassivesValid = true;
+		}
+
+		return possiblePassives;
+	}
+
+	/**
+	 * Makes the next passive check read the grant permissions of the player again, such as after they changed.
+	 */
+	public void invalidateGrantedPassives() {
+		nextGrantedPassivesCheck = 0;
+	}
+
 	protected CastItem getCastItemForCycling(ItemStack item) {
 		CastItem castItem;
 		if (item != null) castItem = new CastItem(item);
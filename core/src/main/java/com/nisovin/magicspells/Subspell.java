@@ -17,6 +17,7 @@ import org.bukkit.entity.LivingEntity;
 
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.util.CastResult;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.util.ValidTargetList;
 import com.nisovin.magicspells.Spell.SpellCastState;
 import com.nisovin.magicspells.Spell.PostCastAction;
@@ -345,7 +346,7 @@ public class Subspell {
 		if (delay < 0) return castReal(data.noTargeting());
 
 		SpellData finalData = data.noTargeting();
-		MagicSpells.scheduleDelayedTask(() -> castReal(finalData), delay);
+		TaskDispatcher.runDelayed(finalData.caster(), () -> castReal(finalData), delay);
 
 		return new SpellCastResult(SpellCastState.NORMAL, PostCastAction.DELAYED, data);
 	}
@@ -396,7 +397,7 @@ public class Subspell {
 		if (delay < 0) return castAtEntityReal(data.noLocation());
 
 		SpellData finalData = data.noLocation();
-		MagicSpells.scheduleDelayedTask(() -> castAtEntityReal(finalData), delay);
+		TaskDispatcher.runDelayed(finalData.target(), () -> castAtEntityReal(finalData), delay);
 
 		return new SpellCastResult(SpellCastState.NORMAL, PostCastAction.DELAYED, data);
 	}
@@ -468,7 +469,7 @@ public class Subspell {
 		if (delay < 0) return castAtLocationReal(data.noTarget());
 
 		SpellData finalData = data.noTarget();
-		MagicSpells.scheduleDelayedTask(() -> castAtLocationReal(finalData), delay);
+		TaskDispatcher.runDelayed(finalData.location(), () -> castAtLocationReal(finalData), delay);
 
 		return new SpellCastResult(SpellCastState.NORMAL, PostCastAction.DELAYED, data);
 	}
@@ -550,7 +551,7 @@ public class Subspell {
 		if (delay < 0) return castAtEntityFromLocationReal(data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> castAtEntityFromLocationReal(finalData), delay);
+		TaskDispatcher.runDelayed(finalData.target(), () -> castAtEntityFromLocationReal(finalData), delay);
 
 		return new SpellCastResult(SpellCastState.NORMAL, PostCastAction.DELAYED, data);
 	}
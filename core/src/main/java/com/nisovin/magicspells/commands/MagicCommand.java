@@ -35,6 +35,7 @@ import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.variables.Variable;
 import com.nisovin.magicspells.Spell.PostCastAction;
 import com.nisovin.magicspells.mana.ManaChangeReason;
+import com.nisovin.magicspells.util.profiling.Profiler;
 import com.nisovin.magicspells.handlers.MagicXpHandler;
 import com.nisovin.magicspells.util.magicitems.MagicItem;
 import com.nisovin.magicspells.util.magicitems.MagicItems;
@@ -269,6 +270,13 @@ public class MagicCommand extends BaseCommand {
 		if (!MagicSpells.isLoaded()) return;
 		if (noPermission(issuer.getIssuer(), Perm.COMMAND_TASKINFO)) return;
 
+		if (TaskDispatcher.isFolia()) {
+			issuer.sendMessage(MagicSpells.getTextColor() + "EffectLib effects - " + MagicSpells.getEffectManager().getEffects().size());
+			issuer.sendMessage(MagicSpells.getTextColor() + "MagicSpells: \n" +
+					MagicSpells.getTextColor() + " * Region tasks - " + TaskDispatcher.size());
+			return;
+		}
+
 		List<BukkitTask> tasks = Bukkit.getScheduler().getPendingTasks();
 		List<BukkitTask> msTasks = new ArrayList<>();
 		for (BukkitTask task : tasks) {
@@ -280,7 +288,9 @@ public class MagicCommand extends BaseCommand {
 		issuer.sendMessage(MagicSpells.getTextColor() + "EffectLib effects - " + MagicSpells.getEffectManager().getEffects().size());
 		issuer.sendMessage(MagicSpells.getTextColor() + "MagicSpells: \n" +
 				MagicSpells.getTextColor() + " * All tasks - " + msTasks.size() + "\n" +
-				MagicSpells.getTextColor() + " * Non effectlib tasks - " + (msTasks.size() - MagicSpells.getEffectManager().getEffects().size()));
+				MagicSpells.getTextColor() + " * Non effectlib tasks - " + (msTasks.size() - MagicSpells.getEffectManager().getEffects().size()) + "\n" +
+				MagicSpells.getTextColor() + " * Delayed tasks - " + MagicSpells.getTimingWheel().size() + "\n" +
+				MagicSpells.getTextColor() + " * Projectiles - " + MagicSpells.getProjectileEngine().getActiveCount());
 	}
 
 	@Subcommand("resetcd")
@@ -313,7 +323,7 @@ public class MagicCommand extends BaseCommand {
 		if (spell == null) spells.addAll(MagicSpells.getSpells().values());
 		else spells.add(spell);
 		for (Spell s : spells) {
-			if (player == null) s.getCooldowns().clear();
+			if (player == null) s.clearCooldowns();
 			else s.setCooldown(player, 0, false);
 		}
 		issuer.sendMessage(MagicSpells.getTextColor() + "Cooldowns reset" + (player == null ? "" : " for " + player.getName()) + (spell == null ? "" : " for spell " + Util.getLegacyFromMiniMessage(spell.getName())));
@@ -664,8 +674,65 @@ public class MagicCommand extends BaseCommand {
 	public static void onProfiler(CommandIssuer issuer) {
 		if (!MagicSpells.isLoaded()) return;
 		if (noPermission(issuer.getIssuer(), Perm.COMMAND_PROFILE_REPORT)) return;
-		MagicSpells.profilingReport();
-		issuer.sendMessage(MagicSpells.getTextColor() + "Created profiling report.");
+		File file = MagicSpells.profilingReport();
+		if (file == null) {
+			issuer.sendMessage(MagicSpells.getTextColor() + "Failed to create profiling report, check the console for details.");
+			return;
+		}
+		issuer.sendMessage(MagicSpells.getTextColor() + "Created profiling report " + file.getName() + ".");
+	}
+
+	@Subcommand("profile")
+	public class ProfileCommands extends BaseCommand {
+
+		@Subcommand("view")
+		@Syntax("[entries]")
+		@Description("Show the per-tick budget and the slowest profiled sections.")
+		@HelpPermission(permission = Perm.COMMAND_PROFILE)
+		public void onView(CommandIssuer issuer, @Optional Integer entries) {
+			if (!MagicSpells.isLoaded()) return;
+			if (noPermission(issuer.getIssuer(), Perm.COMMAND_PROFILE)) return;
+			MagicSpells.getProfiler().sendView(issuer.getIssuer(), entries == null ? 10 : Math.max(entries, 0));
+		}
+
+		@Subcommand("live")
+		@Description("Toggle a live profiling summary in your action bar.")
+		@HelpPermission(permission = Perm.COMMAND_PROFILE)
+		public void onLive(CommandIssuer issuer) {
+			if (!MagicSpells.isLoaded()) return;
+			if (noPermission(issuer.getIssuer(), Perm.COMMAND_PROFILE)) return;
+			Player player = getPlayerFromIssuer(issuer);
+			if (player == null) return;
+			boolean viewing = MagicSpells.getProfiler().toggleLiveView(player);
+			issuer.sendMessage(MagicSpells.getTextColor() + "Live profiling view " + (viewing ? "enabled." : "disabled."));
+		}
+
+		@Subcommand("toggle")
+		@Syntax("[sample rate]")
+		@Description("Toggle profiling, optionally timing only one in every [sample rate] calls.")
+		@HelpPermission(permission = Perm.COMMAND_PROFILE)
+		public void onToggle(CommandIssuer issuer, @Optional Integer sampleRate) {
+			if (!MagicSpells.isLoaded()) return;
+			if (noPermission(issuer.getIssuer(), Perm.COMMAND_PROFILE)) return;
+			Profiler profiler = MagicSpells.getProfiler();
+			if (sampleRate != null) {
+				profiler.setSampleRate(sampleRate);
+				profiler.setEnabled(true);
+			} else profiler.setEnabled(!profiler.isEnabled());
+			issuer.sendMessage(MagicSpells.getTextColor() + "Profiling " + (profiler.isEnabled() ? "enabled" : "disabled")
+				+ (profiler.getSampleRate() > 1 ? ", sampling 1 in " + profiler.getSampleRate() + " calls." : "."));
+		}
+
+		@Subcommand("reset")
+		@Description("Reset all profiling statistics.")
+		@HelpPermission(permission = Perm.COMMAND_PROFILE)
+		public void onReset(CommandIssuer issuer) {
+			if (!MagicSpells.isLoaded()) return;
+			if (noPermission(issuer.getIssuer(), Perm.COMMAND_PROFILE)) return;
+			MagicSpells.getProfiler().reset();
+			issuer.sendMessage(MagicSpells.getTextColor() + "Profiling statistics reset.");
+		}
+
 	}
 
 	@Subcommand("debug")
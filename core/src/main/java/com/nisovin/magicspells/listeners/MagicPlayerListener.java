@@ -12,8 +12,10 @@ import org.bukkit.event.entity.EntityRegainHealthEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 
 import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.util.Util;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellUtil;
+import com.nisovin.magicspells.storage.StorageHandler;
 
 public class MagicPlayerListener implements Listener {
 
@@ -32,12 +34,20 @@ public class MagicPlayerListener implements Listener {
 	public void onPlayerQuit(PlayerQuitEvent event) {
 		Spellbook spellbook = MagicSpells.getSpellbooks().remove(event.getPlayer().getName());
 		if (spellbook != null) spellbook.destroy();
+
+		StorageHandler storageHandler = MagicSpells.getStorageHandler();
+		if (storageHandler != null) storageHandler.release(Util.getUniqueId(event.getPlayer()));
 	}
 	
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onPlayerChangeWorld(PlayerChangedWorldEvent event) {
-		if (!MagicSpells.arePlayerSpellsSeparatedPerWorld()) return;
 		Player player = event.getPlayer();
+
+		// Permissions may be set per world.
+		Spellbook spellbook = MagicSpells.getSpellbooks().get(player.getName());
+		if (spellbook != null) spellbook.invalidateGrantedPassives();
+
+		if (!MagicSpells.arePlayerSpellsSeparatedPerWorld()) return;
 		MagicSpells.debug("Player '" + player.getName() + "' changed from world '" + event.getFrom().getName() + "' to '" + player.getWorld().getName() + "', reloading spells");
 		MagicSpells.getSpellbook(player).reload();
 	}
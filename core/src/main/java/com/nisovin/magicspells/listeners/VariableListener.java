@@ -8,6 +8,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 
 import com.nisovin.magicspells.Spell;
 import com.nisovin.magicspells.util.Util;
@@ -28,9 +29,30 @@ public class VariableListener implements Listener {
 		variableManager = MagicSpells.getVariableManager();
 	}
 
+	/**
+	 * Starts reading the variables of joining players. Not registered through MagicSpells#registerEvents, as the
+	 * event is called off the main thread.
+	 */
+	public static class PreLoginListener implements Listener {
+
+		private final VariableManager variableManager;
+
+		public PreLoginListener() {
+			variableManager = MagicSpells.getVariableManager();
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR)
+		public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+			if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+			variableManager.prefetchPlayerVariables(event.getName(), event.getUniqueId().toString().replace("-", ""));
+		}
+
+	}
+
 	@EventHandler
 	public void onJoin(PlayerJoinEvent event) {
 		final Player player = event.getPlayer();
+		VariableManager.getStore().getOrCreateRow(player);
 		variableManager.loadPlayerVariables(player.getName(), Util.getUniqueId(player));
 		variableManager.loadBossBars(player);
 		MagicSpells.scheduleDelayedTask(() -> variableManager.loadExpBar(player), 10);
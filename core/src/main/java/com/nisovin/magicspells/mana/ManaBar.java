@@ -21,6 +21,12 @@ public class ManaBar {
 	private int mana;
 	private int maxMana;
 	private int regenAmount;
+
+	// What was last shown to the player, so unchanged displays are not sent again on regeneration.
+	String shownMessage;
+	int shownFood = -1;
+	int shownLevel = -1;
+	float shownProgress = -1;
 	
 	public ManaBar(Player player, ManaRank rank) {
 		playerName = player.getName().toLowerCase();
@@ -37,7 +37,10 @@ public class ManaSystem extends ManaHandler {
 	private List<ManaRank> ranks;
 	
 	private Map<UUID, ManaBar> manaBars;
-	private Set<Regenerator> regenerators;
+	private Map<ManaRank, List<ManaBar>> barsByRank;
+	private Map<ManaRank, String[]> renderedBars;
+
+	private Regenerator regenerator;
 
 	public ManaSystem(MagicConfig config) {
 		String path = "mana.";
@@ -62,9 +65,10 @@ public class ManaSystem extends ManaHandler {
 		
 		defaultRank = new ManaRank("default", defaultBarPrefix, defaultSymbol, defaultBarSize, defaultMaxMana, defaultStartingMana, defaultRegenAmount, defaultRegenInterval, defaultBarColorFull, defaultBarColorEmpty);
 
-		regenerators = new HashSet<>();
 		ranks = new ArrayList<>();
 		manaBars = new HashMap<>();
+		barsByRank = new LinkedHashMap<>();
+		renderedBars = new HashMap<>();
 
 		Set<String> rankKeys = config.getKeys("mana.ranks");
 		if (rankKeys != null) {
@@ -83,13 +87,13 @@ public class ManaSystem extends ManaHandler {
 				r.setColorFull(ChatColor.getByChar(config.getString(keyPath + "color-full", defaultBarColorFull.getChar() + "")));
 				r.setColorEmpty(ChatColor.getByChar(config.getString(keyPath + "color-empty", defaultBarColorEmpty.getChar() + "")));
 
-				regenerators.add(new Regenerator(r, r.getRegenInterval()));
-
+				barsByRank.put(r, new ArrayList<>());
 				ranks.add(r);
 			}
 		}
 
-		regenerators.add(new Regenerator(defaultRank, defaultRegenInterval));
+		barsByRank.put(defaultRank, new ArrayList<>());
+		regenerator = new Regenerator();
 	}
 	
 	// DEBUG INFO: level 2, adding mana modifiers
@@ -111,6 +115,7 @@ public class ManaSystem extends ManaHandler {
 			bar = new ManaBar(player, rank);
 			MagicSpells.debug(1, "Creating mana bar for player " + player.getName() + " with rank " + rank.getName());
 			manaBars.put(player.getUniqueId(), bar);
+			barsByRank.get(rank).add(bar);
 		}
 		return bar;
 	}
@@ -124,7 +129,7 @@ public class ManaSystem extends ManaHandler {
 			ManaRank rank = getRank(player);
 			if (rank != bar.getManaRank()) {
 				MagicSpells.debug(1, "Updating mana bar for player " + player.getName() + " with rank " + rank.getName());
-				bar.setRank(rank);
+				setRank(bar, rank);
 			}
 		}
 		MagicSpells.scheduleDelayedTask(() -> showMana(player), 11);
@@ -136,13 +141,19 @@ public class ManaSystem extends ManaHandler {
 			ManaBar bar = getManaBar(player);
 			ManaRank rank = getRank(player);
 			if (bar.getManaRank() != rank) {
-				bar.setRank(rank);
+				setRank(bar, rank);
 				return true;
 			}
 		} else getManaBar(player);
 
 		return false;
 	}
+
+	private void setRank(ManaBar bar, ManaRank rank) {
+		barsByRank.get(bar.getManaRank()).remove(bar);
+		bar.setRank(rank);
+		barsByRank.get(rank).add(bar);
+	}
 	
 	// DEBUG INFO: level 3, fetching mana rank for playerName
 	// DEBUG INFO: level 3, checking rank rankName
@@ -220,11 +231,17 @@ public class ManaSystem extends ManaHandler {
 
 	@Override
 	public void showMana(Player player, boolean showInChat) {
-		ManaBar bar = getManaBar(player);
+		showMana(player, getManaBar(player), showInChat, true);
+	}
+
+	/**
+	 * @param force whether to send displays that have not changed since they were last shown
+	 */
+	private void showMana(Player player, ManaBar bar, boolean showInChat, boolean force) {
 		if (showInChat) showManaInChat(player, bar);
-		if (showManaOnHungerBar) showManaOnHungerBar(player, bar);
-		if (showManaOnActionBar) showManaOnActionBar(player, bar);
-		if (showManaOnExperienceBar) showManaOnExperienceBar(player, bar);
+		if (showManaOnHungerBar) showManaOnHungerBar(player, bar, force);
+		if (showManaOnActionBar) showManaOnActionBar(player, bar, force);
+		if (showManaOnExperienceBar) showManaOnExperienceBar(player, bar, force);
 	}
 	
 	@Override
@@ -233,36 +250,70 @@ public class ManaSystem extends ManaHandler {
 	}
 
 	private String getManaMessage(ManaBar bar) {
-		int segments = (int) (((double) bar.getMana() / (double) bar.getMaxMana()) * bar.getManaRank().getBarSize());
-		StringBuilder text = new StringBuilder(MagicSpells.getTextColor() + bar.getPrefix() + MagicSpells.getTextColor() + " {" + bar.getColorFull());
-		int i = 0;
-		for (; i < segments; i++) {
-			text.append(bar.getManaRank().getSymbol());
-		}
-		text.append(bar.getColorEmpty());
-		for (; i < bar.getManaRank().getBarSize(); i++) {
-			text.append(bar.getManaRank().getSymbol());
+		ManaRank rank = bar.getManaRank();
+		int barSize = rank.getBarSize();
+		int segments = (int) (((double) bar.getMana() / (double) bar.getMaxMana()) * barSize);
+		segments = Math.max(0, Math.min(segments, barSize));
+
+		// The bar itself only depends on the rank and the number of full segments.
+		String[] rendered = renderedBars.computeIfAbsent(rank, r -> new String[barSize + 1]);
+		String barText = rendered[segments];
+		if (barText == null) {
+			StringBuilder text = new StringBuilder(MagicSpells.getTextColor() + bar.getPrefix() + MagicSpells.getTextColor() + " {" + bar.getColorFull());
+			int i = 0;
+			for (; i < segments; i++) {
+				text.append(rank.getSymbol());
+			}
+			text.append(bar.getColorEmpty());
+			for (; i < barSize; i++) {
+				text.append(rank.getSymbol());
+			}
+			text.append(MagicSpells.getTextColor()).append("} [");
+
+			barText = text.toString();
+			rendered[segments] = barText;
 		}
-		text.append(MagicSpells.getTextColor()).append("} [").append(bar.getMana()).append('/').append(bar.getMaxMana()).append(']');
 
-		return text.toString();
+		return barText + bar.getMana() + '/' + bar.getMaxMana() + ']';
 	}
 	
 	private void showManaInChat(Player player, ManaBar bar) {
 		player.sendMessage(getManaMessage(bar));
 	}
 	
-	private void showManaOnHungerBar(Player player, ManaBar bar) {
+	private void showManaOnHungerBar(Player player, ManaBar bar, boolean force) {
 		int food = Math.round(((float) bar.getMana() / (float) bar.getMaxMana()) * 20);
+		if (!force && food == bar.shownFood) return;
+
+		bar.shownFood = food;
 		MagicSpells.getVolatileCodeHandler().sendStatusUpdate(player, player.getHealth(), food, player.getSaturation());
 	}
 
-	private void showManaOnActionBar(Player player, ManaBar bar) {
-		player.sendActionBar(Util.getMiniMessage(getManaMessage(bar)));
+	private void showManaOnActionBar(Player player, ManaBar bar, boolean force) {
+		String message = getManaMessage(bar);
+		if (!force && message.equals(bar.shownMessage)) return;
+
+		bar.shownMessage = message;
+		player.sendActionBar(Util.getMiniMessage(message));
 	}
 	
-	private void showManaOnExperienceBar(Player player, ManaBar bar) {
-		MagicSpells.getExpBarManager().update(player, bar.getMana(), (float) bar.getMana() / (float) bar.getMaxMana());
+	private void showManaOnExperienceBar(Player player, ManaBar bar, boolean force) {
+		int level = bar.getMana();
+		float progress = (float) bar.getMana() / (float) bar.getMaxMana();
+		if (!force && level == bar.shownLevel && progress == bar.shownProgress) return;
+
+		bar.shownLevel = level;
+		bar.shownProgress = progress;
+		MagicSpells.getExpBarManager().update(player, level, progress);
+	}
+
+	/**
+	 * Forgets the food level last shown on the hunger bar of the player, after the server sent its real health and
+	 * food, so the next regeneration shows mana on it again even if the shown value has not changed.
+	 */
+	public void resetHungerBar(Player player) {
+		ManaBar bar = manaBars.get(player.getUniqueId());
+		if (bar != null) bar.shownFood = -1;
 	}
 
 	public boolean usingHungerBar() {
@@ -281,39 +332,45 @@ public class ManaSystem extends ManaHandler {
 	public void disable() {
 		ranks.clear();
 		manaBars.clear();
+		barsByRank.clear();
+		renderedBars.clear();
 
-		for (Regenerator regenerator : regenerators) {
-			MagicSpells.cancelTask(regenerator.taskId);
-		}
-		regenerators.clear();
+		if (regenerator != null) MagicSpells.cancelTask(regenerator.taskId);
+		regenerator = null;
 	}
-	
-	private class Regenerator implements Runnable {
 
-		private final ManaRank rank;
+	/**
+	 * Regenerates the bars of every rank from a single task, going only through the bars of the ranks whose regen
+	 * interval has passed.
+	 */
+	private class Regenerator implements Runnable {
 
 		private final int taskId;
+		private long tick;
 
-		private Regenerator(ManaRank rank, int regenInterval) {
-			this.rank = rank;
-			taskId = MagicSpells.scheduleRepeatingTask(this, regenInterval, regenInterval);
+		private Regenerator() {
+			taskId = MagicSpells.scheduleRepeatingTask(this, 1, 1);
 		}
 
 		@Override
 		public void run() {
-			Iterator<ManaBar> manaBarIterator = manaBars.values().iterator();
-			ManaBar manaBar;
-			Player player;
-			while (manaBarIterator.hasNext()) {
-				manaBar = manaBarIterator.next();
-				if (!manaBar.getManaRank().equals(rank)) continue;
+			tick++;
+
+			for (Map.Entry<ManaRank, List<ManaBar>> entry : barsByRank.entrySet()) {
+				int interval = entry.getKey().getRegenInterval();
+				if (interval <= 0 || tick % interval != 0) continue;
 
-				if (!manaBar.regenerate()) continue;
+				// Mana change listeners may create bars or change ranks while regenerating.
+				List<ManaBar> bars = entry.getValue();
+				for (int i = 0; i < bars.size(); i++) {
+					ManaBar manaBar = bars.get(i);
+					if (!manaBar.regenerate()) continue;
 
-				player = manaBar.getPlayer();
-				if (player == null) continue;
+					Player player = manaBar.getPlayer();
+					if (player == null) continue;
 
-				showMana(player, showManaOnRegen);
+					showMana(player, manaBar, showManaOnRegen, false);
+				}
 			}
 		}
 		
@@ -18,7 +18,10 @@ import com.nisovin.magicspells.util.*;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.config.ConfigData;
 import com.nisovin.magicspells.castmodifiers.ModifierSet;
+import com.nisovin.magicspells.util.profiling.Profiler;
 import com.nisovin.magicspells.util.config.ConfigDataUtil;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
 import com.nisovin.magicspells.spelleffects.trackers.BuffTracker;
 import com.nisovin.magicspells.spelleffects.trackers.OrbitTracker;
 import com.nisovin.magicspells.spelleffects.trackers.BuffEffectlibTracker;
@@ -83,7 +86,11 @@ public abstract class SpellEffect {
 	private ModifierSet targetModifiers;
 	private ModifierSet locationModifiers;
 
+	private ProfileSection profilingSection;
+
 	public final void loadFromConfiguration(ConfigurationSection config) {
+		profilingSection = MagicSpells.getProfiler().getSection(ProfileCategory.EFFECT, getClass().getSimpleName());
+
 		delay = ConfigDataUtil.getInteger(config, "delay", 0);
 		chance = ConfigDataUtil.getDouble(config, "chance", -1);
 		zOffset = ConfigDataUtil.getDouble(config, "z-offset", 0);
@@ -248,10 +255,10 @@ public abstract class SpellEffect {
 		}
 
 		int delay = this.delay.get(data);
-		if (delay <= 0) return playEffectEntity(entity, data);
+		if (delay <= 0) return playEffectEntityProfiled(entity, data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> playEffectEntity(entity, finalData), delay);
+		TaskDispatcher.runDelayed(entity, () -> playEffectEntityProfiled(entity, finalData), delay);
 
 		return null;
 	}
@@ -290,10 +297,10 @@ public abstract class SpellEffect {
 		data = result.data();
 
 		int delay = this.delay.get(data);
-		if (delay <= 0) return playEffectLocationReal(location, data);
+		if (delay <= 0) return playEffectLocationProfiled(location, data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> playEffectLocationReal(location, finalData), delay);
+		TaskDispatcher.runDelayed(location, () -> playEffectLocationProfiled(location, finalData), delay);
 
 		return null;
 	}
@@ -315,7 +322,7 @@ public abstract class SpellEffect {
 		if (delay <= 0) return playEffectLibLocationReal(location, data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> playEffectLibLocationReal(location, finalData), delay);
+		TaskDispatcher.runDelayed(location, () -> playEffectLibLocationReal(location, finalData), delay);
 
 		return null;
 	}
@@ -337,7 +344,7 @@ public abstract class SpellEffect {
 		if (delay <= 0) return playEntityEffectLocationReal(location, data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> playEntityEffectLocationReal(location, finalData), delay);
+		TaskDispatcher.runDelayed(location, () -> playEntityEffectLocationReal(location, finalData), delay);
 
 		return null;
 	}
@@ -359,11 +366,31 @@ public abstract class SpellEffect {
 		if (delay <= 0) return playArmorStandEffectLocationReal(location, data);
 
 		SpellData finalData = data;
-		MagicSpells.scheduleDelayedTask(() -> playArmorStandEffectLocationReal(location, finalData), delay);
+		TaskDispatcher.runDelayed(location, () -> playArmorStandEffectLocationReal(location, finalData), delay);
 
 		return null;
 	}
 
+	private Runnable playEffectEntityProfiled(Entity entity, SpellData data) {
+		Profiler profiler = MagicSpells.getProfiler();
+		long start = profiler.start();
+		try {
+			return playEffectEntity(entity, data);
+		} finally {
+			profiler.stop(profilingSection, start);
+		}
+	}
+
+	private Runnable playEffectLocationProfiled(Location location, SpellData data) {
+		Profiler profiler = MagicSpells.getProfiler();
+		long start = profiler.start();
+		try {
+			return playEffectLocationReal(location, data);
+		} finally {
+			profiler.stop(profilingSection, start);
+		}
+	}
+
 	private Runnable playEffectLocationReal(Location location, SpellData data) {
 		if (location == null) return playEffectLocation(null, data);
 		Location loc = location.clone();
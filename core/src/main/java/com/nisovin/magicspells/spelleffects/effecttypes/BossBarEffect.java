@@ -5,7 +5,6 @@ import java.util.UUID;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
-import org.bukkit.Bukkit;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
 import org.bukkit.entity.Entity;
@@ -107,7 +106,7 @@ public class BossBarEffect extends SpellEffect {
 
 	@Override
 	public void turnOff() {
-		for (int i : tasks.values()) Bukkit.getScheduler().cancelTask(i);
+		for (int i : tasks.values()) MagicSpells.cancelTask(i);
 		tasks.clear();
 	}
 
@@ -156,7 +155,7 @@ public class BossBarEffect extends SpellEffect {
 			}, duration);
 
 			int oldTask = tasks.put(taskData, newTask);
-			if (oldTask != -1) Bukkit.getScheduler().cancelTask(oldTask);
+			if (oldTask != -1) MagicSpells.cancelTask(oldTask);
 		}
 	}
 
@@ -86,7 +86,13 @@ public class NovaEffect extends SpellEffect {
 		double range = this.range.get(data);
 		range = Math.max(Math.min(range, MagicSpells.getGlobalRadius()), 1);
 
-		Collection<Player> nearbyPlayers = location.getWorld().getNearbyPlayers(location, range, range, range);
+		List<Player> found = MagicSpells.getEntityGrid().borrowList();
+		MagicSpells.getEntityGrid().getPlayers(location, range, range, range, found);
+
+		// The animation only sends block changes, so it is not started without anyone to send them to.
+		List<Player> nearbyPlayers = found.isEmpty() ? null : List.copyOf(found);
+		MagicSpells.getEntityGrid().releaseList(found);
+		if (nearbyPlayers == null) return null;
 
 		// Start animation
 		if (circleShape.get(data)) {
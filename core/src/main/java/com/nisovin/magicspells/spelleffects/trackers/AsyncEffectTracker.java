@@ -1,15 +1,21 @@
 package com.nisovin.magicspells.spelleffects.trackers;
 
+import java.util.concurrent.TimeUnit;
+
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
 import org.bukkit.scheduler.BukkitTask;
 
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.TimeUtil;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.spells.BuffSpell;
 import com.nisovin.magicspells.spelleffects.SpellEffect;
 import com.nisovin.magicspells.spelleffects.SpellEffect.SpellEffectActiveChecker;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
 public class AsyncEffectTracker implements Runnable {
 
 	protected Entity entity;
@@ -20,6 +26,7 @@ public class AsyncEffectTracker implements Runnable {
 	protected SpellData data;
 
 	protected BukkitTask effectTask;
+	protected ScheduledTask asyncTask;
 
 	public AsyncEffectTracker(Entity entity, SpellEffectActiveChecker checker, SpellEffect effect, SpellData data) {
 		this.entity = entity;
@@ -28,7 +35,10 @@ public class AsyncEffectTracker implements Runnable {
 		this.data = data;
 
 		int interval = effect.getEffectInterval().get(data);
-		effectTask = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(), this, 0, interval);
+		if (TaskDispatcher.isFolia()) {
+			long period = Math.max(interval, 1) * TimeUtil.MILLISECONDS_PER_TICK;
+			asyncTask = Bukkit.getAsyncScheduler().runAtFixedRate(MagicSpells.getInstance(), task -> run(), 0, period, TimeUnit.MILLISECONDS);
+		} else effectTask = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(), this, 0, interval);
 	}
 
 	public Entity getEntity() {
@@ -65,7 +75,8 @@ public class AsyncEffectTracker implements Runnable {
 	}
 
 	public void stop() {
-		effectTask.cancel();
+		if (effectTask != null) effectTask.cancel();
+		if (asyncTask != null) asyncTask.cancel();
 		entity = null;
 	}
 
@@ -4,6 +4,7 @@ import org.bukkit.entity.Entity;
 
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.spells.BuffSpell;
 import com.nisovin.magicspells.spelleffects.SpellEffect;
 import com.nisovin.magicspells.spelleffects.effecttypes.EntityEffect;
@@ -33,7 +34,7 @@ public class EffectTracker implements Runnable {
 		isEntityEffect = effect instanceof EntityEffect;
 
 		int interval = effect.getEffectInterval().get(data);
-		effectTrackerTaskId = MagicSpells.scheduleRepeatingTask(this, 0, interval);
+		effectTrackerTaskId = TaskDispatcher.runRepeating(entity, this, 0, interval);
 	}
 
 	public Entity getEntity() {
@@ -70,7 +71,8 @@ public class EffectTracker implements Runnable {
 	}
 
 	public void stop() {
-		MagicSpells.cancelTask(effectTrackerTaskId);
+		// The task is never started if the entity was already retired.
+		if (effectTrackerTaskId != -1) MagicSpells.cancelTask(effectTrackerTaskId);
 		entity = null;
 		if (effectEntity != null) effectEntity.remove();
 	}
@@ -1,12 +1,18 @@
 package com.nisovin.magicspells.spelleffects.trackers;
 
+import java.util.concurrent.TimeUnit;
+
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
 import org.bukkit.entity.Entity;
 import org.bukkit.scheduler.BukkitTask;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
 import com.nisovin.magicspells.util.Util;
+import com.nisovin.magicspells.util.TimeUtil;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.spelleffects.SpellEffect;
@@ -20,8 +26,8 @@ public class OrbitEffectlibTracker extends AsyncEffectTracker implements Runnabl
 
 	private Vector currentPosition;
 
-	private BukkitTask repeatingHorizTask;
-	private BukkitTask repeatingVertTask;
+	private Runnable cancelHorizExpansion;
+	private Runnable cancelVertExpansion;
 
 	private float orbRadius;
 	private float orbHeight;
@@ -62,14 +68,12 @@ public class OrbitEffectlibTracker extends AsyncEffectTracker implements Runnabl
 		float horizRadius = effect.getHorizExpandRadius().get(data);
 		int horizDelay = effect.getHorizExpandDelay().get(data);
 		if (horizDelay > 0 && horizRadius != 0)
-			repeatingHorizTask = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(),
-				() -> orbRadius += horizRadius, horizDelay, horizDelay);
+			cancelHorizExpansion = runAsyncTimer(() -> orbRadius += horizRadius, horizDelay);
 
 		float vertRadius = effect.getVertExpandRadius().get(data);
 		int vertDelay = effect.getVertExpandDelay().get(data);
 		if (vertDelay > 0 && vertRadius != 0)
-			repeatingVertTask = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(),
-				() -> orbHeight += vertRadius, vertDelay, vertDelay);
+			cancelVertExpansion = runAsyncTimer(() -> orbHeight += vertRadius, vertDelay);
 
 		effectlibEffect = effect.playEffectLib(entity.getLocation(), data);
 		if (effectlibEffect != null) effectlibEffect.infinite();
@@ -108,11 +112,25 @@ public class OrbitEffectlibTracker extends AsyncEffectTracker implements Runnabl
 	public void stop() {
 		super.stop();
 		if (effectlibEffect != null) effectlibEffect.cancel();
-		if (repeatingHorizTask != null) repeatingHorizTask.cancel();
-		if (repeatingVertTask != null) repeatingVertTask.cancel();
+		if (cancelHorizExpansion != null) cancelHorizExpansion.run();
+		if (cancelVertExpansion != null) cancelVertExpansion.run();
 		currentPosition = null;
 	}
 
+	/**
+	 * @return a task that cancels the timer
+	 */
+	private static Runnable runAsyncTimer(Runnable task, int interval) {
+		if (TaskDispatcher.isFolia()) {
+			long period = interval * TimeUtil.MILLISECONDS_PER_TICK;
+			ScheduledTask scheduled = Bukkit.getAsyncScheduler().runAtFixedRate(MagicSpells.getInstance(), t -> task.run(), period, period, TimeUnit.MILLISECONDS);
+			return scheduled::cancel;
+		}
+
+		BukkitTask scheduled = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(), task, interval, interval);
+		return scheduled::cancel;
+	}
+
 	public Effect getEffectlibEffect() {
 		return effectlibEffect;
 	}
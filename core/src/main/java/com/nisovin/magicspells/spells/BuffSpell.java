@@ -216,10 +216,6 @@ public abstract class BuffSpell extends TargetedSpell implements TargetedEntityS
 			float dur = duration;
 			if (powerAffectsDuration) dur *= data.power();
 			setDuration(data.target(), dur);
-
-			MagicSpells.scheduleDelayedTask(() -> {
-				if (isExpired(data.target())) turnOff(data.target());
-			}, Math.round(dur * TimeUtil.TICKS_PER_SECOND) + 1); // overestimate ticks, since the duration is real-time ms based
 		}
 
 		playSpellEffectsBuff(data.target(), entity -> isActiveAndNotExpired((LivingEntity) entity), data);
@@ -231,6 +227,9 @@ public abstract class BuffSpell extends TargetedSpell implements TargetedEntityS
 	public void setDuration(LivingEntity livingEntity, float duration) {
 		long endTime = System.currentTimeMillis() + Math.round(duration * TimeUtil.MILLISECONDS_PER_SECOND);
 		durationEndTime.put(livingEntity.getUniqueId(), endTime);
+
+		BuffManager manager = MagicSpells.getBuffManager();
+		if (manager != null) manager.scheduleExpiry(livingEntity, this, endTime);
 	}
 
 	public float getDuration(LivingEntity livingEntity) {
@@ -5,7 +5,6 @@ import java.util.ArrayList;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.EventPriority;
 import org.bukkit.entity.LivingEntity;
 
@@ -15,8 +14,10 @@ import com.nisovin.magicspells.Subspell;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.events.SpellCastEvent;
 import com.nisovin.magicspells.util.config.ConfigData;
+import com.nisovin.magicspells.util.profiling.Profiler;
 import com.nisovin.magicspells.events.SpellCastedEvent;
 import com.nisovin.magicspells.events.SpellTargetEvent;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
 import com.nisovin.magicspells.events.SpellTargetLocationEvent;
 import com.nisovin.magicspells.spells.passive.util.PassiveListener;
 
@@ -29,6 +30,8 @@ public class PassiveSpell extends Spell {
 
 	private final ValidTargetList triggerList;
 
+	private final int passiveIndex;
+
 	private final ConfigData<Integer> delay;
 
 	private final ConfigData<Float> chance;
@@ -45,6 +48,8 @@ public class PassiveSpell extends Spell {
 		super(config, spellName);
 
 		passiveListeners = new ArrayList<>();
+		passiveIndex = MagicSpells.getPassiveDispatcher().addPassive(this);
+		profilingSection = MagicSpells.getProfiler().getSection(ProfileCategory.PASSIVE, internalName);
 
 		triggers = getConfigStringList("triggers", null);
 		spellNames = getConfigStringList("spells", null);
@@ -92,7 +97,7 @@ public class PassiveSpell extends Spell {
 
 		for (PassiveListener listener : passiveListeners) {
 			listener.turnOff();
-			HandlerList.unregisterAll(listener);
+			MagicSpells.getPassiveDispatcher().unregister(listener);
 		}
 		passiveListeners.clear();
 	}
@@ -131,7 +136,7 @@ public class PassiveSpell extends Spell {
 			listener.setPassiveSpell(this);
 			listener.setEventPriority(priority);
 			listener.initialize(args);
-			MagicSpells.registerEvents(listener, priority);
+			MagicSpells.getPassiveDispatcher().register(listener, priority);
 			passiveListeners.add(listener);
 			trigCount++;
 		}
@@ -139,6 +144,13 @@ public class PassiveSpell extends Spell {
 		if (trigCount == 0) MagicSpells.error("PassiveSpell '" + internalName + "' has no triggers defined!");
 	}
 
+	/**
+	 * @return the index of the passive spell in the bitsets of spellbooks
+	 */
+	public int getPassiveIndex() {
+		return passiveIndex;
+	}
+
 	public List<PassiveListener> getPassiveListeners() {
 		return passiveListeners;
 	}
@@ -236,6 +248,9 @@ public class PassiveSpell extends Spell {
 		float chance = this.chance.get(data) / 100;
 		if (chance < 1 && random.nextFloat() > chance) return false;
 
+		Profiler profiler = MagicSpells.getProfiler();
+		long start = profiler.start();
+
 		disabled = true;
 		try {
 			if (data.caster() instanceof Player) {
@@ -282,6 +297,7 @@ public class PassiveSpell extends Spell {
 			postCast(castEvent, PostCastAction.HANDLE_NORMALLY, data);
 		} finally {
 			disabled = false;
+			profiler.stop(profilingSection, start);
 		}
 
 		return true;
@@ -2,10 +2,14 @@ package com.nisovin.magicspells.spells;
 
 import java.util.List;
 
+import org.bukkit.entity.Player;
+
+import com.nisovin.magicspells.Spellbook;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.util.CastResult;
 import com.nisovin.magicspells.util.MagicConfig;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.util.config.ConfigData;
 
 public class PermissionSpell extends InstantSpell {
@@ -31,8 +35,19 @@ public class PermissionSpell extends InstantSpell {
 		for (String node : permissionNodes)
 			data.caster().addAttachment(MagicSpells.plugin, node, true, duration);
 
+		// The nodes may grant passive spells, both when added and once they are removed again.
+		if (data.caster() instanceof Player player) {
+			invalidateGrantedPassives(player);
+			TaskDispatcher.runDelayed(player, () -> invalidateGrantedPassives(player), duration + 1);
+		}
+
 		playSpellEffects(data);
 		return new CastResult(PostCastAction.HANDLE_NORMALLY, data);
 	}
 
+	private static void invalidateGrantedPassives(Player player) {
+		Spellbook spellbook = MagicSpells.getSpellbooks().get(player.getName());
+		if (spellbook != null) spellbook.invalidateGrantedPassives();
+	}
+
 }
@@ -36,6 +36,7 @@ import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.spells.BuffSpell;
 import com.nisovin.magicspells.util.MagicConfig;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.handlers.DebugHandler;
 import com.nisovin.magicspells.util.config.ConfigData;
 import com.nisovin.magicspells.util.magicitems.MagicItem;
@@ -242,7 +243,7 @@ public class ArmorSpell extends BuffSpell {
 			if (!isActive(player) || isExpired(player)) return;
 
 			EntityEquipment eq = player.getEquipment();
-			Bukkit.getScheduler().scheduleSyncDelayedTask(MagicSpells.plugin, () -> setArmor(eq));
+			TaskDispatcher.runDelayed(player, () -> setArmor(eq), 0);
 		}
 
 		@EventHandler
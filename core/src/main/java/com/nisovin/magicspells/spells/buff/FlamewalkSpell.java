@@ -1,8 +1,10 @@
 package com.nisovin.magicspells.spells.buff;
 
 import java.util.Map;
+import java.util.List;
 import java.util.UUID;
 import java.util.HashMap;
+import java.util.ArrayList;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
@@ -111,6 +113,7 @@ public class FlamewalkSpell extends BuffSpell {
 	private class Burner implements Runnable {
 
 		private final int taskId;
+		private final List<LivingEntity> nearby = new ArrayList<>();
 
 		private Burner() {
 			taskId = MagicSpells.scheduleRepeatingTask(this, tickInterval, tickInterval);
@@ -137,8 +140,10 @@ public class FlamewalkSpell extends BuffSpell {
 				double radius = data.constantRadius ? data.radius : FlamewalkSpell.this.radius.get(data.spellData);
 				radius = Math.min(radius, MagicSpells.getGlobalRadius());
 
-				for (Entity entity : caster.getNearbyEntities(radius, radius, radius)) {
-					if (!(entity instanceof LivingEntity target) || !validTargetList.canTarget(caster, target)) continue;
+				nearby.clear();
+				MagicSpells.getEntityGrid().getLivingEntities(caster, radius, radius, radius, nearby);
+				for (LivingEntity target : nearby) {
+					if (!validTargetList.canTarget(caster, target)) continue;
 
 					if (data.checkPlugins) {
 						MagicSpellsEntityDamageByEntityEvent event = new MagicSpellsEntityDamageByEntityEvent(caster, target, DamageCause.ENTITY_ATTACK, 1, FlamewalkSpell.this);
@@ -88,7 +88,9 @@ public class InvisibilitySpell extends BuffSpell {
 			data.preventPickups |= preventPickups;
 
 			radius = Math.min(radius, MagicSpells.getGlobalRadius());
-			for (Entity entity : caster.getNearbyEntities(radius, radius, radius)) {
+			List<LivingEntity> nearby = MagicSpells.getEntityGrid().borrowList();
+			MagicSpells.getEntityGrid().getLivingEntities(caster, radius, radius, radius, nearby);
+			for (LivingEntity entity : nearby) {
 				if (!(entity instanceof Mob mob)) continue;
 
 				LivingEntity target = mob.getTarget();
@@ -96,6 +98,7 @@ public class InvisibilitySpell extends BuffSpell {
 
 				mob.setTarget(null);
 			}
+			MagicSpells.getEntityGrid().releaseList(nearby);
 		}
 
 		public boolean isActive(InvisibilitySpell spell, LivingEntity entity) {
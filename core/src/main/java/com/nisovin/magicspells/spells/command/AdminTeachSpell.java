@@ -9,7 +9,6 @@ import java.util.Collection;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.command.CommandSender;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.command.ConsoleCommandSender;
 
 import com.nisovin.magicspells.Spell;
@@ -46,7 +45,8 @@ public class AdminTeachSpell extends CommandSpell {
 		String[] nodes = Arrays.copyOfRange(args, 1, args.length);
 		Set<String> nodeSet = new HashSet<>(Arrays.asList(nodes));
 		
-		new AdminTeachTask(sender, spellbook, nodeSet).runTaskAsynchronously(MagicSpells.plugin);
+		AdminTeachTask task = new AdminTeachTask(sender, targetPlayer, spellbook, nodeSet);
+		Bukkit.getAsyncScheduler().runNow(MagicSpells.getInstance(), scheduled -> task.run());
 		
 		// Format should be <target> <node> <node> <...>
 		return true;
@@ -58,14 +58,16 @@ public class AdminTeachSpell extends CommandSpell {
 		return TxtUtil.tabCompleteSpellName(sender);
 	}
 	
-	private static class AdminTeachTask extends BukkitRunnable {
+	private static class AdminTeachTask implements Runnable {
 		
 		private final CommandSender sender;
+		private final Player target;
 		private final Spellbook spellbook;
 		private final Set<String> nodeSet;
 		
-		private AdminTeachTask(CommandSender sender, Spellbook spellbook, Set<String> nodeSet) {
+		private AdminTeachTask(CommandSender sender, Player target, Spellbook spellbook, Set<String> nodeSet) {
 			this.sender = sender;
+			this.target = target;
 			this.spellbook = spellbook;
 			this.nodeSet = nodeSet;
 		}
@@ -74,7 +76,7 @@ public class AdminTeachSpell extends CommandSpell {
 		public void run() {
 			// TODO can the retrieval of MagicSpells::spells be done async or does that need to be done sync?
 			final Collection<Spell> spellCollection = SpellUtil.getSpellsByPermissionNames(MagicSpells.spells(), nodeSet);
-			Bukkit.getScheduler().scheduleSyncDelayedTask(MagicSpells.plugin, () -> {
+			Runnable apply = () -> {
 				if (spellbook.getSpells() == null) {
 					sender.sendMessage("Target spellbook was destroyed before changes could be applied.");
 					return;
@@ -82,7 +84,11 @@ public class AdminTeachSpell extends CommandSpell {
 				spellCollection.forEach(spellbook::addSpell);
 				spellbook.save();
 				sender.sendMessage("Spell granting complete");
-			});
+			};
+
+			// This runs on an async thread, so hop through a scheduler that is safe to call from it.
+			if (TaskDispatcher.isFolia()) TaskDispatcher.runDelayed(target, apply, 0);
+			else Bukkit.getScheduler().scheduleSyncDelayedTask(MagicSpells.plugin, apply);
 		}
 		
 	}
@@ -1,6 +1,7 @@
 package com.nisovin.magicspells.spells.instant;
 
 import java.util.Set;
+import java.util.List;
 import java.util.HashSet;
 import java.util.function.Predicate;
 
@@ -232,6 +233,7 @@ public class BeamSpell extends InstantSpell implements TargetedLocationSpell, Ta
 
 		Predicate<Location> transparent = isTransparent(data);
 		Set<Entity> immune = new HashSet<>();
+		List<LivingEntity> nearby = MagicSpells.getEntityGrid().borrowList();
 		float d = 0;
 
 		playSpellEffects(EffectPosition.CASTER, data.caster(), data);
@@ -266,7 +268,9 @@ public class BeamSpell extends InstantSpell implements TargetedLocationSpell, Ta
 			if (travelSpell != null) travelSpell.subcast(locData);
 
 			//check entities in the beam range
-			for (LivingEntity e : loc.getNearbyLivingEntities(hitRadius, verticalHitRadius)) {
+			nearby.clear();
+			MagicSpells.getEntityGrid().getLivingEntities(loc, hitRadius, verticalHitRadius, hitRadius, nearby);
+			for (LivingEntity e : nearby) {
 				if (!e.isValid() || immune.contains(e)) continue;
 				if (!validTargetList.canTarget(data.caster(), e)) continue;
 
@@ -286,6 +290,8 @@ public class BeamSpell extends InstantSpell implements TargetedLocationSpell, Ta
 			}
 		}
 
+		MagicSpells.getEntityGrid().releaseList(nearby);
+
 		//end of the beam
 		if (!zoneManager.willFizzle(loc, this) && d >= maxDistance) {
 			playSpellEffects(EffectPosition.DELAYED, loc, data.location(loc));
@@ -255,6 +255,7 @@ public class BlockBeamSpell extends InstantSpell implements TargetedLocationSpel
 		Predicate<Location> transparent = isTransparent(data);
 		List<LivingEntity> armorStandList = new ArrayList<>();
 		HashSet<Entity> immune = new HashSet<>();
+		List<LivingEntity> nearby = new ArrayList<>();
 		float d = 0;
 
 		playSpellEffects(EffectPosition.CASTER, data.caster(), data);
@@ -308,7 +309,9 @@ public class BlockBeamSpell extends InstantSpell implements TargetedLocationSpel
 			playSpellEffects(EffectPosition.SPECIAL, loc, locData);
 
 			//check entities in the beam range
-			for (LivingEntity e : loc.getNearbyLivingEntities(hitRadius, verticalHitRadius)) {
+			nearby.clear();
+			MagicSpells.getEntityGrid().getLivingEntities(loc, hitRadius, verticalHitRadius, hitRadius, nearby);
+			for (LivingEntity e : nearby) {
 				if (!e.isValid() || immune.contains(e)) continue;
 				if (!validTargetList.canTarget(data.caster(), e)) continue;
 
@@ -19,6 +19,7 @@ import com.nisovin.magicspells.spells.InstantSpell;
 import com.nisovin.magicspells.util.config.ConfigData;
 import com.nisovin.magicspells.spelleffects.SpellEffect;
 import com.nisovin.magicspells.util.trackers.Interaction;
+import com.nisovin.magicspells.util.trackers.ProjectileGrid;
 import com.nisovin.magicspells.castmodifiers.ModifierSet;
 import com.nisovin.magicspells.spells.TargetedEntitySpell;
 import com.nisovin.magicspells.spelleffects.EffectPosition;
@@ -32,6 +33,7 @@ import org.apache.commons.math4.core.jdkmath.AccurateMath;
 public class ParticleProjectileSpell extends InstantSpell implements TargetedLocationSpell, TargetedEntitySpell, TargetedEntityFromLocationSpell {
 
 	private static Set<ParticleProjectileTracker> trackerSet;
+	private static ProjectileGrid projectileGrid;
 
 	private final ConfigData<Float> targetYOffset;
 	private final ConfigData<Float> startXOffset;
@@ -121,6 +123,7 @@ public class ParticleProjectileSpell extends InstantSpell implements TargetedLoc
 		super(config, spellName);
 
 		trackerSet = new HashSet<>();
+		projectileGrid = new ProjectileGrid();
 
 		// Compatibility with start-forward-offset
 		startXOffset = getConfigDataFloat("start-x-offset", getConfigDataFloat("start-forward-offset", 1F));
@@ -320,6 +323,7 @@ public class ParticleProjectileSpell extends InstantSpell implements TargetedLoc
 			tracker.stop(false);
 		}
 		trackerSet.clear();
+		projectileGrid.clear();
 	}
 
 	@Override
@@ -376,6 +380,10 @@ public class ParticleProjectileSpell extends InstantSpell implements TargetedLoc
 		return trackerSet;
 	}
 
+	public static ProjectileGrid getProjectileGrid() {
+		return projectileGrid;
+	}
+
 	public void playEffects(EffectPosition position, Location loc, SpellData data) {
 		playSpellEffects(position, loc, data);
 	}
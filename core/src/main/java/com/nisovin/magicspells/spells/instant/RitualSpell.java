@@ -4,7 +4,6 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -181,7 +180,7 @@ public class RitualSpell extends InstantSpell {
 			ritualDuration = RitualSpell.this.ritualDuration.get(data);
 			reqParticipants = RitualSpell.this.reqParticipants.get(data);
 
-			taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(MagicSpells.plugin, this, tickInterval, tickInterval);
+			taskId = TaskDispatcher.runRepeating(caster, this, tickInterval, tickInterval);
 
 			if (showProgressOnExpBar) MagicSpells.getExpBarManager().lock(caster, this);
 			playSpellEffects(EffectPosition.CASTER, caster, data);
@@ -266,7 +265,7 @@ public class RitualSpell extends InstantSpell {
 				resetManaBar(player);
 			}
 			channelers.clear();
-			Bukkit.getScheduler().cancelTask(taskId);
+			MagicSpells.cancelTask(taskId);
 			activeRituals.remove(caster);
 		}
 
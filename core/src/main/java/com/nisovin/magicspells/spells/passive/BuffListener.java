@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NotNull;
 import org.bukkit.World;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
+import org.bukkit.event.Event;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -55,6 +56,12 @@ public class BuffListener extends PassiveListener {
 		}
 	}
 
+	@Override
+	public LivingEntity getTriggerEntity(Event event) {
+		// Player events also keep track of which players are buffed, so are never skipped.
+		return null;
+	}
+
 	@OverridePriority
 	@EventHandler
 	public void onEntitySpawn(EntitySpawnEvent event) {
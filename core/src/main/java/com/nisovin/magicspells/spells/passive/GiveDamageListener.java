@@ -6,6 +6,7 @@ import java.util.HashSet;
 
 import org.jetbrains.annotations.NotNull;
 
+import org.bukkit.event.Event;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
@@ -57,6 +58,11 @@ public class GiveDamageListener extends PassiveListener {
 		}
 	}
 
+	@Override
+	public LivingEntity getTriggerEntity(Event event) {
+		return event instanceof EntityDamageByEntityEvent damageEvent ? getAttacker(damageEvent) : null;
+	}
+
 	@OverridePriority
 	@EventHandler
 	public void onDamage(EntityDamageByEntityEvent event) {
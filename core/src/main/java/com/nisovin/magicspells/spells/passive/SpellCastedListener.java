@@ -1,5 +1,6 @@
 package com.nisovin.magicspells.spells.passive;
 
+import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
 import org.bukkit.entity.LivingEntity;
 
@@ -26,6 +27,11 @@ public class SpellCastedListener extends PassiveListener {
 		filter = SpellFilter.fromString(var);
 	}
 
+	@Override
+	public LivingEntity getTriggerEntity(Event event) {
+		return event instanceof SpellCastedEvent castEvent ? castEvent.getCaster() : null;
+	}
+
 	@OverridePriority
 	@EventHandler
 	public void onSpellCast(SpellCastedEvent event) {
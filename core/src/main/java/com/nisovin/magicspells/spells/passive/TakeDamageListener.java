@@ -6,6 +6,7 @@ import java.util.EnumSet;
 
 import org.jetbrains.annotations.NotNull;
 
+import org.bukkit.event.Event;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
@@ -57,6 +58,11 @@ public class TakeDamageListener extends PassiveListener {
 		}
 	}
 
+	@Override
+	public LivingEntity getTriggerEntity(Event event) {
+		return event instanceof EntityDamageEvent damageEvent && damageEvent.getEntity() instanceof LivingEntity entity ? entity : null;
+	}
+
 	@OverridePriority
 	@EventHandler
 	public void onDamage(EntityDamageEvent event) {
@@ -1,12 +1,8 @@
 package com.nisovin.magicspells.spells.passive;
 
-import java.util.Set;
-import java.util.HashSet;
-
 import org.jetbrains.annotations.NotNull;
 
-import org.bukkit.World;
-import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -26,6 +22,7 @@ import com.nisovin.magicspells.spells.PassiveSpell;
 import com.nisovin.magicspells.util.OverridePriority;
 import com.nisovin.magicspells.events.SpellLearnEvent;
 import com.nisovin.magicspells.events.SpellForgetEvent;
+import com.nisovin.magicspells.spells.passive.util.PassiveTicker;
 import com.nisovin.magicspells.spells.passive.util.PassiveListener;
 
 // Trigger argument is required
@@ -36,35 +33,43 @@ import com.nisovin.magicspells.spells.passive.util.PassiveListener;
 @Name("ticks")
 public class TicksListener extends PassiveListener {
 
-	private Ticker ticker;
+	private PassiveTicker.Registration ticker;
 
 	@Override
 	public void initialize(@NotNull String var) {
-		if (var.isEmpty()) return;
+		int interval;
 		try {
-			int interval = Integer.parseInt(var);
-			ticker = new Ticker(passiveSpell, interval);
+			interval = Integer.parseInt(var);
 		} catch (NumberFormatException e) {
-			// ignored
+			interval = 0;
 		}
 
-		for (World world : Bukkit.getWorlds()) {
-			for (LivingEntity livingEntity : world.getLivingEntities()) {
-				if (!livingEntity.isValid()) continue;
-				if (!canTrigger(livingEntity)) continue;
-				ticker.add(livingEntity);
-			}
+		if (interval <= 0) {
+			MagicSpells.error("Invalid interval '" + var + "' in ticks trigger on passive spell '" + passiveSpell.getInternalName() + "'");
+			return;
 		}
+
+		// The worlds are scanned for entities by the ticker, once for all ticks triggers.
+		ticker = MagicSpells.getPassiveTicker().register(this, interval);
 	}
 
 	@Override
 	public void turnOff() {
-		ticker.turnOff();
+		if (ticker == null) return;
+		MagicSpells.getPassiveTicker().unregister(ticker);
+		ticker = null;
+	}
+
+	@Override
+	public LivingEntity getTriggerEntity(Event event) {
+		// Player events also keep track of which players are ticked, so are never skipped.
+		return null;
 	}
 
 	@OverridePriority
 	@EventHandler
 	public void onChunkLoad(ChunkLoadEvent event) {
+		if (ticker == null) return;
 		for (Entity entity : event.getChunk().getEntities()) {
 			if (!(entity instanceof LivingEntity)) continue;
 			if (!canTrigger((LivingEntity) entity)) continue;
@@ -75,6 +80,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onChunkUnload(ChunkUnloadEvent event) {
+		if (ticker == null) return;
 		for (Entity entity : event.getChunk().getEntities()) {
 			if (!(entity instanceof LivingEntity)) continue;
 			if (!canTrigger((LivingEntity) entity)) continue;
@@ -85,6 +91,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onEntitySpawn(EntitySpawnEvent event) {
+		if (ticker == null) return;
 		Entity entity = event.getEntity();
 		if (entity instanceof Player) return;
 		if (!(entity instanceof LivingEntity)) return;
@@ -95,6 +102,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onJoin(PlayerJoinEvent event) {
+		if (ticker == null) return;
 		Player player = event.getPlayer();
 		if (!canTrigger(player)) return;
 		ticker.add(player);
@@ -103,6 +111,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onQuit(PlayerQuitEvent event) {
+		if (ticker == null) return;
 		Player player = event.getPlayer();
 		if (!canTrigger(player)) return;
 		ticker.remove(player);
@@ -111,6 +120,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onDeath(PlayerDeathEvent event) {
+		if (ticker == null) return;
 		Player player = event.getEntity();
 		if (!canTrigger(player)) return;
 		ticker.remove(player);
@@ -119,6 +129,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onRespawn(PlayerRespawnEvent event) {
+		if (ticker == null) return;
 		Player player = event.getPlayer();
 		if (!canTrigger(player)) return;
 		ticker.add(player);
@@ -127,6 +138,7 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onLearn(SpellLearnEvent event) {
+		if (ticker == null) return;
 		Spell spell = event.getSpell();
 		if (!(spell instanceof PassiveSpell)) return;
 		if (!spell.getInternalName().equals(passiveSpell.getInternalName())) return;
@@ -136,55 +148,11 @@ public class TicksListener extends PassiveListener {
 	@OverridePriority
 	@EventHandler
 	public void onForget(SpellForgetEvent event) {
+		if (ticker == null) return;
 		Spell spell = event.getSpell();
 		if (!(spell instanceof PassiveSpell)) return;
 		if (!spell.getInternalName().equals(passiveSpell.getInternalName())) return;
 		ticker.remove(event.getForgetter());
 	}
 
-	private static class Ticker implements Runnable {
-
-		private final Set<LivingEntity> entities;
-
-		private final PassiveSpell passiveSpell;
-
-		private final int taskId;
-		private final String profilingKey;
-
-		public Ticker(PassiveSpell passiveSpell, int interval) {
-			this.passiveSpell = passiveSpell;
-			taskId = MagicSpells.scheduleRepeatingTask(this, interval, interval);
-			profilingKey = MagicSpells.profilingEnabled() ? "PassiveTick:" + interval : null;
-			entities = new HashSet<>();
-		}
-
-		public void add(LivingEntity livingEntity) {
-			entities.add(livingEntity);
-		}
-
-		public void remove(LivingEntity livingEntity) {
-			entities.remove(livingEntity);
-		}
-
-		@Override
-		public void run() {
-			long start = System.nanoTime();
-
-			for (LivingEntity entity : new HashSet<>(entities)) {
-				if (entity == null || !entity.isValid()) {
-					entities.remove(entity);
-					continue;
-				}
-				passiveSpell.activate(entity);
-			}
-
-			if (profilingKey != null) MagicSpells.addProfile(profilingKey, System.nanoTime() - start);
-		}
-
-		public void turnOff() {
-			MagicSpells.cancelTask(taskId);
-		}
-
-	}
-
 }
@@ -0,0 +1,281 @@
+package com.nisovin.magicspells.spells.passive.util;
+
+import java.util.Map;
+import java.util.List;
+import java.util.BitSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.plugin.EventExecutor;
+
+import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.spells.PassiveSpell;
+import com.nisovin.magicspells.handlers.DebugHandler;
+import com.nisovin.magicspells.util.OverridePriority;
+import com.nisovin.magicspells.util.EventExecutorFactory;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
+import com.nisovin.magicspells.util.EventExecutorFactory.Invoker;
+
+/**
+ * Registers a single Bukkit executor per event class and priority for the handlers of all passive listeners.
+ * <p>
+ * Every passive spell is given an index, and each spellbook keeps a bitset of the passive spells it knows or may be
+ * granted. The handlers of an executor are grouped by listener class, and indexed by passive spell within each group.
+ * For each group, the dispatcher asks one listener for the entity the event would trigger the passive for, see
+ * {@link PassiveListener#getTriggerEntity(Event)}, so listeners of the same class must return the same entity for an
+ * event. If that entity is a player with a spellbook, only the handlers of the passive spells set in the bitset of
+ * the spellbook are called, found by walking its set bits. Otherwise every handler of the group is called. Handlers
+ * are called by the index of their passive spell, which is the order passive spells were created, and in the order
+ * they were registered for the same passive spell.
+ */
+public class PassiveDispatcher {
+
+	private final List<PassiveSpell> passives = new ArrayList<>();
+	private final Map<Class<? extends Event>, Route[]> routes = new HashMap<>();
+	private final Map<PassiveListener, List<Route>> listenerRoutes = new HashMap<>();
+
+	private long registered;
+
+	/**
+	 * @return the index of the passive spell, used in the bitsets of spellbooks
+	 */
+	public int addPassive(PassiveSpell spell) {
+		passives.add(spell);
+		return passives.size() - 1;
+	}
+
+	public List<PassiveSpell> getPassives() {
+		return passives;
+	}
+
+	/**
+	 * Registers the event handlers of the passive listener, like {@link MagicSpells#registerEvents(Listener, EventPriority)}.
+	 */
+	public void register(PassiveListener listener, EventPriority customPriority) {
+		if (customPriority == null) customPriority = EventPriority.NORMAL;
+
+		Method[] methods;
+		try {
+			methods = listener.getClass().getDeclaredMethods();
+		} catch (NoClassDefFoundError e) {
+			DebugHandler.debugNoClassDefFoundError(e);
+			return;
+		}
+
+		// Listeners registered while profiling is disabled are not timed at all.
+		Profiler profiler = MagicSpells.getProfiler().isEnabled() ? MagicSpells.getProfiler() : null;
+
+		for (Method method : methods) {
+			EventHandler eh = method.getAnnotation(EventHandler.class);
+			if (eh == null) continue;
+
+			EventPriority priority = method.isAnnotationPresent(OverridePriority.class) ? customPriority : eh.priority();
+
+			Class<?>[] parameters = method.getParameterTypes();
+			if (parameters.length != 1 || !Event.class.isAssignableFrom(parameters[0])) {
+				MagicSpells.error("Wrong method arguments used for event type registered");
+				continue;
+			}
+
+			Class<? extends Event> eventClass = parameters[0].asSubclass(Event.class);
+
+			ProfileSection section = profiler == null ? null : profiler.getSection(ProfileCategory.LISTENER, listener.getClass().getName().replace("com.nisovin.magicspells.", "") + '.' + method.getName() + '(' + eventClass.getSimpleName() + ')');
+			Handler handler = new Handler(listener, EventExecutorFactory.createInvoker(method, eventClass), eh.ignoreCancelled(), registered++, profiler, section);
+
+			Route route = getRoute(eventClass, priority);
+			route.add(handler);
+			listenerRoutes.computeIfAbsent(listener, l -> new ArrayList<>()).add(route);
+		}
+	}
+
+	public void unregister(PassiveListener listener) {
+		List<Route> registered = listenerRoutes.remove(listener);
+		if (registered == null) return;
+
+		for (Route route : registered) route.remove(listener);
+	}
+
+	public void disable() {
+		for (Route[] byPriority : routes.values()) {
+			for (Route route : byPriority) {
+				if (route != null) HandlerList.unregisterAll(route);
+			}
+		}
+
+		routes.clear();
+		listenerRoutes.clear();
+		passives.clear();
+		registered = 0;
+	}
+
+	private Route getRoute(Class<? extends Event> eventClass, EventPriority priority) {
+		Route[] byPriority = routes.computeIfAbsent(eventClass, c -> new Route[EventPriority.values().length]);
+
+		Route route = byPriority[priority.ordinal()];
+		if (route == null) {
+			route = new Route(eventClass);
+			byPriority[priority.ordinal()] = route;
+			Bukkit.getPluginManager().registerEvent(eventClass, route, priority, route, MagicSpells.getInstance(), false);
+		}
+
+		return route;
+	}
+
+	private static class Route implements Listener, EventExecutor {
+
+		private static final Handler[] EMPTY = new Handler[0];
+		private static final Group[] NO_GROUPS = new Group[0];
+		private static final Comparator<Handler> ORDER = Comparator.comparingInt(Handler::passive).thenComparingLong(Handler::order);
+
+		private final Class<? extends Event> eventClass;
+
+		// Replaced rather than modified, so handlers registered while dispatching are only called for the next event.
+		private Handler[] handlers = EMPTY;
+		private Group[] groups = NO_GROUPS;
+
+		private Route(Class<? extends Event> eventClass) {
+			this.eventClass = eventClass;
+		}
+
+		private void add(Handler handler) {
+			Handler[] added = Arrays.copyOf(handlers, handlers.length + 1);
+			added[handlers.length] = handler;
+			setHandlers(added);
+		}
+
+		private void remove(PassiveListener listener) {
+			setHandlers(Arrays.stream(handlers).filter(handler -> handler.listener != listener).toArray(Handler[]::new));
+		}
+
+		private void setHandlers(Handler[] handlers) {
+			Map<Class<?>, List<Handler>> byClass = new HashMap<>();
+			for (Handler handler : handlers)
+				byClass.computeIfAbsent(handler.listener.getClass(), c -> new ArrayList<>()).add(handler);
+
+			this.handlers = handlers;
+			groups = byClass.values().stream().map(Group::new).toArray(Group[]::new);
+		}
+
+		@Override
+		public void execute(@NotNull Listener ignored, @NotNull Event event) {
+			// Events without their own handler list also reach executors registered for their subclasses.
+			if (!eventClass.isInstance(event)) return;
+
+			Group[] groups = this.groups;
+			if (groups.length == 1) {
+				groups[0].forEach(event, handler -> call(handler, event));
+				return;
+			}
+
+			List<Handler> selected = new ArrayList<>();
+			for (Group group : groups) group.forEach(event, selected::add);
+			if (selected.size() > 1) selected.sort(ORDER);
+
+			for (Handler handler : selected) call(handler, event);
+		}
+
+		private static void call(Handler handler, Event event) {
+			if (handler.ignoreCancelled && event instanceof Cancellable cancellable && cancellable.isCancelled()) return;
+			handler.invoke(event);
+		}
+
+	}
+
+	/**
+	 * The handlers of one listener class in a route, by the index of their passive spell.
+	 */
+	private static class Group {
+
+		private final PassiveListener resolver;
+		private final Handler[] handlers;
+		private final Handler[][] byPassive;
+
+		private Group(List<Handler> handlers) {
+			this.handlers = handlers.toArray(Handler[]::new);
+			Arrays.sort(this.handlers, Route.ORDER);
+			resolver = this.handlers[0].listener;
+
+			int max = 0;
+			for (Handler handler : this.handlers) max = Math.max(max, handler.passive());
+
+			byPassive = new Handler[max + 1][];
+			for (Handler handler : this.handlers) {
+				Handler[] same = byPassive[handler.passive()];
+				if (same == null) same = new Handler[] {handler};
+				else {
+					same = Arrays.copyOf(same, same.length + 1);
+					same[same.length - 1] = handler;
+				}
+				byPassive[handler.passive()] = same;
+			}
+		}
+
+		private void forEach(Event event, Consumer<Handler> action) {
+			// Without a spellbook, the listener checks the player itself.
+			BitSet possible = null;
+			if (resolver.getTriggerEntity(event) instanceof Player player) {
+				Spellbook spellbook = MagicSpells.getSpellbooks().get(player.getName());
+				if (spellbook != null) possible = spellbook.getPossiblePassives();
+			}
+
+			if (possible == null) {
+				for (Handler handler : handlers) action.accept(handler);
+				return;
+			}
+
+			for (int i = possible.nextSetBit(0); i >= 0 && i < byPassive.length; i = possible.nextSetBit(i + 1)) {
+				Handler[] same = byPassive[i];
+				if (same == null) continue;
+
+				for (Handler handler : same) action.accept(handler);
+			}
+		}
+
+	}
+
+	private record Handler(PassiveListener listener, Invoker invoker, boolean ignoreCancelled, long order, Profiler profiler, ProfileSection section) {
+
+		private int passive() {
+			return listener.getPassiveSpell().getPassiveIndex();
+		}
+
+		private void invoke(Event event) {
+			if (profiler == null) {
+				try {
+					invoker.invoke(listener, event);
+				} catch (Throwable t) {
+					EventExecutorFactory.handleThrowable(t);
+				}
+				return;
+			}
+
+			long start = profiler.start();
+			try {
+				invoker.invoke(listener, event);
+			} catch (Throwable t) {
+				EventExecutorFactory.handleThrowable(t);
+			} finally {
+				profiler.stop(section, start);
+			}
+		}
+
+	}
+
+}
@@ -1,11 +1,14 @@
 package com.nisovin.magicspells.spells.passive.util;
 
+import org.bukkit.event.Event;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.event.EventPriority;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.player.PlayerEvent;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.nisovin.magicspells.util.Name;
 import com.nisovin.magicspells.MagicSpells;
@@ -50,6 +53,17 @@ public abstract class PassiveListener implements Listener {
 		return passiveSpell.getTriggerList().canTarget(livingEntity, ignoreGameMode);
 	}
 		
+	/**
+	 * Used by the {@link PassiveDispatcher} to skip handlers for players who cannot have the passive spell. Listeners
+	 * whose handlers also keep track of entities that cannot trigger the passive should return null.
+	 * @param event the event about to be handled
+	 * @return the entity the event would trigger the passive for, or null if it is not known before handling the event
+	 */
+	@Nullable
+	public LivingEntity getTriggerEntity(Event event) {
+		return event instanceof PlayerEvent playerEvent ? playerEvent.getPlayer() : null;
+	}
+
 	public boolean cancelDefaultAction(boolean casted) {
 		if (passiveSpell == null) return true;
 		if (casted && passiveSpell.cancelDefaultAction()) return true;
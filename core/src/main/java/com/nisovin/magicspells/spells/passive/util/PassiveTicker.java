@@ -0,0 +1,218 @@
+package com.nisovin.magicspells.spells.passive.util;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.LivingEntity;
+
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.spells.PassiveSpell;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
+
+/**
+ * Activates the passive spells of all <code>ticks</code> triggers from a single repeating task.
+ * <p>
+ * Each trigger splits its entities into one group per tick of its interval, by entity id, so only one group is
+ * activated every tick rather than all entities on the same tick. Entities are kept in arrays indexed by entity
+ * id, and entities removed while their group is activated are only cleared, so nothing is copied while ticking.
+ * When the plugin loads, the worlds are scanned once for all triggers.
+ */
+public class PassiveTicker {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private final List<Registration> registrations = new ArrayList<>();
+	private final Profiler profiler;
+
+	private int taskId = -1;
+	private long tick;
+
+	public PassiveTicker(Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Scans the worlds for the entities of the triggers registered so far, and starts ticking.
+	 */
+	public void initialize() {
+		scan(registrations);
+		taskId = MagicSpells.scheduleRepeatingTask(this::tick, 1, 1);
+	}
+
+	public void disable() {
+		if (taskId != -1) MagicSpells.cancelTask(taskId);
+		taskId = -1;
+
+		registrations.clear();
+	}
+
+	/**
+	 * @param listener the trigger, used to check which entities can trigger it
+	 * @param interval ticks between activations of each entity
+	 * @return the registration to add and remove entities with
+	 */
+	public Registration register(PassiveListener listener, int interval) {
+		Registration registration = new Registration(listener, interval);
+		registrations.add(registration);
+
+		// Triggers registered after loading scan the worlds on their own.
+		if (taskId != -1) scan(List.of(registration));
+
+		return registration;
+	}
+
+	public void unregister(Registration registration) {
+		registrations.remove(registration);
+	}
+
+	private void scan(List<Registration> registrations) {
+		if (registrations.isEmpty()) return;
+
+		for (World world : Bukkit.getWorlds()) {
+			for (LivingEntity entity : world.getLivingEntities()) {
+				if (!entity.isValid()) continue;
+
+				for (Registration registration : registrations) {
+					if (!registration.listener.canTrigger(entity)) continue;
+					registration.add(entity);
+				}
+			}
+		}
+	}
+
+	private void tick() {
+		tick++;
+
+		for (int i = 0; i < registrations.size(); i++) {
+			Registration registration = registrations.get(i);
+
+			long start = profiler.start();
+			registration.activate((int) (tick % registration.interval));
+			profiler.stop(registration.section, start);
+		}
+	}
+
+	public class Registration {
+
+		private final PassiveListener listener;
+		private final PassiveSpell passiveSpell;
+		private final ProfileSection section;
+		private final int interval;
+
+		private final Phase[] phases;
+		// Entity id to index in the phase of the entity.
+		private final Int2IntMap indexes = new Int2IntOpenHashMap();
+
+		private Registration(PassiveListener listener, int interval) {
+			this.listener = listener;
+			this.interval = interval;
+
+			passiveSpell = listener.getPassiveSpell();
+			section = profiler.getSection(ProfileCategory.TASK, "PassiveTick:" + interval);
+
+			phases = new Phase[interval];
+			for (int i = 0; i < interval; i++) phases[i] = new Phase();
+
+			indexes.defaultReturnValue(-1);
+		}
+
+		public void add(LivingEntity entity) {
+			int id = entity.getEntityId();
+			if (indexes.containsKey(id)) return;
+
+			Phase phase = phases[Math.floorMod(id, interval)];
+			indexes.put(id, phase.size);
+			phase.add(entity);
+		}
+
+		public void remove(LivingEntity entity) {
+			int id = entity.getEntityId();
+			int index = indexes.remove(id);
+			if (index == -1) return;
+
+			phases[Math.floorMod(id, interval)].remove(index);
+		}
+
+		private void activate(int phaseIndex) {
+			Phase phase = phases[phaseIndex];
+			phase.ticking = true;
+
+			// Entities added while activating are appended, and are first activated one interval later.
+			int count = phase.size;
+			for (int i = 0; i < count; i++) {
+				LivingEntity entity = phase.entities[i];
+				if (entity == null) continue;
+
+				if (!entity.isValid()) {
+					remove(entity);
+					continue;
+				}
+
+				try {
+					passiveSpell.activate(entity);
+				} catch (Exception e) {
+					MagicSpells.handleException(e);
+				}
+			}
+
+			phase.ticking = false;
+			if (phase.dirty) compact(phase);
+		}
+
+		private void compact(Phase phase) {
+			phase.dirty = false;
+
+			int size = 0;
+			for (int i = 0; i < phase.size; i++) {
+				LivingEntity entity = phase.entities[i];
+				if (entity == null) continue;
+
+				phase.entities[size] = entity;
+				indexes.put(entity.getEntityId(), size);
+				size++;
+			}
+
+			Arrays.fill(phase.entities, size, phase.size, null);
+			phase.size = size;
+		}
+
+		private class Phase {
+
+			private LivingEntity[] entities = new LivingEntity[INITIAL_CAPACITY];
+			private int size;
+
+			private boolean ticking;
+			private boolean dirty;
+
+			private void add(LivingEntity entity) {
+				if (size == entities.length) entities = Arrays.copyOf(entities, size * 2);
+				entities[size++] = entity;
+			}
+
+			private void remove(int index) {
+				if (ticking) {
+					entities[index] = null;
+					dirty = true;
+					return;
+				}
+
+				int last = --size;
+				LivingEntity moved = entities[last];
+				entities[index] = moved;
+				entities[last] = null;
+				if (index != last) indexes.put(moved.getEntityId(), index);
+			}
+
+		}
+
+	}
+
+}
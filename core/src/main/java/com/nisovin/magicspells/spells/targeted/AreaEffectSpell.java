@@ -2,9 +2,13 @@ package com.nisovin.magicspells.spells.targeted;
 
 import java.util.*;
 
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
+import org.bukkit.entity.Entity;
+import org.bukkit.util.BoundingBox;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.util.NumberConversions;
 
@@ -26,6 +30,7 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 	private List<String> spellNames;
 
 	private final ConfigData<Integer> maxTargets;
+	private final ConfigData<Integer> globalChunksPerTick;
 
 	private final ConfigData<Double> cone;
 	private final ConfigData<Double> vRadius;
@@ -50,6 +55,7 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 		spellNames = getConfigStringList("spells", null);
 
 		maxTargets = getConfigDataInt("max-targets", 0);
+		globalChunksPerTick = getConfigDataInt("global-chunks-per-tick", 0);
 
 		cone = getConfigDataDouble("cone", 0);
 		horizontalCone = getConfigDataDouble("horizontal-cone", 0);
@@ -117,37 +123,97 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 	}
 
 	private boolean doAoe(SpellData data) {
-		int count = 0;
+		Aoe aoe = new Aoe(data);
+		return validTargetList.canTargetOnlyCaster() ? aoe.affectCaster() : aoe.affectTargets();
+	}
 
-		LivingEntity caster = data.caster();
+	private void castSpells(SpellData data, boolean passTargeting) {
+		for (Subspell spell : spells) spell.subcast(data, passTargeting);
+	}
 
-		Location location = Util.makeFinite(data.location());
-		data = data.location(location);
+	private double horizontalAngle(Location from, Location to) {
+		Location startLoc = from.clone();
+		Location endLoc = to.clone();
 
-		boolean spellSourceInCenter = this.spellSourceInCenter.get(data);
-		data = data.location(spellSourceInCenter ? location : (caster == null ? null : caster.getLocation()));
+		startLoc.setY(0.0D);
+		startLoc.setPitch(0.0F);
+
+		endLoc.setY(0.0D);
+		endLoc.setPitch(0.0F);
+
+		Vector direction = endLoc.toVector().subtract(startLoc.toVector()).normalize();
+
+		return AccurateMath.toDegrees(direction.angle(startLoc.getDirection()));
+	}
 
-		boolean circleShape = this.circleShape.get(data);
-		boolean useProximity = this.useProximity.get(data);
-		boolean ignoreRadius = this.ignoreRadius.get(data);
-		boolean passTargeting = this.passTargeting.get(data);
-		boolean failIfNoTargets = this.failIfNoTargets.get(data);
-		boolean reverseProximity = this.reverseProximity.get(data);
+	private class Aoe {
 
-		int maxTargets = this.maxTargets.get(data);
+		private final LivingEntity caster;
+		private final Location location;
+		private SpellData data;
 
-		double cone = this.cone.get(data);
-		double horizontalCone = this.horizontalCone.get(data);
+		private final boolean circleShape;
+		private final boolean useProximity;
+		private final boolean ignoreRadius;
+		private final boolean passTargeting;
+		private final boolean failIfNoTargets;
+		private final boolean reverseProximity;
+		private final boolean spellSourceInCenter;
 
-		double vRadius = Math.min(this.vRadius.get(data), MagicSpells.getGlobalRadius());
-		double hRadius = Math.min(this.hRadius.get(data), MagicSpells.getGlobalRadius());
-		double hRadiusSquared = hRadius * hRadius;
+		private final int maxTargets;
+		private final int globalChunksPerTick;
 
-		double minVRadius = Math.min(this.minVRadius.get(data), MagicSpells.getGlobalRadius());
-		double minHRadius = Math.min(this.minHRadius.get(data), MagicSpells.getGlobalRadius());
-		double minHRadiusSquared = minHRadius * minHRadius;
+		private final double cone;
+		private final double horizontalCone;
 
-		if (validTargetList.canTargetOnlyCaster()) {
+		private final double vRadius;
+		private final double hRadius;
+		private final double hRadiusSquared;
+
+		private final double minVRadius;
+		private final double minHRadius;
+		private final double minHRadiusSquared;
+
+		// Entities overlapping this box are excluded, for square areas with a minimum radius.
+		private final BoundingBox minBox;
+
+		private int count;
+
+		private Aoe(SpellData data) {
+			caster = data.caster();
+
+			location = Util.makeFinite(data.location());
+			data = data.location(location);
+
+			spellSourceInCenter = AreaEffectSpell.this.spellSourceInCenter.get(data);
+			data = data.location(spellSourceInCenter ? location : (caster == null ? null : caster.getLocation()));
+			this.data = data;
+
+			circleShape = AreaEffectSpell.this.circleShape.get(data);
+			useProximity = AreaEffectSpell.this.useProximity.get(data);
+			ignoreRadius = AreaEffectSpell.this.ignoreRadius.get(data);
+			passTargeting = AreaEffectSpell.this.passTargeting.get(data);
+			failIfNoTargets = AreaEffectSpell.this.failIfNoTargets.get(data);
+			reverseProximity = AreaEffectSpell.this.reverseProximity.get(data);
+
+			maxTargets = AreaEffectSpell.this.maxTargets.get(data);
+			globalChunksPerTick = AreaEffectSpell.this.globalChunksPerTick.get(data);
+
+			cone = AreaEffectSpell.this.cone.get(data);
+			horizontalCone = AreaEffectSpell.this.horizontalCone.get(data);
+
+			vRadius = Math.min(AreaEffectSpell.this.vRadius.get(data), MagicSpells.getGlobalRadius());
+			hRadius = Math.min(AreaEffectSpell.this.hRadius.get(data), MagicSpells.getGlobalRadius());
+			hRadiusSquared = hRadius * hRadius;
+
+			minVRadius = Math.min(AreaEffectSpell.this.minVRadius.get(data), MagicSpells.getGlobalRadius());
+			minHRadius = Math.min(AreaEffectSpell.this.minHRadius.get(data), MagicSpells.getGlobalRadius());
+			minHRadiusSquared = minHRadius * minHRadius;
+
+			minBox = !circleShape && (minHRadius != 0 || minVRadius != 0) ? BoundingBox.of(location, minHRadius, minVRadius, minHRadius) : null;
+		}
+
+		private boolean affectCaster() {
 			if (caster == null) return false;
 
 			LivingEntity target = caster;
@@ -165,7 +231,7 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 			double vDistance = Math.abs(targetLocation.getY() - location.getY());
 			if (vDistance > vRadius || vDistance < minVRadius) return false;
 
-			SpellTargetEvent event = new SpellTargetEvent(this, data, target);
+			SpellTargetEvent event = new SpellTargetEvent(AreaEffectSpell.this, data, target);
 			if (!event.callEvent()) return false;
 
 			SpellData subData = event.getSpellData();
@@ -179,53 +245,69 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 			return true;
 		}
 
-		List<LivingEntity> entities = new ArrayList<>();
-		if (ignoreRadius) Bukkit.getWorlds().forEach(world -> entities.addAll(world.getLivingEntities()));
-		else entities.addAll(location.getWorld().getNearbyLivingEntities(location, hRadius, vRadius, hRadius));
+		private boolean affectTargets() {
+			if (ignoreRadius && globalChunksPerTick > 0) {
+				new GlobalStream(this);
+				return finish(true);
+			}
+
+			List<LivingEntity> entities = new ArrayList<>();
+			if (ignoreRadius) Bukkit.getWorlds().forEach(world -> entities.addAll(world.getLivingEntities()));
+			else MagicSpells.getEntityGrid().getLivingEntities(location, hRadius, vRadius, hRadius, entities);
 
-		if (!circleShape && (minHRadius != 0 || minVRadius != 0)) {
-			entities.removeAll(location.getWorld().getNearbyLivingEntities(location, minHRadius, minVRadius, minHRadius));
+			if (useProximity) {
+				// check world before distance
+				entities.removeIf(entity -> !entity.getWorld().equals(location.getWorld()));
+
+				Comparator<LivingEntity> comparator = Comparator.comparingDouble(entity -> entity.getLocation().distanceSquared(location));
+				if (reverseProximity) comparator = comparator.reversed();
+				entities.sort(comparator);
+			}
+
+			for (LivingEntity target : entities) {
+				affect(target);
+				if (isFull()) break;
+			}
+
+			return finish(count > 0 || !failIfNoTargets);
 		}
 
-		if (useProximity) {
-			// check world before distance
-			for (LivingEntity entity : new ArrayList<>(entities)) {
-				if (entity.getWorld().equals(location.getWorld())) continue;
-				entities.remove(entity);
+		private boolean finish(boolean success) {
+			if (success) {
+				playSpellEffects(EffectPosition.SPECIAL, location, data);
+				if (caster != null) playSpellEffects(EffectPosition.CASTER, caster, data);
 			}
-			Comparator<LivingEntity> comparator = Comparator.comparingDouble(entity -> entity.getLocation().distanceSquared(location));
-			if (reverseProximity) comparator = comparator.reversed();
-			entities.sort(comparator);
+
+			return success;
+		}
+
+		private boolean isFull() {
+			return maxTargets > 0 && count >= maxTargets;
 		}
 
-		Location targetLocation;
-		double hDistance;
-		Vector dir;
-		SpellTargetEvent event;
-		SpellData subData;
-		boolean success;
-		for (LivingEntity target : entities) {
-			if (target.isDead()) continue;
-			if (!validTargetList.canTarget(caster, target)) continue;
+		private void affect(LivingEntity target) {
+			if (target.isDead()) return;
+			if (minBox != null && target.getWorld().equals(location.getWorld()) && minBox.overlaps(target.getBoundingBox())) return;
+			if (!validTargetList.canTarget(caster, target)) return;
 
 			if (circleShape && !ignoreRadius) {
-				targetLocation = target.getLocation();
+				Location targetLocation = target.getLocation();
 
-				hDistance = NumberConversions.square(targetLocation.getX() - location.getX()) + NumberConversions.square(targetLocation.getZ() - location.getZ());
-				if (hDistance > hRadiusSquared || hDistance < minHRadiusSquared) continue;
+				double hDistance = NumberConversions.square(targetLocation.getX() - location.getX()) + NumberConversions.square(targetLocation.getZ() - location.getZ());
+				if (hDistance > hRadiusSquared || hDistance < minHRadiusSquared) return;
 			}
 
-			if (horizontalCone > 0 && horizontalAngle(location, target.getLocation()) > horizontalCone) continue;
+			if (horizontalCone > 0 && horizontalAngle(location, target.getLocation()) > horizontalCone) return;
 
 			if (cone > 0) {
-				dir = target.getLocation().toVector().subtract(location.toVector());
-				if (AccurateMath.toDegrees(AccurateMath.abs(dir.angle(location.getDirection()))) > cone) continue;
+				Vector dir = target.getLocation().toVector().subtract(location.toVector());
+				if (AccurateMath.toDegrees(AccurateMath.abs(dir.angle(location.getDirection()))) > cone) return;
 			}
 
-			event = new SpellTargetEvent(this, data, target);
-			if (!event.callEvent()) continue;
+			SpellTargetEvent event = new SpellTargetEvent(AreaEffectSpell.this, data, target);
+			if (!event.callEvent()) return;
 
-			subData = event.getSpellData();
+			SpellData subData = event.getSpellData();
 			target = subData.target();
 
 			castSpells(subData, passTargeting);
@@ -241,36 +323,53 @@ public class AreaEffectSpell extends TargetedSpell implements TargetedLocationSp
 			}
 
 			count++;
-
-			if (maxTargets > 0 && count >= maxTargets) break;
-		}
-
-		success = count > 0 || !failIfNoTargets;
-		if (success) {
-			playSpellEffects(EffectPosition.SPECIAL, location, data);
-			if (caster != null) playSpellEffects(EffectPosition.CASTER, caster, data);
 		}
 
-		return success;
 	}
 
-	private void castSpells(SpellData data, boolean passTargeting) {
-		for (Subspell spell : spells) spell.subcast(data, passTargeting);
-	}
+	/**
+	 * Applies a global area effect to the entities of a few loaded chunks every tick, rather than to every entity
+	 * of every world at once. Targets are not sorted by proximity in this mode.
+	 */
+	private class GlobalStream implements Runnable {
 
-	private double horizontalAngle(Location from, Location to) {
-		Location startLoc = from.clone();
-		Location endLoc = to.clone();
+		private final Aoe aoe;
+		private final List<Chunk> chunks = new ArrayList<>();
+		// Entities that moved to a chunk not visited yet are only affected once.
+		private final Set<UUID> visited = new HashSet<>();
 
-		startLoc.setY(0.0D);
-		startLoc.setPitch(0.0F);
+		private final int taskId;
+		private int index;
 
-		endLoc.setY(0.0D);
-		endLoc.setPitch(0.0F);
+		private GlobalStream(Aoe aoe) {
+			this.aoe = aoe;
 
-		Vector direction = endLoc.toVector().subtract(startLoc.toVector()).normalize();
+			for (World world : Bukkit.getWorlds()) Collections.addAll(chunks, world.getLoadedChunks());
+			taskId = MagicSpells.scheduleRepeatingTask(this, 0, 1);
+		}
+
+		@Override
+		public void run() {
+			int end = Math.min(index + aoe.globalChunksPerTick, chunks.size());
+			for (; index < end && !aoe.isFull(); index++) {
+				Chunk chunk = chunks.get(index);
+				if (!chunk.isLoaded()) continue;
+
+				for (Entity entity : chunk.getEntities()) {
+					if (!(entity instanceof LivingEntity target) || !visited.add(target.getUniqueId())) continue;
+
+					aoe.affect(target);
+					if (aoe.isFull()) break;
+				}
+			}
+
+			if (index < chunks.size() && !aoe.isFull()) return;
+
+			MagicSpells.cancelTask(taskId);
+			chunks.clear();
+			visited.clear();
+		}
 
-		return AccurateMath.toDegrees(direction.angle(startLoc.getDirection()));
 	}
 
 }
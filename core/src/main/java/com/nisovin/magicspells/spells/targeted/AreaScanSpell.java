@@ -2,10 +2,15 @@ package com.nisovin.magicspells.spells.targeted;
 
 import java.util.Set;
 import java.util.List;
+import java.util.Queue;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.bukkit.World;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.Location;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.util.Vector;
 import org.bukkit.entity.Player;
 import org.bukkit.block.data.BlockData;
@@ -32,6 +37,7 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 	private final ConfigData<Integer> yRadius;
 	private final ConfigData<Integer> zRadius;
 	private final ConfigData<Integer> maxBlocks;
+	private final ConfigData<Integer> asyncMaxChunks;
 	private final ConfigData<Integer> xInnerRadius;
 	private final ConfigData<Integer> yInnerRadius;
 	private final ConfigData<Integer> zInnerRadius;
@@ -48,6 +54,7 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 	private final ConfigData<String> yVariable;
 	private final ConfigData<String> zVariable;
 
+	private final ConfigData<Boolean> async;
 	private final ConfigData<Boolean> pointBlank;
 	private final ConfigData<Boolean> blockCoords;
 	private final ConfigData<Boolean> failIfNoTargets;
@@ -74,6 +81,7 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 		zInnerRadius = getConfigDataInt("inner-z-radius", innerRadius);
 
 		maxBlocks = getConfigDataInt("max-blocks", 0);
+		asyncMaxChunks = getConfigDataInt("async-max-chunks", 256);
 
 		tolerance = getConfigDataFloat("tolerance", 1);
 		innerTolerance = getConfigDataFloat("inner-tolerance", tolerance);
@@ -88,6 +96,7 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 		zVariable = getConfigDataString("z-variable", null);
 		spellToCastName = getConfigString("spell", "");
 
+		async = getConfigDataBoolean("async", false);
 		pointBlank = getConfigDataBoolean("point-blank", false);
 		blockCoords = getConfigDataBoolean("block-coords", false);
 		failIfNoTargets = getConfigDataBoolean("fail-if-not-found", true);
@@ -231,85 +240,25 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 		boolean cull = xInnerRadius >= 0 && yInnerRadius >= 0 && zInnerRadius >= 0;
 		boolean boxCull = shape == Shape.BOX && cull;
 
-		VariableManager manager = MagicSpells.getVariableManager();
-		String playerCaster = data.caster() instanceof Player player ? player.getName() : null;
-
 		int minRadius = boxCull ? Math.min(xInnerRadius, Math.min(yInnerRadius, zInnerRadius)) : 0;
 		int maxRadius = Math.max(xRadius, Math.max(yRadius, zRadius));
 
-		boolean found = false;
-		loop:
-		for (int d = minRadius; d <= maxRadius; d++) {
-			int xBound = Math.min(xRadius, d);
-			if (boxCull && xBound <= xInnerRadius) continue;
-
-			for (int xOffset = -xBound; xOffset <= xBound; xOffset++) {
-				int yBound = Math.min(yRadius, d);
-				if (boxCull && yBound <= yInnerRadius) continue;
-
-				for (int yOffset = -yBound; yOffset <= yBound; yOffset++) {
-					int zBound = Math.min(zRadius, d);
-					if (boxCull && zBound <= zInnerRadius) continue;
-
-					for (int zOffset = -zBound; zOffset <= zBound; zOffset++) {
-						if (xOffset != d && xOffset != -d && yOffset != d && yOffset != -d && zOffset != d && zOffset != -d) continue;
-
-						if (shape != Shape.BOX) {
-							int xOffsetSq = xOffset * xOffset;
-							int yOffsetSq = yOffset * yOffset;
-							int zOffsetSq = zOffset * zOffset;
-
-							if (xRadiusInv * xOffsetSq + yRadiusInv * yOffsetSq + zRadiusInv * zOffsetSq > tolerance) continue;
-							if (cull && xInnerRadiusInv * xOffsetSq + yInnerRadiusInv * yOffsetSq + zInnerRadiusInv * zOffsetSq <= innerTolerance) {
-								switch (shape) {
-									case ELLIPSOID -> {
-										continue;
-									}
-									case X_CYLINDER -> {
-										if (xOffset >= -xInnerRadius && xOffset <= xInnerRadius) continue;
-									}
-									case Y_CYLINDER -> {
-										if (yOffset >= -yInnerRadius && yOffset <= yInnerRadius) continue;
-									}
-									case Z_CYLINDER -> {
-										if (zOffset >= -zInnerRadius && zOffset <= zInnerRadius) continue;
-									}
-								}
-							}
-						}
-
-						Location target = origin.clone().add(xOffset, yOffset, zOffset);
-						if (!check(target.getBlock().getBlockData())) continue;
-
-						if (playerCaster != null) {
-							if (xVariable != null) manager.set(xVariable, playerCaster, target.getX());
-							if (yVariable != null) manager.set(yVariable, playerCaster, target.getY());
-							if (zVariable != null) manager.set(zVariable, playerCaster, target.getZ());
-						}
-
-						SpellData subData = data.location(target);
-						if (scanModifiers != null) {
-							ModifierResult result = scanModifiers.apply(subData.caster(), target, subData);
-							if (!result.check()) continue;
-
-							subData = result.data();
-						}
-
-						found = true;
-
-						if (spellToCast != null) spellToCast.subcast(subData);
+		ShellSearch search = new ShellSearch(shape, xRadius, yRadius, zRadius, xInnerRadius, yInnerRadius, zInnerRadius,
+			xRadiusInv, yRadiusInv, zRadiusInv, xInnerRadiusInv, yInnerRadiusInv, zInnerRadiusInv, tolerance, innerTolerance,
+			cull, boxCull, minRadius, maxRadius);
 
-						playSpellEffects(EffectPosition.TARGET, target, subData);
-						playSpellEffectsTrail(origin, target, subData);
+		Hits hits = new Hits(data, origin, xVariable, yVariable, zVariable, count);
 
-						if (count == 1) break loop;
-						else if (count > 0) count--;
-					}
-				}
-			}
+		if (async.get(data)) {
+			new AsyncScan(search, hits, failIfNoTargets, asyncMaxChunks.get(data)).start();
+			return new CastResult(PostCastAction.HANDLE_NORMALLY, data);
 		}
 
-		boolean success = found || !failIfNoTargets;
+		World world = origin.getWorld();
+		int x = origin.getBlockX(), y = origin.getBlockY(), z = origin.getBlockZ();
+		search.run(maxRadius, (xOffset, yOffset, zOffset) -> check(world.getBlockData(x + xOffset, y + yOffset, z + zOffset)), hits::accept);
+
+		boolean success = hits.found || !failIfNoTargets;
 		if (success && data.hasCaster()) playSpellEffects(EffectPosition.CASTER, data.caster(), data);
 
 		return success ? new CastResult(PostCastAction.HANDLE_NORMALLY, data) : noTarget(data);
@@ -337,4 +286,282 @@ public class AreaScanSpell extends TargetedSpell implements TargetedLocationSpel
 		ELLIPSOID
 	}
 
+	@FunctionalInterface
+	private interface OffsetTest {
+
+		boolean test(int xOffset, int yOffset, int zOffset);
+
+	}
+
+	/**
+	 * Walks the shells of the scanned area, from the inside out, using block offsets from the origin.
+	 */
+	private record ShellSearch(Shape shape, int xRadius, int yRadius, int zRadius, int xInnerRadius, int yInnerRadius, int zInnerRadius,
+		float xRadiusInv, float yRadiusInv, float zRadiusInv, float xInnerRadiusInv, float yInnerRadiusInv, float zInnerRadiusInv,
+		float tolerance, float innerTolerance, boolean cull, boolean boxCull, int minRadius, int maxRadius) {
+
+		/**
+		 * @param maxDistance the last shell to search
+		 * @param block whether the block at an offset matches
+		 * @param hit called for every matching offset, in order, until it returns false
+		 */
+		private void run(int maxDistance, OffsetTest block, OffsetTest hit) {
+			int lastShell = Math.min(maxRadius, maxDistance);
+
+			for (int d = minRadius; d <= lastShell; d++) {
+				int xBound = Math.min(xRadius, d);
+				if (boxCull && xBound <= xInnerRadius) continue;
+
+				for (int xOffset = -xBound; xOffset <= xBound; xOffset++) {
+					int yBound = Math.min(yRadius, d);
+					if (boxCull && yBound <= yInnerRadius) continue;
+
+					for (int yOffset = -yBound; yOffset <= yBound; yOffset++) {
+						int zBound = Math.min(zRadius, d);
+						if (boxCull && zBound <= zInnerRadius) continue;
+
+						for (int zOffset = -zBound; zOffset <= zBound; zOffset++) {
+							if (xOffset != d && xOffset != -d && yOffset != d && yOffset != -d && zOffset != d && zOffset != -d) continue;
+
+							if (shape != Shape.BOX) {
+								int xOffsetSq = xOffset * xOffset;
+								int yOffsetSq = yOffset * yOffset;
+								int zOffsetSq = zOffset * zOffset;
+
+								if (xRadiusInv * xOffsetSq + yRadiusInv * yOffsetSq + zRadiusInv * zOffsetSq > tolerance) continue;
+								if (cull && xInnerRadiusInv * xOffsetSq + yInnerRadiusInv * yOffsetSq + zInnerRadiusInv * zOffsetSq <= innerTolerance) {
+									switch (shape) {
+										case ELLIPSOID -> {
+											continue;
+										}
+										case X_CYLINDER -> {
+											if (xOffset >= -xInnerRadius && xOffset <= xInnerRadius) continue;
+										}
+										case Y_CYLINDER -> {
+											if (yOffset >= -yInnerRadius && yOffset <= yInnerRadius) continue;
+										}
+										case Z_CYLINDER -> {
+											if (zOffset >= -zInnerRadius && zOffset <= zInnerRadius) continue;
+										}
+									}
+								}
+							}
+
+							if (!block.test(xOffset, yOffset, zOffset)) continue;
+							if (!hit.test(xOffset, yOffset, zOffset)) return;
+						}
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Casts the spell at the blocks found by a scan, on the thread owning the origin.
+	 */
+	private class Hits {
+
+		private final SpellData data;
+		private final Location origin;
+
+		private final String xVariable;
+		private final String yVariable;
+		private final String zVariable;
+		private final String playerCaster;
+
+		private int count;
+		private boolean found;
+
+		private Hits(SpellData data, Location origin, String xVariable, String yVariable, String zVariable, int count) {
+			this.data = data;
+			this.origin = origin;
+			this.xVariable = xVariable;
+			this.yVariable = yVariable;
+			this.zVariable = zVariable;
+			this.count = count;
+
+			playerCaster = data.caster() instanceof Player player ? player.getName() : null;
+		}
+
+		/**
+		 * @return whether the scan should go on
+		 */
+		private boolean accept(int xOffset, int yOffset, int zOffset) {
+			Location target = origin.clone().add(xOffset, yOffset, zOffset);
+
+			if (playerCaster != null) {
+				VariableManager manager = MagicSpells.getVariableManager();
+				if (xVariable != null) manager.set(xVariable, playerCaster, target.getX());
+				if (yVariable != null) manager.set(yVariable, playerCaster, target.getY());
+				if (zVariable != null) manager.set(zVariable, playerCaster, target.getZ());
+			}
+
+			SpellData subData = data.location(target);
+			if (scanModifiers != null) {
+				ModifierResult result = scanModifiers.apply(subData.caster(), target, subData);
+				if (!result.check()) return true;
+
+				subData = result.data();
+			}
+
+			found = true;
+
+			if (spellToCast != null) spellToCast.subcast(subData);
+
+			playSpellEffects(EffectPosition.TARGET, target, subData);
+			playSpellEffectsTrail(origin, target, subData);
+
+			if (count == 1) return false;
+			else if (count > 0) count--;
+
+			return true;
+		}
+
+	}
+
+	/**
+	 * Runs a scan on a worker thread, against snapshots of the loaded chunks around the origin. Matching offsets are
+	 * queued in order, and handled by a task on the thread owning the origin every tick while the search goes on.
+	 * <p>
+	 * At most <code>async-max-chunks</code> chunks are captured, nearest to the origin first. If the area needs more,
+	 * only the shells within the captured chunks are searched. Blocks in unloaded chunks never match.
+	 */
+	private class AsyncScan implements Runnable {
+
+		private static final BlockData VOID_AIR = Material.VOID_AIR.createBlockData();
+
+		private final ShellSearch search;
+		private final Hits hits;
+		private final boolean failIfNoTargets;
+		private final int maxChunks;
+
+		private final int x;
+		private final int y;
+		private final int z;
+		private final int minY;
+		private final int maxY;
+
+		private ChunkSnapshot[] snapshots;
+		private int minChunkX;
+		private int minChunkZ;
+		private int chunkWidth;
+		private int maxDistance;
+
+		private final Queue<int[]> queue = new ConcurrentLinkedQueue<>();
+		private volatile boolean searching = true;
+		private volatile boolean stopped;
+
+		private int taskId = -1;
+
+		private AsyncScan(ShellSearch search, Hits hits, boolean failIfNoTargets, int maxChunks) {
+			this.search = search;
+			this.hits = hits;
+			this.failIfNoTargets = failIfNoTargets;
+			this.maxChunks = Math.max(maxChunks, 1);
+
+			Location origin = hits.origin;
+			x = origin.getBlockX();
+			y = origin.getBlockY();
+			z = origin.getBlockZ();
+
+			World world = origin.getWorld();
+			minY = world.getMinHeight();
+			maxY = world.getMaxHeight();
+		}
+
+		private void start() {
+			capture(hits.origin.getWorld());
+
+			// Without scan modifiers, every match is a hit, so the search can stop on its own.
+			int limit = scanModifiers == null && hits.count > 0 ? hits.count : -1;
+
+			Bukkit.getAsyncScheduler().runNow(MagicSpells.getInstance(), scheduled -> {
+				try {
+					int[] remaining = {limit};
+					search.run(maxDistance, this::test, (xOffset, yOffset, zOffset) -> {
+						queue.add(new int[] {xOffset, yOffset, zOffset});
+						return !stopped && --remaining[0] != 0;
+					});
+				} catch (Exception e) {
+					MagicSpells.handleException(e);
+				} finally {
+					searching = false;
+				}
+			});
+
+			taskId = TaskDispatcher.runRepeating(hits.origin, this, 1, 1);
+		}
+
+		private void capture(World world) {
+			int chunkX = x >> 4, chunkZ = z >> 4;
+			int fromX = (x - search.xRadius()) >> 4, toX = (x + search.xRadius()) >> 4;
+			int fromZ = (z - search.zRadius()) >> 4, toZ = (z + search.zRadius()) >> 4;
+
+			// Grow a square of chunks around the origin while it fits.
+			int ring = 0;
+			int area = 1;
+			while (true) {
+				int next = (Math.min(toX, chunkX + ring + 1) - Math.max(fromX, chunkX - ring - 1) + 1)
+					* (Math.min(toZ, chunkZ + ring + 1) - Math.max(fromZ, chunkZ - ring - 1) + 1);
+				if (next > maxChunks || next == area) break;
+
+				area = next;
+				ring++;
+			}
+
+			minChunkX = Math.max(fromX, chunkX - ring);
+			minChunkZ = Math.max(fromZ, chunkZ - ring);
+			int maxChunkX = Math.min(toX, chunkX + ring);
+			int maxChunkZ = Math.min(toZ, chunkZ + ring);
+
+			chunkWidth = maxChunkZ - minChunkZ + 1;
+			snapshots = new ChunkSnapshot[(maxChunkX - minChunkX + 1) * chunkWidth];
+			for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+				for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+					if (!world.isChunkLoaded(cx, cz)) continue;
+					snapshots[(cx - minChunkX) * chunkWidth + cz - minChunkZ] = world.getChunkAt(cx, cz).getChunkSnapshot(false, false, false);
+				}
+			}
+
+			// The last shell that lies within the captured chunks on both axes.
+			int xLimit = Math.min(x - (minChunkX << 4), (maxChunkX << 4) + 15 - x);
+			int zLimit = Math.min(z - (minChunkZ << 4), (maxChunkZ << 4) + 15 - z);
+			maxDistance = Math.min(search.xRadius() <= xLimit ? Integer.MAX_VALUE : xLimit, search.zRadius() <= zLimit ? Integer.MAX_VALUE : zLimit);
+		}
+
+		private boolean test(int xOffset, int yOffset, int zOffset) {
+			int blockX = x + xOffset, blockY = y + yOffset, blockZ = z + zOffset;
+			if (blockY < minY || blockY >= maxY) return check(VOID_AIR);
+
+			ChunkSnapshot snapshot = snapshots[((blockX >> 4) - minChunkX) * chunkWidth + (blockZ >> 4) - minChunkZ];
+			if (snapshot == null) return false;
+
+			return check(snapshot.getBlockData(blockX & 15, blockY, blockZ & 15));
+		}
+
+		@Override
+		public void run() {
+			boolean finished = !searching;
+
+			int[] hit;
+			while ((hit = queue.poll()) != null) {
+				if (hits.accept(hit[0], hit[1], hit[2])) continue;
+
+				finished = true;
+				break;
+			}
+
+			if (!finished) return;
+
+			stopped = true;
+			queue.clear();
+			if (taskId != -1) MagicSpells.cancelTask(taskId);
+
+			SpellData data = hits.data;
+			if ((hits.found || !failIfNoTargets) && data.hasCaster()) playSpellEffects(EffectPosition.CASTER, data.caster(), data);
+		}
+
+	}
+
 }
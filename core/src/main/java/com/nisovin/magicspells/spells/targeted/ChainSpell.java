@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.ArrayList;
 
 import org.bukkit.Location;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import com.nisovin.magicspells.util.*;
@@ -83,11 +82,13 @@ public class ChainSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 
 		// Get targets
 		LivingEntity current = data.target();
+		List<LivingEntity> nearby = MagicSpells.getEntityGrid().borrowList();
 		int attempts = 0;
 		while (targets.size() < bounces && attempts++ < bounces << 1) {
-			List<Entity> entities = current.getNearbyEntities(bounceRange, bounceRange, bounceRange);
-			for (Entity entity : entities) {
-				if (!(entity instanceof LivingEntity target) || targets.contains(target) || !validTargetList.canTarget(data.caster(), target))
+			nearby.clear();
+			MagicSpells.getEntityGrid().getLivingEntities(current, bounceRange, bounceRange, bounceRange, nearby);
+			for (LivingEntity target : nearby) {
+				if (targets.contains(target) || !validTargetList.canTarget(data.caster(), target))
 					continue;
 
 				float subPower = data.power();
@@ -106,6 +107,7 @@ public class ChainSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 				break;
 			}
 		}
+		MagicSpells.getEntityGrid().releaseList(nearby);
 
 		// Cast spell at targets
 		if (data.hasCaster()) playSpellEffects(EffectPosition.CASTER, data.caster(), data);
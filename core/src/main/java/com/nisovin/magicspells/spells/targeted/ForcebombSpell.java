@@ -1,12 +1,14 @@
 package com.nisovin.magicspells.spells.targeted;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.ArrayList;
 
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
 import org.bukkit.entity.LivingEntity;
 
 import com.nisovin.magicspells.util.*;
+import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.spells.TargetedSpell;
 import com.nisovin.magicspells.util.config.ConfigData;
 import com.nisovin.magicspells.events.SpellTargetEvent;
@@ -56,8 +58,8 @@ public class ForcebombSpell extends TargetedSpell implements TargetedLocationSpe
 
 		location = location.add(0, yOffset.get(data), 0);
 
-		double radiusSquared = this.radius.get(data);
-		radiusSquared *= radiusSquared;
+		double radius = this.radius.get(data);
+		double radiusSquared = radius * radius;
 
 		if (validTargetList.canTargetOnlyCaster()) {
 			if (!data.hasCaster() || !data.caster().getWorld().equals(location.getWorld()) || data.caster().getLocation().distanceSquared(location) > radiusSquared) {
@@ -72,11 +74,11 @@ public class ForcebombSpell extends TargetedSpell implements TargetedLocationSpe
 			return new CastResult(PostCastAction.HANDLE_NORMALLY, data);
 		}
 
-		Collection<LivingEntity> entities = location.getWorld().getLivingEntities();
+		List<LivingEntity> entities = new ArrayList<>();
+		MagicSpells.getEntityGrid().getLivingEntitiesInSphere(location, radius, entities);
+
 		for (LivingEntity target : entities) {
 			if (!validTargetList.canTarget(data.caster(), target)) continue;
-			if (!target.getWorld().equals(location.getWorld())) continue;
-			if (target.getLocation().distanceSquared(location) > radiusSquared) continue;
 
 			bomb(target, location, data.target(target));
 		}
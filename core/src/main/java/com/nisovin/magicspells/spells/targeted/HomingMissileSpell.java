@@ -288,7 +288,7 @@ public class HomingMissileSpell extends TargetedSpell implements TargetedEntityS
 
 			if (data.hasCaster()) playSpellEffects(EffectPosition.CASTER, data.caster(), data);
 
-			taskId = MagicSpells.scheduleRepeatingTask(this, 0, tickInterval);
+			taskId = MagicSpells.scheduleProjectileTask(this, () -> currentLocation, 0, tickInterval);
 		}
 
 		@Override
@@ -447,7 +447,7 @@ public class HomingMissileSpell extends TargetedSpell implements TargetedEntityS
 
 		private void stop() {
 			playSpellEffects(EffectPosition.DELAYED, currentLocation, data);
-			MagicSpells.cancelTask(taskId);
+			MagicSpells.cancelProjectileTask(taskId);
 			if (effectSet != null) {
 				for (EffectlibSpellEffect spellEffect : effectSet) {
 					spellEffect.getEffect().cancel();
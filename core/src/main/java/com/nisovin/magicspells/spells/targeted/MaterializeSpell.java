@@ -129,9 +129,11 @@ public class MaterializeSpell extends TargetedSpell implements TargetedLocationS
 
 	@Override
 	public void turnOff() {
+		BlockBatcher batcher = new BlockBatcher();
 		for (Block b : blocks) {
-			b.setType(Material.AIR);
+			batcher.set(b, Material.AIR, true);
 		}
+		batcher.apply();
 
 		blocks.clear();
 	}
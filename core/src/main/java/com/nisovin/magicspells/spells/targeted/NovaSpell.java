@@ -173,7 +173,7 @@ public class NovaSpell extends TargetedSpell implements TargetedLocationSpell, T
 			nearby = new HashSet<>();
 
 			this.data = data.noTarget();
-			taskId = MagicSpells.scheduleRepeatingTask(this, 0, expandInterval.get(data));
+			taskId = TaskDispatcher.runRepeating(center, this, 0, expandInterval.get(data));
 		}
 
 		protected boolean step() {
@@ -211,6 +211,7 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 		private boolean stopped = false;
 
 		private final BoundingBox box;
+		private final List<LivingEntity> nearby = new ArrayList<>();
 		private final Location center;
 
 		private final Vector axis;
@@ -234,16 +235,22 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 		private final boolean constantImmuneTicks;
 
 		private int tickCount;
+		private int elapsedTicks;
+		private int vertExpansions;
+		private int horizExpansions;
 		private final int taskId;
 		private final int immuneTicks;
+		private final int tickInterval;
+		private final int vertExpandDelay;
+		private final int horizExpandDelay;
 		private final int ticksPerRevolution;
-		private final int repeatingVertTaskId;
-		private final int repeatingHorizTaskId;
 
 		private final long startTime;
 
 		private float yOffset;
 		private float orbitRadius;
+		private final float vertExpandRadius;
+		private final float horizExpandRadius;
 		private float previousYaw;
 		private float previousPitch;
 		private final float startYaw;
@@ -287,22 +294,17 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 			stopOnHitEntity = OrbitSpell.this.stopOnHitEntity.get(data);
 			stopOnHitGround = OrbitSpell.this.stopOnHitGround.get(data);
 
-			int tickInterval = OrbitSpell.this.tickInterval.get(data);
-			taskId = MagicSpells.scheduleRepeatingTask(this, 0, tickInterval);
+			tickInterval = OrbitSpell.this.tickInterval.get(data);
+			taskId = MagicSpells.scheduleProjectileTask(this, () -> center, 0, tickInterval);
 
+			// Expansion is applied while stepping the orbit, rather than by separate repeating tasks.
 			orbitRadius = OrbitSpell.this.orbitRadius.get(data);
-			int horizExpandDelay = OrbitSpell.this.horizExpandDelay.get(data);
-			if (horizExpandDelay > 0) {
-				float horizExpandRadius = OrbitSpell.this.horizExpandRadius.get(data);
-				repeatingHorizTaskId = MagicSpells.scheduleRepeatingTask(() -> orbitRadius += horizExpandRadius, horizExpandDelay, horizExpandDelay);
-			} else repeatingHorizTaskId = -1;
+			horizExpandDelay = OrbitSpell.this.horizExpandDelay.get(data);
+			horizExpandRadius = horizExpandDelay > 0 ? OrbitSpell.this.horizExpandRadius.get(data) : 0;
 
 			yOffset = OrbitSpell.this.yOffset.get(data);
-			int vertExpandDelay = OrbitSpell.this.vertExpandDelay.get(data);
-			if (vertExpandDelay > 0) {
-				float vertExpandRadius = OrbitSpell.this.vertExpandRadius.get(data);
-				repeatingVertTaskId = MagicSpells.scheduleRepeatingTask(() -> yOffset += vertExpandRadius, vertExpandDelay, vertExpandDelay);
-			} else repeatingVertTaskId = -1;
+			vertExpandDelay = OrbitSpell.this.vertExpandDelay.get(data);
+			vertExpandRadius = vertExpandDelay > 0 ? OrbitSpell.this.vertExpandRadius.get(data) : 0;
 
 			ticksPerRevolution = Math.round(secondsPerRevolution.get(data) * 20 / tickInterval);
 
@@ -340,6 +342,9 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 				return;
 			}
 
+			expand();
+			elapsedTicks += tickInterval;
+
 			Location currentLocation = getCurrentLocation();
 			data = data.location(currentLocation);
 
@@ -392,7 +397,9 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 				currentLocation.getZ() + hitRadius
 			);
 
-			for (LivingEntity target : currentLocation.getNearbyLivingEntities(hitRadius, verticalHitRadius)) {
+			nearby.clear();
+			MagicSpells.getEntityGrid().getLivingEntities(currentLocation.getWorld(), box, nearby);
+			for (LivingEntity target : nearby) {
 				if (entityTargetList != null && !entityTargetList.canTarget(data.caster(), target)) continue;
 
 				int immuneTime = immune.getInt(target.getUniqueId());
@@ -500,13 +507,23 @@ public class OrbitSpell extends TargetedSpell implements TargetedEntitySpell, Ta
 			return center.clone().add(offset).add(0, yOffset, 0).setDirection(offset.crossProduct(axis).multiply(-1));
 		}
 
+		private void expand() {
+			if (horizExpandDelay > 0) {
+				for (int target = elapsedTicks / horizExpandDelay; horizExpansions < target; horizExpansions++)
+					orbitRadius += horizExpandRadius;
+			}
+
+			if (vertExpandDelay > 0) {
+				for (int target = elapsedTicks / vertExpandDelay; vertExpansions < target; vertExpansions++)
+					yOffset += vertExpandRadius;
+			}
+		}
+
 		private void stop(boolean removeTracker) {
 			stopped = true;
 			playSpellEffects(EffectPosition.DELAYED, getCurrentLocation(), data);
 
-			MagicSpells.cancelTask(taskId);
-			MagicSpells.cancelTask(repeatingHorizTaskId);
-			MagicSpells.cancelTask(repeatingVertTaskId);
+			MagicSpells.cancelProjectileTask(taskId);
 
 			if (effectSet != null) {
 				for (EffectlibSpellEffect spellEffect : effectSet) {
@@ -1,6 +1,7 @@
 package com.nisovin.magicspells.spells.targeted;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Material;
 import org.bukkit.Location;
@@ -74,7 +75,8 @@ public class PulserSpell extends TargetedSpell implements TargetedLocationSpell
 
 		strAtCap = getConfigString("str-at-cap", "You have too many effects at once.");
 
-		pulsers = new HashMap<>();
+		// Pulsers tick, and are broken, on the threads of their own regions on Folia.
+		pulsers = new ConcurrentHashMap<>();
 	}
 
 	@Override
@@ -291,7 +293,7 @@ public class PulserSpell extends TargetedSpell implements TargetedLocationSpell
 
 			pulseCount = 0;
 
-			taskId = MagicSpells.scheduleRepeatingTask(this, 0, interval.get(data));
+			taskId = TaskDispatcher.runRepeating(location, this, 0, interval.get(data));
 		}
 
 		public LivingEntity getCaster() {
@@ -7,7 +7,6 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import io.papermc.paper.event.player.AsyncChatEvent;
 
-import org.bukkit.Bukkit;
 import org.bukkit.event.Listener;
 import org.bukkit.event.EventHandler;
 import org.bukkit.entity.LivingEntity;
@@ -141,12 +140,12 @@ public class SilenceSpell extends TargetedSpell implements TargetedEntitySpell {
 			Spell spell = event.getSpell();
 			if (filter.check(spell)) return;
 			event.setCancelled(true);
-			Bukkit.getScheduler().scheduleSyncDelayedTask(MagicSpells.plugin, () -> {
+			TaskDispatcher.runDelayed(event.getCaster(), () -> {
 				if (preventCastSpell != null) preventCastSpell.subcast(event.getSpellData().noTargeting());
 				if (spell.isHelperSpell() && !notifyHelperSpells) return;
 				if (spell instanceof PassiveSpell && !notifyPassiveSpells) return;
 				sendMessage(strSilenced, event.getCaster(), event.getSpellData());
-			});
+			}, 0);
 		}
 
 	}
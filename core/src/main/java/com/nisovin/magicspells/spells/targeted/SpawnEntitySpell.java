@@ -651,23 +651,31 @@ public class SpawnEntitySpell extends TargetedSpell implements TargetedLocationS
 			double range = retargetRange.get(data);
 			double rangeSquared = range * range;
 
-			for (LivingEntity target : mob.getLocation().getNearbyLivingEntities(range)) {
+			List<LivingEntity> nearby = MagicSpells.getEntityGrid().borrowList();
+			MagicSpells.getEntityGrid().getLivingEntities(mob.getLocation(), range, range, range, nearby);
+
+			LivingEntity found = null;
+			for (LivingEntity target : nearby) {
 				if (!target.isValid()|| mob.equals(target) || target.equals(ignore) || !validTargetList.canTarget(data.caster(), target))
 					continue;
 
 				double distanceSquared = mob.getLocation().distanceSquared(target.getLocation());
 				if (distanceSquared > rangeSquared) continue;
 
-				return target;
+				found = target;
+				break;
 			}
 
-			return null;
+			MagicSpells.getEntityGrid().releaseList(nearby);
+			return found;
 		}
 
 	}
 
 	private class Targeter implements Runnable {
 
+		private final List<LivingEntity> targets = new ArrayList<>();
+
 		private final Mob mob;
 
 		private final SpellData data;
@@ -689,11 +697,13 @@ public class SpawnEntitySpell extends TargetedSpell implements TargetedLocationS
 
 			double range = targetRange.get(data);
 
-			List<LivingEntity> targets = new ArrayList<>(mob.getLocation().getNearbyLivingEntities(range));
+			targets.clear();
+			MagicSpells.getEntityGrid().getLivingEntities(mob.getLocation(), range, range, range, targets);
 			targets.removeIf(target -> mob.equals(target) || !validTargetList.canTarget(data.caster(), target));
 			if (targets.isEmpty()) return;
 
 			LivingEntity target = targets.get(random.nextInt(targets.size()));
+			targets.clear();
 			if (!target.equals(mob.getTarget())) {
 				if (spellOnTarget != null) spellOnTarget.subcast(data.retarget(target, mob.getLocation()));
 				mob.setTarget(target);
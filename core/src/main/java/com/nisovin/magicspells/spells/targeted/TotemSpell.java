@@ -3,6 +3,7 @@ package com.nisovin.magicspells.spells.targeted;
 import java.util.*;
 
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.HashMultimap;
 
 import org.bukkit.Location;
@@ -143,7 +144,8 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 		spellOnBreakName = getConfigString("spell-on-break", "");
 		spellOnSpawnName = getConfigString("spell-on-spawn", "");
 
-		totems = HashMultimap.create();
+		// Totems pulse on the threads of their own regions on Folia, so every iteration holds the map's lock.
+		totems = Multimaps.synchronizedSetMultimap(HashMultimap.create());
 	}
 
 	@Override
@@ -176,8 +178,10 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 
 	@Override
 	public void turnOff() {
-		totems.values().forEach(totem -> totem.stop(false));
-		totems.clear();
+		synchronized (totems) {
+			totems.values().forEach(totem -> totem.stop(false));
+			totems.clear();
+		}
 	}
 
 	@Override
@@ -233,7 +237,7 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 		totems.put(data.hasCaster() ? data.caster().getUniqueId() : null, totem);
 
 		int maxDuration = this.maxDuration.get(data);
-		if (maxDuration > 0) MagicSpells.scheduleDelayedTask(totem::stop, maxDuration);
+		if (maxDuration > 0) TaskDispatcher.runDelayed(totem.totemLocation, totem::stop, maxDuration);
 
 		playSpellEffects(data);
 	}
@@ -249,13 +253,15 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 		if (totems.isEmpty()) return;
 
 		LivingEntity target = e.getTarget();
-		for (Totem totem : totems.values()) {
-			if (!target.equals(totem.armorStand)) continue;
+		synchronized (totems) {
+			for (Totem totem : totems.values()) {
+				if (!target.equals(totem.armorStand)) continue;
 
-			if (!totem.targetable) e.setCancelled(true);
-			else if (!totem.allowCasterTarget && e.getCaster().equals(totem.data.caster())) e.setCancelled(true);
+				if (!totem.targetable) e.setCancelled(true);
+				else if (!totem.allowCasterTarget && e.getCaster().equals(totem.data.caster())) e.setCancelled(true);
 
-			return;
+				return;
+			}
 		}
 	}
 
@@ -263,10 +269,12 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 	public void onArmorStandManipulate(PlayerArmorStandManipulateEvent e) {
 		if (totems.isEmpty()) return;
 
-		for (Totem totem : totems.values()) {
-			if (totem.armorStand.equals(e.getRightClicked())) {
-				e.setCancelled(true);
-				return;
+		synchronized (totems) {
+			for (Totem totem : totems.values()) {
+				if (totem.armorStand.equals(e.getRightClicked())) {
+					e.setCancelled(true);
+					return;
+				}
 			}
 		}
 	}
@@ -342,7 +350,7 @@ public class TotemSpell extends TargetedSpell implements TargetedLocationSpell {
 
 			if (spellOnSpawn != null) spellOnSpawn.subcast(this.data.retarget(armorStand, null));
 
-			taskId = MagicSpells.scheduleRepeatingTask(this, 0, interval.get(data));
+			taskId = TaskDispatcher.runRepeating(armorStand, this, 0, interval.get(data));
 		}
 
 		@Override
@@ -1,58 +1,272 @@
 package com.nisovin.magicspells.storage;
 
+import java.sql.Statement;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.PreparedStatement;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Objects;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.entity.Player;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.util.Util;
 import com.nisovin.magicspells.MagicSpells;
 
+/**
+ * A pooled SQL spellbook store, using the <code>playerData</code>, <code>spells</code> and <code>binds</code> tables.
+ * <p>
+ * A spellbook is loaded with a single query. Saves are diffed against the last state read from or written to the
+ * database, so only changed rows are written, in batches within one transaction.
+ */
 public abstract class Database extends StorageHandler {
 
-	protected Connection connection;
+	// Worlds are stored as an empty string when spells are not separated per world.
+	private static final String NO_WORLD = "";
+
+	private static final String SELECT_SPELLBOOK = "SELECT s.internalName, b.magicItem FROM spells s "
+			+ "LEFT JOIN binds b ON b.playerID = s.playerID AND b.worldName = s.worldName AND b.internalName = s.internalName "
+			+ "WHERE s.playerID = ? AND s.worldName = ? ORDER BY s.id, b.id";
+	private static final String INSERT_SPELL = "INSERT INTO spells (playerID, worldName, internalName) VALUES (?, ?, ?)";
+	private static final String DELETE_SPELL = "DELETE FROM spells WHERE playerID = ? AND worldName = ? AND internalName = ?";
+	private static final String DELETE_SPELLS = "DELETE FROM spells WHERE playerID = ? AND worldName = ?";
+	private static final String INSERT_BIND = "INSERT INTO binds (playerID, worldName, internalName, magicItem) VALUES (?, ?, ?, ?)";
+	private static final String DELETE_BINDS = "DELETE FROM binds WHERE playerID = ? AND worldName = ? AND internalName = ?";
+	private static final String DELETE_ALL_BINDS = "DELETE FROM binds WHERE playerID = ? AND worldName = ?";
+
+	// Last known database state per spellbook key, used to diff saves.
+	private final Map<String, SpellbookData> stored = new ConcurrentHashMap<>();
+
+	protected HikariDataSource dataSource;
 
 	protected String dbLocation;
 
+	protected int poolSize = 4;
+
 	public Database(MagicSpells plugin, String dbLocation) {
 		super(plugin);
 		this.dbLocation = dbLocation;
 	}
 
-	public abstract Connection openConnection();
+	/**
+	 * @return the pool configuration, with at least the JDBC url set
+	 */
+	public abstract HikariConfig createPoolConfig();
 
 	public abstract void createTables();
 
-	public void closeConnection() {
-		try {
-			if (connection != null && !connection.isClosed()) connection.close();
-		} catch (SQLException ignored) { }
+	/**
+	 * @return the statement prefix that inserts a row unless it violates a unique constraint
+	 */
+	protected abstract String insertIgnore();
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = Math.max(poolSize, 1);
+	}
 
-		connection = null;
+	public void closeConnection() {
+		if (dataSource != null && !dataSource.isClosed()) dataSource.close();
+		dataSource = null;
 	}
 
-	public Connection getConnection() {
-		if (connection == null) connection = openConnection();
-		return connection;
+	/**
+	 * Borrows a connection from the pool, which must be closed by the caller to return it.
+	 * @return a pooled connection
+	 */
+	public Connection getConnection() throws SQLException {
+		if (dataSource == null) throw new SQLException("The database pool is not open");
+		return dataSource.getConnection();
 	}
 
 	@Override
 	public void initialize() {
-		openConnection();
+		try {
+			HikariConfig config = createPoolConfig();
+			config.setPoolName("MagicSpells-" + getClass().getSimpleName());
+			config.setMaximumPoolSize(poolSize);
+			dataSource = new HikariDataSource(config);
+		} catch (Exception e) {
+			MagicSpells.error("There was an error with opening the connection pool for the " + getClass().getSimpleName() + ": " + e.getMessage());
+			return;
+		}
 		createTables();
 	}
 
 	@Override
 	public void load(Spellbook spellbook) {
-
+		Player player = spellbook.getPlayer();
+		String worldName = MagicSpells.arePlayerSpellsSeparatedPerWorld() ? player.getWorld().getName() : null;
+		read(Util.getUniqueId(player), player.getName(), worldName).apply(spellbook);
 	}
 
 	@Override
 	public void save(Spellbook spellbook) {
+		write(SpellbookData.capture(spellbook));
+	}
+
+	@Override
+	public boolean supportsDetachedAccess() {
+		return true;
+	}
+
+	@Override
+	public SpellbookData read(String uniqueId, String playerName, String worldName) {
+		SpellbookData data = new SpellbookData(uniqueId, playerName, worldName);
+
+		try (Connection connection = getConnection();
+			 PreparedStatement statement = connection.prepareStatement(SELECT_SPELLBOOK)) {
+			statement.setString(1, uniqueId);
+			statement.setString(2, worldName == null ? NO_WORLD : worldName);
+
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					String internalName = result.getString(1);
+					String magicItem = result.getString(2);
 
+					if (magicItem == null) {
+						data.getSpells().putIfAbsent(internalName, null);
+						continue;
+					}
+
+					List<String> binds = data.getSpells().get(internalName);
+					if (binds == null) {
+						binds = new ArrayList<>();
+						data.addSpell(internalName, binds);
+					}
+					binds.add(magicItem);
+				}
+			}
+		} catch (SQLException e) {
+			MagicSpells.error("There was an error with loading the spellbook of '" + playerName + "' from the " + getClass().getSimpleName() + ": " + e.getMessage());
+			return data;
+		}
+
+		stored.put(data.getKey(), copy(data));
+		return data;
+	}
+
+	@Override
+	public void write(SpellbookData data) {
+		String playerId = data.getUniqueId();
+		String worldName = data.getWorldName() == null ? NO_WORLD : data.getWorldName();
+		SpellbookData previous = stored.get(data.getKey());
+
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement insertPlayer = connection.prepareStatement(insertIgnore() + " INTO playerData (playerID) VALUES (?)");
+				 PreparedStatement insertSpell = connection.prepareStatement(INSERT_SPELL);
+				 PreparedStatement deleteSpell = connection.prepareStatement(DELETE_SPELL);
+				 PreparedStatement insertBind = connection.prepareStatement(INSERT_BIND);
+				 PreparedStatement deleteBinds = connection.prepareStatement(DELETE_BINDS)) {
+
+				insertPlayer.setString(1, playerId);
+				insertPlayer.executeUpdate();
+
+				Map<String, List<String>> oldSpells = previous == null ? Map.of() : previous.getSpells();
+				Map<String, List<String>> newSpells = data.getSpells();
+
+				// Without a known previous state, replace everything.
+				if (previous == null) {
+					try (PreparedStatement deleteAllSpells = connection.prepareStatement(DELETE_SPELLS);
+						 PreparedStatement deleteAllBinds = connection.prepareStatement(DELETE_ALL_BINDS)) {
+						deleteAllBinds.setString(1, playerId);
+						deleteAllBinds.setString(2, worldName);
+						deleteAllBinds.executeUpdate();
+
+						deleteAllSpells.setString(1, playerId);
+						deleteAllSpells.setString(2, worldName);
+						deleteAllSpells.executeUpdate();
+					}
+				}
+
+				for (String internalName : oldSpells.keySet()) {
+					if (newSpells.containsKey(internalName)) continue;
+
+					addParameters(deleteBinds, playerId, worldName, internalName);
+					addParameters(deleteSpell, playerId, worldName, internalName);
+				}
+
+				for (Map.Entry<String, List<String>> entry : newSpells.entrySet()) {
+					String internalName = entry.getKey();
+					List<String> binds = entry.getValue();
+
+					boolean known = oldSpells.containsKey(internalName);
+					if (!known) addParameters(insertSpell, playerId, worldName, internalName);
+					else if (Objects.equals(oldSpells.get(internalName), binds)) continue;
+					else addParameters(deleteBinds, playerId, worldName, internalName);
+
+					if (binds == null) continue;
+					for (String bind : binds) {
+						addParameters(insertBind, playerId, worldName, internalName, bind);
+					}
+				}
+
+				deleteBinds.executeBatch();
+				deleteSpell.executeBatch();
+				insertSpell.executeBatch();
+				insertBind.executeBatch();
+
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			// The database state is unknown now, so the next save rewrites everything.
+			stored.remove(data.getKey());
+			MagicSpells.error("There was an error with saving the spellbook of '" + data.getPlayerName() + "' to the " + getClass().getSimpleName() + ": " + e.getMessage());
+			return;
+		}
+
+		stored.put(data.getKey(), copy(data));
+		MagicSpells.debug("Saved spellbook for player '" + data.getPlayerName() + "'.");
+	}
+
+	@Override
+	public void release(String uniqueId) {
+		stored.values().removeIf(data -> data.getUniqueId().equals(uniqueId));
 	}
 
 	@Override
 	public void disable() {
+		stored.clear();
 		closeConnection();
 	}
 
+	protected void createTables(String... statements) {
+		try (Connection connection = getConnection();
+			 Statement statement = connection.createStatement()) {
+			for (String sql : statements) {
+				statement.execute(sql);
+			}
+		} catch (SQLException e) {
+			MagicSpells.error("There was an error with creating a table for the " + getClass().getSimpleName() + ": " + e.getMessage());
+		}
+	}
+
+	private static void addParameters(PreparedStatement statement, String... parameters) throws SQLException {
+		for (int i = 0; i < parameters.length; i++) {
+			statement.setString(i + 1, parameters[i]);
+		}
+		statement.addBatch();
+	}
+
+	private static SpellbookData copy(SpellbookData data) {
+		SpellbookData copy = new SpellbookData(data.getUniqueId(), data.getPlayerName(), data.getWorldName());
+		for (Map.Entry<String, List<String>> entry : data.getSpells().entrySet()) {
+			copy.addSpell(entry.getKey(), entry.getValue() == null ? null : List.copyOf(entry.getValue()));
+		}
+		return copy;
+	}
+
 }
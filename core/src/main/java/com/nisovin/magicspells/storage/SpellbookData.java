@@ -0,0 +1,157 @@
+package com.nisovin.magicspells.storage;
+
+import java.util.Set;
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import org.bukkit.entity.Player;
+
+import com.nisovin.magicspells.Spell;
+import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.util.Util;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.CastItem;
+import com.nisovin.magicspells.util.magicitems.MagicItemDataParser;
+
+/**
+ * A detached copy of the persistent part of a {@link Spellbook}. Unlike a spellbook, it holds no Bukkit
+ * state, so it can be read and written by a storage handler off the main thread.
+ */
+public class SpellbookData {
+
+	private final String uniqueId;
+	private final String playerName;
+	private final String worldName;
+
+	// Maps spell internal names to their serialized custom binds, or null if the spell uses its default binds.
+	private final Map<String, List<String>> spells = new LinkedHashMap<>();
+
+	public SpellbookData(String uniqueId, String playerName, String worldName) {
+		this.uniqueId = uniqueId;
+		this.playerName = playerName;
+		this.worldName = worldName;
+	}
+
+	/**
+	 * Copies the persistent state of a spellbook. Must be called on the main thread.
+	 * @param spellbook the spellbook to copy
+	 * @return the detached data
+	 */
+	public static SpellbookData capture(Spellbook spellbook) {
+		Player player = spellbook.getPlayer();
+		String worldName = MagicSpells.arePlayerSpellsSeparatedPerWorld() ? player.getWorld().getName() : null;
+		SpellbookData data = new SpellbookData(Util.getUniqueId(player), player.getName(), worldName);
+
+		Map<Spell, Set<CastItem>> customBindings = spellbook.getCustomBindings();
+		for (Spell spell : spellbook.getSpells()) {
+			Set<CastItem> items = customBindings.get(spell);
+			if (items == null || items.isEmpty()) {
+				data.addSpell(spell.getInternalName(), null);
+				continue;
+			}
+
+			// When you unbind an item with no binds left, restore the original cast item.
+			CastItem castItem = items.iterator().next();
+			if (items.size() == 1 && castItem.getType() == null) {
+				data.addSpell(spell.getInternalName(), null);
+				continue;
+			}
+
+			List<String> binds = new ArrayList<>(items.size());
+			for (CastItem item : items) binds.add(item.toString());
+			data.addSpell(spell.getInternalName(), binds);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Adds the stored spells to a spellbook. Must be called on the main thread.
+	 * @param spellbook the spellbook to fill
+	 */
+	public void apply(Spellbook spellbook) {
+		for (Map.Entry<String, List<String>> entry : spells.entrySet()) {
+			Spell spell = MagicSpells.getSpellByInternalName(entry.getKey());
+			if (spell == null) continue;
+
+			List<String> binds = entry.getValue();
+			if (binds == null) {
+				spellbook.addSpell(spell);
+				continue;
+			}
+
+			List<CastItem> items = new ArrayList<>();
+			for (String bind : binds) {
+				try {
+					items.add(new CastItem(bind));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			spellbook.addSpell(spell, items.toArray(new CastItem[0]));
+		}
+	}
+
+	/**
+	 * Adds a spell from its serialized form, <code>internalName[:bind|bind...]</code>.
+	 * @param line the serialized spell
+	 */
+	public void addSpell(String line) {
+		if (line.isEmpty()) return;
+
+		String[] data = line.split(":", 2);
+		if (data.length == 1) {
+			addSpell(data[0], null);
+			return;
+		}
+
+		List<String> binds = new ArrayList<>();
+		for (String bind : data[1].split(MagicItemDataParser.DATA_REGEX)) {
+			if (!bind.isEmpty()) binds.add(bind);
+		}
+		addSpell(data[0], binds);
+	}
+
+	public void addSpell(String internalName, List<String> binds) {
+		spells.put(internalName, binds);
+	}
+
+	/**
+	 * @return the key identifying where this data is stored, unique per player and world (if spells are separated per world)
+	 */
+	public String getKey() {
+		return getKey(uniqueId, worldName);
+	}
+
+	public static String getKey(String uniqueId, String worldName) {
+		return worldName == null ? uniqueId : worldName + '/' + uniqueId;
+	}
+
+	public String getUniqueId() {
+		return uniqueId;
+	}
+
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	public String getWorldName() {
+		return worldName;
+	}
+
+	public Map<String, List<String>> getSpells() {
+		return spells;
+	}
+
+	@Override
+	public String toString() {
+		return "SpellbookData:[uniqueId=" + uniqueId
+				+ ",playerName=" + playerName
+				+ ",worldName=" + worldName
+				+ ",spells=" + spells
+				+ ']';
+	}
+
+}
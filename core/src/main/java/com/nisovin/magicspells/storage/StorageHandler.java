@@ -19,4 +19,47 @@ public abstract class StorageHandler {
 
 	public abstract void disable();
 
+	/**
+	 * Loads the stored spells of a spellbook, then runs the callback on the main thread. Handlers that read in the
+	 * background may return before the spells are added, and run the callback on a later tick.
+	 * @param spellbook the spellbook to fill
+	 * @param callback run once the stored spells were added
+	 */
+	public void load(Spellbook spellbook, Runnable callback) {
+		load(spellbook);
+		callback.run();
+	}
+
+	/**
+	 * Called once a player left and the last save queued for them was written, so data cached for them can be dropped.
+	 * @param uniqueId the unique id of the player, as returned by {@link com.nisovin.magicspells.util.Util#getUniqueId}
+	 */
+	public void release(String uniqueId) {
+
+	}
+
+	/**
+	 * @return whether {@link #read} and {@link #write} are safe to call off the main thread
+	 */
+	public boolean supportsDetachedAccess() {
+		return false;
+	}
+
+	/**
+	 * Reads stored spellbook data without accessing any Bukkit state. May only be called off the main thread if
+	 * {@link #supportsDetachedAccess()} is true.
+	 * @param uniqueId the unique id of the player, as returned by {@link com.nisovin.magicspells.util.Util#getUniqueId}
+	 * @param playerName the name of the player
+	 * @param worldName the world to read the data of, or null if spells are not separated per world
+	 * @return the stored data, which is empty if nothing was stored
+	 */
+	public abstract SpellbookData read(String uniqueId, String playerName, String worldName);
+
+	/**
+	 * Writes spellbook data without accessing any Bukkit state. May only be called off the main thread if
+	 * {@link #supportsDetachedAccess()} is true.
+	 * @param data the data to store
+	 */
+	public abstract void write(SpellbookData data);
+
 }
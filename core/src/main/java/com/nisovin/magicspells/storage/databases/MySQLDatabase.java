@@ -1,79 +1,69 @@
 package com.nisovin.magicspells.storage.databases;
 
-import java.io.File;
-import java.io.IOException;
-
-import java.sql.Statement;
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.DriverManager;
+import com.zaxxer.hikari.HikariConfig;
 
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.storage.Database;
 
 public class MySQLDatabase extends Database {
 
-	public MySQLDatabase(MagicSpells plugin, String dbLocation) {
+	private final String username;
+	private final String password;
+
+	/**
+	 * @param dbLocation the location of the database, as <code>host:port/database</code>
+	 */
+	public MySQLDatabase(MagicSpells plugin, String dbLocation, String username, String password) {
 		super(plugin, dbLocation);
+		this.username = username;
+		this.password = password;
 	}
 
 	@Override
-	public Connection openConnection() {
-		File folder = plugin.getInstance().getDataFolder();
-		if (!folder.exists()) folder.mkdirs();
-
-		File file = new File(folder, dbLocation);
-		if (!(file.exists())) {
-			try {
-				file.createNewFile();
-			} catch (IOException e) {
-				MagicSpells.error("There was an error with creating the MySQLDatabase file: " + e.getMessage());
-			}
-		}
-
-		Connection connection = null;
-		try {
-			Class.forName("org.sqlite.JDBC");
-			connection = DriverManager.getConnection("jdbc:sqlite:" + folder.toPath() + "/" + dbLocation);
-		} catch (Exception e) {
-			MagicSpells.error("There was an error with creating a connection for the MySQLDatabase: " + e.getMessage());
-		}
-		return connection;
+	public HikariConfig createPoolConfig() {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl("jdbc:mysql://" + dbLocation);
+		config.setUsername(username);
+		config.setPassword(password);
+		config.addDataSourceProperty("cachePrepStmts", "true");
+		config.addDataSourceProperty("prepStmtCacheSize", "250");
+		config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+		config.addDataSourceProperty("useServerPrepStmts", "true");
+		config.addDataSourceProperty("rewriteBatchedStatements", "true");
+		return config;
 	}
 
 	@Override
 	public void createTables() {
-		Connection connection = getConnection();
-		try {
-			Statement statement = connection.createStatement();
-
+		createTables(
 			// playerData
-			statement.execute("CREATE TABLE IF NOT EXISTS playerData ("
+			"CREATE TABLE IF NOT EXISTS playerData ("
 					+ "id INTEGER PRIMARY KEY AUTO_INCREMENT, "
-					+ "playerID VARCHAR(256) NOT NULL UNIQUE"
-					+ ");"
-			);
+					+ "playerID VARCHAR(36) NOT NULL UNIQUE"
+					+ ");",
 
 			// spells
-			statement.execute("CREATE TABLE IF NOT EXISTS spells (id INTEGER PRIMARY KEY AUTO_INCREMENT, "
-					+ "internalName VARCHAR(256) NOT NULL,"
-					+ "playerID VARCHAR(256) NOT NULL,"
-					+ "worldName VARCHAR(256) NOT NULL,"
-					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));"
-			);
+			"CREATE TABLE IF NOT EXISTS spells (id INTEGER PRIMARY KEY AUTO_INCREMENT, "
+					+ "internalName VARCHAR(128) NOT NULL,"
+					+ "playerID VARCHAR(36) NOT NULL,"
+					+ "worldName VARCHAR(128) NOT NULL,"
+					+ "UNIQUE KEY spells_player (playerID, worldName, internalName),"
+					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));",
 
 			// binds
-			statement.execute("CREATE TABLE IF NOT EXISTS binds (id INTEGER PRIMARY KEY AUTO_INCREMENT, "
-					+ "playerID VARCHAR(256) NOT NULL,"
-					+ "internalName VARCHAR(256) NOT NULL,"
-					+ "worldName VARCHAR(256) NOT NULL,"
-					+ "magicItem VARCHAR(256) NOT NULL,"
+			"CREATE TABLE IF NOT EXISTS binds (id INTEGER PRIMARY KEY AUTO_INCREMENT, "
+					+ "playerID VARCHAR(36) NOT NULL,"
+					+ "internalName VARCHAR(128) NOT NULL,"
+					+ "worldName VARCHAR(128) NOT NULL,"
+					+ "magicItem TEXT NOT NULL,"
+					+ "KEY binds_player (playerID, worldName, internalName),"
 					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));"
-			);
+		);
+	}
 
-		} catch (SQLException e) {
-			MagicSpells.error("There was an error with creating a table for the MySQLDatabase: " + e.getMessage());
-		}
+	@Override
+	protected String insertIgnore() {
+		return "INSERT IGNORE";
 	}
 
 }
@@ -1,11 +1,9 @@
 package com.nisovin.magicspells.storage.databases;
 
-import java.sql.*;
-
 import java.io.File;
-import java.io.IOException;
 
-import com.nisovin.magicspells.Spellbook;
+import com.zaxxer.hikari.HikariConfig;
+
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.storage.Database;
 
@@ -16,99 +14,51 @@ public class SQLiteDatabase extends Database {
 	}
 
 	@Override
-	public Connection openConnection() {
+	public HikariConfig createPoolConfig() {
 		File folder = plugin.getDataFolder();
 		if (!folder.exists()) folder.mkdirs();
 
-		File file = new File(folder, dbLocation);
-		if (!(file.exists())) {
-			try {
-				file.createNewFile();
-			} catch (IOException e) {
-				MagicSpells.error("There was an error with creating the SQLiteDatabase file: " + e.getMessage());
-			}
-		}
-
-		Connection connection = null;
-		try {
-			Class.forName("org.sqlite.JDBC");
-			connection = DriverManager.getConnection("jdbc:sqlite:" + folder.toPath() + "/" + dbLocation);
-		} catch (Exception e) {
-			MagicSpells.error("There was an error with creating a connection for the SQLiteDatabase: " + e.getMessage());
-		}
-		return connection;
+		HikariConfig config = new HikariConfig();
+		config.setDriverClassName("org.sqlite.JDBC");
+		config.setJdbcUrl("jdbc:sqlite:" + new File(folder, dbLocation).getAbsolutePath());
+		// SQLite allows a single writer, so WAL keeps readers from blocking on it.
+		config.addDataSourceProperty("journal_mode", "WAL");
+		config.addDataSourceProperty("synchronous", "NORMAL");
+		config.addDataSourceProperty("busy_timeout", "5000");
+		return config;
 	}
 
 	@Override
 	public void createTables() {
-		Connection connection = getConnection();
-		try {
-			Statement statement = connection.createStatement();
-
+		createTables(
 			// playerData
-			statement.execute("CREATE TABLE IF NOT EXISTS playerData ("
+			"CREATE TABLE IF NOT EXISTS playerData ("
 					+ "id INTEGER PRIMARY KEY AUTOINCREMENT, "
 					+ "playerID VARCHAR(256) NOT NULL UNIQUE"
-					+ ");"
-			);
+					+ ");",
 
 			// spells
-			statement.execute("CREATE TABLE IF NOT EXISTS spells (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+			"CREATE TABLE IF NOT EXISTS spells (id INTEGER PRIMARY KEY AUTOINCREMENT, "
 					+ "internalName VARCHAR(256) NOT NULL,"
 					+ "playerID VARCHAR(256) NOT NULL,"
 					+ "worldName VARCHAR(256) NOT NULL,"
-					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));"
-			);
+					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));",
+			"CREATE UNIQUE INDEX IF NOT EXISTS spells_player ON spells (playerID, worldName, internalName);",
 
 			// binds
-			statement.execute("CREATE TABLE IF NOT EXISTS binds (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+			"CREATE TABLE IF NOT EXISTS binds (id INTEGER PRIMARY KEY AUTOINCREMENT, "
 					+ "playerID VARCHAR(256) NOT NULL,"
 					+ "internalName VARCHAR(256) NOT NULL,"
 					+ "worldName VARCHAR(256) NOT NULL,"
-					+ "magicItem VARCHAR(256) NOT NULL,"
-					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));"
-			);
-
-		} catch (SQLException e) {
-			MagicSpells.error("There was an error with creating a table for the SQLiteDatabase: " + e.getMessage());
-		}
-	}
-
-
-	// LOAD FROM DATABASE
-	@Override
-	public void load(Spellbook spellbook) {
-		/*Player pl = spellbook.getPlayer();
-		String worldName = pl.getWorld().getName();
-		String id = Util.getUniqueId(pl);
-
-		String worldSeparate = "";
-
-		if (MagicSpells.arePlayerSpellsSeparatedPerWorld()) {
-			//worldSeparate = " and "
-		}
-
-		*/
+					+ "magicItem TEXT NOT NULL,"
+					+ "FOREIGN KEY (playerID) REFERENCES playerData(playerID));",
+			"CREATE INDEX IF NOT EXISTS binds_player ON binds (playerID, worldName, internalName);"
+		);
 	}
 
-	// SAVE TO DATABASE
 	@Override
-	public void save(Spellbook spellbook) {
-		/*Player pl = spellbook.getPlayer();
-		String worldName = pl.getWorld().getName();
-		String id = Util.getUniqueId(pl);
-
-
-		String query = "";
-
-		for (Spell spell : spellbook.getSpells()) {
-			if (spellbook.isTemporary(spell)) continue;
-
-		}
-
-		if (MagicSpells.arePlayerSpellsSeparatedPerWorld()) {
-
-		}*/
+	protected String insertIgnore() {
+		return "INSERT OR IGNORE";
 	}
 
 }
@@ -0,0 +1,345 @@
+package com.nisovin.magicspells.storage.types;
+
+import java.util.Set;
+import java.util.Map;
+import java.util.UUID;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
+
+import com.nisovin.magicspells.Spellbook;
+import com.nisovin.magicspells.util.Util;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.TaskDispatcher;
+import com.nisovin.magicspells.storage.SpellbookData;
+import com.nisovin.magicspells.storage.StorageHandler;
+
+/**
+ * Wraps a storage handler that supports detached access, moving its I/O off the main thread.
+ * <p>
+ * Spellbook data is prefetched during {@link AsyncPlayerPreLoginEvent}, or, if spells are separated per world,
+ * when the world a player will be in is known: on spawn, teleport and respawn. Loads never wait on the main thread;
+ * data that is not ready yet is read in the background and applied on a later tick. Saves are captured on the main
+ * thread and queued; repeated saves of the same spellbook are coalesced and the queue is flushed periodically on a
+ * background thread. Failed writes stay queued and are retried on the next flush, and the queue is fully drained
+ * when the handler is disabled.
+ */
+public class AsyncStorage extends StorageHandler implements Listener {
+
+	private static final long PREFETCH_EXPIRY = TimeUnit.MINUTES.toMillis(1);
+	private static final long SHUTDOWN_TIMEOUT = 30;
+
+	private final StorageHandler handler;
+	private final long flushInterval;
+
+	private final Map<String, SpellbookData> pendingWrites = new ConcurrentHashMap<>();
+	private final Map<String, Prefetch> prefetched = new ConcurrentHashMap<>();
+	private final Set<String> failedWrites = ConcurrentHashMap.newKeySet();
+	private final Set<String> released = ConcurrentHashMap.newKeySet();
+
+	// Accessed on the main thread only.
+	private final Map<Spellbook, PendingLoad> pendingLoads = new IdentityHashMap<>();
+
+	private ScheduledExecutorService executor;
+	private int loadTaskId = -1;
+
+	/**
+	 * @param plugin the plugin instance
+	 * @param handler the handler to delegate to, which must support detached access
+	 * @param flushInterval interval between flushes of queued saves, in milliseconds
+	 */
+	public AsyncStorage(MagicSpells plugin, StorageHandler handler, long flushInterval) {
+		super(plugin);
+		if (!handler.supportsDetachedAccess())
+			throw new IllegalArgumentException(handler.getClass().getSimpleName() + " does not support detached access");
+
+		this.handler = handler;
+		this.flushInterval = Math.max(flushInterval, 50);
+	}
+
+	@Override
+	public void initialize() {
+		handler.initialize();
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "MagicSpells Storage");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		this.executor = executor;
+
+		loadTaskId = TaskDispatcher.runGlobalRepeating(this::applyLoads, 1, 1);
+
+		// Not registered through MagicSpells#registerEvents, as the pre-login event is called off the main thread.
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+		if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+		prefetch(event.getUniqueId(), event.getName());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onSpawnLocation(PlayerSpawnLocationEvent event) {
+		prefetch(event.getPlayer(), event.getSpawnLocation());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onTeleport(PlayerTeleportEvent event) {
+		if (event.getFrom().getWorld() == event.getTo().getWorld()) return;
+		prefetch(event.getPlayer(), event.getTo());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onRespawn(PlayerRespawnEvent event) {
+		if (event.getPlayer().getWorld() == event.getRespawnLocation().getWorld()) return;
+		prefetch(event.getPlayer(), event.getRespawnLocation());
+	}
+
+	/**
+	 * Starts reading the spellbook data of a player who is about to join. The world a player will join in
+	 * is not known yet, so nothing is prefetched here if spells are separated per world.
+	 * @param uuid the unique id of the player
+	 * @param playerName the name of the player
+	 */
+	public void prefetch(UUID uuid, String playerName) {
+		if (MagicSpells.arePlayerSpellsSeparatedPerWorld()) return;
+		prefetch(uuid.toString().replace("-", ""), playerName, null);
+	}
+
+	/**
+	 * Starts reading the spellbook data a player will need in the world of a location, if spells are separated
+	 * per world.
+	 * @param player the player
+	 * @param location the location the player is about to be in
+	 */
+	public void prefetch(Player player, Location location) {
+		if (!MagicSpells.arePlayerSpellsSeparatedPerWorld()) return;
+
+		World world = location == null ? null : location.getWorld();
+		if (world == null) return;
+
+		prefetch(Util.getUniqueId(player), player.getName(), world.getName());
+	}
+
+	private void prefetch(String uniqueId, String playerName, String worldName) {
+		ExecutorService executor = this.executor;
+		if (executor == null || executor.isShutdown()) return;
+
+		CompletableFuture<SpellbookData> future = CompletableFuture.supplyAsync(() -> read(uniqueId, playerName, worldName), executor);
+		prefetched.put(SpellbookData.getKey(uniqueId, worldName), new Prefetch(future, System.currentTimeMillis()));
+	}
+
+	@Override
+	public void load(Spellbook spellbook) {
+		load(spellbook, () -> {});
+	}
+
+	@Override
+	public void load(Spellbook spellbook, Runnable callback) {
+		Player player = spellbook.getPlayer();
+		String uniqueId = Util.getUniqueId(player);
+		String worldName = MagicSpells.arePlayerSpellsSeparatedPerWorld() ? player.getWorld().getName() : null;
+		String key = SpellbookData.getKey(uniqueId, worldName);
+		released.remove(uniqueId);
+
+		CompletableFuture<SpellbookData> future;
+
+		// A queued save is more recent than anything stored.
+		SpellbookData pending = pendingWrites.get(key);
+		Prefetch prefetch = prefetched.remove(key);
+		if (pending != null) future = CompletableFuture.completedFuture(pending);
+		else if (prefetch != null && !prefetch.future().isCompletedExceptionally()) future = prefetch.future();
+		else {
+			ExecutorService executor = this.executor;
+			if (executor == null || executor.isShutdown()) {
+				MagicSpells.error("Could not load the spellbook of player '" + player.getName() + "', as the storage is disabled.");
+				return;
+			}
+
+			future = CompletableFuture.supplyAsync(() -> read(uniqueId, player.getName(), worldName), executor);
+		}
+
+		// Replaces an older load of the same spellbook, such as after changing worlds twice in a row, but keeps
+		// its callback.
+		PendingLoad previous = pendingLoads.remove(spellbook);
+		if (previous != null) {
+			Runnable first = previous.callback();
+			Runnable second = callback;
+			callback = () -> {
+				first.run();
+				second.run();
+			};
+		}
+
+		PendingLoad load = new PendingLoad(future, callback);
+		if (future.isDone()) apply(spellbook, load);
+		else pendingLoads.put(spellbook, load);
+	}
+
+	private void applyLoads() {
+		if (pendingLoads.isEmpty()) return;
+
+		Iterator<Map.Entry<Spellbook, PendingLoad>> iterator = pendingLoads.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Spellbook, PendingLoad> entry = iterator.next();
+			if (!entry.getValue().future().isDone()) continue;
+
+			iterator.remove();
+			apply(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void apply(Spellbook spellbook, PendingLoad load) {
+		// The player left before their data was read.
+		if (spellbook.getPlayer() == null) return;
+
+		try {
+			load.future().join().apply(spellbook);
+		} catch (Exception e) {
+			MagicSpells.error("Error loading spellbook for player '" + spellbook.getPlayer().getName() + "': " + e.getMessage());
+		}
+
+		load.callback().run();
+	}
+
+	@Override
+	public void save(Spellbook spellbook) {
+		write(SpellbookData.capture(spellbook));
+	}
+
+	@Override
+	public boolean supportsDetachedAccess() {
+		return true;
+	}
+
+	@Override
+	public SpellbookData read(String uniqueId, String playerName, String worldName) {
+		SpellbookData pending = pendingWrites.get(SpellbookData.getKey(uniqueId, worldName));
+		if (pending != null) return pending;
+		return handler.read(uniqueId, playerName, worldName);
+	}
+
+	@Override
+	public void write(SpellbookData data) {
+		pendingWrites.put(data.getKey(), data);
+		prefetched.remove(data.getKey());
+	}
+
+	/**
+	 * Releases the player from the wrapped handler after their queued saves were written.
+	 */
+	@Override
+	public void release(String uniqueId) {
+		released.add(uniqueId);
+	}
+
+	/**
+	 * Writes all queued saves. Entries are only dequeued after being written, so concurrent reads see
+	 * either the queued data or the stored data, never a stale copy. Entries that fail to write stay queued.
+	 */
+	public void flush() {
+		for (Map.Entry<String, SpellbookData> entry : pendingWrites.entrySet()) {
+			String key = entry.getKey();
+			SpellbookData data = entry.getValue();
+			try {
+				handler.write(data);
+			} catch (Exception e) {
+				// Only reported once per spellbook, as the write is retried every flush.
+				if (failedWrites.add(key))
+					MagicSpells.error("Error saving spellbook for player '" + data.getPlayerName() + "', retrying: " + e.getMessage());
+				continue;
+			}
+
+			failedWrites.remove(key);
+			pendingWrites.remove(key, data);
+		}
+
+		if (!released.isEmpty()) {
+			Set<String> waiting = new HashSet<>();
+			for (SpellbookData data : pendingWrites.values()) {
+				waiting.add(data.getUniqueId());
+			}
+
+			released.removeIf(uniqueId -> {
+				if (waiting.contains(uniqueId)) return false;
+				handler.release(uniqueId);
+				return true;
+			});
+		}
+
+		long now = System.currentTimeMillis();
+		Iterator<Prefetch> iterator = prefetched.values().iterator();
+		while (iterator.hasNext()) {
+			if (now - iterator.next().time() > PREFETCH_EXPIRY) iterator.remove();
+		}
+	}
+
+	@Override
+	public void disable() {
+		HandlerList.unregisterAll(this);
+
+		MagicSpells.cancelTask(loadTaskId);
+		loadTaskId = -1;
+		pendingLoads.clear();
+
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS))
+					MagicSpells.error("Timed out waiting for the spellbook storage thread to finish.");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+
+		// Drain whatever is left on the calling thread.
+		flush();
+		prefetched.clear();
+		released.clear();
+
+		if (!pendingWrites.isEmpty()) {
+			MagicSpells.error("Could not save the spellbooks of " + pendingWrites.size() + " player(s), their changes since the last successful save are lost:");
+			for (SpellbookData data : pendingWrites.values()) {
+				MagicSpells.error("  " + data.getPlayerName() + (data.getWorldName() == null ? "" : " (" + data.getWorldName() + ")"));
+			}
+			pendingWrites.clear();
+		}
+		failedWrites.clear();
+
+		handler.disable();
+	}
+
+	public StorageHandler getHandler() {
+		return handler;
+	}
+
+	private record Prefetch(CompletableFuture<SpellbookData> future, long time) {}
+
+	private record PendingLoad(CompletableFuture<SpellbookData> future, Runnable callback) {}
+
+}
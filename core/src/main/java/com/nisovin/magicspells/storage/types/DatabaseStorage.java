@@ -3,6 +3,7 @@ package com.nisovin.magicspells.storage.types;
 import com.nisovin.magicspells.Spellbook;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.storage.Database;
+import com.nisovin.magicspells.storage.SpellbookData;
 import com.nisovin.magicspells.storage.StorageHandler;
 
 public class DatabaseStorage extends StorageHandler {
@@ -22,7 +23,6 @@ public class DatabaseStorage extends StorageHandler {
 	@Override
 	public void load(Spellbook spellbook) {
 		database.load(spellbook);
-		database.getConnection();
 	}
 
 	@Override
@@ -30,9 +30,33 @@ public class DatabaseStorage extends StorageHandler {
 		database.save(spellbook);
 	}
 
+	@Override
+	public boolean supportsDetachedAccess() {
+		return true;
+	}
+
+	@Override
+	public SpellbookData read(String uniqueId, String playerName, String worldName) {
+		return database.read(uniqueId, playerName, worldName);
+	}
+
+	@Override
+	public void write(SpellbookData data) {
+		database.write(data);
+	}
+
+	@Override
+	public void release(String uniqueId) {
+		database.release(uniqueId);
+	}
+
 	@Override
 	public void disable() {
 		database.disable();
 	}
 
+	public Database getDatabase() {
+		return database;
+	}
+
 }
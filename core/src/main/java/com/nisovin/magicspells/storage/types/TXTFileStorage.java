@@ -5,23 +5,20 @@ import java.io.Writer;
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 
-import java.util.Set;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.ArrayList;
 
 import java.nio.charset.StandardCharsets;
 
 import org.bukkit.entity.Player;
 
-import com.nisovin.magicspells.Spell;
 import com.nisovin.magicspells.Spellbook;
 import com.nisovin.magicspells.util.Util;
 import com.nisovin.magicspells.MagicSpells;
-import com.nisovin.magicspells.util.CastItem;
 import com.nisovin.magicspells.handlers.DebugHandler;
+import com.nisovin.magicspells.storage.SpellbookData;
 import com.nisovin.magicspells.storage.StorageHandler;
-import com.nisovin.magicspells.util.magicitems.MagicItemDataParser;
 
 public class TXTFileStorage extends StorageHandler {
 
@@ -37,123 +34,87 @@ public class TXTFileStorage extends StorageHandler {
 	@Override
 	public void load(Spellbook spellbook) {
 		Player pl = spellbook.getPlayer();
-		String worldName = pl.getWorld().getName();
-		String id = Util.getUniqueId(pl);
+		String worldName = MagicSpells.arePlayerSpellsSeparatedPerWorld() ? pl.getWorld().getName() : null;
+		read(Util.getUniqueId(pl), pl.getName(), worldName).apply(spellbook);
+	}
+
+	@Override
+	public void save(Spellbook spellbook) {
+		write(SpellbookData.capture(spellbook));
+	}
+
+	@Override
+	public boolean supportsDetachedAccess() {
+		return true;
+	}
+
+	@Override
+	public SpellbookData read(String uniqueId, String playerName, String worldName) {
+		SpellbookData data = new SpellbookData(uniqueId, playerName, worldName);
 		try {
 			MagicSpells.debug("  ...retrieving files...");
 			File file;
 			String path = "spellbooks" + File.separator;
-			if (MagicSpells.arePlayerSpellsSeparatedPerWorld()) {
+			if (worldName != null) {
 				File folder = new File(plugin.getDataFolder(), path + worldName);
 				if (!folder.exists()) folder.mkdir();
 
-				file = new File(plugin.getDataFolder(), path + worldName + File.separator + id + ".txt");
+				file = new File(plugin.getDataFolder(), path + worldName + File.separator + uniqueId + ".txt");
 				if (!file.exists()) {
-					File file2 = new File(plugin.getDataFolder(), path + worldName + File.separator + pl.getName().toLowerCase() + ".txt");
+					File file2 = new File(plugin.getDataFolder(), path + worldName + File.separator + playerName.toLowerCase() + ".txt");
 					if (file2.exists()) file2.renameTo(file);
 				}
 			} else {
-				file = new File(plugin.getDataFolder(), path + id + ".txt");
+				file = new File(plugin.getDataFolder(), path + uniqueId + ".txt");
 				if (!file.exists()) {
-					File file2 = new File(plugin.getDataFolder(), path + pl.getName().toLowerCase() + ".txt");
+					File file2 = new File(plugin.getDataFolder(), path + playerName.toLowerCase() + ".txt");
 					if (file2.exists()) file2.renameTo(file);
 				}
 			}
 
-			if (!file.exists()) return;
-
-			String line;
-			Spell spell;
-			String[] data;
-			List<CastItem> items;
-			String[] split;
-			CastItem castItem;
-			Scanner scanner = new Scanner(file, StandardCharsets.UTF_8);
-			while (scanner.hasNext()) {
-				line = scanner.nextLine();
-				if (line.isEmpty()) continue;
-
-				if (!line.contains(":")) {
-					spell = MagicSpells.getSpellByInternalName(line);
-					if (spell == null) continue;
-					spellbook.addSpell(spell);
-				}
+			if (!file.exists()) return data;
 
-				data = line.split(":", 2);
-				spell = MagicSpells.getSpellByInternalName(data[0]);
-
-				if (spell == null) continue;
-				if (data.length == 1) continue;
-
-				items = new ArrayList<>();
-				split = data[1].split(MagicItemDataParser.DATA_REGEX);
-				for (String value : split) {
-					try {
-						castItem = new CastItem(value);
-						items.add(castItem);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
+			try (Scanner scanner = new Scanner(file, StandardCharsets.UTF_8)) {
+				while (scanner.hasNext()) {
+					data.addSpell(scanner.nextLine());
 				}
-				spellbook.addSpell(spell, items.toArray(new CastItem[0]));
 			}
-			scanner.close();
-
 		} catch (Exception e) {
 			DebugHandler.debugGeneral(e);
 		}
+		return data;
 	}
 
 	@Override
-	public void save(Spellbook spellbook) {
-		Player pl = spellbook.getPlayer();
-		String worldName = pl.getWorld().getName();
-		String id = Util.getUniqueId(pl);
+	public void write(SpellbookData data) {
+		String playerName = data.getPlayerName();
+		String worldName = data.getWorldName();
 		try {
 			File file;
 			String path = "spellbooks" + File.separator;
-			if (MagicSpells.arePlayerSpellsSeparatedPerWorld()) {
+			if (worldName != null) {
 				File folder = new File(plugin.getDataFolder(), path + worldName);
 				if (!folder.exists()) folder.mkdirs();
-				File oldFile = new File(plugin.getDataFolder(), path + worldName + File.separator + pl.getName() + ".txt");
+				File oldFile = new File(plugin.getDataFolder(), path + worldName + File.separator + playerName + ".txt");
 				if (oldFile.exists()) oldFile.delete();
-				file = new File(plugin.getDataFolder(), path + worldName + File.separator + id + ".txt");
+				file = new File(plugin.getDataFolder(), path + worldName + File.separator + data.getUniqueId() + ".txt");
 			} else {
-				File oldFile = new File(plugin.getDataFolder(), path + pl.getName() + ".txt");
+				File oldFile = new File(plugin.getDataFolder(), path + playerName + ".txt");
 				if (oldFile.exists()) oldFile.delete();
-				file = new File(plugin.getDataFolder(), path + id + ".txt");
+				file = new File(plugin.getDataFolder(), path + data.getUniqueId() + ".txt");
 			}
 
-			Set<CastItem> items;
-			StringBuilder builder;
-			CastItem castItem;
-			Writer writer = new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8);
-			for (Spell spell : spellbook.getSpells()) {
-				writer.append(spell.getInternalName());
-
-				if (spellbook.getCustomBindings().containsKey(spell)) {
-					items = spellbook.getCustomBindings().get(spell);
-					builder = new StringBuilder();
-					for (CastItem item : items) {
-						builder.append((builder.isEmpty()) ? "" : "|").append(item);
-					}
-
-					// When you unbind an item with no binds left, restore the original cast item.
-					castItem = (CastItem) items.toArray()[0];
-					if (items.size() == 1 && castItem.getType() == null) {
-						writer.write("\n");
-						continue;
-					}
-					writer.append(":").append(builder.toString());
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, List<String>> entry : data.getSpells().entrySet()) {
+					writer.append(entry.getKey());
+					if (entry.getValue() != null) writer.append(":").append(String.join("|", entry.getValue()));
+					writer.write("\n");
 				}
-				writer.write("\n");
 			}
 
-			writer.flush();
-			writer.close();
-			MagicSpells.debug("Saved spellbook for player '" + pl.getName() + "'.");
+			MagicSpells.debug("Saved spellbook for player '" + playerName + "'.");
 		} catch (Exception e) {
-			plugin.getLogger().severe("Error saving spellbook for player '" + pl.getName() + "'.");
+			plugin.getLogger().severe("Error saving spellbook for player '" + playerName + "'.");
 			e.printStackTrace();
 		}
 	}
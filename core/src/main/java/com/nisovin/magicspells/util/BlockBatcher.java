@@ -0,0 +1,70 @@
+package com.nisovin.magicspells.util;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+import org.bukkit.World;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * Collects the block changes of one pass over a set of blocks, such as moving a platform or removing a wall, and
+ * applies them together when the pass calls {@link #apply()}.
+ * <p>
+ * Changes are applied grouped by chunk section, so the blocks of a section are set one after another, and a block
+ * changed several times in the pass is only set once, to its last value. Each change keeps its own physics flag.
+ * Nothing is held past the end of the pass, so the world is never left with stale blocks for other readers.
+ */
+public class BlockBatcher {
+
+	private final Map<World, Long2ObjectMap<Long2ObjectMap<Change>>> worlds = new LinkedHashMap<>();
+
+	public void set(Block block, Material material, boolean physics) {
+		set(block, material.createBlockData(), physics);
+	}
+
+	public void set(Block block, BlockData data, boolean physics) {
+		int x = block.getX(), y = block.getY(), z = block.getZ();
+		worlds.computeIfAbsent(block.getWorld(), world -> new Long2ObjectLinkedOpenHashMap<>())
+			.computeIfAbsent(sectionKey(x, y, z), key -> new Long2ObjectLinkedOpenHashMap<>())
+			.put(Block.getBlockKey(x, y, z), new Change(data, physics));
+	}
+
+	/**
+	 * Applies the changes collected so far, and clears them.
+	 */
+	public void apply() {
+		for (Map.Entry<World, Long2ObjectMap<Long2ObjectMap<Change>>> entry : worlds.entrySet()) {
+			World world = entry.getKey();
+
+			for (Long2ObjectMap<Change> changes : entry.getValue().values()) {
+				for (Long2ObjectMap.Entry<Change> change : changes.long2ObjectEntrySet()) {
+					long key = change.getLongKey();
+					Block block = world.getBlockAt(Block.getBlockKeyX(key), Block.getBlockKeyY(key), Block.getBlockKeyZ(key));
+
+					try {
+						block.setBlockData(change.getValue().data, change.getValue().physics);
+					} catch (Exception e) {
+						MagicSpells.handleException(e);
+					}
+				}
+			}
+		}
+
+		worlds.clear();
+	}
+
+	private static long sectionKey(int x, int y, int z) {
+		return ((long) ((x >> 4) & 0x3FFFFF) << 42) | ((long) ((z >> 4) & 0x3FFFFF) << 20) | ((y >> 4) & 0xFFFFF);
+	}
+
+	private record Change(BlockData data, boolean physics) {
+	}
+
+}
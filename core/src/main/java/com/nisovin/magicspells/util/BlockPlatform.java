@@ -7,7 +7,6 @@ import org.bukkit.World;
 import org.bukkit.Material;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockState;
 
 public class BlockPlatform {
 
@@ -69,25 +68,20 @@ public class BlockPlatform {
 			}
 		}
 		
+		BlockBatcher batcher = new BlockBatcher();
+
 		// Remove old platform blocks
 		if (moving && blocks != null) {
 			for (Block block : blocks) {
-				if (!platform.contains(block) && block.getType() == platformType) {
-					BlockState state = block.getState();
-					state.setType(replaceType);
-					state.update(true, false);
-				}
+				if (!platform.contains(block) && block.getType() == platformType) batcher.set(block, replaceType, false);
 			}
 		}
 		
 		// Add new platform blocks
 		for (Block block : platform) {
-			if (blocks == null || !blocks.contains(block)) {
-				BlockState state = block.getState();
-				state.setType(platformType);
-				state.update(true, false);
-			}
+			if (blocks == null || !blocks.contains(block)) batcher.set(block, platformType, false);
 		}
+		batcher.apply();
 		
 		// Update platform block set
 		if (moving) blocks = platform;
@@ -128,12 +122,12 @@ public class BlockPlatform {
 	public void destroyPlatform() {		
 		// Remove platform blocks
 		if (moving) {
+			BlockBatcher batcher = new BlockBatcher();
 			for (Block block : blocks) {
 				if (block.getType() != platformType) continue;
-				BlockState state = block.getState();
-				state.setType(replaceType);
-				state.update(true, false);
+				batcher.set(block, replaceType, false);
 			}
+			batcher.apply();
 		}
 		blocks = null;
 	}
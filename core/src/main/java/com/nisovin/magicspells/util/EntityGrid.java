@@ -0,0 +1,283 @@
+package com.nisovin.magicspells.util;
+
+import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.entity.EntityTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.player.PlayerVelocityEvent;
+
+import io.papermc.paper.event.entity.EntityKnockbackEvent;
+
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * Per-tick cache of the living entities of each chunk, shared by the area queries of all spells.
+ * <p>
+ * Small queries go straight through the entity lookup of the server. Larger queries read the living entities of
+ * each chunk they cover the first time the chunk is queried in a tick, and reuse them for all later queries of that
+ * tick, so only queried chunks are ever read. Queries test the current bounding box of each entity and skip entities
+ * that are no longer valid. Results are added to a list given by the caller, so a list can be reused for every query
+ * of a spell or tracker.
+ * <p>
+ * Entities that move into a chunk after it was read are not found there until the next tick, unless they moved by
+ * less than {@link #MOVE_MARGIN}. Teleports, knockback and player velocity changes drop the chunks read for the
+ * world, so they are read again by the next query. Spawned entities are found from the next tick.
+ * <p>
+ * On Folia, and off the main thread, all queries go through the entity lookup of the server.
+ */
+public class EntityGrid implements Listener {
+
+	// How far the bounding box of an entity may extend past its location, as assumed by the server's lookup.
+	private static final double ENTITY_MARGIN = 2;
+	// How far an entity may move after its chunk was read, within the same tick, and still be found.
+	private static final double MOVE_MARGIN = 2;
+	// Queries covering at most this many chunks use the server's lookup, which is cheaper than reading the chunks.
+	private static final int DIRECT_QUERY_CHUNKS = 4;
+	// Grids of worlds that were not queried for this many ticks are dropped.
+	private static final int EXPIRY_TICKS = 1200;
+	private static final int MAX_POOLED_LISTS = 8;
+
+	private final Map<UUID, WorldGrid> worlds = new HashMap<>();
+	// Result lists free for reuse, per thread, as spells query from several threads on Folia.
+	private final ThreadLocal<ArrayDeque<List<Object>>> lists = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public void initialize() {
+		MagicSpells.registerEvents(this);
+	}
+
+	public void disable() {
+		HandlerList.unregisterAll(this);
+		clear();
+	}
+
+	/**
+	 * Adds the living entities whose bounding box overlaps the box.
+	 */
+	public void getLivingEntities(World world, BoundingBox box, List<? super LivingEntity> result) {
+		query(world, box, null, false, box::overlaps, result);
+	}
+
+	/**
+	 * Adds the living entities whose bounding box overlaps the box with the given half extents around the location,
+	 * like {@link Location#getNearbyLivingEntities(double, double, double)}.
+	 */
+	public void getLivingEntities(Location center, double xRadius, double yRadius, double zRadius, List<? super LivingEntity> result) {
+		getLivingEntities(center.getWorld(), BoundingBox.of(center, xRadius, yRadius, zRadius), result);
+	}
+
+	/**
+	 * Adds the other living entities whose bounding box overlaps the bounding box of the entity grown by the given
+	 * distances, like {@link Entity#getNearbyEntities(double, double, double)}.
+	 */
+	public void getLivingEntities(Entity entity, double x, double y, double z, List<? super LivingEntity> result) {
+		BoundingBox box = entity.getBoundingBox().expand(x, y, z);
+		query(entity.getWorld(), box, entity, false, box::overlaps, result);
+	}
+
+	/**
+	 * Adds the living entities whose location is at most the radius away from the center.
+	 */
+	public void getLivingEntitiesInSphere(Location center, double radius, List<? super LivingEntity> result) {
+		double cx = center.getX(), cy = center.getY(), cz = center.getZ(), radiusSq = radius * radius;
+
+		query(center.getWorld(), BoundingBox.of(center, radius, radius, radius), null, false, box -> {
+			double dx = box.getCenterX() - cx, dy = box.getMinY() - cy, dz = box.getCenterZ() - cz;
+			return dx * dx + dy * dy + dz * dz <= radiusSq;
+		}, result);
+	}
+
+	/**
+	 * Adds the living entities whose location is at most the radius away from the center horizontally, and at
+	 * most the half height away vertically.
+	 */
+	public void getLivingEntitiesInCylinder(Location center, double radius, double halfHeight, List<? super LivingEntity> result) {
+		double cx = center.getX(), cy = center.getY(), cz = center.getZ(), radiusSq = radius * radius;
+
+		query(center.getWorld(), BoundingBox.of(center, radius, halfHeight, radius), null, false, box -> {
+			double dx = box.getCenterX() - cx, dz = box.getCenterZ() - cz;
+			return dx * dx + dz * dz <= radiusSq && Math.abs(box.getMinY() - cy) <= halfHeight;
+		}, result);
+	}
+
+	/**
+	 * Adds the players whose bounding box overlaps the box with the given half extents around the location, like
+	 * {@link World#getNearbyPlayers(Location, double, double, double)}.
+	 */
+	public void getPlayers(Location center, double xRadius, double yRadius, double zRadius, List<? super Player> result) {
+		BoundingBox box = BoundingBox.of(center, xRadius, yRadius, zRadius);
+		query(center.getWorld(), box, null, true, box::overlaps, result);
+	}
+
+	/**
+	 * Borrows an empty list for query results, for spells that do not keep a list of their own. Lists borrowed while
+	 * another is still in use, such as by a subcast, are different lists.
+	 * @return an empty list, to give back through {@link #releaseList(List)} once it is no longer used
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Entity> List<T> borrowList() {
+		List<Object> list = lists.get().pollLast();
+		return (List<T>) (list == null ? new ArrayList<>() : list);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void releaseList(List<? extends Entity> list) {
+		list.clear();
+
+		ArrayDeque<List<Object>> free = lists.get();
+		if (free.size() < MAX_POOLED_LISTS) free.addLast((List<Object>) list);
+	}
+
+	public void clear() {
+		worlds.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onTeleport(EntityTeleportEvent event) {
+		invalidate(event.getFrom().getWorld());
+		if (event.getTo() != null) invalidate(event.getTo().getWorld());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlayerTeleport(PlayerTeleportEvent event) {
+		invalidate(event.getFrom().getWorld());
+		invalidate(event.getTo().getWorld());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onKnockback(EntityKnockbackEvent event) {
+		invalidate(event.getEntity().getWorld());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlayerVelocity(PlayerVelocityEvent event) {
+		invalidate(event.getPlayer().getWorld());
+	}
+
+	private void invalidate(World world) {
+		if (world == null || worlds.isEmpty()) return;
+
+		WorldGrid grid = worlds.get(world.getUID());
+		if (grid != null) grid.reset();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void query(World world, BoundingBox area, Entity exclude, boolean playersOnly, BoxTest test, List<?> result) {
+		if (world == null) return;
+
+		List<Object> out = (List<Object>) result;
+
+		int minX = chunk(area.getMinX() - ENTITY_MARGIN - MOVE_MARGIN), maxX = chunk(area.getMaxX() + ENTITY_MARGIN + MOVE_MARGIN);
+		int minZ = chunk(area.getMinZ() - ENTITY_MARGIN - MOVE_MARGIN), maxZ = chunk(area.getMaxZ() + ENTITY_MARGIN + MOVE_MARGIN);
+		long chunkCount = (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+
+		if (TaskDispatcher.isFolia() || !Bukkit.isPrimaryThread() || chunkCount <= DIRECT_QUERY_CHUNKS) {
+			for (Entity entity : world.getNearbyEntities(area)) {
+				if (!(entity instanceof LivingEntity) || entity == exclude) continue;
+				if (playersOnly && !(entity instanceof Player)) continue;
+				if (test.test(entity.getBoundingBox())) out.add(entity);
+			}
+			return;
+		}
+
+		WorldGrid grid = getGrid(world);
+		for (int x = minX; x <= maxX; x++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				List<LivingEntity> entities = grid.getChunk(world, x, z);
+				if (entities.isEmpty()) continue;
+
+				for (int i = 0, size = entities.size(); i < size; i++) {
+					LivingEntity entity = entities.get(i);
+					if (entity == exclude || !entity.isValid()) continue;
+					if (playersOnly && !(entity instanceof Player)) continue;
+					if (test.test(entity.getBoundingBox())) out.add(entity);
+				}
+			}
+		}
+	}
+
+	private WorldGrid getGrid(World world) {
+		int tick = Bukkit.getCurrentTick();
+
+		WorldGrid grid = worlds.get(world.getUID());
+		if (grid == null) {
+			worlds.values().removeIf(other -> tick - other.tick > EXPIRY_TICKS);
+
+			grid = new WorldGrid();
+			worlds.put(world.getUID(), grid);
+		}
+
+		if (grid.tick != tick) {
+			grid.reset();
+			grid.tick = tick;
+		}
+		return grid;
+	}
+
+	private static int chunk(double coordinate) {
+		return (int) Math.floor(coordinate) >> 4;
+	}
+
+	@FunctionalInterface
+	private interface BoxTest {
+
+		boolean test(BoundingBox box);
+
+	}
+
+	private static class WorldGrid {
+
+		private final Long2ObjectMap<List<LivingEntity>> chunks = new Long2ObjectOpenHashMap<>();
+		// Lists of chunks read in earlier ticks, kept for reuse.
+		private final List<List<LivingEntity>> pool = new ArrayList<>();
+
+		private int tick = Integer.MIN_VALUE;
+
+		private List<LivingEntity> getChunk(World world, int x, int z) {
+			long key = ((long) z << 32) | (x & 0xFFFFFFFFL);
+
+			List<LivingEntity> entities = chunks.get(key);
+			if (entities != null) return entities;
+
+			entities = pool.isEmpty() ? new ArrayList<>() : pool.remove(pool.size() - 1);
+			if (world.isChunkLoaded(x, z)) {
+				for (Entity entity : world.getChunkAt(x, z).getEntities()) {
+					if (entity instanceof LivingEntity living) entities.add(living);
+				}
+			}
+
+			chunks.put(key, entities);
+			return entities;
+		}
+
+		private void reset() {
+			if (chunks.isEmpty()) return;
+
+			for (List<LivingEntity> entities : chunks.values()) {
+				entities.clear();
+				pool.add(entities);
+			}
+			chunks.clear();
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.nisovin.magicspells.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.LambdaMetafactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.bukkit.event.Event;
+import org.bukkit.plugin.EventExecutor;
+
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.handlers.DebugHandler;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+
+/**
+ * Creates event executors that call listener methods through a class generated with {@link LambdaMetafactory},
+ * rather than through {@link Method#invoke(Object, Object...)}. If the generated class cannot be created, such as
+ * for static methods, the executor falls back to reflection.
+ */
+public class EventExecutorFactory {
+
+	private static final MethodType INVOKED_TYPE = MethodType.methodType(Invoker.class);
+	private static final MethodType INVOKE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * @param method the listener method, taking a single event parameter
+	 * @param eventClass the event class the method listens to
+	 * @param profiler the profiler to time the method with, or null to not time it at all
+	 * @param section the section to record timings into, if profiled
+	 * @return the executor
+	 */
+	public static EventExecutor create(Method method, Class<? extends Event> eventClass, Profiler profiler, ProfileSection section) {
+		Invoker invoker = createInvoker(method, eventClass);
+
+		if (profiler == null) {
+			return (listener, event) -> {
+				// Events without their own handler list also reach executors registered for their subclasses.
+				if (!eventClass.isInstance(event)) return;
+
+				try {
+					invoker.invoke(listener, event);
+				} catch (Throwable t) {
+					handleThrowable(t);
+				}
+			};
+		}
+
+		return (listener, event) -> {
+			if (!eventClass.isInstance(event)) return;
+
+			long start = profiler.start();
+			try {
+				invoker.invoke(listener, event);
+			} catch (Throwable t) {
+				handleThrowable(t);
+			} finally {
+				profiler.stop(section, start);
+			}
+		};
+	}
+
+	/**
+	 * @return an invoker calling the listener method, without checking the type of the event
+	 */
+	public static Invoker createInvoker(Method method, Class<? extends Event> eventClass) {
+		if (!Modifier.isStatic(method.getModifiers())) {
+			try {
+				Class<?> declaringClass = method.getDeclaringClass();
+				MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+
+				CallSite site = LambdaMetafactory.metafactory(lookup, "invoke", INVOKED_TYPE, INVOKE_TYPE, lookup.unreflect(method),
+					MethodType.methodType(void.class, declaringClass, eventClass));
+				return (Invoker) site.getTarget().invoke();
+			} catch (Throwable t) {
+				DebugHandler.debugGeneral(t);
+			}
+		}
+
+		method.setAccessible(true);
+		return method::invoke;
+	}
+
+	public static void handleThrowable(Throwable t) {
+		if (t instanceof Error error) throw error;
+		MagicSpells.handleException(t instanceof Exception ex ? ex : new RuntimeException(t));
+	}
+
+	@FunctionalInterface
+	public interface Invoker {
+
+		void invoke(Object listener, Object event) throws Throwable;
+
+	}
+
+}
@@ -1,13 +1,16 @@
 package com.nisovin.magicspells.util;
 
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitTask;
 
 import com.nisovin.magicspells.MagicSpells;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
 /**
  * This class represents a spell animation. It facilitates creating a spell effect that happens over a period of time,
  * without having to worry about stopping and starting scheduled tasks.
@@ -17,11 +20,12 @@ import com.nisovin.magicspells.MagicSpells;
  */
 public abstract class SpellAnimation implements Runnable {
 
-	private static final Set<SpellAnimation> animations = new HashSet<>();
+	private static final Set<SpellAnimation> animations = ConcurrentHashMap.newKeySet();
 
 	private final boolean async;
 
 	private BukkitTask task;
+	private ScheduledTask foliaTask;
 	private int delay;
 	private int interval;
 	private int tick;
@@ -72,6 +76,13 @@ public abstract class SpellAnimation implements Runnable {
 	 * Start the spell animation.
 	 */
 	public void play() {
+		if (TaskDispatcher.isFolia()) {
+			if (async) foliaTask = Bukkit.getAsyncScheduler().runAtFixedRate(MagicSpells.getInstance(), scheduled -> run(),
+				delay * TimeUtil.MILLISECONDS_PER_TICK, Math.max(interval, 1) * TimeUtil.MILLISECONDS_PER_TICK, TimeUnit.MILLISECONDS);
+			else foliaTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(MagicSpells.getInstance(), scheduled -> run(), Math.max(delay, 1), Math.max(interval, 1));
+			return;
+		}
+
 		if (async) task = Bukkit.getScheduler().runTaskTimerAsynchronously(MagicSpells.getInstance(), this, delay, interval);
 		else task = Bukkit.getScheduler().runTaskTimer(MagicSpells.getInstance(), this, delay, interval);
 	}
@@ -84,7 +95,8 @@ public abstract class SpellAnimation implements Runnable {
 	}
 
 	public void stop(boolean removeEntry) {
-		task.cancel();
+		if (task != null) task.cancel();
+		if (foliaTask != null) foliaTask.cancel();
 		if (removeEntry) animations.remove(this);
 	}
 
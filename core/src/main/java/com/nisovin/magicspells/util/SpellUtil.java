@@ -222,6 +222,8 @@ public class SpellUtil {
 	public static void updateManaBar(Player player) {
 		if (!(MagicSpells.getManaHandler() instanceof ManaSystem system)) return;
 		if (!system.usingHungerBar()) return;
+
+		system.resetHungerBar(player);
 		MagicSpells.scheduleDelayedTask(() -> system.showMana(player), 1);
 	}
 	
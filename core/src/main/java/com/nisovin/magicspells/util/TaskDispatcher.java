@@ -0,0 +1,246 @@
+package com.nisovin.magicspells.util;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * Runs tasks on the thread that owns the data they touch.
+ * <p>
+ * On Folia, work bound to an entity goes through the scheduler of that entity, work bound to a location through
+ * the region scheduler, and everything else through the global region scheduler. Tasks that follow a moving
+ * location, such as projectiles, are rescheduled at their current location after every step. On other servers,
+ * everything runs on the main thread through {@link MagicSpells#scheduleDelayedTask(Runnable, long)} and
+ * {@link MagicSpells#scheduleRepeatingTask(Runnable, long, long)}, as before.
+ * <p>
+ * Ids of Folia tasks start at {@link #FIRST_ID}, so they can be cancelled through {@link MagicSpells#cancelTask(int)}.
+ */
+public class TaskDispatcher {
+
+	public static final int FIRST_ID = 1 << 29;
+	private static final int LAST_ID = (1 << 30) - 1;
+
+	private static final boolean FOLIA = hasClass("io.papermc.paper.threadedregions.RegionizedServer");
+
+	private static final Map<Integer, Handle> tasks = new ConcurrentHashMap<>();
+	private static final AtomicInteger nextId = new AtomicInteger(FIRST_ID);
+
+	public static boolean isFolia() {
+		return FOLIA;
+	}
+
+	/**
+	 * @return whether the current thread may access the entity
+	 */
+	public static boolean isOwned(Entity entity) {
+		return FOLIA ? Bukkit.isOwnedByCurrentRegion(entity) : Bukkit.isPrimaryThread();
+	}
+
+	/**
+	 * @return whether the current thread may access the location
+	 */
+	public static boolean isOwned(Location location) {
+		return FOLIA ? Bukkit.isOwnedByCurrentRegion(location) : Bukkit.isPrimaryThread();
+	}
+
+	/**
+	 * Runs a task that is not bound to an entity or location.
+	 */
+	public static int runGlobal(Runnable task, long delay) {
+		if (!FOLIA) return MagicSpells.scheduleDelayedTask(task, delay);
+
+		Handle handle = register(task);
+		handle.task = Bukkit.getGlobalRegionScheduler().runDelayed(MagicSpells.getInstance(), handle::runOnce, Math.max(delay, 1));
+		return handle.id;
+	}
+
+	public static int runGlobalRepeating(Runnable task, long delay, long interval) {
+		if (!FOLIA) return MagicSpells.scheduleRepeatingTask(task, delay, interval);
+
+		Handle handle = register(task);
+		handle.task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(MagicSpells.getInstance(), handle::runRepeating, Math.max(delay, 1), Math.max(interval, 1));
+		return handle.id;
+	}
+
+	/**
+	 * Runs a task on the thread owning the entity. If the entity is removed before the task runs, the task still
+	 * runs once the entity is retired.
+	 * @param entity the entity, or null to run the task globally
+	 */
+	public static int runDelayed(Entity entity, Runnable task, long delay) {
+		if (!FOLIA) return MagicSpells.scheduleDelayedTask(task, delay);
+		if (entity == null) return runGlobal(task, delay);
+
+		Handle handle = register(task);
+		ScheduledTask scheduled = entity.getScheduler().runDelayed(MagicSpells.getInstance(), handle::runOnce, handle::runOnce, Math.max(delay, 1));
+		if (scheduled == null) {
+			tasks.remove(handle.id);
+			return runGlobal(task, delay);
+		}
+
+		handle.task = scheduled;
+		return handle.id;
+	}
+
+	/**
+	 * Runs a task repeatedly on the thread owning the entity, until it is cancelled or the entity is removed.
+	 * @param entity the entity, or null to run the task globally
+	 */
+	public static int runRepeating(Entity entity, Runnable task, long delay, long interval) {
+		if (!FOLIA) return MagicSpells.scheduleRepeatingTask(task, delay, interval);
+		if (entity == null) return runGlobalRepeating(task, delay, interval);
+
+		Handle handle = register(task);
+		ScheduledTask scheduled = entity.getScheduler().runAtFixedRate(MagicSpells.getInstance(), handle::runRepeating, handle::retire, Math.max(delay, 1), Math.max(interval, 1));
+		if (scheduled == null) {
+			tasks.remove(handle.id);
+			return -1;
+		}
+
+		handle.task = scheduled;
+		return handle.id;
+	}
+
+	/**
+	 * Runs a task on the thread owning the location.
+	 * @param location the location, or null to run the task globally
+	 */
+	public static int runDelayed(Location location, Runnable task, long delay) {
+		if (!FOLIA) return MagicSpells.scheduleDelayedTask(task, delay);
+		if (location == null || location.getWorld() == null) return runGlobal(task, delay);
+
+		Handle handle = register(task);
+		handle.task = Bukkit.getRegionScheduler().runDelayed(MagicSpells.getInstance(), location, handle::runOnce, Math.max(delay, 1));
+		return handle.id;
+	}
+
+	/**
+	 * Runs a task repeatedly on the thread owning the location.
+	 * @param location the location, or null to run the task globally
+	 */
+	public static int runRepeating(Location location, Runnable task, long delay, long interval) {
+		if (!FOLIA) return MagicSpells.scheduleRepeatingTask(task, delay, interval);
+		if (location == null || location.getWorld() == null) return runGlobalRepeating(task, delay, interval);
+
+		Handle handle = register(task);
+		handle.task = Bukkit.getRegionScheduler().runAtFixedRate(MagicSpells.getInstance(), location, handle::runRepeating, Math.max(delay, 1), Math.max(interval, 1));
+		return handle.id;
+	}
+
+	/**
+	 * Runs a task repeatedly on the thread owning a moving location, looking the location up again before every
+	 * step. Only used on Folia, as other servers step such tasks from a shared loop.
+	 * @param location the current location, or null to run the task globally
+	 */
+	public static int runFollowing(Supplier<Location> location, Runnable task, long delay, long interval) {
+		Handle handle = register(task);
+		scheduleFollowing(handle, location, Math.max(delay, 1), Math.max(interval, 1));
+		return handle.id;
+	}
+
+	private static void scheduleFollowing(Handle handle, Supplier<Location> location, long delay, long interval) {
+		if (handle.cancelled) return;
+
+		Consumer<ScheduledTask> step = scheduled -> {
+			if (handle.cancelled) return;
+			handle.run();
+			scheduleFollowing(handle, location, interval, interval);
+		};
+
+		Location current = location.get();
+		if (current == null || current.getWorld() == null) handle.task = Bukkit.getGlobalRegionScheduler().runDelayed(MagicSpells.getInstance(), step, delay);
+		else handle.task = Bukkit.getRegionScheduler().runDelayed(MagicSpells.getInstance(), current, step, delay);
+	}
+
+	/**
+	 * @return whether the id belonged to a task of the dispatcher
+	 */
+	public static boolean cancel(int id) {
+		Handle handle = tasks.remove(id);
+		if (handle == null) return false;
+
+		handle.cancelled = true;
+		ScheduledTask task = handle.task;
+		if (task != null) task.cancel();
+		return true;
+	}
+
+	/**
+	 * @return the number of pending or repeating tasks
+	 */
+	public static int size() {
+		return tasks.size();
+	}
+
+	public static void cancelAll() {
+		for (int id : tasks.keySet()) cancel(id);
+	}
+
+	private static Handle register(Runnable task) {
+		int id = nextId.getAndUpdate(current -> current == LAST_ID ? FIRST_ID : current + 1);
+		Handle handle = new Handle(id, task);
+		tasks.put(id, handle);
+		return handle;
+	}
+
+	private static boolean hasClass(String name) {
+		try {
+			Class.forName(name);
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static class Handle {
+
+		private final int id;
+		private final Runnable runnable;
+
+		private volatile ScheduledTask task;
+		private volatile boolean cancelled;
+
+		private Handle(int id, Runnable runnable) {
+			this.id = id;
+			this.runnable = runnable;
+		}
+
+		private void run() {
+			try {
+				runnable.run();
+			} catch (Exception e) {
+				MagicSpells.handleException(e);
+			}
+		}
+
+		private void runOnce() {
+			if (cancelled || tasks.remove(id) == null) return;
+			run();
+		}
+
+		private void runOnce(ScheduledTask scheduled) {
+			runOnce();
+		}
+
+		private void runRepeating(ScheduledTask scheduled) {
+			if (!cancelled) run();
+		}
+
+		private void retire() {
+			cancelled = true;
+			tasks.remove(id);
+		}
+
+	}
+
+}
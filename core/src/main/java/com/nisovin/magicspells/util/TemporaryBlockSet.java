@@ -93,9 +93,11 @@ public class TemporaryBlockSet implements Runnable {
 	}
 	
 	public void remove() {
+		BlockBatcher batcher = new BlockBatcher();
 		for (Block block : blocks) {
-			if (replaceMaterials.contains(block.getType())) block.setType(original);
+			if (replaceMaterials.contains(block.getType())) batcher.set(block, original, true);
 		}
+		batcher.apply();
 		livingEntity = null;
 	}
 	
@@ -4,6 +4,7 @@ public class TimeUtil {
 	
 	public static final int TICKS_PER_SECOND = 20;
 	public static final long MILLISECONDS_PER_SECOND = 1000;
+	public static final long MILLISECONDS_PER_TICK = MILLISECONDS_PER_SECOND / TICKS_PER_SECOND;
 	public static final long SECONDS_PER_MINUTE = 60;
 	public static final long MINUTES_PER_HOUR = 60;
 	public static final long MILLISECONDS_PER_MINUTE = MILLISECONDS_PER_SECOND * SECONDS_PER_MINUTE;
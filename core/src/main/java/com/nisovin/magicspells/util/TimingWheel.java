@@ -0,0 +1,185 @@
+package com.nisovin.magicspells.util;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.Bukkit;
+
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
+
+/**
+ * Hashed timing wheel for delayed tasks, driven by a single repeating scheduler task.
+ * <p>
+ * A task is appended to the slot of the tick it is due on, modulo the wheel size, and every tick the tasks of the
+ * current slot that are due are run in the order they were scheduled. Tasks due more than one revolution ahead
+ * stay in their slot until then. Cancelling only marks the task, which is then dropped when its slot is visited.
+ * <p>
+ * The wheel itself is only touched from the main thread. Tasks scheduled or cancelled from other threads, such as
+ * by async chat listeners, are put in a concurrent inbox instead, which every tick drains before advancing, in the
+ * order the calls were made.
+ * <p>
+ * Ids start at {@link #FIRST_ID}, above the ids handed out by the Bukkit scheduler, so both kinds of task can be
+ * cancelled through {@link MagicSpells#cancelTask(int)}.
+ */
+public class TimingWheel {
+
+	public static final int FIRST_ID = 1 << 30;
+
+	private static final int WHEEL_SIZE = 512;
+	private static final int MASK = WHEEL_SIZE - 1;
+
+	private final Node[] heads = new Node[WHEEL_SIZE];
+	private final Node[] tails = new Node[WHEEL_SIZE];
+	private final Map<Integer, Node> pending = new HashMap<>();
+	private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextId = new AtomicInteger(FIRST_ID);
+
+	private final Profiler profiler;
+	private final ProfileSection section;
+
+	private int taskId = -1;
+	private long lastTick;
+
+	public TimingWheel(Profiler profiler) {
+		this.profiler = profiler;
+		section = profiler.getSection(ProfileCategory.TASK, "DelayedTasks");
+	}
+
+	public void initialize() {
+		lastTick = Bukkit.getCurrentTick();
+		taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(MagicSpells.getInstance(), this::tick, 1, 1);
+	}
+
+	public void disable() {
+		if (taskId != -1) Bukkit.getScheduler().cancelTask(taskId);
+		taskId = -1;
+
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			heads[i] = null;
+			tails[i] = null;
+		}
+		pending.clear();
+		inbox.clear();
+	}
+
+	/**
+	 * Runs the task after the given number of ticks, at least one, like
+	 * {@link org.bukkit.scheduler.BukkitScheduler#scheduleSyncDelayedTask(org.bukkit.plugin.Plugin, Runnable, long)}.
+	 * @return the id to cancel the task with
+	 */
+	public int schedule(Runnable task, long delay) {
+		int id = nextId.getAndUpdate(next -> next == Integer.MAX_VALUE ? FIRST_ID : next + 1);
+
+		if (!Bukkit.isPrimaryThread()) {
+			// Counted from the last tick the wheel advanced to, as if scheduled from the main thread in between.
+			inbox.add(() -> insert(id, task, lastTick + Math.max(delay, 1)));
+			return id;
+		}
+
+		insert(id, task, Math.max(Bukkit.getCurrentTick(), lastTick) + Math.max(delay, 1));
+		return id;
+	}
+
+	/**
+	 * @return whether the id belonged to a pending task of the wheel, always true off the main thread, where the
+	 * task is only cancelled once the inbox is drained
+	 */
+	public boolean cancel(int id) {
+		if (!Bukkit.isPrimaryThread()) {
+			inbox.add(() -> cancel(id));
+			return true;
+		}
+
+		Node node = pending.remove(id);
+		if (node == null) return false;
+
+		node.task = null;
+		return true;
+	}
+
+	/**
+	 * @return the number of pending tasks
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+	private void insert(int id, Runnable task, long deadline) {
+		Node node = new Node(id, task, deadline);
+		append((int) (deadline & MASK), node);
+		pending.put(id, node);
+	}
+
+	private void append(int slot, Node node) {
+		node.next = null;
+		if (tails[slot] == null) heads[slot] = node;
+		else tails[slot].next = node;
+		tails[slot] = node;
+	}
+
+	private void tick() {
+		long currentTick = Bukkit.getCurrentTick();
+
+		long start = profiler.start();
+
+		Runnable change;
+		while ((change = inbox.poll()) != null) change.run();
+
+		// Catch up on ticks the scheduler skipped, without going round the wheel more than once.
+		for (long tick = Math.max(lastTick + 1, currentTick - MASK); tick <= currentTick; tick++) process(tick, currentTick);
+		lastTick = currentTick;
+		profiler.stop(section, start);
+	}
+
+	private void process(long tick, long currentTick) {
+		int slot = (int) (tick & MASK);
+
+		// Detach the slot, so tasks scheduled while running are appended to a fresh list.
+		Node node = heads[slot];
+		heads[slot] = null;
+		tails[slot] = null;
+
+		while (node != null) {
+			Node next = node.next;
+			Runnable task = node.task;
+
+			// Cancelled tasks are dropped here.
+			if (task != null) {
+				if (node.deadline > currentTick) append(slot, node);
+				else {
+					pending.remove(node.id);
+					node.task = null;
+					try {
+						task.run();
+					} catch (Exception e) {
+						MagicSpells.handleException(e);
+					}
+				}
+			}
+
+			node = next;
+		}
+	}
+
+	private static class Node {
+
+		private final int id;
+		private final long deadline;
+		private Runnable task;
+		private Node next;
+
+		private Node(int id, Runnable task, long deadline) {
+			this.id = id;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+	}
+
+}
@@ -0,0 +1,550 @@
+package com.nisovin.magicspells.util.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.concurrent.ThreadLocalRandom;
+
+import de.slikey.exp4j.function.Function;
+
+import com.nisovin.magicspells.util.SpellData;
+
+/**
+ * Compiles the expressions of {@link FunctionData} into a tree of evaluators.
+ * <p>
+ * Evaluation works on primitive doubles and holds no mutable state, so a compiled expression can be evaluated
+ * concurrently. Subexpressions without placeholders, <code>power</code> or random functions are folded into
+ * constants while compiling. The grammar follows exp4j: <code>+ - * / % ^</code> with unary signs, implicit
+ * multiplication, the exp4j built-in functions and constants, and {@link CustomFunctions}. Expressions using
+ * anything else are not compiled, and are left to exp4j.
+ */
+public class ExpressionCompiler {
+
+	private static final Map<String, DoubleUnaryOperator> UNARY_FUNCTIONS = new HashMap<>();
+	private static final Map<String, DoubleBinaryOperator> BINARY_FUNCTIONS = new HashMap<>();
+	private static final Map<String, Double> CONSTANTS = Map.of(
+		"pi", Math.PI,
+		"\u03C0", Math.PI,
+		"e", Math.E,
+		"\u03C6", 1.61803398874d
+	);
+
+	static {
+		UNARY_FUNCTIONS.put("sin", Math::sin);
+		UNARY_FUNCTIONS.put("cos", Math::cos);
+		UNARY_FUNCTIONS.put("tan", Math::tan);
+		UNARY_FUNCTIONS.put("cot", value -> {
+			double tan = Math.tan(value);
+			if (tan == 0d) throw new ArithmeticException("Division by zero in cotangent!");
+			return 1d / tan;
+		});
+		UNARY_FUNCTIONS.put("log", Math::log);
+		UNARY_FUNCTIONS.put("log2", value -> Math.log(value) / Math.log(2d));
+		UNARY_FUNCTIONS.put("log10", Math::log10);
+		UNARY_FUNCTIONS.put("log1p", Math::log1p);
+		UNARY_FUNCTIONS.put("abs", Math::abs);
+		UNARY_FUNCTIONS.put("acos", Math::acos);
+		UNARY_FUNCTIONS.put("asin", Math::asin);
+		UNARY_FUNCTIONS.put("atan", Math::atan);
+		UNARY_FUNCTIONS.put("cbrt", Math::cbrt);
+		UNARY_FUNCTIONS.put("ceil", Math::ceil);
+		UNARY_FUNCTIONS.put("floor", Math::floor);
+		UNARY_FUNCTIONS.put("sinh", Math::sinh);
+		UNARY_FUNCTIONS.put("cosh", Math::cosh);
+		UNARY_FUNCTIONS.put("tanh", Math::tanh);
+		UNARY_FUNCTIONS.put("sqrt", Math::sqrt);
+		UNARY_FUNCTIONS.put("exp", Math::exp);
+		UNARY_FUNCTIONS.put("expm1", Math::expm1);
+		UNARY_FUNCTIONS.put("signum", Math::signum);
+		UNARY_FUNCTIONS.put("toradian", Math::toRadians);
+		UNARY_FUNCTIONS.put("todegree", Math::toDegrees);
+
+		BINARY_FUNCTIONS.put("pow", Math::pow);
+		BINARY_FUNCTIONS.put("min", Math::min);
+		BINARY_FUNCTIONS.put("max", Math::max);
+	}
+
+	private final String expression;
+	private final Map<String, ConfigData<Double>> variables;
+	private final Map<String, Function> customFunctions = new HashMap<>();
+
+	private int position;
+
+	private ExpressionCompiler(String expression, Map<String, ConfigData<Double>> variables) {
+		this.expression = expression;
+		this.variables = variables;
+
+		for (Function function : CustomFunctions.getFunctions())
+			customFunctions.put(function.getName(), function);
+	}
+
+	/**
+	 * @param expression the expression, with its placeholders already replaced by variable names
+	 * @param variables the placeholder data of each variable name
+	 * @return the compiled expression, or null if it uses syntax not supported by the compiler
+	 */
+	@Nullable
+	public static Node compile(@NotNull String expression, @NotNull Map<String, ConfigData<Double>> variables) {
+		ExpressionCompiler compiler = new ExpressionCompiler(expression, variables);
+		try {
+			Node node = compiler.parseExpression();
+			compiler.skipWhitespace();
+			if (node == null || compiler.position < expression.length()) return null;
+
+			return node;
+		} catch (CompileException e) {
+			return null;
+		}
+	}
+
+	private Node parseExpression() {
+		Node node = parseTerm();
+		while (true) {
+			skipWhitespace();
+			if (accept('+')) node = binary(node, parseTerm(), Operator.ADD);
+			else if (accept('-')) node = binary(node, parseTerm(), Operator.SUBTRACT);
+			else return node;
+		}
+	}
+
+	private Node parseTerm() {
+		Node node = parseUnary();
+		while (true) {
+			skipWhitespace();
+			if (accept('*')) node = binary(node, parseUnary(), Operator.MULTIPLY);
+			else if (accept('/')) node = binary(node, parseUnary(), Operator.DIVIDE);
+			else if (accept('%')) node = binary(node, parseUnary(), Operator.MODULO);
+			else if (startsOperand()) node = binary(node, parsePower(), Operator.MULTIPLY);
+			else return node;
+		}
+	}
+
+	private Node parseUnary() {
+		skipWhitespace();
+		if (accept('-')) {
+			Node operand = parseUnary();
+			if (operand instanceof Constant constant) return new Constant(-constant.value);
+			return new Negate(operand);
+		}
+		if (accept('+')) return parseUnary();
+		return parsePower();
+	}
+
+	private Node parsePower() {
+		Node node = parsePrimary();
+		skipWhitespace();
+		// Right associative, and the exponent may carry its own sign.
+		if (accept('^')) node = binary(node, parseUnary(), Operator.POWER);
+		return node;
+	}
+
+	private Node parsePrimary() {
+		skipWhitespace();
+		if (position >= expression.length()) throw new CompileException();
+
+		char c = expression.charAt(position);
+		if (c == '(') {
+			position++;
+			Node node = parseExpression();
+			skipWhitespace();
+			if (!accept(')')) throw new CompileException();
+			return node;
+		}
+
+		if (isNumberStart(c)) return new Constant(parseNumber());
+		if (isNameStart(c)) return parseName();
+
+		throw new CompileException();
+	}
+
+	private Node parseName() {
+		int start = position;
+		while (position < expression.length() && isNamePart(expression.charAt(position))) position++;
+		String name = expression.substring(start, position);
+
+		int afterName = position;
+		skipWhitespace();
+		if (accept('(')) return parseFunction(name, parseArguments());
+		position = afterName;
+
+		if (name.equals("power")) return PowerNode.INSTANCE;
+
+		ConfigData<Double> data = variables.get(name);
+		if (data != null) {
+			if (data.isConstant()) {
+				Double value = data.get(SpellData.NULL);
+				if (value != null) return new Constant(value);
+			}
+			return data instanceof DoubleData doubleData ? new DoublePlaceholder(doubleData) : new Placeholder(data);
+		}
+
+		Double constant = CONSTANTS.get(name);
+		if (constant != null) return new Constant(constant);
+
+		throw new CompileException();
+	}
+
+	private List<Node> parseArguments() {
+		List<Node> arguments = new ArrayList<>();
+
+		skipWhitespace();
+		if (accept(')')) return arguments;
+
+		do {
+			arguments.add(parseExpression());
+			skipWhitespace();
+		} while (accept(','));
+
+		if (!accept(')')) throw new CompileException();
+		return arguments;
+	}
+
+	private Node parseFunction(String name, List<Node> arguments) {
+		Function custom = customFunctions.get(name);
+		if (custom != null) {
+			if (arguments.size() != custom.getNumArguments()) throw new CompileException();
+
+			// The custom functions are compiled directly, so they neither allocate argument arrays nor contend on a shared Random.
+			switch (name) {
+				case "rand" -> {
+					return new Rand(arguments.get(0), arguments.get(1));
+				}
+				case "prob" -> {
+					return new Prob(arguments.get(0), arguments.get(1), arguments.get(2));
+				}
+				case "select" -> {
+					return fold(new Select(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3)));
+				}
+				case "min", "max" -> {
+					return fold(new BinaryFunction(arguments.get(0), arguments.get(1), BINARY_FUNCTIONS.get(name)));
+				}
+				default -> {
+					return new CustomFunction(custom, arguments.toArray(new Node[0]));
+				}
+			}
+		}
+
+		DoubleUnaryOperator unary = UNARY_FUNCTIONS.get(name);
+		if (unary != null) {
+			if (arguments.size() != 1) throw new CompileException();
+			return fold(new UnaryFunction(arguments.get(0), unary));
+		}
+
+		DoubleBinaryOperator binary = BINARY_FUNCTIONS.get(name);
+		if (binary != null) {
+			if (arguments.size() != 2) throw new CompileException();
+			return fold(new BinaryFunction(arguments.get(0), arguments.get(1), binary));
+		}
+
+		throw new CompileException();
+	}
+
+	private double parseNumber() {
+		int start = position;
+		while (position < expression.length()) {
+			char c = expression.charAt(position);
+			if (Character.isDigit(c) || c == '.') {
+				position++;
+				continue;
+			}
+
+			// Scientific notation, but only if an exponent follows; otherwise 'e' is Euler's number.
+			if ((c == 'e' || c == 'E') && hasExponent(position + 1)) {
+				position++;
+				if (expression.charAt(position) == '+' || expression.charAt(position) == '-') position++;
+				while (position < expression.length() && Character.isDigit(expression.charAt(position))) position++;
+			}
+			break;
+		}
+
+		try {
+			return Double.parseDouble(expression.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw new CompileException();
+		}
+	}
+
+	private boolean hasExponent(int index) {
+		if (index < expression.length() && (expression.charAt(index) == '+' || expression.charAt(index) == '-')) index++;
+		return index < expression.length() && Character.isDigit(expression.charAt(index));
+	}
+
+	private boolean startsOperand() {
+		if (position >= expression.length()) return false;
+
+		char c = expression.charAt(position);
+		return c == '(' || isNumberStart(c) || isNameStart(c);
+	}
+
+	private boolean accept(char c) {
+		if (position < expression.length() && expression.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) position++;
+	}
+
+	private static boolean isNumberStart(char c) {
+		return Character.isDigit(c) || c == '.';
+	}
+
+	private static boolean isNameStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static boolean isNamePart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static Node binary(Node left, Node right, Operator operator) {
+		return fold(new Binary(left, right, operator));
+	}
+
+	/**
+	 * Replaces a node whose operands are all constant by its value. Nodes that fail to evaluate, such as a
+	 * division by zero, are kept, so the error surfaces on evaluation like it would with exp4j.
+	 */
+	private static Node fold(Node node) {
+		if (!node.isConstant()) return node;
+
+		try {
+			return new Constant(node.evaluate(SpellData.NULL));
+		} catch (ArithmeticException e) {
+			return new Unfoldable(node);
+		}
+	}
+
+	/**
+	 * A compiled expression, or part of one.
+	 */
+	public interface Node {
+
+		double evaluate(@NotNull SpellData data);
+
+		/**
+		 * @return whether this node always evaluates to the same value
+		 */
+		default boolean isConstant() {
+			return false;
+		}
+
+	}
+
+	private enum Operator {
+
+		ADD,
+		SUBTRACT,
+		MULTIPLY,
+		DIVIDE,
+		MODULO,
+		POWER
+
+	}
+
+	private record Constant(double value) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return value;
+		}
+
+		@Override
+		public boolean isConstant() {
+			return true;
+		}
+
+	}
+
+	private record Unfoldable(Node node) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return node.evaluate(data);
+		}
+
+	}
+
+	private enum PowerNode implements Node {
+
+		INSTANCE;
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return data.power();
+		}
+
+	}
+
+	private record Placeholder(ConfigData<Double> data) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return this.data.get(data);
+		}
+
+	}
+
+	private record DoublePlaceholder(DoubleData data) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return this.data.getDouble(data);
+		}
+
+	}
+
+	/**
+	 * A placeholder that can be read as a primitive double, so compiled expressions do not box its value.
+	 */
+	public interface DoubleData extends ConfigData<Double> {
+
+		double getDouble(@NotNull SpellData data);
+
+		@Override
+		default Double get(@NotNull SpellData data) {
+			return getDouble(data);
+		}
+
+	}
+
+	private record Negate(Node operand) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return -operand.evaluate(data);
+		}
+
+	}
+
+	private record Binary(Node left, Node right, Operator operator) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			double a = left.evaluate(data);
+			double b = right.evaluate(data);
+
+			return switch (operator) {
+				case ADD -> a + b;
+				case SUBTRACT -> a - b;
+				case MULTIPLY -> a * b;
+				case DIVIDE -> {
+					if (b == 0d) throw new ArithmeticException("Division by zero!");
+					yield a / b;
+				}
+				case MODULO -> {
+					if (b == 0d) throw new ArithmeticException("Division by zero!");
+					yield a % b;
+				}
+				case POWER -> Math.pow(a, b);
+			};
+		}
+
+		@Override
+		public boolean isConstant() {
+			return left.isConstant() && right.isConstant();
+		}
+
+	}
+
+	private record UnaryFunction(Node argument, DoubleUnaryOperator function) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return function.applyAsDouble(argument.evaluate(data));
+		}
+
+		@Override
+		public boolean isConstant() {
+			return argument.isConstant();
+		}
+
+	}
+
+	private record BinaryFunction(Node first, Node second, DoubleBinaryOperator function) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			return function.applyAsDouble(first.evaluate(data), second.evaluate(data));
+		}
+
+		@Override
+		public boolean isConstant() {
+			return first.isConstant() && second.isConstant();
+		}
+
+	}
+
+	private record Select(Node value, Node negative, Node zero, Node positive) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			double v = value.evaluate(data);
+			double n = negative.evaluate(data);
+			double z = zero.evaluate(data);
+			double p = positive.evaluate(data);
+
+			if (v < 0) return n;
+			if (v == 0) return z;
+			return p;
+		}
+
+		@Override
+		public boolean isConstant() {
+			return value.isConstant() && negative.isConstant() && zero.isConstant() && positive.isConstant();
+		}
+
+	}
+
+	private record Rand(Node min, Node max) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			double a = min.evaluate(data);
+			double b = max.evaluate(data);
+			return ThreadLocalRandom.current().nextDouble() * (b - a) + a;
+		}
+
+	}
+
+	private record Prob(Node chance, Node success, Node failure) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			double c = chance.evaluate(data);
+			double s = success.evaluate(data);
+			double f = failure.evaluate(data);
+			return ThreadLocalRandom.current().nextDouble() < c ? s : f;
+		}
+
+	}
+
+	private record CustomFunction(Function function, Node[] arguments) implements Node {
+
+		@Override
+		public double evaluate(@NotNull SpellData data) {
+			double[] values = new double[arguments.length];
+			for (int i = 0; i < arguments.length; i++) values[i] = arguments[i].evaluate(data);
+			return function.apply(values);
+		}
+
+	}
+
+	private static class CompileException extends RuntimeException {
+
+		private CompileException() {
+			super(null, null, false, false);
+		}
+
+	}
+
+}
@@ -15,8 +15,7 @@ import de.slikey.exp4j.ExpressionBuilder;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-
-import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.entity.LivingEntity;
 
 import org.apache.commons.numbers.core.Precision;
 
@@ -24,9 +23,9 @@ import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.RegexUtil;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.variables.Variable;
-import com.nisovin.magicspells.variables.variabletypes.GlobalVariable;
-import com.nisovin.magicspells.variables.variabletypes.GlobalStringVariable;
-import com.nisovin.magicspells.variables.variabletypes.PlayerStringVariable;
+import com.nisovin.magicspells.variables.VariableRef;
+import com.nisovin.magicspells.variables.VariableStore;
+import com.nisovin.magicspells.util.managers.VariableManager;
 
 public class FunctionData<T extends Number> implements ConfigData<T> {
 
@@ -39,33 +38,34 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 		")%", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
 
 	private final Map<String, ConfigData<Double>> variables;
+	private final ExpressionCompiler.Node compiled;
 	private final Function<Double, T> converter;
 	private final Expression expression;
 	private final ConfigData<T> dataDef;
+	private final T constant;
 	private final T def;
 
 	public FunctionData(@NotNull Expression expression, @NotNull Map<String, ConfigData<Double>> variables, @NotNull Function<Double, T> converter) {
-		this.expression = expression;
-		this.variables = variables;
-		this.converter = converter;
-		this.dataDef = null;
-		this.def = null;
+		this(expression, variables, null, converter, null, null);
 	}
 
 	public FunctionData(@NotNull Expression expression, @NotNull Map<String, ConfigData<Double>> variables, @NotNull Function<Double, T> converter, @NotNull T def) {
-		this.expression = expression;
-		this.variables = variables;
-		this.converter = converter;
-		this.dataDef = null;
-		this.def = def;
+		this(expression, variables, null, converter, null, def);
 	}
 
 	public FunctionData(@NotNull Expression expression, @NotNull Map<String, ConfigData<Double>> variables, @NotNull Function<Double, T> converter, @NotNull ConfigData<T> def) {
+		this(expression, variables, null, converter, def, null);
+	}
+
+	private FunctionData(@NotNull Expression expression, @NotNull Map<String, ConfigData<Double>> variables, @Nullable ExpressionCompiler.Node compiled, @NotNull Function<Double, T> converter, @Nullable ConfigData<T> dataDef, @Nullable T def) {
 		this.expression = expression;
 		this.variables = variables;
+		this.compiled = compiled;
 		this.converter = converter;
-		this.dataDef = def;
-		this.def = null;
+		this.dataDef = dataDef;
+		this.def = def;
+
+		constant = compiled != null && compiled.isConstant() ? converter.apply(compiled.evaluate(SpellData.NULL)) : null;
 	}
 
 	@Nullable
@@ -75,12 +75,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	@Nullable
 	public static <T extends Number> FunctionData<T> build(@Nullable String expressionString, @NotNull Function<Double, T> converter, boolean silent) {
-		Map<String, ConfigData<Double>> variables = new HashMap<>();
-
-		Expression expression = buildExpression(expressionString, variables, silent);
-		if (expression == null) return null;
-
-		return new FunctionData<>(expression, variables, converter);
+		return build(expressionString, converter, null, null, silent);
 	}
 
 	@Nullable
@@ -90,12 +85,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	@Nullable
 	public static <T extends Number> FunctionData<T> build(@Nullable String expressionString, @NotNull Function<Double, T> converter, @NotNull T def, boolean silent) {
-		Map<String, ConfigData<Double>> variables = new HashMap<>();
-
-		Expression expression = buildExpression(expressionString, variables, silent);
-		if (expression == null) return null;
-
-		return new FunctionData<>(expression, variables, converter, def);
+		return build(expressionString, converter, null, def, silent);
 	}
 
 	@Nullable
@@ -105,18 +95,31 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	@Nullable
 	public static <T extends Number> FunctionData<T> build(@Nullable String expressionString, @NotNull Function<Double, T> converter, @NotNull ConfigData<T> def, boolean silent) {
+		return build(expressionString, converter, def, null, silent);
+	}
+
+	@Nullable
+	private static <T extends Number> FunctionData<T> build(@Nullable String expressionString, @NotNull Function<Double, T> converter, @Nullable ConfigData<T> dataDef, @Nullable T def, boolean silent) {
+		if (expressionString == null || expressionString.isEmpty()) return null;
+
 		Map<String, ConfigData<Double>> variables = new HashMap<>();
+		String replaced = replacePlaceholders(expressionString, variables);
 
-		Expression expression = buildExpression(expressionString, variables, silent);
+		Expression expression = buildExpression(expressionString, replaced, variables, silent);
 		if (expression == null) return null;
 
-		return new FunctionData<>(expression, variables, converter, def);
+		// Validated by exp4j first, so both accept the same expressions.
+		ExpressionCompiler.Node compiled = ExpressionCompiler.compile(replaced, variables);
+		return new FunctionData<>(expression, variables, compiled, converter, dataDef, def);
 	}
 
 	@Nullable
 	public static Expression buildExpression(@Nullable String expressionString, @NotNull Map<String, ConfigData<Double>> variables, boolean silent) {
 		if (expressionString == null || expressionString.isEmpty()) return null;
+		return buildExpression(expressionString, replacePlaceholders(expressionString, variables), variables, silent);
+	}
 
+	private static String replacePlaceholders(String expressionString, Map<String, ConfigData<Double>> variables) {
 		Matcher matcher = PLACEHOLDER_PATTERN.matcher(expressionString);
 		StringBuilder builder = new StringBuilder();
 		int count = 0;
@@ -132,9 +135,14 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 		}
 		matcher.appendTail(builder);
 
+		return builder.toString();
+	}
+
+	@Nullable
+	private static Expression buildExpression(String expressionString, String replaced, Map<String, ConfigData<Double>> variables, boolean silent) {
 		Expression expression;
 		try {
-			expression = new ExpressionBuilder(builder.toString())
+			expression = new ExpressionBuilder(replaced)
 				.functions(CustomFunctions.getFunctions())
 				.variables(variables.keySet())
 				.variable("power")
@@ -234,21 +242,34 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	@Override
 	public T get(@NotNull SpellData data) {
-		for (Map.Entry<String, ConfigData<Double>> entry : variables.entrySet())
-			expression.setVariable(entry.getKey(), entry.getValue().get(data));
+		if (constant != null) return constant;
 
-		expression.setVariable("power", data.power());
+		if (compiled != null) {
+			try {
+				return converter.apply(compiled.evaluate(data));
+			} catch (Exception e) {
+				return dataDef != null ? dataDef.get(data) : def;
+			}
+		}
 
-		try {
-			return converter.apply(expression.evaluate());
-		} catch (Exception e) {
-			return dataDef != null ? dataDef.get(data) : def;
+		// Expressions the compiler does not support share one mutable exp4j expression.
+		synchronized (expression) {
+			for (Map.Entry<String, ConfigData<Double>> entry : variables.entrySet())
+				expression.setVariable(entry.getKey(), entry.getValue().get(data));
+
+			expression.setVariable("power", data.power());
+
+			try {
+				return converter.apply(expression.evaluate());
+			} catch (Exception e) {
+				return dataDef != null ? dataDef.get(data) : def;
+			}
 		}
 	}
 
 	@Override
 	public boolean isConstant() {
-		return false;
+		return constant != null;
 	}
 
 	public static class ArgumentData implements ConfigData<Double> {
@@ -287,33 +308,39 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	}
 
-	public static class DefaultVariableData implements ConfigData<Double> {
+	private static abstract class VariableData implements ExpressionCompiler.DoubleData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final int places;
 
-		public DefaultVariableData(String variable, int places) {
-			this.variable = variable;
+		private VariableData(String variable, int places) {
+			this.variable = new VariableRef(variable);
 			this.places = places;
 		}
 
+		protected abstract LivingEntity getEntity(@NotNull SpellData data);
+
 		@Override
-		public Double get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return 0d;
+		public double getDouble(@NotNull SpellData data) {
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return 0;
 
-			String player = data.recipient() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
-				return 0d;
+			Player player = getEntity(data) instanceof Player p ? p : null;
+			if (player == null && !binding.isGlobal()) return 0;
 
 			double value;
-			if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable) {
+			int slot = binding.getSlot();
+			if (slot >= 0) {
+				Variable var = binding.getVariable();
+				VariableStore.Row row = VariableManager.getStore().getRow(player);
+				value = row == null ? var.getDefaultValue() : row.getNumber(slot, var.getDefaultValue());
+			} else {
 				try {
-					value = Double.parseDouble(var.getStringValue(player));
+					value = getValue(binding, player == null ? null : player.getName());
 				} catch (NumberFormatException e) {
-					return 0d;
+					return 0;
 				}
-			} else value = var.getValue(player);
+			}
 
 			return places >= 0 ? Precision.round(value, places) : value;
 		}
@@ -325,107 +352,68 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	}
 
-	public static class CasterVariableData implements ConfigData<Double> {
-
-		private final String variable;
-		private final int places;
+	public static class DefaultVariableData extends VariableData {
 
-		public CasterVariableData(String variable, int places) {
-			this.variable = variable;
-			this.places = places;
+		public DefaultVariableData(String variable, int places) {
+			super(variable, places);
 		}
 
 		@Override
-		public Double get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return 0d;
+		protected LivingEntity getEntity(@NotNull SpellData data) {
+			return data.recipient();
+		}
 
-			String player = data.caster() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
-				return 0d;
+	}
 
-			double value;
-			if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable) {
-				try {
-					value = Double.parseDouble(var.getStringValue(player));
-				} catch (NumberFormatException e) {
-					return 0d;
-				}
-			} else value = var.getValue(player);
+	public static class CasterVariableData extends VariableData {
 
-			return places >= 0 ? Precision.round(value, places) : value;
+		public CasterVariableData(String variable, int places) {
+			super(variable, places);
 		}
 
 		@Override
-		public boolean isConstant() {
-			return false;
+		protected LivingEntity getEntity(@NotNull SpellData data) {
+			return data.caster();
 		}
 
 	}
 
-	public static class TargetVariableData implements ConfigData<Double> {
-
-		private final String variable;
-		private final int places;
+	public static class TargetVariableData extends VariableData {
 
 		public TargetVariableData(String variable, int places) {
-			this.variable = variable;
-			this.places = places;
+			super(variable, places);
 		}
 
 		@Override
-		public Double get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return 0d;
-
-			String player = data.target() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
-				return 0d;
-
-			double value;
-			if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable) {
-				try {
-					value = Double.parseDouble(var.getStringValue(player));
-				} catch (NumberFormatException e) {
-					return 0d;
-				}
-			} else value = var.getValue(player);
-
-			return places >= 0 ? Precision.round(value, places) : value;
-		}
-
-		@Override
-		public boolean isConstant() {
-			return false;
+		protected LivingEntity getEntity(@NotNull SpellData data) {
+			return data.target();
 		}
 
 	}
 
-	public static class PlayerVariableData implements ConfigData<Double> {
+	public static class PlayerVariableData implements ExpressionCompiler.DoubleData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final String player;
 		private final int places;
 
 		public PlayerVariableData(String variable, String player, int places) {
-			this.variable = variable;
+			this.variable = new VariableRef(variable);
 			this.player = player;
 			this.places = places;
 		}
 
 		@Override
-		public Double get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return 0d;
+		public double getDouble(@NotNull SpellData data) {
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return 0;
 
 			double value;
-			if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable) {
-				try {
-					value = Double.parseDouble(var.getStringValue(player));
-				} catch (NumberFormatException e) {
-					return 0d;
-				}
-			} else value = var.getValue(player);
+			try {
+				value = getValue(binding, player);
+			} catch (NumberFormatException e) {
+				return 0;
+			}
 
 			return places >= 0 ? Precision.round(value, places) : value;
 		}
@@ -437,6 +425,12 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 
 	}
 
+	private static double getValue(VariableRef.Binding binding, String player) throws NumberFormatException {
+		Variable var = binding.getVariable();
+		if (binding.isString()) return Double.parseDouble(var.getStringValue(player));
+		return var.getValue(player);
+	}
+
 	public static class DefaultPAPIData implements ConfigData<Double> {
 
 		private final String placeholder;
@@ -449,7 +443,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 		public Double get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return 0d;
 
-			String value = PlaceholderAPI.setPlaceholders(data.recipient() instanceof Player p ? p : null, placeholder);
+			String value = PlaceholderCache.setPlaceholders(data.recipient() instanceof Player p ? p : null, placeholder);
 
 			try {
 				return Double.parseDouble(value);
@@ -478,7 +472,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI"))
 				return 0d;
 
-			String value = PlaceholderAPI.setPlaceholders(data.caster() instanceof Player p ? p : null, placeholder);
+			String value = PlaceholderCache.setPlaceholders(data.caster() instanceof Player p ? p : null, placeholder);
 
 			try {
 				return Double.parseDouble(value);
@@ -507,7 +501,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI"))
 				return 0d;
 
-			String value = PlaceholderAPI.setPlaceholders(data.target() instanceof Player p ? p : null, placeholder);
+			String value = PlaceholderCache.setPlaceholders(data.target() instanceof Player p ? p : null, placeholder);
 
 			try {
 				return Double.parseDouble(value);
@@ -537,7 +531,7 @@ public class FunctionData<T extends Number> implements ConfigData<T> {
 		public Double get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return 0d;
 
-			String value = PlaceholderAPI.setPlaceholders(Bukkit.getOfflinePlayer(player), placeholder);
+			String value = PlaceholderCache.setPlaceholders(player, placeholder);
 
 			try {
 				return Double.parseDouble(value);
@@ -0,0 +1,81 @@
+package com.nisovin.magicspells.util.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+
+/**
+ * Memoizes PlaceholderAPI lookups per placeholder and player for the current tick.
+ * <p>
+ * Busy spells resolve the same placeholders for the same players many times per tick, and each resolution goes
+ * through PlaceholderAPI's expansion lookup. Values are only cached on the main thread, and the whole cache is
+ * dropped once the server moves on to the next tick.
+ */
+public class PlaceholderCache {
+
+	private static final Map<String, Map<Object, String>> values = new HashMap<>();
+	private static int tick = -1;
+
+	/**
+	 * @param player the player to resolve the placeholder for, or null
+	 * @param placeholder the placeholder, including its surrounding <code>%</code>
+	 * @return the resolved placeholder
+	 */
+	@NotNull
+	public static String setPlaceholders(@Nullable OfflinePlayer player, @NotNull String placeholder) {
+		if (!Bukkit.isPrimaryThread()) return PlaceholderAPI.setPlaceholders(player, placeholder);
+
+		Map<Object, String> cache = getCache(placeholder);
+		String value = cache.get(player);
+		if (value == null) {
+			value = PlaceholderAPI.setPlaceholders(player, placeholder);
+			cache.put(player, value);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Resolves a placeholder for a player by name. The offline player is only looked up if the value is not cached.
+	 * @param playerName the name of the player to resolve the placeholder for
+	 * @param placeholder the placeholder, including its surrounding <code>%</code>
+	 * @return the resolved placeholder
+	 */
+	@NotNull
+	public static String setPlaceholders(@NotNull String playerName, @NotNull String placeholder) {
+		if (!Bukkit.isPrimaryThread()) return PlaceholderAPI.setPlaceholders(Bukkit.getOfflinePlayer(playerName), placeholder);
+
+		Map<Object, String> cache = getCache(placeholder);
+		String value = cache.get(playerName);
+		if (value == null) {
+			value = PlaceholderAPI.setPlaceholders(Bukkit.getOfflinePlayer(playerName), placeholder);
+			cache.put(playerName, value);
+		}
+
+		return value;
+	}
+
+	public static void clear() {
+		values.clear();
+		tick = -1;
+	}
+
+	private static Map<Object, String> getCache(String placeholder) {
+		int currentTick = Bukkit.getCurrentTick();
+		if (currentTick != tick) {
+			// Keep the per-placeholder maps, as the same placeholders are likely to be resolved again next tick.
+			for (Map<Object, String> cache : values.values()) cache.clear();
+			tick = currentTick;
+		}
+
+		return values.computeIfAbsent(placeholder, k -> new HashMap<>());
+	}
+
+}
@@ -11,15 +11,11 @@ import java.util.regex.Pattern;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import me.clip.placeholderapi.PlaceholderAPI;
-
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.TxtUtil;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.variables.Variable;
-import com.nisovin.magicspells.variables.variabletypes.GlobalVariable;
-import com.nisovin.magicspells.variables.variabletypes.GlobalStringVariable;
-import com.nisovin.magicspells.variables.variabletypes.PlayerStringVariable;
+import com.nisovin.magicspells.variables.VariableRef;
 
 public class StringData implements ConfigData<String> {
 
@@ -33,9 +29,17 @@ public class StringData implements ConfigData<String> {
 		)%|\
 		(%[art])""", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
 
+	// Expected length of a resolved placeholder, used to size the builder.
+	private static final int PLACEHOLDER_LENGTH_HINT = 16;
+
 	private final List<ConfigData<String>> values;
 	private final List<String> fragments;
 
+	private final ConfigData<String>[] valueArray;
+	private final String[] fragmentArray;
+	private final boolean namesOnly;
+	private final int capacity;
+
 	public StringData(String value) {
 		List<ConfigData<String>> values = new ArrayList<>();
 		List<String> fragments = new ArrayList<>();
@@ -56,6 +60,23 @@ public class StringData implements ConfigData<String> {
 
 		this.fragments = Collections.unmodifiableList(fragments);
 		this.values = Collections.unmodifiableList(values);
+
+		//noinspection unchecked
+		valueArray = values.toArray(new ConfigData[0]);
+		fragmentArray = fragments.toArray(new String[0]);
+
+		boolean namesOnly = true;
+		for (ConfigData<String> data : valueArray) {
+			if (!(data instanceof NameData)) {
+				namesOnly = false;
+				break;
+			}
+		}
+		this.namesOnly = namesOnly;
+
+		int length = 0;
+		for (String fragment : fragmentArray) length += fragment.length();
+		capacity = length + valueArray.length * PLACEHOLDER_LENGTH_HINT;
 	}
 
 	private static ConfigData<String> createData(Matcher matcher) {
@@ -139,14 +160,16 @@ public class StringData implements ConfigData<String> {
 
 	@Override
 	public String get(@NotNull SpellData data) {
-		if (values.isEmpty()) return fragments.get(0);
+		if (valueArray.length == 0) return fragmentArray[0];
+		// Templates that only contain a single %a, %t or %r, the most common case, are concatenated without a builder.
+		if (namesOnly && valueArray.length == 1) return fragmentArray[0] + valueArray[0].get(data) + fragmentArray[1];
 
-		StringBuilder builder = new StringBuilder();
-		for (int i = 0; i < fragments.size() - 1; i++) {
-			builder.append(fragments.get(i));
-			builder.append(values.get(i).get(data));
+		StringBuilder builder = new StringBuilder(capacity);
+		for (int i = 0; i < valueArray.length; i++) {
+			builder.append(fragmentArray[i]);
+			builder.append(valueArray[i].get(data));
 		}
-		builder.append(fragments.get(fragments.size() - 1));
+		builder.append(fragmentArray[valueArray.length]);
 
 		return builder.toString();
 	}
@@ -204,124 +227,131 @@ public class StringData implements ConfigData<String> {
 
 	public static class DefaultVariableData extends PlaceholderData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final int places;
 
 		public DefaultVariableData(String placeholder, String variable, int places) {
 			super(placeholder);
 
-			this.variable = variable;
+			this.variable = new VariableRef(variable);
 			this.places = places;
 		}
 
 		@Override
 		public String get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return placeholder;
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return placeholder;
 
-			String player = data.recipient() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
+			Player player = data.recipient() instanceof Player p ? p : null;
+			if (player == null && !binding.isGlobal())
 				return placeholder;
 
+			Variable var = binding.getVariable();
+			String name = player == null ? null : player.getName();
 			if (places >= 0) {
-				if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable)
-					return TxtUtil.getStringNumber(var.getStringValue(player), places);
+				if (binding.isString())
+					return TxtUtil.getStringNumber(var.getStringValue(name), places);
 
-				return TxtUtil.getStringNumber(var.getValue(player), places);
+				return TxtUtil.getStringNumber(player == null ? var.getValue(name) : var.getValue(player), places);
 			}
 
-			return var.getStringValue(player);
+			return var.getStringValue(name);
 		}
 
 	}
 
 	public static class CasterVariableData extends PlaceholderData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final int places;
 
 		public CasterVariableData(String placeholder, String variable, int places) {
 			super(placeholder);
 
-			this.variable = variable;
+			this.variable = new VariableRef(variable);
 			this.places = places;
 		}
 
 		@Override
 		public String get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return placeholder;
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return placeholder;
 
-			String player = data.caster() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
+			Player player = data.caster() instanceof Player p ? p : null;
+			if (player == null && !binding.isGlobal())
 				return placeholder;
 
+			Variable var = binding.getVariable();
+			String name = player == null ? null : player.getName();
 			if (places >= 0) {
-				if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable)
-					return TxtUtil.getStringNumber(var.getStringValue(player), places);
+				if (binding.isString())
+					return TxtUtil.getStringNumber(var.getStringValue(name), places);
 
-				return TxtUtil.getStringNumber(var.getValue(player), places);
+				return TxtUtil.getStringNumber(player == null ? var.getValue(name) : var.getValue(player), places);
 			}
 
-			return var.getStringValue(player);
+			return var.getStringValue(name);
 		}
 
 	}
 
 	public static class TargetVariableData extends PlaceholderData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final int places;
 
 		public TargetVariableData(String placeholder, String variable, int places) {
 			super(placeholder);
 
-			this.variable = variable;
+			this.variable = new VariableRef(variable);
 			this.places = places;
 		}
 
 		@Override
 		public String get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return placeholder;
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return placeholder;
 
-			String player = data.target() instanceof Player p ? p.getName() : null;
-			if (player == null && !(var instanceof GlobalVariable) && !(var instanceof GlobalStringVariable))
+			Player player = data.target() instanceof Player p ? p : null;
+			if (player == null && !binding.isGlobal())
 				return placeholder;
 
+			Variable var = binding.getVariable();
+			String name = player == null ? null : player.getName();
 			if (places >= 0) {
-				if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable)
-					return TxtUtil.getStringNumber(var.getStringValue(player), places);
+				if (binding.isString())
+					return TxtUtil.getStringNumber(var.getStringValue(name), places);
 
-				return TxtUtil.getStringNumber(var.getValue(player), places);
+				return TxtUtil.getStringNumber(player == null ? var.getValue(name) : var.getValue(player), places);
 			}
 
-			return var.getStringValue(player);
+			return var.getStringValue(name);
 		}
 
 	}
 
 	public static class PlayerVariableData extends PlaceholderData {
 
-		private final String variable;
+		private final VariableRef variable;
 		private final String player;
 		private final int places;
 
 		public PlayerVariableData(String placeholder, String variable, String player, int places) {
 			super(placeholder);
 
-			this.variable = variable;
+			this.variable = new VariableRef(variable);
 			this.player = player;
 			this.places = places;
 		}
 
 		@Override
 		public String get(@NotNull SpellData data) {
-			Variable var = MagicSpells.getVariableManager().getVariable(variable);
-			if (var == null) return placeholder;
+			VariableRef.Binding binding = variable.bind();
+			if (binding == null) return placeholder;
 
+			Variable var = binding.getVariable();
 			if (places >= 0) {
-				if (var instanceof PlayerStringVariable || var instanceof GlobalStringVariable)
+				if (binding.isString())
 					return TxtUtil.getStringNumber(var.getStringValue(player), places);
 
 				return TxtUtil.getStringNumber(var.getValue(player), places);
@@ -345,7 +375,7 @@ public class StringData implements ConfigData<String> {
 		@Override
 		public String get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return placeholder;
-			return PlaceholderAPI.setPlaceholders(data.recipient() instanceof Player p ? p : null, papiPlaceholder);
+			return PlaceholderCache.setPlaceholders(data.recipient() instanceof Player p ? p : null, papiPlaceholder);
 		}
 
 	}
@@ -363,7 +393,7 @@ public class StringData implements ConfigData<String> {
 		@Override
 		public String get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return placeholder;
-			return PlaceholderAPI.setPlaceholders(data.caster() instanceof Player p ? p : null, papiPlaceholder);
+			return PlaceholderCache.setPlaceholders(data.caster() instanceof Player p ? p : null, papiPlaceholder);
 		}
 
 	}
@@ -381,7 +411,7 @@ public class StringData implements ConfigData<String> {
 		@Override
 		public String get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return placeholder;
-			return PlaceholderAPI.setPlaceholders(data.target() instanceof Player p ? p : null, papiPlaceholder);
+			return PlaceholderCache.setPlaceholders(data.target() instanceof Player p ? p : null, papiPlaceholder);
 		}
 
 	}
@@ -401,12 +431,20 @@ public class StringData implements ConfigData<String> {
 		@Override
 		public String get(@NotNull SpellData data) {
 			if (!Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) return placeholder;
-			return PlaceholderAPI.setPlaceholders(Bukkit.getOfflinePlayer(player), papiPlaceholder);
+			return PlaceholderCache.setPlaceholders(player, papiPlaceholder);
+		}
+
+	}
+
+	public static abstract class NameData extends PlaceholderData {
+
+		public NameData(String placeholder) {
+			super(placeholder);
 		}
 
 	}
 
-	public static class DefaultNameData extends PlaceholderData {
+	public static class DefaultNameData extends NameData {
 
 		public DefaultNameData() {
 			super("%r");
@@ -420,7 +458,7 @@ public class StringData implements ConfigData<String> {
 
 	}
 
-	public static class CasterNameData extends PlaceholderData {
+	public static class CasterNameData extends NameData {
 
 		public CasterNameData() {
 			super("%a");
@@ -434,7 +472,7 @@ public class StringData implements ConfigData<String> {
 
 	}
 
-	public static class TargetNameData extends PlaceholderData {
+	public static class TargetNameData extends NameData {
 
 		public TargetNameData() {
 			super("%t");
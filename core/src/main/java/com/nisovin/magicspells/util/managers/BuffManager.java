@@ -2,16 +2,29 @@ package com.nisovin.magicspells.util.managers;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventHandler;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.entity.EntityTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.spells.BuffSpell;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.events.BuffEndEvent;
 import com.nisovin.magicspells.events.BuffStartEvent;
 import com.nisovin.magicspells.util.compat.EventUtil;
@@ -19,37 +32,71 @@ import com.nisovin.magicspells.zones.NoMagicZoneManager;
 
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 
+/**
+ * Keeps track of the active buffs of every entity.
+ * <p>
+ * Buffs with a duration are put in a queue ordered by their end time, and a task polls the queue every tick, so
+ * only buffs that are due are looked at. An entry is skipped if the buff was turned off or its duration changed
+ * since, which {@link BuffSpell#isExpired(LivingEntity)} tells. Buffed entities are only checked against no-magic
+ * zones when they start a buff, and when they move to another block or teleport. Players are checked as they move.
+ * Other buffed entities are checked every {@link #ZONE_CHECK_INTERVAL} ticks, only if they are in another block
+ * than at their last check, so no event has to be handled for every moving entity. On Folia, these checks run in one
+ * task per chunk the entities were last seen in.
+ */
 public class BuffManager {
 
+	private static final int ZONE_CHECK_INTERVAL = 20;
+
 	private Map<LivingEntity, Set<BuffSpell>> activeBuffs;
 
-	private final int interval;
+	// Buffs may be started and ended from several region threads on Folia.
+	private final Queue<Expiry> expiries = new PriorityBlockingQueue<>();
+	private final Set<LivingEntity> pendingZoneChecks = ConcurrentHashMap.newKeySet();
+	// Block locations of buffed entities other than players, as of their last zone check.
+	private final Map<LivingEntity, Location> positions = new ConcurrentHashMap<>();
 
 	private BuffMonitor buffMonitor;
+	private ZoneListener zoneListener;
 
-	public BuffManager(int interval) {
-		this.interval = interval;
-		activeBuffs = new HashMap<>();
+	public BuffManager() {
+		activeBuffs = new ConcurrentHashMap<>();
 	}
 
 	public void initialize() {
 		buffMonitor = new BuffMonitor();
+
+		NoMagicZoneManager zoneManager = MagicSpells.getNoMagicZoneManager();
+		if (zoneManager == null || !zoneManager.hasZones()) return;
+
+		zoneListener = new ZoneListener(zoneManager);
+		MagicSpells.registerEvents(zoneListener);
 	}
 
 	public void startBuff(LivingEntity entity, BuffSpell spell) {
-		Set<BuffSpell> buffs = activeBuffs.computeIfAbsent(entity, s -> new HashSet<>());
+		Set<BuffSpell> buffs = activeBuffs.computeIfAbsent(entity, s -> ConcurrentHashMap.newKeySet());
 		buffs.add(spell);
 		EventUtil.call(new BuffStartEvent(entity, spell));
+
+		// Checked on the next tick, once the cast has finished.
+		if (zoneListener != null) pendingZoneChecks.add(entity);
 	}
 
 	public void endBuff(LivingEntity entity, BuffSpell spell) {
 		Set<BuffSpell> buffs = activeBuffs.get(entity);
 		if (buffs == null) return;
 		buffs.remove(spell);
-		if (buffs.isEmpty()) activeBuffs.remove(entity);
+		if (buffs.isEmpty() && activeBuffs.remove(entity, buffs)) positions.remove(entity);
 		EventUtil.call(new BuffEndEvent(entity, spell));
 	}
 
+	/**
+	 * Turns the buff off for the entity once the end time has passed, unless the end time has changed by then.
+	 * @param endTime the end time, in milliseconds like {@link System#currentTimeMillis()}
+	 */
+	public void scheduleExpiry(LivingEntity entity, BuffSpell spell, long endTime) {
+		expiries.add(new Expiry(endTime, entity, spell));
+	}
+
 	public Map<LivingEntity, Set<BuffSpell>> getActiveBuffs() {
 		return activeBuffs;
 	}
@@ -61,20 +108,84 @@ public class BuffManager {
 	public void turnOff() {
 		buffMonitor.stop();
 		buffMonitor = null;
+
+		if (zoneListener != null) {
+			HandlerList.unregisterAll(zoneListener);
+			zoneListener = null;
+		}
+
+		expiries.clear();
+		pendingZoneChecks.clear();
+		positions.clear();
 		activeBuffs.clear();
 		activeBuffs = null;
 	}
 
+	private void expire(LivingEntity entity, BuffSpell buff) {
+		// Already turned off, which ended the buff then.
+		if (!buff.isActive(entity)) return;
+
+		buff.turnOff(entity, false);
+		endBuff(entity, buff);
+	}
+
+	private void checkZones(NoMagicZoneManager zoneManager, LivingEntity entity, Location location) {
+		Set<BuffSpell> buffs = activeBuffs.get(entity);
+		if (buffs == null) return;
+
+		for (BuffSpell buff : buffs) {
+			if (zoneManager.willFizzle(location, buff)) expire(entity, buff);
+		}
+	}
+
+	private void checkMoved(NoMagicZoneManager zoneManager, LivingEntity entity) {
+		if (!entity.isValid()) return;
+
+		Location location = entity.getLocation();
+		Location block = location.toBlockLocation();
+
+		Location previous = positions.put(entity, block);
+		if (!block.equals(previous)) checkZones(zoneManager, entity, location);
+	}
+
+	private void checkMoved(NoMagicZoneManager zoneManager) {
+		// Players are checked by the listener as they move.
+		if (!TaskDispatcher.isFolia()) {
+			for (LivingEntity entity : activeBuffs.keySet())
+				if (!(entity instanceof Player)) checkMoved(zoneManager, entity);
+			return;
+		}
+
+		Map<Location, List<LivingEntity>> chunks = new HashMap<>();
+		for (LivingEntity entity : activeBuffs.keySet()) {
+			if (entity instanceof Player) continue;
+
+			Location previous = positions.get(entity);
+			if (previous == null) {
+				TaskDispatcher.runDelayed(entity, () -> checkMoved(zoneManager, entity), 1);
+				continue;
+			}
+
+			Location chunk = new Location(previous.getWorld(), previous.getBlockX() & ~15, 0, previous.getBlockZ() & ~15);
+			chunks.computeIfAbsent(chunk, c -> new ArrayList<>()).add(entity);
+		}
+
+		chunks.forEach((chunk, entities) -> TaskDispatcher.runDelayed(chunk, () -> {
+			for (LivingEntity entity : entities) {
+				// Entities that moved to another region since are checked from theirs.
+				if (TaskDispatcher.isOwned(entity)) checkMoved(zoneManager, entity);
+				else TaskDispatcher.runDelayed(entity, () -> checkMoved(zoneManager, entity), 1);
+			}
+		}, 1));
+	}
+
 	private class BuffMonitor implements Consumer<ScheduledTask> {
 
 		private final ScheduledTask task;
-
-		private final NoMagicZoneManager zoneManager;
+		private int ticks;
 
 		private BuffMonitor() {
-			task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(MagicSpells.getInstance(), this, interval, interval);
-
-			zoneManager = MagicSpells.getNoMagicZoneManager();
+			task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(MagicSpells.getInstance(), this, 1, 1);
 		}
 
 		public void stop() {
@@ -83,30 +194,73 @@ public class BuffManager {
 
 		@Override
 		public void accept(ScheduledTask scheduledTask) {
-			if (zoneManager == null) return;
-
-			Iterator<LivingEntity> entityIterator = activeBuffs.keySet().iterator();
-			Iterator<BuffSpell> buffIterator;
-			LivingEntity entity;
-			BuffSpell buff;
-			while (entityIterator.hasNext()) {
-				entity = entityIterator.next();
-				if (entity == null) continue;
-				if (!entity.isValid()) continue;
+			long now = System.currentTimeMillis();
+
+			Expiry expiry;
+			while ((expiry = expiries.peek()) != null && expiry.endTime <= now) {
+				expiries.poll();
+
+				LivingEntity entity = expiry.entity;
+				BuffSpell buff = expiry.buff;
+
+				// On Folia, the entity can only be changed from the thread of its region.
+				if (TaskDispatcher.isOwned(entity)) {
+					if (buff.isExpired(entity)) expire(entity, buff);
+				} else TaskDispatcher.runDelayed(entity, () -> {
+					if (buff.isExpired(entity)) expire(entity, buff);
+				}, 1);
+			}
 
-				buffIterator = activeBuffs.get(entity).iterator();
+			if (zoneListener == null) return;
 
-				while (buffIterator.hasNext()) {
-					buff = buffIterator.next();
-					if (!buff.isExpired(entity) && !zoneManager.willFizzle(entity, buff)) continue;
+			NoMagicZoneManager zoneManager = zoneListener.zoneManager;
+			for (LivingEntity entity : pendingZoneChecks) {
+				pendingZoneChecks.remove(entity);
+				if (!entity.isValid()) continue;
 
-					buff.turnOff(entity, false);
-					EventUtil.call(new BuffEndEvent(entity, buff));
-					buffIterator.remove();
-					if (!buffIterator.hasNext()) entityIterator.remove();
-				}
+				if (TaskDispatcher.isOwned(entity)) checkZones(zoneManager, entity, entity.getLocation());
+				else TaskDispatcher.runDelayed(entity, () -> checkZones(zoneManager, entity, entity.getLocation()), 1);
 			}
+
+			if (++ticks % ZONE_CHECK_INTERVAL == 0) checkMoved(zoneManager);
 		}
+
+	}
+
+	private record Expiry(long endTime, LivingEntity entity, BuffSpell buff) implements Comparable<Expiry> {
+
+		@Override
+		public int compareTo(Expiry other) {
+			return Long.compare(endTime, other.endTime);
+		}
+
+	}
+
+	public class ZoneListener implements Listener {
+
+		private final NoMagicZoneManager zoneManager;
+
+		private ZoneListener(NoMagicZoneManager zoneManager) {
+			this.zoneManager = zoneManager;
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onPlayerMove(PlayerMoveEvent event) {
+			if (!event.hasChangedBlock()) return;
+			checkZones(zoneManager, event.getPlayer(), event.getTo());
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onPlayerTeleport(PlayerTeleportEvent event) {
+			checkZones(zoneManager, event.getPlayer(), event.getTo());
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onEntityTeleport(EntityTeleportEvent event) {
+			if (!(event.getEntity() instanceof LivingEntity entity) || event.getTo() == null) return;
+			checkZones(zoneManager, entity, event.getTo());
+		}
+
 	}
 
 }
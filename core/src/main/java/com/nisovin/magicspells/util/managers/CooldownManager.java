@@ -0,0 +1,382 @@
+package com.nisovin.magicspells.util.managers;
+
+import java.io.File;
+import java.util.Map;
+import java.io.Writer;
+import java.util.List;
+import java.util.UUID;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.HashMap;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Listener;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+
+import com.nisovin.magicspells.Spell;
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.TaskDispatcher;
+
+/**
+ * Stores the cooldowns and charges of every spell, per entity.
+ * <p>
+ * Every spell is given an index when it is created, and each entity has an array of cooldown end times indexed by
+ * spell, and an array of charge refill times, in which every spell with charges owns one slot per charge. A
+ * charge is consumed while its refill time has not passed, so the number of consumed charges is counted from the
+ * times when needed, and nothing has to be scheduled to give charges back. All times are in milliseconds, like
+ * {@link System#currentTimeMillis()}.
+ * <p>
+ * Entries whose times have all passed are removed every {@link #PRUNE_INTERVAL} ticks, and when their player quits.
+ * Entries of other entities are removed when they die. Players keep their entries while they have times left, so
+ * cooldowns are not reset by logging out.
+ */
+public class CooldownManager implements Listener {
+
+	private static final long PRUNE_INTERVAL = 1200;
+
+	private final List<Spell> spells = new ArrayList<>();
+	private int[] chargeOffsets = new int[64];
+	private int chargeSlots;
+
+	// Cooldowns may be set from several region threads on Folia.
+	private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+	private int pruneTaskId = -1;
+
+	public void initialize() {
+		MagicSpells.registerEvents(this);
+		pruneTaskId = TaskDispatcher.runGlobalRepeating(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL);
+	}
+
+	/**
+	 * @return the index of the spell, used in the arrays of each entity
+	 */
+	public int register(Spell spell) {
+		int index = spells.size();
+		spells.add(spell);
+
+		if (index == chargeOffsets.length) chargeOffsets = Arrays.copyOf(chargeOffsets, index * 2);
+		chargeOffsets[index] = chargeSlots;
+		chargeSlots += Math.max(spell.getCharges(), 0);
+
+		return index;
+	}
+
+	/**
+	 * @return the end time of the cooldown, or 0 if the entity never had one
+	 */
+	public long getCooldown(Spell spell, UUID uuid) {
+		Entry entry = entries.get(uuid);
+		if (entry == null) return 0;
+
+		synchronized (entry) {
+			int index = spell.getCooldownIndex();
+			return index < entry.cooldowns.length ? entry.cooldowns[index] : 0;
+		}
+	}
+
+	public void setCooldown(Spell spell, UUID uuid, long endTime) {
+		update(uuid, entry -> entry.cooldowns[spell.getCooldownIndex()] = endTime);
+	}
+
+	/**
+	 * @return the number of charges of the spell the entity has consumed at the given time
+	 */
+	public int getChargesConsumed(Spell spell, UUID uuid, long now) {
+		int charges = spell.getCharges();
+		if (charges <= 0) return 0;
+
+		Entry entry = entries.get(uuid);
+		if (entry == null) return 0;
+
+		synchronized (entry) {
+			return entry.countConsumed(spell, charges, now);
+		}
+	}
+
+	/**
+	 * Starts the cooldown of the spell. A spell with charges consumes a charge, which refills after the duration,
+	 * and only goes on cooldown once all its charges are consumed. A duration of 0 or less resets the cooldown and
+	 * the charges of the spell instead.
+	 * @param duration the duration in milliseconds
+	 */
+	public void startCooldown(Spell spell, UUID uuid, long duration, long now) {
+		update(uuid, entry -> entry.start(spell, duration, now));
+	}
+
+	/**
+	 * Starts the cooldowns of several spells at once, such as a spell and the spells it shares its cooldown with.
+	 * @see #startCooldown(Spell, UUID, long, long)
+	 */
+	public void startCooldowns(Spell[] spells, long[] durations, UUID uuid, long now) {
+		update(uuid, entry -> {
+			for (int i = 0; i < spells.length; i++) entry.start(spells[i], durations[i], now);
+		});
+	}
+
+	/**
+	 * Resets the cooldown and the charges of the spell for every entity.
+	 */
+	public void clear(Spell spell) {
+		for (Entry entry : entries.values()) {
+			synchronized (entry) {
+				entry.reset(spell);
+			}
+		}
+	}
+
+	/**
+	 * @return the end times of the cooldowns of the spell that have not passed yet, by entity
+	 */
+	public Map<UUID, Long> getCooldowns(Spell spell) {
+		long now = System.currentTimeMillis();
+		int index = spell.getCooldownIndex();
+
+		Map<UUID, Long> cooldowns = new HashMap<>();
+		entries.forEach((uuid, entry) -> {
+			synchronized (entry) {
+				if (index < entry.cooldowns.length && entry.cooldowns[index] > now) cooldowns.put(uuid, entry.cooldowns[index]);
+			}
+		});
+
+		return cooldowns;
+	}
+
+	/**
+	 * Writes the cooldowns and charges that have not passed yet, one line per spell and entity, as
+	 * <code>spell:uuid:cooldown</code> followed by <code>:refill,refill,...</code> for spells with charges.
+	 */
+	public void save(File file) {
+		if (file.exists()) file.delete();
+
+		long now = System.currentTimeMillis();
+		try (Writer writer = new FileWriter(file)) {
+			for (Map.Entry<UUID, Entry> mapEntry : entries.entrySet()) {
+				String uuid = mapEntry.getKey().toString();
+				Entry entry = mapEntry.getValue();
+
+				synchronized (entry) {
+					entry.ensureCapacity();
+					for (int index = 0; index < spells.size(); index++) {
+						Spell spell = spells.get(index);
+						long cooldown = entry.cooldowns[index];
+
+						StringBuilder refills = null;
+						int offset = chargeOffsets[index];
+						for (int i = 0; i < spell.getCharges(); i++) {
+							long refill = entry.refills[offset + i];
+							if (refill <= now) continue;
+
+							if (refills == null) refills = new StringBuilder();
+							else refills.append(',');
+							refills.append(refill);
+						}
+
+						if (cooldown <= now && refills == null) continue;
+
+						writer.append(spell.getInternalName())
+							.append(':')
+							.append(uuid)
+							.append(':')
+							.append(String.valueOf(cooldown));
+						if (refills != null) writer.append(':').append(refills);
+						writer.append('\n');
+					}
+				}
+			}
+		} catch (IOException e) {
+			MagicSpells.handleException(e);
+			file.delete();
+		}
+	}
+
+	/**
+	 * Restores the cooldowns and charges written by {@link #save(File)}, and deletes the file.
+	 */
+	public void load(File file) {
+		if (!file.exists()) return;
+
+		long now = System.currentTimeMillis();
+		try (Scanner scanner = new Scanner(file)) {
+			while (scanner.hasNextLine()) {
+				String line = scanner.nextLine();
+				if (line.isEmpty()) continue;
+
+				String[] data = line.split(":");
+				Spell spell = MagicSpells.getSpellByInternalName(data[0]);
+				if (spell == null) continue;
+
+				UUID uuid = UUID.fromString(data[1]);
+				long cooldown = Long.parseLong(data[2]);
+				if (cooldown > now) setCooldown(spell, uuid, cooldown);
+
+				if (data.length < 4 || spell.getCharges() <= 0) continue;
+
+				String[] refills = data[3].split(",");
+				int offset = chargeOffsets[spell.getCooldownIndex()];
+				update(uuid, entry -> {
+					for (int i = 0; i < refills.length && i < spell.getCharges(); i++)
+						entry.refills[offset + i] = Long.parseLong(refills[i]);
+				});
+			}
+		} catch (Exception e) {
+			MagicSpells.handleException(e);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Removes the entries whose cooldowns and charge refills have all passed.
+	 */
+	public void prune() {
+		long now = System.currentTimeMillis();
+		entries.forEach((uuid, entry) -> {
+			synchronized (entry) {
+				if (entry.isExpired(now)) remove(uuid, entry);
+			}
+		});
+	}
+
+	/**
+	 * Removes the cooldowns and charges of the entity.
+	 */
+	public void remove(UUID uuid) {
+		Entry entry = entries.get(uuid);
+		if (entry == null) return;
+
+		synchronized (entry) {
+			remove(uuid, entry);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event) {
+		UUID uuid = event.getPlayer().getUniqueId();
+
+		Entry entry = entries.get(uuid);
+		if (entry == null) return;
+
+		synchronized (entry) {
+			if (entry.isExpired(System.currentTimeMillis())) remove(uuid, entry);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onDeath(EntityDeathEvent event) {
+		if (event.getEntity() instanceof Player) return;
+		remove(event.getEntity().getUniqueId());
+	}
+
+	public void disable() {
+		HandlerList.unregisterAll(this);
+		MagicSpells.cancelTask(pruneTaskId);
+		pruneTaskId = -1;
+
+		entries.clear();
+		spells.clear();
+		chargeSlots = 0;
+	}
+
+	/**
+	 * Runs the action on the entry of the entity, creating it if needed, with the entry locked and sized for every
+	 * spell.
+	 */
+	private void update(UUID uuid, Consumer<Entry> action) {
+		while (true) {
+			Entry entry = entries.computeIfAbsent(uuid, id -> new Entry());
+			synchronized (entry) {
+				// The entry was pruned after it was looked up, so the action would be lost with it.
+				if (entry.removed) continue;
+
+				entry.ensureCapacity();
+				action.accept(entry);
+				return;
+			}
+		}
+	}
+
+	// Must hold the lock of the entry.
+	private void remove(UUID uuid, Entry entry) {
+		entry.removed = true;
+		entries.remove(uuid, entry);
+	}
+
+	private class Entry {
+
+		private long[] cooldowns = new long[spells.size()];
+		private long[] refills = new long[chargeSlots];
+
+		private boolean removed;
+
+		// Spells created after the entry, such as those of addons, are added lazily.
+		private void ensureCapacity() {
+			if (cooldowns.length < spells.size()) cooldowns = Arrays.copyOf(cooldowns, spells.size());
+			if (refills.length < chargeSlots) refills = Arrays.copyOf(refills, chargeSlots);
+		}
+
+		private boolean isExpired(long now) {
+			for (long cooldown : cooldowns)
+				if (cooldown > now) return false;
+
+			for (long refill : refills)
+				if (refill > now) return false;
+
+			return true;
+		}
+
+		private int countConsumed(Spell spell, int charges, long now) {
+			int offset = chargeOffsets[spell.getCooldownIndex()];
+			if (offset + charges > refills.length) return 0;
+
+			int consumed = 0;
+			for (int i = offset; i < offset + charges; i++)
+				if (refills[i] > now) consumed++;
+
+			return consumed;
+		}
+
+		private void start(Spell spell, long duration, long now) {
+			int index = spell.getCooldownIndex();
+			int charges = spell.getCharges();
+			int offset = chargeOffsets[index];
+
+			if (duration <= 0) {
+				reset(spell);
+				return;
+			}
+
+			if (charges > 0) {
+				// Consume the charge that refilled first, or the one closest to refilling if none are left.
+				int earliest = offset;
+				for (int i = offset + 1; i < offset + charges; i++)
+					if (refills[i] < refills[earliest]) earliest = i;
+				refills[earliest] = now + duration;
+
+				if (countConsumed(spell, charges, now) < charges) return;
+			}
+
+			cooldowns[index] = now + duration;
+		}
+
+		private void reset(Spell spell) {
+			int index = spell.getCooldownIndex();
+			if (index < cooldowns.length) cooldowns[index] = 0;
+
+			int offset = chargeOffsets[index];
+			int end = Math.min(offset + Math.max(spell.getCharges(), 0), refills.length);
+			if (offset < end) Arrays.fill(refills, offset, end, 0);
+		}
+
+	}
+
+}
@@ -2,9 +2,9 @@ package com.nisovin.magicspells.util.managers;
 
 import java.util.*;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.BufferedWriter;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -29,15 +29,45 @@ public class VariableManager {
 	private static final Map<String, Class<? extends Variable>> variableTypes = new HashMap<>();
 	private static final Map<String, Variable> metaVariables = new HashMap<>();
 	private static final Map<String, Variable> variables = new HashMap<>();
+	private static final Map<Variable, String> variableNames = new IdentityHashMap<>();
 	private static final Set<String> dirtyPlayerVars = new HashSet<>();
 
+	private static final long PREFETCH_EXPIRY = TimeUnit.MINUTES.toMillis(1);
+
+	private static VariableStore store = new VariableStore();
+	private static volatile int generation = 0;
+
 	private static boolean dirtyGlobalVars = false;
 	private static File folder;
 
+	private volatile VariableJournal journal;
+
+	// Reads of player variables started before join, by unique id.
+	private final Map<String, Prefetch> prefetched = new ConcurrentHashMap<>();
+	// Reads of player variables not applied yet, by player name. Only accessed on the main thread.
+	private final Map<String, PendingLoad> pendingLoads = new HashMap<>();
+	private int loadTaskId = -1;
+
 	public VariableManager() {
+		store = new VariableStore();
+		generation++;
 		initialize();
 	}
 
+	/**
+	 * @return the store holding the values of player variables
+	 */
+	public static VariableStore getStore() {
+		return store;
+	}
+
+	/**
+	 * @return a counter that changes whenever the set of loaded variables changes, used to invalidate {@link VariableRef}s
+	 */
+	public static int getGeneration() {
+		return generation;
+	}
+
 	/**
 	 * @param variable must be annotated with {@link Name}.
 	 */
@@ -177,22 +207,8 @@ public class VariableManager {
 	public void loadVariables(ConfigurationSection section) {
 		if (section == null) {
 			variables.putAll(getMetaVariables());
-
-			// Load vars
-			folder = new File(MagicSpells.getInstance().getDataFolder(), "vars");
-			if (!folder.exists()) folder.mkdir();
-			loadGlobalVariables();
-			for (Player player : Bukkit.getOnlinePlayers()) {
-				loadPlayerVariables(player.getName(), Util.getUniqueId(player));
-				loadBossBars(player);
-				loadExpBar(player);
-			}
-
-			// Start save task
-			MagicSpells.scheduleRepeatingTask(() -> {
-				if (dirtyGlobalVars) saveGlobalVariables();
-				if (!dirtyPlayerVars.isEmpty()) saveAllPlayerVariables();
-			}, TimeUtil.TICKS_PER_MINUTE, TimeUtil.TICKS_PER_MINUTE);
+			generation++;
+			loadData();
 			return;
 		}
 
@@ -267,30 +283,35 @@ public class VariableManager {
 
 			variable.init(def, min, max, perm, objective, expBar, bossBarTitle, bossBarStyle, bossBarColor, bossBarNamespaceKey);
 			variable.loadExtraData(varSection);
-			variables.put(var, variable);
+			addVariable(var, variable);
 			MagicSpells.debug(2, "Loaded variable " + var);
 		}
 
 		MagicSpells.debug(1, variables.size() + " variables loaded!");
 
 		variables.putAll(getMetaVariables());
+		generation++;
+		loadData();
+	}
 
+	private void loadData() {
 		// Load vars
 		folder = new File(MagicSpells.getInstance().getDataFolder(), "vars");
 		if (!folder.exists()) folder.mkdir();
 
+		// Replay changes that were not compacted before the last shutdown, then start journaling
+		int compactInterval = MagicSpells.getInstance().getMagicConfig().getInt("general.variable-journal-compact-interval", TimeUtil.TICKS_PER_MINUTE);
+		journal = new VariableJournal(folder, compactInterval * TimeUtil.MILLISECONDS_PER_TICK);
+		journal.recover();
+		loadTaskId = TaskDispatcher.runGlobalRepeating(this::applyPlayerVariables, 1, 1);
+
 		loadGlobalVariables();
 		for (Player player : Bukkit.getOnlinePlayers()) {
+			store.getOrCreateRow(player);
 			loadPlayerVariables(player.getName(), Util.getUniqueId(player));
 			loadBossBars(player);
 			loadExpBar(player);
 		}
-
-		// Start save task
-		MagicSpells.scheduleRepeatingTask(() -> {
-			if (dirtyGlobalVars) saveGlobalVariables();
-			if (!dirtyPlayerVars.isEmpty()) saveAllPlayerVariables();
-		}, TimeUtil.TICKS_PER_MINUTE, TimeUtil.TICKS_PER_MINUTE);
 	}
 
 	/**
@@ -301,7 +322,12 @@ public class VariableManager {
 	 * @return Returns true if an existing variable was overwritten
 	 */
 	public boolean addVariable(String name, Variable variable) {
-		return variables.put(name, variable) != null;
+		if (variable instanceof PlayerVariable playerVariable) playerVariable.bind(store);
+		variableNames.put(variable, name);
+		Variable previous = variables.put(name, variable);
+		if (previous != null && previous != variable) variableNames.remove(previous, name);
+		generation++;
+		return previous != null;
 	}
 
 	public Map<String, Variable> getVariables() {
@@ -322,10 +348,7 @@ public class VariableManager {
 		variable.set(player, amount);
 		updateBossBar(variable, player);
 		updateExpBar(variable, player);
-		if (!variable.isPermanent()) return;
-		if (variable instanceof PlayerVariable) dirtyPlayerVars.add(player);
-		else if (variable instanceof GlobalVariable) dirtyGlobalVars = true;
-		else if (variable instanceof GlobalStringVariable) dirtyGlobalVars = true;
+		journal(variable, player);
 	}
 
 	public void set(String variable, Player player, String amount) {
@@ -342,10 +365,7 @@ public class VariableManager {
 		variable.parseAndSet(player, amount);
 		updateBossBar(variable, player);
 		updateExpBar(variable, player);
-		if (!variable.isPermanent()) return;
-		if (variable instanceof PlayerVariable) dirtyPlayerVars.add(player);
-		else if (variable instanceof GlobalVariable) dirtyGlobalVars = true;
-		else if (variable instanceof GlobalStringVariable) dirtyGlobalVars = true;
+		journal(variable, player);
 	}
 
 	public double getValue(String variable, Player player) {
@@ -389,11 +409,31 @@ public class VariableManager {
 		updateBossBar(variable, name);
 		updateExpBar(variable, name);
 
+		journal(variable, name);
+	}
+
+	private void journal(Variable variable, String player) {
 		if (!variable.isPermanent()) return;
 
-		if (variable instanceof PlayerVariable) dirtyPlayerVars.add(name);
-		else if (variable instanceof GlobalVariable) dirtyGlobalVars = true;
-		else if (variable instanceof GlobalStringVariable) dirtyGlobalVars = true;
+		String scope;
+		if (variable instanceof PlayerVariable) {
+			scope = Util.getUniqueId(player);
+			if (scope == null) return;
+			dirtyPlayerVars.add(player);
+		} else if (variable instanceof GlobalVariable || variable instanceof GlobalStringVariable) {
+			scope = VariableJournal.GLOBAL_SCOPE;
+			dirtyGlobalVars = true;
+		} else return;
+
+		String name = variableNames.get(variable);
+		if (name == null || journal == null) return;
+
+		// Keeps the stored value from overwriting this one, if the stored values of the player are still being read.
+		PendingLoad load = pendingLoads.get(player);
+		if (load != null) load.changed().add(name);
+
+		String value = variable.getStringValue(player);
+		journal.append(scope, name, value.equals(variable.getDefaultStringValue()) ? null : value);
 	}
 
 	public void updateBossBar(Variable var, String player) {
@@ -436,145 +476,122 @@ public class VariableManager {
 	}
 
 	public void loadGlobalVariables() {
-		File file = new File(folder, "GLOBAL.txt");
-		if (!file.exists()) {
-			dirtyGlobalVars = false;
-			return;
-		}
-
-		try {
-			Scanner scanner = new Scanner(file, StandardCharsets.UTF_8);
-			while (scanner.hasNext()) {
-				String line = scanner.nextLine().trim();
-				if (!line.isEmpty()) {
-					String[] s = line.split("=", 2);
-					Variable variable = variables.get(s[0]);
-					if (variable instanceof GlobalVariable && variable.isPermanent()) variable.parseAndSet("", s[1]);
-					else if (variable instanceof GlobalStringVariable && variable.isPermanent()) variable.parseAndSet("", s[1]);
-				}
-			}
-			scanner.close();
-		} catch (Exception e) {
-			MagicSpells.error("ERROR LOADING GLOBAL VARIABLES");
-			MagicSpells.handleException(e);
+		Map<String, String> values = readVariables(VariableJournal.GLOBAL_SCOPE);
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			Variable variable = variables.get(entry.getKey());
+			if (variable instanceof GlobalVariable && variable.isPermanent()) variable.parseAndSet("", entry.getValue());
+			else if (variable instanceof GlobalStringVariable && variable.isPermanent()) variable.parseAndSet("", entry.getValue());
 		}
 
 		dirtyGlobalVars = false;
 	}
 
+	/**
+	 * Writes the global variables to disk in the background, without waiting for the next journal compaction.
+	 */
 	public void saveGlobalVariables() {
-		File file = new File(folder, "GLOBAL.txt");
-		if (file.exists()) file.delete();
-
-		List<String> lines = new ArrayList<>();
-		for (String variableName : variables.keySet()) {
-			Variable variable = variables.get(variableName);
-			if ((variable instanceof GlobalVariable || variable instanceof GlobalStringVariable) && variable.isPermanent()) {
-				String val = variable.getStringValue("");
-				if (!val.equals(variable.getDefaultStringValue())) lines.add(variableName + '=' + Util.flattenLineBreaks(val));
-			}
+		if (journal != null) journal.flush(VariableJournal.GLOBAL_SCOPE);
+		dirtyGlobalVars = false;
+	}
+
+	/**
+	 * Starts reading the variables of a player who is about to join, so they are ready by the time they join.
+	 * Safe to call off the main thread.
+	 */
+	public void prefetchPlayerVariables(String player, String uniqueId) {
+		VariableJournal journal = this.journal;
+		if (journal == null) return;
+
+		migratePlayerFile(player, uniqueId);
+		prefetched.put(uniqueId, new Prefetch(journal.read(uniqueId), System.currentTimeMillis()));
+	}
+
+	/**
+	 * Loads the stored variables of a player. The variables are read in the background, unless they were already
+	 * prefetched, and applied on a later tick. Variables changed in the meantime keep their new value.
+	 */
+	public void loadPlayerVariables(String player, String uniqueId) {
+		Prefetch prefetch = prefetched.remove(uniqueId);
+
+		CompletableFuture<Map<String, String>> future;
+		if (prefetch != null) future = prefetch.future();
+		else {
+			migratePlayerFile(player, uniqueId);
+			future = journal == null ? CompletableFuture.completedFuture(Collections.emptyMap()) : journal.read(uniqueId);
 		}
 
-		if (lines.isEmpty()) {
-			dirtyGlobalVars = false;
+		PendingLoad load = new PendingLoad(uniqueId, future, new HashSet<>());
+		if (!future.isDone()) {
+			pendingLoads.put(player, load);
 			return;
 		}
 
-		BufferedWriter writer = null;
-		try {
-			writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, false));
-			for (String line : lines) {
-				writer.write(line);
-				writer.newLine();
-			}
-			writer.flush();
-		} catch (Exception e) {
-			MagicSpells.error("ERROR SAVING GLOBAL VARIABLES");
-			MagicSpells.handleException(e);
-		} finally {
-			if (writer != null) {
-				try {
-					writer.close();
-				} catch (Exception e) {
-					// No op
-				}
+		pendingLoads.remove(player);
+		applyPlayerVariables(player, load);
+	}
+
+	private void applyPlayerVariables() {
+		if (!pendingLoads.isEmpty()) {
+			Iterator<Map.Entry<String, PendingLoad>> iterator = pendingLoads.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, PendingLoad> entry = iterator.next();
+				if (!entry.getValue().future().isDone()) continue;
+
+				iterator.remove();
+				String player = entry.getKey();
+				applyPlayerVariables(player, entry.getValue());
+
+				// The bars were shown with the default values on join.
+				Player online = Bukkit.getPlayerExact(player);
+				if (online == null) continue;
+				loadBossBars(online);
+				loadExpBar(online);
 			}
 		}
 
-		dirtyGlobalVars = false;
-	}
+		if (prefetched.isEmpty()) return;
 
-	public void loadPlayerVariables(String player, String uniqueId) {
-		File file = new File(folder, "PLAYER_" + uniqueId + ".txt");
-		if (!file.exists()) {
-			File file2 = new File(folder, "PLAYER_" + player + ".txt");
-			if (file2.exists()) file2.renameTo(file);
-		}
-		if (!file.exists()) {
-			dirtyPlayerVars.remove(player);
-			return;
-		}
+		// Players that were allowed to log in, but never joined.
+		long now = System.currentTimeMillis();
+		prefetched.values().removeIf(prefetch -> now - prefetch.time() > PREFETCH_EXPIRY);
+	}
 
+	private void applyPlayerVariables(String player, PendingLoad load) {
+		Map<String, String> values;
 		try {
-			Scanner scanner = new Scanner(file, StandardCharsets.UTF_8);
-			while (scanner.hasNext()) {
-				String line = scanner.nextLine().trim();
-				if (!line.isEmpty()) {
-					String[] s = line.split("=", 2);
-					Variable variable = variables.get(s[0]);
-					if (variable instanceof PlayerVariable && variable.isPermanent()) variable.parseAndSet(player, s[1]);
-				}
-			}
-			scanner.close();
+			values = load.future().join();
 		} catch (Exception e) {
-			MagicSpells.error("ERROR LOADING PLAYER VARIABLES FOR " + player);
+			MagicSpells.error("ERROR LOADING VARIABLES FOR " + load.uniqueId());
 			MagicSpells.handleException(e);
+			return;
 		}
 
-		dirtyPlayerVars.remove(player);
-	}
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (load.changed().contains(entry.getKey())) continue;
 
-	public void savePlayerVariables(String player, String uniqueId) {
-		File file = new File(folder, "PLAYER_" + player + ".txt");
-		if (file.exists()) file.delete();
-		file = new File(folder, "PLAYER_" + uniqueId + ".txt");
-		if (file.exists()) file.delete();
-
-		List<String> lines = new ArrayList<>();
-		for (String variableName : variables.keySet()) {
-			Variable variable = variables.get(variableName);
-			if (variable instanceof PlayerVariable && variable.isPermanent()) {
-				String val = variable.getStringValue(player);
-				if (!val.equals(variable.getDefaultStringValue())) lines.add(variableName + '=' + Util.flattenLineBreaks(val));
-			}
+			Variable variable = variables.get(entry.getKey());
+			if (variable instanceof PlayerVariable && variable.isPermanent()) variable.parseAndSet(player, entry.getValue());
 		}
 
-		if (lines.isEmpty()) {
-			dirtyPlayerVars.remove(player);
-			return;
-		}
+		if (load.changed().isEmpty()) dirtyPlayerVars.remove(player);
+	}
 
-		BufferedWriter writer = null;
-		try {
-			writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, false));
-			for (String line : lines) {
-				writer.write(line);
-				writer.newLine();
-			}
-			writer.flush();
-		} catch (Exception e) {
-			MagicSpells.error("ERROR SAVING PLAYER VARIABLES FOR " + player);
-			MagicSpells.handleException(e);
-		} finally {
-			if (writer != null) {
-				try {
-					writer.close();
-				} catch (Exception e) {
-					DebugHandler.debugGeneral(e);
-				}
-			}
+	private void migratePlayerFile(String player, String uniqueId) {
+		File folder = VariableManager.folder;
+		if (folder == null) return;
+
+		File file = new File(folder, "PLAYER_" + uniqueId + ".txt");
+		if (!file.exists()) {
+			File file2 = new File(folder, "PLAYER_" + player + ".txt");
+			if (file2.exists()) file2.renameTo(file);
 		}
+	}
 
+	/**
+	 * Writes the variables of a player to disk in the background, without waiting for the next journal compaction.
+	 */
+	public void savePlayerVariables(String player, String uniqueId) {
+		if (journal != null) journal.flush(uniqueId);
 		dirtyPlayerVars.remove(player);
 	}
 
@@ -585,6 +602,22 @@ public class VariableManager {
 		}
 	}
 
+	/**
+	 * Waits for the read, so it is only used for the global variables while variables are loaded, when the journal
+	 * thread has nothing else queued yet.
+	 */
+	private Map<String, String> readVariables(String scope) {
+		if (journal == null) return Collections.emptyMap();
+
+		try {
+			return journal.read(scope).join();
+		} catch (Exception e) {
+			MagicSpells.error("ERROR LOADING VARIABLES FOR " + scope);
+			MagicSpells.handleException(e);
+			return Collections.emptyMap();
+		}
+	}
+
 	public void loadBossBars(Player player) {
 		for (Variable var : variables.values()) {
 			if (var.getBossBarTitle() == null) continue;
@@ -601,9 +634,21 @@ public class VariableManager {
 	}
 
 	public void disable() {
-		if (dirtyGlobalVars) saveGlobalVariables();
-		if (!dirtyPlayerVars.isEmpty()) saveAllPlayerVariables();
+		MagicSpells.cancelTask(loadTaskId);
+		loadTaskId = -1;
+		pendingLoads.clear();
+		prefetched.clear();
+
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+		dirtyGlobalVars = false;
+		dirtyPlayerVars.clear();
 		variables.clear();
+		variableNames.clear();
+		store.clear();
+		generation++;
 	}
 
 	@Deprecated
@@ -669,4 +714,8 @@ public class VariableManager {
 		return Double.toString(value);
 	}
 
+	private record Prefetch(CompletableFuture<Map<String, String>> future, long time) {}
+
+	private record PendingLoad(String uniqueId, CompletableFuture<Map<String, String>> future, Set<String> changed) {}
+
 }
@@ -0,0 +1,77 @@
+package com.nisovin.magicspells.util.profiling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, log-linear latency histogram in the style of HdrHistogram.
+ * <p>
+ * Values below 32ns are counted exactly. Above that, every power of two is split into 16 linear buckets, so any
+ * recorded value is reported within 1/16 (about 6%) of its real value. Values are capped at 2^40ns (about 18
+ * minutes), which keeps the histogram at a fixed 592 counters.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+	private static final int MAX_MAGNITUDE = 40;
+	private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+	private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		counts.incrementAndGet(index(nanos));
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+	}
+
+	/**
+	 * @return a consistent copy of the current counts, to compute several percentiles from
+	 */
+	public long[] snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) snapshot[i] = counts.get(i);
+		return snapshot;
+	}
+
+	/**
+	 * @param snapshot counts from {@link #snapshot()}
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the highest value equivalent to the value at the given percentile, or 0 if nothing was recorded
+	 */
+	public static long percentile(long[] snapshot, double percentile) {
+		long total = 0;
+		for (long count : snapshot) total += count;
+		if (total == 0) return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) return highestEquivalentValue(i);
+		}
+
+		return highestEquivalentValue(snapshot.length - 1);
+	}
+
+	static int index(long value) {
+		if (value < LINEAR_LIMIT) return value < 0 ? 0 : (int) value;
+		if (value > MAX_VALUE) value = MAX_VALUE;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < LINEAR_LIMIT) return index;
+
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.nisovin.magicspells.util.profiling;
+
+public enum ProfileCategory {
+
+	SPELL("Spell"),
+	PASSIVE("Passive"),
+	EFFECT("Effect"),
+	LISTENER("Event"),
+	TASK("Task"),
+	OTHER("Other");
+
+	private final String prefix;
+
+	ProfileCategory(String prefix) {
+		this.prefix = prefix;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.nisovin.magicspells.util.profiling;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Timing statistics of one profiled piece of code, such as a spell or an event listener. Recording is lock-free
+ * and does not allocate, so sections can be shared between threads.
+ */
+public class ProfileSection {
+
+	private final ProfileCategory category;
+	private final String name;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	public ProfileSection(ProfileCategory category, String name) {
+		this.category = category;
+		this.name = name;
+	}
+
+	public void record(long nanos) {
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		histogram.record(nanos);
+	}
+
+	public void reset() {
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+		histogram.reset();
+	}
+
+	public Snapshot snapshot() {
+		long[] counts = histogram.snapshot();
+		return new Snapshot(category, name, count.sum(), totalNanos.sum(), maxNanos.get(),
+			LatencyHistogram.percentile(counts, 50), LatencyHistogram.percentile(counts, 99));
+	}
+
+	public ProfileCategory getCategory() {
+		return category;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getKey() {
+		return category.getPrefix() + ':' + name;
+	}
+
+	/**
+	 * @param count number of recorded samples
+	 * @param totalNanos total time of all samples
+	 * @param maxNanos longest sample
+	 * @param p50Nanos median sample, within the histogram precision
+	 * @param p99Nanos 99th percentile sample, within the histogram precision
+	 */
+	public record Snapshot(ProfileCategory category, String name, long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+
+		public long averageNanos() {
+			return count == 0 ? 0 : totalNanos / count;
+		}
+
+		public String key() {
+			return category.getPrefix() + ':' + name;
+		}
+
+	}
+
+}
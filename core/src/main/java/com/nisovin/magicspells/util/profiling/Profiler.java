@@ -0,0 +1,294 @@
+package com.nisovin.magicspells.util.profiling;
+
+import java.io.File;
+import java.io.Writer;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.GsonBuilder;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * Collects timings of spells, passive triggers, spell effects and event listeners, and the time spent inside
+ * MagicSpells per server tick.
+ * <p>
+ * Timed code calls {@link #start()} and passes the result to {@link #stop(ProfileSection, long)}. When profiling
+ * is disabled, <code>start</code> returns 0 without reading the clock and <code>stop</code> returns immediately.
+ * With a sample rate above 1, only one in that many calls is timed, so profiling can be left on in production;
+ * per-tick totals are then scaled up by the sample rate.
+ */
+public class Profiler {
+
+	private static final int RECENT_TICKS = 100;
+	private static final int LIVE_VIEW_INTERVAL = 20;
+	private static final int LIVE_VIEW_ENTRIES = 3;
+	private static final double NANOS_PER_MILLI = 1_000_000D;
+
+	private final Map<String, ProfileSection> sections = new ConcurrentHashMap<>();
+	private final Set<CommandSender> viewers = ConcurrentHashMap.newKeySet();
+
+	private final ProfileSection ticks = new ProfileSection(ProfileCategory.OTHER, "Tick");
+	private final long[] recentTicks = new long[RECENT_TICKS];
+	private int recentTickIndex;
+	private long ticksOverBudget;
+
+	private volatile boolean enabled;
+	private volatile int sampleRate;
+	private final long tickBudget;
+
+	// Main thread only.
+	private int depth;
+	private long tickNanos;
+
+	private int tickTaskId = -1;
+	private int liveViewTaskId = -1;
+
+	/**
+	 * @param enabled whether to start profiling right away
+	 * @param sampleRate time one in this many calls
+	 * @param tickBudget time per tick MagicSpells is expected to stay within, in nanoseconds
+	 */
+	public Profiler(boolean enabled, int sampleRate, long tickBudget) {
+		this.enabled = enabled;
+		this.sampleRate = Math.max(sampleRate, 1);
+		this.tickBudget = tickBudget;
+	}
+
+	public void initialize() {
+		tickTaskId = MagicSpells.scheduleRepeatingTask(this::onTick, 1, 1);
+	}
+
+	public void disable() {
+		enabled = false;
+		if (tickTaskId != -1) MagicSpells.cancelTask(tickTaskId);
+		if (liveViewTaskId != -1) MagicSpells.cancelTask(liveViewTaskId);
+		tickTaskId = -1;
+		liveViewTaskId = -1;
+		viewers.clear();
+		sections.clear();
+	}
+
+	/**
+	 * @return the section for the given name, created if it does not exist yet. Callers on hot paths should keep
+	 * the returned section rather than looking it up again.
+	 */
+	public ProfileSection getSection(ProfileCategory category, String name) {
+		return sections.computeIfAbsent(category.getPrefix() + ':' + name, key -> new ProfileSection(category, name));
+	}
+
+	/**
+	 * @return the start time to pass to {@link #stop(ProfileSection, long)}, or 0 if this call is not timed
+	 */
+	public long start() {
+		if (!enabled) return 0;
+		if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) return 0;
+
+		if (Bukkit.isPrimaryThread()) depth++;
+		return System.nanoTime();
+	}
+
+	public void stop(ProfileSection section, long start) {
+		if (start == 0) return;
+
+		long elapsed = System.nanoTime() - start;
+		section.record(elapsed);
+
+		// Only the outermost timed call counts towards the tick, nested calls are part of its time.
+		if (Bukkit.isPrimaryThread() && depth > 0 && --depth == 0) tickNanos += elapsed * sampleRate;
+	}
+
+	private void onTick() {
+		long nanos = tickNanos;
+		tickNanos = 0;
+		// Calls that threw between start and stop leave the depth behind.
+		depth = 0;
+
+		if (!enabled) return;
+
+		ticks.record(nanos);
+		if (nanos > tickBudget) ticksOverBudget++;
+
+		recentTicks[recentTickIndex] = nanos;
+		recentTickIndex = (recentTickIndex + 1) % RECENT_TICKS;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns timing on or off from the next call to {@link #start()}, for every section at once. Event listeners
+	 * are the exception: {@link MagicSpells#registerEvents} leaves out the timing of listeners registered while
+	 * profiling is disabled, so turning it on does not cover them until the next reload.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = Math.max(sampleRate, 1);
+	}
+
+	public void reset() {
+		for (ProfileSection section : sections.values()) section.reset();
+		ticks.reset();
+		ticksOverBudget = 0;
+		for (int i = 0; i < RECENT_TICKS; i++) recentTicks[i] = 0;
+	}
+
+	/**
+	 * @return snapshots of all sections with samples, by descending total time
+	 */
+	public List<ProfileSection.Snapshot> getSnapshots() {
+		List<ProfileSection.Snapshot> snapshots = new ArrayList<>();
+		for (ProfileSection section : sections.values()) {
+			ProfileSection.Snapshot snapshot = section.snapshot();
+			if (snapshot.count() > 0) snapshots.add(snapshot);
+		}
+		snapshots.sort(Comparator.comparingLong(ProfileSection.Snapshot::totalNanos).reversed());
+		return snapshots;
+	}
+
+	public ProfileSection.Snapshot getTickSnapshot() {
+		return ticks.snapshot();
+	}
+
+	/**
+	 * @return the average time per tick spent in MagicSpells over the last 5 seconds, in nanoseconds
+	 */
+	public long getRecentTickAverage() {
+		long total = 0;
+		for (long nanos : recentTicks) total += nanos;
+		return total / RECENT_TICKS;
+	}
+
+	public long getTicksOverBudget() {
+		return ticksOverBudget;
+	}
+
+	public long getTickBudget() {
+		return tickBudget;
+	}
+
+	/**
+	 * Sends the tick statistics and the sections with the most total time.
+	 * @param sender the receiver
+	 * @param limit how many sections to list
+	 */
+	public void sendView(CommandSender sender, int limit) {
+		ProfileSection.Snapshot tick = getTickSnapshot();
+		String color = MagicSpells.getTextColor().toString();
+
+		sender.sendMessage(color + "Profiling is " + (enabled ? "enabled" : "disabled") + (sampleRate > 1 ? ", sampling 1 in " + sampleRate : "") + '.');
+		sender.sendMessage(color + "Per tick: " + millis(getRecentTickAverage()) + " avg (5s), " + millis(tick.p50Nanos()) + " p50, "
+			+ millis(tick.p99Nanos()) + " p99, " + millis(tick.maxNanos()) + " max; " + ticksOverBudget + " of " + tick.count()
+			+ " ticks over the " + millis(tickBudget) + " budget.");
+
+		List<ProfileSection.Snapshot> snapshots = getSnapshots();
+		for (int i = 0; i < Math.min(limit, snapshots.size()); i++) {
+			ProfileSection.Snapshot snapshot = snapshots.get(i);
+			sender.sendMessage(color + " " + (i + 1) + ". " + snapshot.key() + " - " + snapshot.count() + " runs, " + millis(snapshot.totalNanos())
+				+ " total, " + millis(snapshot.averageNanos()) + " avg, " + millis(snapshot.p50Nanos()) + " p50, "
+				+ millis(snapshot.p99Nanos()) + " p99, " + millis(snapshot.maxNanos()) + " max");
+		}
+	}
+
+	/**
+	 * Toggles a once per second summary in the action bar of the sender.
+	 * @return whether the sender is now viewing
+	 */
+	public boolean toggleLiveView(CommandSender sender) {
+		if (!viewers.add(sender)) {
+			viewers.remove(sender);
+			return false;
+		}
+
+		if (liveViewTaskId == -1) liveViewTaskId = MagicSpells.scheduleRepeatingTask(this::updateLiveView, 0, LIVE_VIEW_INTERVAL);
+		return true;
+	}
+
+	private void updateLiveView() {
+		if (viewers.isEmpty()) {
+			MagicSpells.cancelTask(liveViewTaskId);
+			liveViewTaskId = -1;
+			return;
+		}
+
+		long average = getRecentTickAverage();
+		StringBuilder builder = new StringBuilder("MS ").append(millis(average)).append("/tick");
+		List<ProfileSection.Snapshot> snapshots = getSnapshots();
+		for (int i = 0; i < Math.min(LIVE_VIEW_ENTRIES, snapshots.size()); i++) {
+			ProfileSection.Snapshot snapshot = snapshots.get(i);
+			builder.append(" | ").append(snapshot.key()).append(' ').append(millis(snapshot.p99Nanos())).append(" p99");
+		}
+
+		Component message = Component.text(builder.toString(), average > tickBudget ? NamedTextColor.RED : NamedTextColor.GREEN);
+		for (CommandSender viewer : viewers) viewer.sendActionBar(message);
+	}
+
+	/**
+	 * Writes all statistics as JSON to <code>profiling_report_&lt;timestamp&gt;.json</code> in the data folder.
+	 * @return the written file
+	 */
+	public File export(File folder) throws IOException {
+		JsonObject root = new JsonObject();
+		root.addProperty("timestamp", System.currentTimeMillis());
+		root.addProperty("sampleRate", sampleRate);
+		root.addProperty("tickBudgetNanos", tickBudget);
+		root.addProperty("ticksOverBudget", ticksOverBudget);
+		root.add("ticks", toJson(getTickSnapshot()));
+
+		JsonArray array = new JsonArray();
+		for (ProfileSection.Snapshot snapshot : getSnapshots()) array.add(toJson(snapshot));
+		root.add("sections", array);
+
+		File file = new File(folder, "profiling_report_" + System.currentTimeMillis() + ".json");
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			gson.toJson(root, writer);
+		}
+		return file;
+	}
+
+	private static JsonObject toJson(ProfileSection.Snapshot snapshot) {
+		JsonObject object = new JsonObject();
+		object.addProperty("category", snapshot.category().name().toLowerCase());
+		object.addProperty("name", snapshot.name());
+		object.addProperty("count", snapshot.count());
+		object.addProperty("totalNanos", snapshot.totalNanos());
+		object.addProperty("averageNanos", snapshot.averageNanos());
+		object.addProperty("p50Nanos", snapshot.p50Nanos());
+		object.addProperty("p99Nanos", snapshot.p99Nanos());
+		object.addProperty("maxNanos", snapshot.maxNanos());
+		return object;
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.3fms", nanos / NANOS_PER_MILLI);
+	}
+
+}
@@ -13,6 +13,7 @@ import com.nisovin.magicspells.Subspell;
 import com.nisovin.magicspells.util.Util;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.SpellData;
+import com.nisovin.magicspells.util.TaskDispatcher;
 import com.nisovin.magicspells.util.ValidTargetList;
 import com.nisovin.magicspells.util.compat.EventUtil;
 import com.nisovin.magicspells.events.SpellTargetEvent;
@@ -115,14 +116,14 @@ public class ItemProjectileTracker implements Runnable, Tracker {
 			spell.playTrackingLinePatterns(EffectPosition.DYNAMIC_CASTER_PROJECTILE_LINE, startLocation, entity.getLocation(), data.caster(), entity, data);
 		}
 
-		taskId = MagicSpells.scheduleRepeatingTask(this, tickInterval, tickInterval);
+		taskId = MagicSpells.scheduleProjectileTask(this, () -> currentLocation, tickInterval, tickInterval);
 
-		MagicSpells.scheduleDelayedTask(() -> {
+		TaskDispatcher.runDelayed(entity, () -> {
 			entity.customName(itemName);
 			entity.setCustomNameVisible(true);
 		}, itemNameDelay);
 
-		MagicSpells.scheduleDelayedTask(this::stop, removeDelay);
+		TaskDispatcher.runDelayed(entity, this::stop, removeDelay);
 	}
 
 	@Override
@@ -181,7 +182,7 @@ public class ItemProjectileTracker implements Runnable, Tracker {
 				stop();
 				return;
 			}
-			if (!landed) MagicSpells.scheduleDelayedTask(() -> {
+			if (!landed) TaskDispatcher.runDelayed(entity, () -> {
 				if (spellOnDelay != null) spellOnDelay.subcast(data.location(entity.getLocation()));
 				stop();
 			}, spellDelay);
@@ -200,7 +201,7 @@ public class ItemProjectileTracker implements Runnable, Tracker {
 			if (removeTracker) ItemProjectileSpell.getProjectileTrackers().remove(this);
 		}
 		if (entity != null) entity.remove();
-		MagicSpells.cancelTask(taskId);
+		MagicSpells.cancelProjectileTask(taskId);
 		stopped = true;
 	}
 
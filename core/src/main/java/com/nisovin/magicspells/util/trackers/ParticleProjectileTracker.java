@@ -58,10 +58,12 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 	private int currentX;
 	private int currentZ;
 	private int counter;
-	private int taskId;
+	private int engineId;
 	private BoundingBox hitBox;
+	private ProjectileGrid.Cell gridCell;
 	private BoundingBox groundHitBox;
 	private Set<LivingEntity> immune;
+	private final List<LivingEntity> nearby = new ArrayList<>();
 	private int maxHitLimit;
 	private ValidTargetChecker entitySpellChecker;
 	private ParticleProjectileSpell spell;
@@ -253,9 +255,10 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 			entityMap = spell.playEntityEffectsProjectile(EffectPosition.PROJECTILE, currentLocation, data);
 			armorStandSet = spell.playArmorStandEffectsProjectile(EffectPosition.PROJECTILE, currentLocation, data);
 			ParticleProjectileSpell.getProjectileTrackers().add(this);
+			ParticleProjectileSpell.getProjectileGrid().update(this);
 		}
 
-		taskId = MagicSpells.scheduleRepeatingTask(this, 0, tickInterval);
+		engineId = MagicSpells.scheduleProjectileTask(this, () -> currentLocation, 0, tickInterval);
 	}
 
 	@Override
@@ -423,40 +426,34 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 		checkHitbox(currentLocation);
 		if (stopped) return;
 
-		if (spell == null || interactions == null || interactions.isEmpty()) return;
-		Set<ParticleProjectileTracker> toRemove = new HashSet<>();
-		Set<ParticleProjectileTracker> trackers = new HashSet<>(ParticleProjectileSpell.getProjectileTrackers());
-		for (ParticleProjectileTracker collisionTracker : trackers) {
-			boolean isCaster = Objects.equals(data.caster(), collisionTracker.data.caster());
+		if (spell == null) return;
 
-			for (Interaction interaction : interactions) {
-				if (!canInteractWith(collisionTracker)) continue;
-				if (!interaction.interactsWith().check(collisionTracker.spell)) continue;
+		ProjectileGrid grid = ParticleProjectileSpell.getProjectileGrid();
+		grid.update(this);
 
-				if (interaction.canInteractList() == null && isCaster && !allowCasterInteract) continue;
-				if (interaction.canInteractList() != null && !interaction.canInteractList().canTarget(data.caster(), collisionTracker.data.caster()))
-					continue;
+		if (interactions == null || interactions.isEmpty()) return;
+		grid.interact(this);
+	}
 
-				if (interaction.collisionSpell() != null) {
-					Location middleLoc = currentLocation.clone().add(collisionTracker.currentLocation).multiply(0.5);
-					interaction.collisionSpell().subcast(data.location(middleLoc));
-				}
+	void interactWith(ParticleProjectileTracker collisionTracker) {
+		boolean isCaster = Objects.equals(data.caster(), collisionTracker.data.caster());
 
-				if (interaction.stopCausing()) {
-					toRemove.add(collisionTracker);
-					collisionTracker.stop(false);
-				}
+		for (Interaction interaction : interactions) {
+			if (!canInteractWith(collisionTracker)) continue;
+			if (!interaction.interactsWith().check(collisionTracker.spell)) continue;
 
-				if (interaction.stopWith()) {
-					toRemove.add(this);
-					stop(false);
-				}
+			if (interaction.canInteractList() == null && isCaster && !allowCasterInteract) continue;
+			if (interaction.canInteractList() != null && !interaction.canInteractList().canTarget(data.caster(), collisionTracker.data.caster()))
+				continue;
+
+			if (interaction.collisionSpell() != null) {
+				Location middleLoc = currentLocation.clone().add(collisionTracker.currentLocation).multiply(0.5);
+				interaction.collisionSpell().subcast(data.location(middleLoc));
 			}
-		}
 
-		ParticleProjectileSpell.getProjectileTrackers().removeAll(toRemove);
-		toRemove.clear();
-		trackers.clear();
+			if (interaction.stopCausing()) collisionTracker.stop();
+			if (interaction.stopWith()) stop();
+		}
 	}
 
 	private boolean canInteractWith(ParticleProjectileTracker collisionTracker) {
@@ -545,7 +542,9 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 			currentLoc.getZ() + horizontalHitRadius
 		);
 
-		for (LivingEntity target : currentLoc.getNearbyLivingEntities(horizontalHitRadius, verticalHitRadius)) {
+		nearby.clear();
+		MagicSpells.getEntityGrid().getLivingEntities(currentLoc.getWorld(), hitBox, nearby);
+		for (LivingEntity target : nearby) {
 			if (!target.isValid() || immune.contains(target) || !targetList.canTarget(data.caster(), target)) continue;
 
 			ParticleProjectileHitEvent hitEvent = new ParticleProjectileHitEvent(data.caster(), target, this, spell, data.power());
@@ -619,8 +618,9 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 
 	public void stop(Location location, boolean removeTracker) {
 		if (removeTracker && spell != null) ParticleProjectileSpell.getProjectileTrackers().remove(this);
+		if (gridCell != null) ParticleProjectileSpell.getProjectileGrid().remove(this);
 		if (spell != null) spell.playEffects(EffectPosition.DELAYED, location, data.location(location));
-		MagicSpells.cancelTask(taskId);
+		MagicSpells.cancelProjectileTask(engineId);
 		if (effectSet != null) {
 			for (EffectlibSpellEffect spellEffect : effectSet) {
 				spellEffect.getEffect().cancel();
@@ -726,12 +726,30 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 		this.currentZ = currentZ;
 	}
 
+	/**
+	 * @return the id of the tracker in the {@link ProjectileEngine}, which can only be cancelled through
+	 * {@link MagicSpells#cancelProjectileTask(int)}
+	 */
+	public int getEngineId() {
+		return engineId;
+	}
+
+	/**
+	 * @deprecated Returns the id of the tracker in the {@link ProjectileEngine}, not a scheduler task id, so it must
+	 * not be passed to {@link MagicSpells#cancelTask(int)}. Use {@link #stop()} to stop the tracker, or
+	 * {@link #getEngineId()}.
+	 */
+	@Deprecated(forRemoval = true)
 	public int getTaskId() {
-		return taskId;
+		return engineId;
 	}
 
+	/**
+	 * @deprecated The id is assigned by the {@link ProjectileEngine} when the tracker starts.
+	 */
+	@Deprecated(forRemoval = true)
 	public void setTaskId(int taskId) {
-		this.taskId = taskId;
+		engineId = taskId;
 	}
 
 	public BoundingBox getHitBox() {
@@ -742,6 +760,14 @@ public class ParticleProjectileTracker implements Runnable, Tracker {
 		this.hitBox = hitBox;
 	}
 
+	ProjectileGrid.Cell getGridCell() {
+		return gridCell;
+	}
+
+	void setGridCell(ProjectileGrid.Cell gridCell) {
+		this.gridCell = gridCell;
+	}
+
 	public int getMaxHitLimit() {
 		return maxHitLimit;
 	}
@@ -0,0 +1,222 @@
+package com.nisovin.magicspells.util.trackers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.profiling.Profiler;
+import com.nisovin.magicspells.util.profiling.ProfileSection;
+import com.nisovin.magicspells.util.profiling.ProfileCategory;
+
+/**
+ * Steps all projectile trackers from a single repeating task, instead of one scheduler task per projectile.
+ * <p>
+ * Trackers are grouped into buckets by their tick interval and the phase of that interval they were started on,
+ * so each tick only the buckets due on it are visited. Each bucket keeps its trackers in parallel arrays. Trackers
+ * stopped while their bucket is being stepped are only cleared, and the bucket is compacted afterwards.
+ * <p>
+ * The time of each step is recorded in the profiler per tracker class, and the time of the whole tick in the
+ * <code>Task:ProjectileEngine</code> section.
+ */
+public class ProjectileEngine {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<Long, Bucket> buckets = new HashMap<>();
+	private final List<Bucket> bucketList = new ArrayList<>();
+	private final Map<Integer, Bucket> bucketsById = new HashMap<>();
+	private final Map<Class<?>, ProfileSection> sections = new HashMap<>();
+
+	private final Profiler profiler;
+	private final ProfileSection tickSection;
+
+	private int taskId = -1;
+	private int nextId = 1;
+	private int activeCount;
+	private long tick;
+
+	public ProjectileEngine(Profiler profiler) {
+		this.profiler = profiler;
+		tickSection = profiler.getSection(ProfileCategory.TASK, "ProjectileEngine");
+	}
+
+	public void initialize() {
+		taskId = MagicSpells.scheduleRepeatingTask(this::tick, 1, 1);
+	}
+
+	public void disable() {
+		if (taskId != -1) MagicSpells.cancelTask(taskId);
+		taskId = -1;
+
+		buckets.clear();
+		bucketList.clear();
+		bucketsById.clear();
+		sections.clear();
+		activeCount = 0;
+	}
+
+	/**
+	 * Starts stepping a tracker, like {@link MagicSpells#scheduleRepeatingTask(Runnable, long, long)}.
+	 * @param tracker the step of the tracker
+	 * @param delay ticks before the first step
+	 * @param interval ticks between steps
+	 * @return the id to stop the tracker with
+	 */
+	public int schedule(Runnable tracker, int delay, int interval) {
+		interval = Math.max(interval, 1);
+		long start = tick + Math.max(delay, 1);
+		int phase = (int) (start % interval);
+
+		Bucket bucket = buckets.computeIfAbsent(((long) interval << 32) | phase, key -> {
+			Bucket created = new Bucket(interval, phase);
+			bucketList.add(created);
+			return created;
+		});
+
+		ProfileSection section = sections.computeIfAbsent(tracker.getClass(), this::createSection);
+
+		int id = nextId++;
+		bucket.add(id, tracker, start, section);
+		bucketsById.put(id, bucket);
+		activeCount++;
+		return id;
+	}
+
+	/**
+	 * Stops stepping a tracker. Does nothing if the id is not scheduled.
+	 */
+	public void cancel(int id) {
+		Bucket bucket = bucketsById.remove(id);
+		if (bucket == null) return;
+
+		bucket.remove(id);
+		activeCount--;
+	}
+
+	/**
+	 * @return the number of scheduled trackers
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	private ProfileSection createSection(Class<?> type) {
+		Class<?> owner = type;
+		// Lambdas and anonymous classes are named after the class that created them.
+		while (owner.isAnonymousClass() || owner.isSynthetic() || owner.isHidden()) {
+			Class<?> enclosing = owner.getEnclosingClass();
+			if (enclosing == null) break;
+			owner = enclosing;
+		}
+
+		return profiler.getSection(ProfileCategory.TASK, "Projectile:" + owner.getName().replace("com.nisovin.magicspells.", ""));
+	}
+
+	private void tick() {
+		tick++;
+
+		long start = profiler.start();
+		// Buckets created during this tick only have trackers starting next tick at the earliest.
+		for (int i = 0, size = bucketList.size(); i < size; i++) {
+			Bucket bucket = bucketList.get(i);
+			if (tick % bucket.interval == bucket.phase) bucket.step(tick);
+		}
+		profiler.stop(tickSection, start);
+
+		bucketList.removeIf(bucket -> {
+			if (bucket.size > 0) return false;
+			buckets.remove(((long) bucket.interval << 32) | bucket.phase);
+			return true;
+		});
+	}
+
+	private class Bucket {
+
+		private final int interval;
+		private final int phase;
+
+		private int size;
+		private int[] ids = new int[INITIAL_CAPACITY];
+		private long[] startTicks = new long[INITIAL_CAPACITY];
+		private Runnable[] trackers = new Runnable[INITIAL_CAPACITY];
+		private ProfileSection[] sections = new ProfileSection[INITIAL_CAPACITY];
+
+		private boolean stepping;
+		private boolean dirty;
+
+		private Bucket(int interval, int phase) {
+			this.interval = interval;
+			this.phase = phase;
+		}
+
+		private void add(int id, Runnable tracker, long startTick, ProfileSection section) {
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				startTicks = Arrays.copyOf(startTicks, capacity);
+				trackers = Arrays.copyOf(trackers, capacity);
+				sections = Arrays.copyOf(sections, capacity);
+			}
+
+			ids[size] = id;
+			startTicks[size] = startTick;
+			trackers[size] = tracker;
+			sections[size] = section;
+			size++;
+		}
+
+		private void remove(int id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] != id) continue;
+
+				if (stepping) {
+					trackers[i] = null;
+					dirty = true;
+				} else removeAt(i);
+
+				return;
+			}
+		}
+
+		private void removeAt(int index) {
+			int last = --size;
+			ids[index] = ids[last];
+			startTicks[index] = startTicks[last];
+			trackers[index] = trackers[last];
+			sections[index] = sections[last];
+			trackers[last] = null;
+			sections[last] = null;
+		}
+
+		private void step(long tick) {
+			stepping = true;
+			// Trackers added while stepping are appended, and are not due before the next tick.
+			int count = size;
+			for (int i = 0; i < count; i++) {
+				Runnable tracker = trackers[i];
+				if (tracker == null || startTicks[i] > tick) continue;
+
+				long start = profiler.start();
+				try {
+					tracker.run();
+				} catch (Exception e) {
+					MagicSpells.handleException(e);
+				} finally {
+					profiler.stop(sections[i], start);
+				}
+			}
+			stepping = false;
+
+			if (!dirty) return;
+			dirty = false;
+
+			for (int i = size - 1; i >= 0; i--)
+				if (trackers[i] == null) removeAt(i);
+		}
+
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.nisovin.magicspells.util.trackers;
+
+import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import org.bukkit.Location;
+import org.bukkit.util.BoundingBox;
+
+/**
+ * Spatial hash of live particle projectiles, used as the broadphase for projectile interactions.
+ * <p>
+ * Each world is divided into cubic cells, and every projectile is kept in the cell containing its current
+ * location, moving between cells as it travels. Queries visit only the cells that a hitbox, grown by the largest
+ * hitbox seen in the world, can overlap. Projectiles removed or moved while a query is running are only cleared
+ * from their cell, and the cell is compacted once the outermost query finishes, so no collection is copied.
+ * <p>
+ * On Folia, projectiles step on the threads of the regions they are in, so every access holds the lock of the grid.
+ * Queries hold it while interacting, and projectiles started by collision spells re-enter it on the same thread.
+ */
+public class ProjectileGrid {
+
+	private static final double CELL_SIZE = 8;
+
+	private final Map<UUID, WorldGrid> worlds = new HashMap<>();
+	private final List<Cell> dirtyCells = new ArrayList<>();
+	private int queryDepth;
+
+	/**
+	 * Adds the projectile, or moves it to the cell of its current location.
+	 */
+	public synchronized void update(ParticleProjectileTracker tracker) {
+		Location location = tracker.getCurrentLocation();
+		if (location == null || location.getWorld() == null) {
+			remove(tracker);
+			return;
+		}
+
+		UUID worldId = location.getWorld().getUID();
+		long key = key(cell(location.getX()), cell(location.getY()), cell(location.getZ()));
+
+		Cell current = tracker.getGridCell();
+		if (current != null && current.key == key && current.grid.worldId.equals(worldId)) {
+			current.grid.include(tracker.getHitBox());
+			return;
+		}
+
+		if (current != null) removeFromCell(current, tracker);
+
+		WorldGrid grid = worlds.computeIfAbsent(worldId, WorldGrid::new);
+		Cell cell = grid.cells.get(key);
+		if (cell == null) {
+			cell = new Cell(grid, key);
+			grid.cells.put(key, cell);
+		}
+
+		cell.trackers.add(tracker);
+		grid.include(tracker.getHitBox());
+		tracker.setGridCell(cell);
+	}
+
+	public synchronized void remove(ParticleProjectileTracker tracker) {
+		Cell cell = tracker.getGridCell();
+		if (cell == null) return;
+
+		removeFromCell(cell, tracker);
+		tracker.setGridCell(null);
+	}
+
+	/**
+	 * Calls {@link ParticleProjectileTracker#interactWith(ParticleProjectileTracker)} on the tracker for every other
+	 * projectile in the same world whose cell its hitbox could overlap.
+	 */
+	public synchronized void interact(ParticleProjectileTracker tracker) {
+		Cell own = tracker.getGridCell();
+		if (own == null) return;
+
+		WorldGrid grid = own.grid;
+		BoundingBox box = tracker.getHitBox();
+
+		int minX = cell(box.getMinX() - grid.maxHalfWidth), maxX = cell(box.getMaxX() + grid.maxHalfWidth);
+		int minY = cell(box.getMinY() - grid.maxHalfHeight), maxY = cell(box.getMaxY() + grid.maxHalfHeight);
+		int minZ = cell(box.getMinZ() - grid.maxHalfWidth), maxZ = cell(box.getMaxZ() + grid.maxHalfWidth);
+
+		queryDepth++;
+		try {
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						Cell cell = grid.cells.get(key(x, y, z));
+						if (cell == null) continue;
+
+						// Projectiles started by collision spells are appended, and are only checked from the next tick.
+						List<ParticleProjectileTracker> trackers = cell.trackers;
+						for (int i = 0, size = trackers.size(); i < size; i++) {
+							ParticleProjectileTracker other = trackers.get(i);
+							if (other == null || other == tracker) continue;
+
+							tracker.interactWith(other);
+							if (tracker.isStopped()) return;
+						}
+					}
+				}
+			}
+		} finally {
+			if (--queryDepth == 0) compact();
+		}
+	}
+
+	public synchronized void clear() {
+		for (WorldGrid grid : worlds.values())
+			for (Cell cell : grid.cells.values())
+				for (ParticleProjectileTracker tracker : cell.trackers)
+					if (tracker != null) tracker.setGridCell(null);
+
+		worlds.clear();
+		dirtyCells.clear();
+	}
+
+	private void removeFromCell(Cell cell, ParticleProjectileTracker tracker) {
+		List<ParticleProjectileTracker> trackers = cell.trackers;
+		int index = trackers.indexOf(tracker);
+		if (index < 0) return;
+
+		if (queryDepth > 0) {
+			trackers.set(index, null);
+			if (!cell.dirty) {
+				cell.dirty = true;
+				dirtyCells.add(cell);
+			}
+			return;
+		}
+
+		int last = trackers.size() - 1;
+		trackers.set(index, trackers.get(last));
+		trackers.remove(last);
+		if (trackers.isEmpty()) cell.grid.removeCell(cell);
+	}
+
+	private void compact() {
+		for (int i = 0; i < dirtyCells.size(); i++) {
+			Cell cell = dirtyCells.get(i);
+			cell.dirty = false;
+			cell.trackers.removeIf(tracker -> tracker == null);
+			if (cell.trackers.isEmpty()) cell.grid.removeCell(cell);
+		}
+		dirtyCells.clear();
+	}
+
+	private static int cell(double coordinate) {
+		return (int) Math.floor(coordinate / CELL_SIZE);
+	}
+
+	private static long key(int x, int y, int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
+	private class WorldGrid {
+
+		private final UUID worldId;
+		private final Long2ObjectMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+
+		// Largest hitbox half extents seen since the world last had no projectiles.
+		private double maxHalfWidth;
+		private double maxHalfHeight;
+
+		private WorldGrid(UUID worldId) {
+			this.worldId = worldId;
+		}
+
+		private void include(BoundingBox box) {
+			maxHalfWidth = Math.max(maxHalfWidth, Math.max(box.getWidthX(), box.getWidthZ()) / 2);
+			maxHalfHeight = Math.max(maxHalfHeight, box.getHeight() / 2);
+		}
+
+		private void removeCell(Cell cell) {
+			cells.remove(cell.key, cell);
+			if (cells.isEmpty()) worlds.remove(worldId, this);
+		}
+
+	}
+
+	static class Cell {
+
+		private final WorldGrid grid;
+		private final long key;
+		private final List<ParticleProjectileTracker> trackers = new ArrayList<>(4);
+		private boolean dirty;
+
+		private Cell(WorldGrid grid, long key) {
+			this.grid = grid;
+			this.key = key;
+		}
+
+	}
+
+}
@@ -2,7 +2,9 @@ package com.nisovin.magicspells.util.trackers;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.List;
 import java.util.Random;
+import java.util.ArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.bukkit.Color;
@@ -35,6 +37,7 @@ import com.nisovin.magicspells.spelleffects.util.EffectlibSpellEffect;
 public class ProjectileTracker implements Runnable, Tracker {
 
 	private final Random rand = ThreadLocalRandom.current();
+	private final List<LivingEntity> nearby = new ArrayList<>();
 
 	private Set<EffectlibSpellEffect> effectSet;
 	private Map<SpellEffect, Entity> entityMap;
@@ -111,7 +114,7 @@ public class ProjectileTracker implements Runnable, Tracker {
 	public void initialize() {
 		zoneManager = MagicSpells.getNoMagicZoneManager();
 		startTime = System.currentTimeMillis();
-		taskId = MagicSpells.scheduleRepeatingTask(this, 0, tickInterval);
+		taskId = MagicSpells.scheduleProjectileTask(this, () -> currentLocation == null ? startLocation : currentLocation, 0, tickInterval);
 
 		startLocation.add(0, relativeOffset.getY(), 0);
 		Util.applyRelativeOffset(startLocation, relativeOffset.setY(0));
@@ -285,7 +288,9 @@ public class ProjectileTracker implements Runnable, Tracker {
 
 		SpellData data = this.data.location(location);
 
-		for (LivingEntity entity : location.getNearbyLivingEntities(hitRadius, verticalHitRadius, hitRadius)) {
+		nearby.clear();
+		MagicSpells.getEntityGrid().getLivingEntities(location, hitRadius, verticalHitRadius, hitRadius, nearby);
+		for (LivingEntity entity : nearby) {
 			if (!targetList.canTarget(data.caster(), entity)) continue;
 
 			SpellTargetEvent event = new SpellTargetEvent(spell, data, entity);
@@ -310,7 +315,7 @@ public class ProjectileTracker implements Runnable, Tracker {
 			spell.playEffects(EffectPosition.DELAYED, currentLocation, data);
 			if (removeTracker) ProjectileSpell.getProjectileTrackers().remove(this);
 		}
-		MagicSpells.cancelTask(taskId);
+		MagicSpells.cancelProjectileTask(taskId);
 		if (effectSet != null) {
 			for (EffectlibSpellEffect spellEffect : effectSet) {
 				spellEffect.getEffect().cancel();
@@ -0,0 +1,302 @@
+package com.nisovin.magicspells.variables;
+
+import java.io.File;
+import java.io.Writer;
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import com.nisovin.magicspells.util.Util;
+import com.nisovin.magicspells.MagicSpells;
+
+/**
+ * Append-only persistence for permanent variables.
+ * <p>
+ * Every change of a permanent variable is appended to <code>vars/journal.log</code> as a checksummed record by a
+ * background thread. The journal is periodically compacted into the <code>GLOBAL.txt</code> and
+ * <code>PLAYER_&lt;uuid&gt;.txt</code> snapshot files, which are replaced atomically, after which the journal is
+ * truncated. On load, the journal left over from a crash is replayed up to its first damaged record and compacted.
+ * <p>
+ * All file access happens on the journal thread, except for {@link #recover()}.
+ */
+public class VariableJournal {
+
+	public static final String GLOBAL_SCOPE = "GLOBAL";
+
+	private static final String JOURNAL_FILE = "journal.log";
+	private static final char SET = 'S';
+	private static final char RESET = 'R';
+	private static final long SHUTDOWN_TIMEOUT = 30;
+
+	private final File folder;
+	private final File journalFile;
+	private final long compactInterval;
+
+	// Full state of every scope changed since the last compaction. Only accessed on the journal thread.
+	private final Map<String, Map<String, String>> changedScopes = new HashMap<>();
+
+	private ScheduledExecutorService executor;
+	private Writer writer;
+
+	/**
+	 * @param folder the variable folder
+	 * @param compactInterval interval between compactions, in milliseconds
+	 */
+	public VariableJournal(File folder, long compactInterval) {
+		this.folder = folder;
+		this.journalFile = new File(folder, JOURNAL_FILE);
+		this.compactInterval = Math.max(compactInterval, 1000);
+	}
+
+	/**
+	 * Replays and compacts the journal left over from the previous run, then starts the journal thread.
+	 * Runs on the calling thread, as the snapshot files must be complete before variables are loaded.
+	 */
+	public void recover() {
+		if (journalFile.exists()) {
+			int records = 0;
+			try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isEmpty()) continue;
+					if (!replay(line)) {
+						MagicSpells.error("Variable journal is damaged after " + records + " records, discarding the remainder.");
+						break;
+					}
+					records++;
+				}
+			} catch (IOException e) {
+				MagicSpells.error("ERROR READING VARIABLE JOURNAL");
+				MagicSpells.handleException(e);
+			}
+
+			if (records > 0) MagicSpells.log("Recovered " + records + " variable changes from the journal.");
+			compact();
+		}
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "MagicSpells Variable Journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		executor.scheduleWithFixedDelay(this::compact, compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+		this.executor = executor;
+	}
+
+	/**
+	 * Records a new value of a permanent variable.
+	 * @param scope {@link #GLOBAL_SCOPE} or the unique id of the player
+	 * @param variable the variable name
+	 * @param value the new value, or null if the variable was reset to its default
+	 */
+	public void append(String scope, String variable, String value) {
+		if (executor == null) return;
+
+		String stored = value == null ? null : Util.flattenLineBreaks(value);
+		String record = scope + '\t' + (stored == null ? RESET : SET) + '\t' + variable + '\t' + (stored == null ? "" : stored);
+		executor.execute(() -> {
+			try {
+				if (writer == null) writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8));
+				writer.write(record);
+				writer.write('\t');
+				writer.write(Long.toHexString(checksum(record)));
+				writer.write('\n');
+				// Flush per record, so a crash of the server process loses nothing that has been appended.
+				writer.flush();
+			} catch (IOException e) {
+				MagicSpells.error("ERROR WRITING VARIABLE JOURNAL");
+				MagicSpells.handleException(e);
+			}
+			apply(scope, variable, stored);
+		});
+	}
+
+	/**
+	 * Reads the current persistent values of a scope, including changes not compacted yet. The read is ordered
+	 * after all previously appended records.
+	 * @param scope {@link #GLOBAL_SCOPE} or the unique id of the player
+	 * @return the variable values of the scope, in their stored form
+	 */
+	public CompletableFuture<Map<String, String>> read(String scope) {
+		if (executor == null || executor.isShutdown()) return CompletableFuture.completedFuture(readSnapshot(scope));
+
+		return CompletableFuture.supplyAsync(() -> {
+			Map<String, String> values = changedScopes.get(scope);
+			return values == null ? readSnapshot(scope) : new LinkedHashMap<>(values);
+		}, executor);
+	}
+
+	/**
+	 * Compacts the changes of a scope into its snapshot file, without waiting for the next compaction.
+	 * @param scope {@link #GLOBAL_SCOPE} or the unique id of the player
+	 */
+	public void flush(String scope) {
+		if (executor == null || executor.isShutdown()) return;
+		executor.execute(() -> {
+			Map<String, String> values = changedScopes.get(scope);
+			if (values != null) writeSnapshot(scope, values);
+		});
+	}
+
+	/**
+	 * Compacts all pending changes and stops the journal thread, waiting for it to finish.
+	 */
+	public void close() {
+		if (executor == null) return;
+
+		executor.execute(this::compact);
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS))
+				MagicSpells.error("Timed out waiting for the variable journal to finish, it will be replayed on the next load.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	private void compact() {
+		closeWriter();
+
+		boolean success = true;
+		for (Map.Entry<String, Map<String, String>> entry : changedScopes.entrySet()) {
+			success &= writeSnapshot(entry.getKey(), entry.getValue());
+		}
+
+		// Keep the journal if any snapshot failed, so the changes are replayed next time.
+		if (!success) return;
+
+		changedScopes.clear();
+		if (journalFile.exists() && !journalFile.delete()) MagicSpells.error("Could not truncate the variable journal.");
+	}
+
+	private boolean replay(String line) {
+		int checksumIndex = line.lastIndexOf('\t');
+		if (checksumIndex < 0) return false;
+
+		String record = line.substring(0, checksumIndex);
+		try {
+			if (Long.parseLong(line.substring(checksumIndex + 1), 16) != checksum(record)) return false;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		String[] data = record.split("\t", 4);
+		if (data.length != 4 || data[1].length() != 1) return false;
+
+		switch (data[1].charAt(0)) {
+			case SET -> apply(data[0], data[2], data[3]);
+			case RESET -> apply(data[0], data[2], null);
+			default -> {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void apply(String scope, String variable, String value) {
+		Map<String, String> values = changedScopes.computeIfAbsent(scope, this::readSnapshot);
+		if (value == null) values.remove(variable);
+		else values.put(variable, value);
+	}
+
+	private Map<String, String> readSnapshot(String scope) {
+		Map<String, String> values = new LinkedHashMap<>();
+
+		File file = getSnapshotFile(scope);
+		if (!file.exists()) return values;
+
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) continue;
+
+				String[] s = line.split("=", 2);
+				if (s.length == 2) values.put(s[0], s[1]);
+			}
+		} catch (IOException e) {
+			MagicSpells.error("ERROR LOADING VARIABLES FOR " + scope);
+			MagicSpells.handleException(e);
+		}
+
+		return values;
+	}
+
+	private boolean writeSnapshot(String scope, Map<String, String> values) {
+		File file = getSnapshotFile(scope);
+		if (values.isEmpty()) {
+			if (file.exists() && !file.delete()) {
+				MagicSpells.error("ERROR SAVING VARIABLES FOR " + scope);
+				return false;
+			}
+			return true;
+		}
+
+		File temp = new File(folder, file.getName() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp, false);
+			 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+			for (Map.Entry<String, String> entry : values.entrySet()) {
+				writer.write(entry.getKey() + '=' + entry.getValue());
+				writer.write(System.lineSeparator());
+			}
+			writer.flush();
+			out.getFD().sync();
+		} catch (IOException e) {
+			MagicSpells.error("ERROR SAVING VARIABLES FOR " + scope);
+			MagicSpells.handleException(e);
+			return false;
+		}
+
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException ex) {
+				MagicSpells.error("ERROR SAVING VARIABLES FOR " + scope);
+				MagicSpells.handleException(ex);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private File getSnapshotFile(String scope) {
+		return new File(folder, scope.equals(GLOBAL_SCOPE) ? "GLOBAL.txt" : "PLAYER_" + scope + ".txt");
+	}
+
+	private void closeWriter() {
+		if (writer == null) return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			MagicSpells.error("ERROR CLOSING VARIABLE JOURNAL");
+			MagicSpells.handleException(e);
+		}
+		writer = null;
+	}
+
+	private static long checksum(String record) {
+		CRC32 crc = new CRC32();
+		crc.update(record.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+}
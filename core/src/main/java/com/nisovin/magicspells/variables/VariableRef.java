@@ -0,0 +1,115 @@
+package com.nisovin.magicspells.variables;
+
+import com.nisovin.magicspells.MagicSpells;
+import com.nisovin.magicspells.util.managers.VariableManager;
+import com.nisovin.magicspells.variables.variabletypes.GlobalVariable;
+import com.nisovin.magicspells.variables.variabletypes.PlayerVariable;
+import com.nisovin.magicspells.variables.variabletypes.GlobalStringVariable;
+import com.nisovin.magicspells.variables.variabletypes.PlayerStringVariable;
+
+/**
+ * A variable reference resolved once per variable load, rather than looked up by name on every use.
+ * <p>
+ * Configs are compiled before variables are loaded, so the reference is bound on first use after each load, to the
+ * variable and, for plain player variables, to the slot holding its values in the {@link VariableStore}. The binding
+ * is immutable and published through a volatile field, so a reference can be shared between threads.
+ */
+public class VariableRef {
+
+	private final String name;
+
+	private volatile Binding binding;
+
+	public VariableRef(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the referenced variable, or null if no such variable is loaded
+	 */
+	public Variable get() {
+		Binding binding = bind();
+		return binding == null ? null : binding.variable;
+	}
+
+	/**
+	 * @return the binding of this reference for the current variable load, or null if no such variable is loaded
+	 */
+	public Binding bind() {
+		Binding binding = this.binding;
+		int current = VariableManager.getGeneration();
+		if (binding != null && binding.generation == current) return binding;
+
+		VariableManager manager = MagicSpells.getVariableManager();
+		Variable variable = manager == null ? null : manager.getVariable(name);
+		// Missing variables are looked up again next time, in case they were added to the map directly.
+		if (variable == null) return null;
+
+		binding = new Binding(variable, current);
+		this.binding = binding;
+		return binding;
+	}
+
+	/**
+	 * @return whether the variable resolved by the last {@link #get()} is shared by all players
+	 */
+	public boolean isGlobal() {
+		Binding binding = this.binding;
+		return binding != null && binding.global;
+	}
+
+	/**
+	 * @return whether the variable resolved by the last {@link #get()} holds string values
+	 */
+	public boolean isString() {
+		Binding binding = this.binding;
+		return binding != null && binding.string;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public static final class Binding {
+
+		private final Variable variable;
+		private final int generation;
+
+		private final boolean global;
+		private final boolean string;
+
+		private final int slot;
+
+		private Binding(Variable variable, int generation) {
+			this.variable = variable;
+			this.generation = generation;
+
+			global = variable instanceof GlobalVariable || variable instanceof GlobalStringVariable;
+			string = variable instanceof PlayerStringVariable || variable instanceof GlobalStringVariable;
+
+			// Subclasses may override how values are read, so only plain player variables are read from their slot.
+			slot = variable.getClass() == PlayerVariable.class ? ((PlayerVariable) variable).getSlot() : -1;
+		}
+
+		public Variable getVariable() {
+			return variable;
+		}
+
+		public boolean isGlobal() {
+			return global;
+		}
+
+		public boolean isString() {
+			return string;
+		}
+
+		/**
+		 * @return the number slot of the variable in the store, or -1 if its values must be read through the variable
+		 */
+		public int getSlot() {
+			return slot;
+		}
+
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.nisovin.magicspells.variables;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Primitive storage for per-player variable values.
+ * <p>
+ * Each player variable is assigned a dense slot when it is loaded, and each player seen this session is
+ * assigned a compact index with a row holding the values of every slot. Numbers and strings live in separate
+ * <code>double[]</code> and <code>String[]</code> columns, so reads and writes do not box.
+ * <p>
+ * Rows of online players are resolved by {@link #getRow(Player)} through a small cache keyed by entity id, so the
+ * name of the player is only hashed the first time their row is looked up each session.
+ */
+public class VariableStore {
+
+	private static final int INITIAL_ROWS = 64;
+	private static final int CACHE_SIZE = 256;
+
+	private final Map<String, Row> rowsByName = new HashMap<>();
+	private final Row[] cache = new Row[CACHE_SIZE];
+	private Row[] rows = new Row[INITIAL_ROWS];
+	private int rowCount;
+
+	private int numberSlots;
+	private int stringSlots;
+
+	public int allocateNumberSlot() {
+		return numberSlots++;
+	}
+
+	public int allocateStringSlot() {
+		return stringSlots++;
+	}
+
+	/**
+	 * @param player the player name
+	 * @return the row of the player, or null if nothing was stored for them this session
+	 */
+	public Row getRow(String player) {
+		if (player == null) return null;
+		return rowsByName.get(player);
+	}
+
+	/**
+	 * @param player the player
+	 * @return the row of the player, or null if nothing was stored for them this session
+	 */
+	public Row getRow(Player player) {
+		if (player == null) return null;
+
+		// Entity ids are not reused while the server runs, so a matching id is always the same player session.
+		int entityId = player.getEntityId();
+		Row row = cache[entityId & (CACHE_SIZE - 1)];
+		if (row != null && row.entityId == entityId) return row;
+
+		row = rowsByName.get(player.getName());
+		if (row != null) cache(row, entityId);
+		return row;
+	}
+
+	/**
+	 * @param index the session index of the player, from {@link Row#getIndex()}
+	 * @return the row of the player, or null if the index is unused
+	 */
+	public Row getRow(int index) {
+		if (index < 0 || index >= rowCount) return null;
+		return rows[index];
+	}
+
+	public Row getOrCreateRow(String player) {
+		Row row = rowsByName.get(player);
+		if (row != null) return row;
+
+		if (rowCount == rows.length) rows = Arrays.copyOf(rows, rowCount * 2);
+		row = new Row(rowCount, numberSlots, stringSlots);
+		rows[rowCount++] = row;
+		rowsByName.put(player, row);
+		return row;
+	}
+
+	public Row getOrCreateRow(Player player) {
+		Row row = getRow(player);
+		if (row != null) return row;
+
+		row = getOrCreateRow(player.getName());
+		cache(row, player.getEntityId());
+		return row;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public void clear() {
+		rowsByName.clear();
+		Arrays.fill(cache, null);
+		Arrays.fill(rows, 0, rowCount, null);
+		rowCount = 0;
+	}
+
+	private void cache(Row row, int entityId) {
+		row.entityId = entityId;
+		cache[entityId & (CACHE_SIZE - 1)] = row;
+	}
+
+	public static class Row {
+
+		private final int index;
+		private int entityId = -1;
+
+		private double[] numbers;
+		private long[] numbersSet;
+		private String[] strings;
+
+		private Row(int index, int numberSlots, int stringSlots) {
+			this.index = index;
+			numbers = new double[numberSlots];
+			numbersSet = new long[words(numberSlots)];
+			strings = new String[stringSlots];
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public boolean hasNumber(int slot) {
+			int word = slot >>> 6;
+			return word < numbersSet.length && (numbersSet[word] & (1L << slot)) != 0;
+		}
+
+		public double getNumber(int slot, double def) {
+			return hasNumber(slot) ? numbers[slot] : def;
+		}
+
+		public void setNumber(int slot, double value) {
+			if (slot >= numbers.length) {
+				numbers = Arrays.copyOf(numbers, Math.max(slot + 1, numbers.length * 2));
+				numbersSet = Arrays.copyOf(numbersSet, words(numbers.length));
+			}
+			numbers[slot] = value;
+			numbersSet[slot >>> 6] |= 1L << slot;
+		}
+
+		public void clearNumber(int slot) {
+			int word = slot >>> 6;
+			if (word < numbersSet.length) numbersSet[word] &= ~(1L << slot);
+		}
+
+		public String getString(int slot, String def) {
+			if (slot >= strings.length) return def;
+			String value = strings[slot];
+			return value == null ? def : value;
+		}
+
+		public void setString(int slot, String value) {
+			if (slot >= strings.length) strings = Arrays.copyOf(strings, Math.max(slot + 1, strings.length * 2));
+			strings[slot] = value;
+		}
+
+		private static int words(int slots) {
+			return (slots + 63) >>> 6;
+		}
+
+	}
+
+}
@@ -1,21 +1,15 @@
 package com.nisovin.magicspells.variables.variabletypes;
 
-import java.util.Map;
-import java.util.HashMap;
-
 import com.nisovin.magicspells.util.Name;
+import com.nisovin.magicspells.variables.VariableStore;
 
 import org.bukkit.configuration.ConfigurationSection;
 
 @Name("playerstring")
 public class PlayerStringVariable extends PlayerVariable {
 
-	private final Map<String, String> data;
-	
-	public PlayerStringVariable() {
-		data = new HashMap<>();
-	}
-	
+	private int stringSlot = -1;
+
 	@Override
 	public void loadExtraData(ConfigurationSection section) {
 		super.loadExtraData(section);
@@ -24,17 +18,25 @@ public class PlayerStringVariable extends PlayerVariable {
 	
 	@Override
 	public String getStringValue(String player) {
-		return data.getOrDefault(player, defaultStringValue);
+		VariableStore.Row row = store().getRow(player);
+		return row == null ? defaultStringValue : row.getString(stringSlot, defaultStringValue);
 	}
 	
 	@Override
 	public void parseAndSet(String player, String textValue) {
-		data.put(player, textValue);
+		store().getOrCreateRow(player).setString(stringSlot, textValue);
 	}
 	
 	@Override
 	public void reset(String player) {
-		data.remove(player);
+		VariableStore.Row row = store().getRow(player);
+		if (row != null) row.setString(stringSlot, null);
+	}
+
+	@Override
+	public void bind(VariableStore store) {
+		super.bind(store);
+		stringSlot = store.allocateStringSlot();
 	}
 	
 }
@@ -1,35 +1,70 @@
 package com.nisovin.magicspells.variables.variabletypes;
 
-import java.util.Map;
-import java.util.HashMap;
+import org.bukkit.entity.Player;
 
 import com.nisovin.magicspells.util.Name;
 import com.nisovin.magicspells.variables.Variable;
+import com.nisovin.magicspells.variables.VariableStore;
+import com.nisovin.magicspells.util.managers.VariableManager;
 
 @Name("player")
 public class PlayerVariable extends Variable {
 
-	private final Map<String, Double> map = new HashMap<>();
+	private VariableStore store;
+	private int slot = -1;
 
 	@Override
 	public void set(String player, double amount) {
 		if (amount > maxValue) amount = maxValue;
 		else if (amount < minValue) amount = minValue;
-		map.put(player, amount);
+		store().getOrCreateRow(player).setNumber(slot, amount);
 		if (objective == null) return;
 		objective.getScore(player).setScore((int) amount);
 	}
 
+	@Override
+	public double getValue(Player player) {
+		if (player == null) return super.getValue(player);
+		VariableStore.Row row = store().getRow(player);
+		return row == null ? defaultValue : row.getNumber(slot, defaultValue);
+	}
+
 	@Override
 	public double getValue(String player) {
-		return map.getOrDefault(player, defaultValue);
+		VariableStore.Row row = store().getRow(player);
+		return row == null ? defaultValue : row.getNumber(slot, defaultValue);
 	}
 
 	@Override
 	public void reset(String player) {
-		map.remove(player);
+		VariableStore.Row row = store().getRow(player);
+		if (row != null) row.clearNumber(slot);
 		if (objective == null) return;
 		objective.getScore(player).setScore((int) defaultValue);
 	}
 
+	/**
+	 * Allocates the slots of this variable in the store. Called by the variable manager when the variable is loaded.
+	 */
+	public void bind(VariableStore store) {
+		this.store = store;
+		slot = store.allocateNumberSlot();
+	}
+
+	/**
+	 * @return the number slot holding the values of this variable in the store
+	 */
+	public int getSlot() {
+		store();
+		return slot;
+	}
+
+	/**
+	 * @return the store holding the values of this variable, binding it first if it was not loaded by the manager
+	 */
+	protected VariableStore store() {
+		if (store == null) bind(VariableManager.getStore());
+		return store;
+	}
+
 }
@@ -57,6 +57,14 @@ public abstract class NoMagicZone implements Comparable<NoMagicZone> {
 	}
 	
 	public abstract boolean inZone(Location location);
+
+	/**
+	 * @return the horizontal bounds of the zone, so it is only checked at locations in chunks it overlaps, or null
+	 * if the zone is not bounded
+	 */
+	public ZoneBounds getBounds() {
+		return null;
+	}
 	
 	public String getId() {
 		return id;
@@ -80,5 +88,12 @@ public abstract class NoMagicZone implements Comparable<NoMagicZone> {
 		IGNORED
 		
 	}
+
+	/**
+	 * Block coordinates are inclusive, and the world name is compared ignoring case.
+	 */
+	public record ZoneBounds(String worldName, int minX, int minZ, int maxX, int maxZ) {
+
+	}
 	
 }
@@ -66,5 +66,10 @@ public class NoMagicZoneCuboid extends NoMagicZone {
 		int z = location.getBlockZ();
 		return minX <= x && x <= maxX && minY <= y && y <= maxY && minZ <= z && z <= maxZ;
 	}
+
+	@Override
+	public ZoneBounds getBounds() {
+		return new ZoneBounds(worldName, minX, minZ, maxX, maxZ);
+	}
 	
 }
@@ -2,9 +2,17 @@ package com.nisovin.magicspells.zones;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.LivingEntity;
@@ -17,14 +25,28 @@ import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.DependsOn;
 import com.nisovin.magicspells.util.SpellData;
 import com.nisovin.magicspells.util.MagicConfig;
+import com.nisovin.magicspells.zones.NoMagicZone.ZoneBounds;
 import com.nisovin.magicspells.zones.NoMagicZone.ZoneCheckResult;
 
+/**
+ * Zones with bounds are indexed by the chunks they overlap, per world, so a location is only checked against the
+ * zones of its chunk, in priority order, along with the zones without bounds. Zones overlapping more than
+ * {@link #MAX_INDEXED_CHUNKS} chunks are treated as zones without bounds.
+ */
 public class NoMagicZoneManager {
 
+	private static final int MAX_INDEXED_CHUNKS = 4096;
+	private static final NoMagicZone[] EMPTY = new NoMagicZone[0];
+
 	private Map<String, Class<? extends NoMagicZone>> zoneTypes;
 	private Map<String, NoMagicZone> zones;
 	private Set<NoMagicZone> zonesOrdered;
 
+	// Lower case world name to index, and exact world name to index as looked up.
+	private Map<String, Long2ObjectMap<NoMagicZone[]>> worldIndexes = new HashMap<>();
+	private final Map<String, Long2ObjectMap<NoMagicZone[]>> resolvedIndexes = new ConcurrentHashMap<>();
+	private NoMagicZone[] unboundedZones = EMPTY;
+
 	public NoMagicZoneManager() {
 		// Create zone types
 		zoneTypes = new HashMap<>();
@@ -87,17 +109,86 @@ public class NoMagicZoneManager {
 			}
 		}
 
+		buildIndex();
+
 		MagicSpells.debug(1, "No-magic zones loaded: " + zones.size());
 	}
 
+	private void buildIndex() {
+		worldIndexes = new HashMap<>();
+		resolvedIndexes.clear();
+
+		// Zones are visited in priority order, so every list stays ordered.
+		List<NoMagicZone> unbounded = new ArrayList<>();
+		Map<String, Long2ObjectMap<List<NoMagicZone>>> chunkZones = new HashMap<>();
+
+		for (NoMagicZone zone : zonesOrdered) {
+			ZoneBounds bounds = zone.getBounds();
+
+			int minChunkX = 0, minChunkZ = 0, maxChunkX = -1, maxChunkZ = -1;
+			if (bounds != null && bounds.worldName() != null) {
+				minChunkX = bounds.minX() >> 4;
+				minChunkZ = bounds.minZ() >> 4;
+				maxChunkX = bounds.maxX() >> 4;
+				maxChunkZ = bounds.maxZ() >> 4;
+			}
+
+			long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+			if (chunkCount <= 0 || chunkCount > MAX_INDEXED_CHUNKS) {
+				unbounded.add(zone);
+				for (Long2ObjectMap<List<NoMagicZone>> chunks : chunkZones.values())
+					for (List<NoMagicZone> list : chunks.values()) list.add(zone);
+				continue;
+			}
+
+			Long2ObjectMap<List<NoMagicZone>> chunks = chunkZones.computeIfAbsent(bounds.worldName().toLowerCase(), w -> new Long2ObjectOpenHashMap<>());
+			for (int x = minChunkX; x <= maxChunkX; x++) {
+				for (int z = minChunkZ; z <= maxChunkZ; z++) {
+					List<NoMagicZone> list = chunks.computeIfAbsent(Chunk.getChunkKey(x, z), k -> new ArrayList<>(unbounded));
+					list.add(zone);
+				}
+			}
+		}
+
+		unboundedZones = unbounded.toArray(EMPTY);
+		chunkZones.forEach((world, chunks) -> {
+			Long2ObjectMap<NoMagicZone[]> index = new Long2ObjectOpenHashMap<>(chunks.size());
+			chunks.forEach((key, list) -> index.put((long) key, list.toArray(EMPTY)));
+			index.defaultReturnValue(unboundedZones);
+			worldIndexes.put(world, index);
+		});
+	}
+
+	/**
+	 * @return the zones that may contain the location, in priority order
+	 */
+	private NoMagicZone[] getZones(Location location) {
+		World world = location.getWorld();
+		if (world == null || worldIndexes.isEmpty()) return unboundedZones;
+
+		Long2ObjectMap<NoMagicZone[]> index = resolvedIndexes.computeIfAbsent(world.getName(), name -> {
+			Long2ObjectMap<NoMagicZone[]> found = worldIndexes.get(name.toLowerCase());
+			if (found != null) return found;
+
+			Long2ObjectMap<NoMagicZone[]> empty = new Long2ObjectOpenHashMap<>(0);
+			empty.defaultReturnValue(unboundedZones);
+			return empty;
+		});
+
+		return index.get(Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+	}
+
+	public boolean hasZones() {
+		return zonesOrdered != null && !zonesOrdered.isEmpty();
+	}
+
 	public boolean willFizzle(LivingEntity livingEntity, Spell spell) {
 		return willFizzle(livingEntity.getLocation(), spell);
 	}
 
 	public boolean willFizzle(Location location, Spell spell) {
 		if (zonesOrdered == null || zonesOrdered.isEmpty()) return false;
-		for (NoMagicZone zone : zonesOrdered) {
-			if (zone == null) return false;
+		for (NoMagicZone zone : getZones(location)) {
 			ZoneCheckResult result = zone.check(location, spell);
 			if (result == ZoneCheckResult.DENY) return true;
 			if (result == ZoneCheckResult.ALLOW) return false;
@@ -121,8 +212,9 @@ public class NoMagicZoneManager {
 
 	@Deprecated
 	public void sendNoMagicMessage(Spell spell, LivingEntity caster, String[] args) {
-		for (NoMagicZone zone : zonesOrdered) {
-			ZoneCheckResult result = zone.check(caster.getLocation(), spell);
+		Location location = caster.getLocation();
+		for (NoMagicZone zone : getZones(location)) {
+			ZoneCheckResult result = zone.check(location, spell);
 			if (result != ZoneCheckResult.DENY) continue;
 			MagicSpells.sendMessage(zone.getMessage(), caster, args);
 			return;
@@ -130,8 +222,9 @@ public class NoMagicZoneManager {
 	}
 
 	public void sendNoMagicMessage(Spell spell, SpellData data) {
-		for (NoMagicZone zone : zonesOrdered) {
-			ZoneCheckResult result = zone.check(data.caster().getLocation(), spell);
+		Location location = data.caster().getLocation();
+		for (NoMagicZone zone : getZones(location)) {
+			ZoneCheckResult result = zone.check(location, spell);
 			if (result != ZoneCheckResult.DENY) continue;
 			MagicSpells.sendMessage(zone.getMessage(), data.caster(), data);
 			return;
@@ -164,6 +257,10 @@ public class NoMagicZoneManager {
 		if (zones != null) zones.clear();
 		zoneTypes = null;
 		zones = null;
+
+		worldIndexes.clear();
+		resolvedIndexes.clear();
+		unboundedZones = EMPTY;
 	}
 
 }
@@ -1,7 +1,12 @@
 package com.nisovin.magicspells.zones;
 
+import it.unimi.dsi.fastutil.longs.Long2BooleanMap;
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+
 import org.bukkit.World;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 
 import com.sk89q.worldguard.WorldGuard;
@@ -13,6 +18,7 @@ import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.nisovin.magicspells.util.Name;
 import com.nisovin.magicspells.MagicSpells;
 import com.nisovin.magicspells.util.DependsOn;
+import com.nisovin.magicspells.util.TaskDispatcher;
 
 @Name("worldguard")
 @DependsOn("WorldGuard")
@@ -21,6 +27,10 @@ public class NoMagicZoneWorldGuard extends NoMagicZone {
 	private String worldName;
 	private String regionName;
 
+	// Results of the current tick by block position. Not used on Folia, where zones are checked from several threads.
+	private final Long2BooleanMap cache = new Long2BooleanOpenHashMap();
+	private int cacheTick = -1;
+
 	@Override
 	public void initialize(ConfigurationSection config) {
 		worldName = config.getString("world");
@@ -42,6 +52,26 @@ public class NoMagicZoneWorldGuard extends NoMagicZone {
 		World world = location.getWorld();
 		if (world == null || !world.getName().equals(worldName)) return false;
 
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+		if (TaskDispatcher.isFolia()) return contains(world, x, y, z);
+
+		int tick = Bukkit.getCurrentTick();
+		if (tick != cacheTick) {
+			cacheTick = tick;
+			cache.clear();
+		}
+
+		long key = Block.getBlockKey(x, y, z);
+		if (cache.containsKey(key)) return cache.get(key);
+
+		boolean contains = contains(world, x, y, z);
+		cache.put(key, contains);
+		return contains;
+	}
+
+	private boolean contains(World world, int x, int y, int z) {
 		RegionManager regionManager = WorldGuard.getInstance()
 			.getPlatform()
 			.getRegionContainer()
@@ -53,7 +83,7 @@ public class NoMagicZoneWorldGuard extends NoMagicZone {
 			return false;
 		}
 
-		return region.getType() == RegionType.GLOBAL || region.contains(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+		return region.getType() == RegionType.GLOBAL || region.contains(x, y, z);
 	}
 
 }
@@ -6,6 +6,7 @@ include("memory")
 include("shop")
 include("teams")
 include("towny")
+include("benchmarks")
 
 include(":nms:shared")
 include(":nms:v1_21")